@@ -0,0 +1,98 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import org.esa.beam.meris.qaa.bench.SyntheticSpectra;
+import org.esa.beam.meris.qaa.brewin.ConfAlgorithm;
+import org.esa.beam.meris.qaa.brewin.MerisConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the exception based signalling of imaginary numbers with the status codes returned by the
+ * unchecked kernels, on spectra of which a given fraction takes the imaginary branch.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ImaginaryBranchBenchmark {
+
+    private static final int NUM_PIXELS = 100000;
+
+    @Param({"0.3"})
+    public double imaginaryFraction;
+
+    private float[][] spectra;
+    private Qaa qaa;
+    private QaaWorkspace workspace;
+    private ConfAlgorithm confAlgorithm;
+    private QaaResult result;
+
+    @Setup
+    public void setUp() {
+        spectra = SyntheticSpectra.create(NUM_PIXELS, imaginaryFraction, 0.0, 7L);
+        qaa = new Qaa(QaaConstants.NO_DATA_VALUE);
+        workspace = new QaaWorkspace();
+        confAlgorithm = new ConfAlgorithm(new MerisConfig());
+        result = new QaaResult();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public void qaaWithException(Blackhole blackhole) {
+        for (float[] spectrum : spectra) {
+            System.arraycopy(spectrum, 0, workspace.rrs, 0, spectrum.length);
+            try {
+                qaa.qaaf_v5(workspace.rrs, workspace.rrs_pixel, workspace.a_pixel, workspace.bbSpm_pixel, workspace.u);
+                blackhole.consume(workspace.a_pixel[0]);
+            } catch (ImaginaryNumberException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public void qaaWithStatus(Blackhole blackhole) {
+        for (float[] spectrum : spectra) {
+            System.arraycopy(spectrum, 0, workspace.rrs, 0, spectrum.length);
+            blackhole.consume(qaa.qaaf_v5_unchecked(workspace.rrs, workspace.rrs_pixel, workspace.a_pixel,
+                                                    workspace.bbSpm_pixel, workspace.u));
+            blackhole.consume(workspace.a_pixel[0]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public void confAlgorithmWithException(Blackhole blackhole) {
+        for (float[] spectrum : spectra) {
+            try {
+                blackhole.consume(confAlgorithm.process(spectrum, result));
+            } catch (ImaginaryNumberException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public void confAlgorithmWithStatus(Blackhole blackhole) {
+        for (float[] spectrum : spectra) {
+            blackhole.consume(confAlgorithm.processUnchecked(spectrum, result));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import org.esa.beam.meris.qaa.bench.PixelMix;
+import org.esa.beam.meris.qaa.bench.SyntheticSpectra;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the pixel throughput of the QAA v5 steps and of the QaaAlgorithm entry points. The lookup table entry
+ * point processes the spectra quantised to 16-bit integers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class QaaKernelBenchmark {
+
+    private static final int NUM_PIXELS = 100000;
+    private static final double RAW_SCALING_FACTOR = 1.0e-5;
+    private static final int SPECTRUM_REPETITIONS = 8;
+    private static final int SPECTRUM_CACHE_CAPACITY = 1024;
+
+    @Param
+    public PixelMix pixelMix;
+
+    @Param({"false", "true"})
+    public boolean fastMath;
+
+    private float[][] spectra;
+    private float[][] rrsSpectra;
+    private float[][] rrsByBand;
+    private short[][] rawByBand;
+    private float[][] repeatedByBand;
+    private float[][] rrsPixels;
+    private float[][] aPixels;
+
+    private Qaa qaa;
+    private QaaAlgorithm algorithm;
+    private QaaAlgorithm scalarAlgorithm;
+    private QaaAlgorithm bbSpmAlgorithm;
+    private QaaRrsLut rrsLut;
+    private QaaWorkspace workspace;
+    private QaaWorkspace cachingWorkspace;
+    private QaaResult result;
+    private QaaResultBuffer resultBuffer;
+    private QaaBulkProcessor bulkProcessor;
+
+    @Setup
+    public void setUp() {
+        spectra = pixelMix.createSpectra(NUM_PIXELS);
+        rrsSpectra = pixelMix.createRrsSpectra(NUM_PIXELS);
+        rrsByBand = SyntheticSpectra.toBandMajor(spectra);
+        qaa = new Qaa(QaaConstants.NO_DATA_VALUE, QaaMath.get(fastMath));
+        algorithm = new QaaAlgorithm();
+        algorithm.getConfig().setBlockKernel(true);
+        algorithm.getConfig().setFastMath(fastMath);
+        scalarAlgorithm = new QaaAlgorithm();
+        scalarAlgorithm.getConfig().setBlockKernel(false);
+        scalarAlgorithm.getConfig().setFastMath(fastMath);
+        bbSpmAlgorithm = new QaaAlgorithm();
+        bbSpmAlgorithm.getConfig().setFastMath(fastMath);
+        bbSpmAlgorithm.getConfig().setDecomposition(false);
+        rawByBand = quantise(rrsByBand);
+        rrsLut = createRrsLut(algorithm.getConfig());
+        repeatedByBand = repeat(rrsByBand, SPECTRUM_REPETITIONS);
+        workspace = new QaaWorkspace();
+        cachingWorkspace = new QaaWorkspace();
+        cachingWorkspace.setSpectrumCache(new QaaSpectrumCache(SPECTRUM_CACHE_CAPACITY));
+        result = new QaaResult();
+        resultBuffer = new QaaResultBuffer(NUM_PIXELS);
+        bulkProcessor = new QaaBulkProcessor(algorithm);
+
+        // input of steps 7-10
+        rrsPixels = new float[NUM_PIXELS][];
+        aPixels = new float[NUM_PIXELS][];
+        for (int i = 0; i < NUM_PIXELS; i++) {
+            rrsPixels[i] = new float[SyntheticSpectra.NUM_BANDS];
+            aPixels[i] = new float[SyntheticSpectra.NUM_BANDS - 1];
+            final float[] Rrs = rrsSpectra[i].clone();
+            qaa.qaaf_v5_unchecked(Rrs, rrsPixels[i], aPixels[i], workspace.bbSpm_pixel, workspace.u);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public void qaaf_v5(Blackhole blackhole) {
+        final float[] Rrs = workspace.rrs;
+        for (float[] rrsSpectrum : rrsSpectra) {
+            // qaaf_v5 modifies the input at 665 nm
+            System.arraycopy(rrsSpectrum, 0, Rrs, 0, Rrs.length);
+            blackhole.consume(qaa.qaaf_v5_unchecked(Rrs, workspace.rrs_pixel, workspace.a_pixel,
+                                                    workspace.bbSpm_pixel, workspace.u));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public void qaaf_decomp(Blackhole blackhole) {
+        for (int i = 0; i < NUM_PIXELS; i++) {
+            qaa.qaaf_decomp(rrsPixels[i], aPixels[i], workspace.aPig_pixel, workspace.aYs_pixel);
+            blackhole.consume(workspace.aYs_pixel[0]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public void process(Blackhole blackhole) {
+        for (float[] spectrum : spectra) {
+            blackhole.consume(algorithm.process(spectrum, result, workspace));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public QaaResultBuffer processBatch() {
+        algorithm.processBatch(rrsByBand, 0, NUM_PIXELS, resultBuffer, workspace);
+        return resultBuffer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public QaaResultBuffer processBatchScalar() {
+        scalarAlgorithm.processBatch(rrsByBand, 0, NUM_PIXELS, resultBuffer, workspace);
+        return resultBuffer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public QaaResultBuffer processBatchLut() {
+        algorithm.processBatch(rawByBand, 0, NUM_PIXELS, rrsLut, resultBuffer, workspace);
+        return resultBuffer;
+    }
+
+    /**
+     * The batch entry point on all cores, split into tasks of the default grain size.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public QaaFlagCounts processBulk() {
+        return bulkProcessor.process(rrsByBand, 0, NUM_PIXELS, resultBuffer);
+    }
+
+    /**
+     * Only bb_spm is computed, steps 7 - 10 are skipped.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public QaaResultBuffer processBatchWithoutDecomposition() {
+        bbSpmAlgorithm.processBatch(rrsByBand, 0, NUM_PIXELS, resultBuffer, workspace);
+        return resultBuffer;
+    }
+
+    /**
+     * All spectra are different, so this measures the overhead of the cache lookups.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public QaaResultBuffer processBatchCached() {
+        algorithm.processBatch(rrsByBand, 0, NUM_PIXELS, resultBuffer, cachingWorkspace);
+        return resultBuffer;
+    }
+
+    /**
+     * Each spectrum is repeated 8 times in a row, as in homogeneous water areas.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public QaaResultBuffer processBatchCachedRepeated() {
+        algorithm.processBatch(repeatedByBand, 0, NUM_PIXELS, resultBuffer, cachingWorkspace);
+        return resultBuffer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public QaaResultBuffer processBatchRepeated() {
+        algorithm.processBatch(repeatedByBand, 0, NUM_PIXELS, resultBuffer, workspace);
+        return resultBuffer;
+    }
+
+    private static float[][] repeat(float[][] valuesByBand, int repetitions) {
+        final float[][] repeated = new float[valuesByBand.length][];
+        for (int b = 0; b < valuesByBand.length; b++) {
+            repeated[b] = new float[valuesByBand[b].length];
+            for (int i = 0; i < repeated[b].length; i++) {
+                repeated[b][i] = valuesByBand[b][i / repetitions];
+            }
+        }
+        return repeated;
+    }
+
+    // the spectra as signed 16-bit integers, as stored in the products
+    private static short[][] quantise(float[][] valuesByBand) {
+        final short[][] raw = new short[valuesByBand.length][];
+        for (int b = 0; b < valuesByBand.length; b++) {
+            raw[b] = new short[valuesByBand[b].length];
+            for (int i = 0; i < raw[b].length; i++) {
+                final long value = Math.round(valuesByBand[b][i] / RAW_SCALING_FACTOR);
+                raw[b][i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+            }
+        }
+        return raw;
+    }
+
+    private static QaaRrsLut createRrsLut(QaaConfig config) {
+        final double[] scalingFactors = new double[SyntheticSpectra.NUM_BANDS];
+        final double[] scalingOffsets = new double[SyntheticSpectra.NUM_BANDS];
+        final boolean[] signed = new boolean[SyntheticSpectra.NUM_BANDS];
+        Arrays.fill(scalingFactors, RAW_SCALING_FACTOR);
+        Arrays.fill(signed, true);
+        return new QaaRrsLut(scalingFactors, scalingOffsets, signed, config);
+    }
+}
@@ -0,0 +1,52 @@
+package org.esa.beam.meris.qaa.bench;
+
+/**
+ * The mixtures of valid, imaginary and out-of-bounds pixels the benchmarks are parameterised with.
+ */
+public enum PixelMix {
+
+    VALID(0.0, 0.0),
+    IMAGINARY(0.3, 0.0),
+    OUT_OF_BOUNDS(0.0, 0.3),
+    MIXED(0.15, 0.15);
+
+    private final double imaginaryFraction;
+    private final double outOfBoundsFraction;
+
+    PixelMix(double imaginaryFraction, double outOfBoundsFraction) {
+        this.imaginaryFraction = imaginaryFraction;
+        this.outOfBoundsFraction = outOfBoundsFraction;
+    }
+
+    public double getImaginaryFraction() {
+        return imaginaryFraction;
+    }
+
+    public double getOutOfBoundsFraction() {
+        return outOfBoundsFraction;
+    }
+
+    /**
+     * @param count the number of spectra
+     *
+     * @return reflectance spectra, spectra[pixel][band]
+     */
+    public float[][] createSpectra(int count) {
+        return SyntheticSpectra.create(count, imaginaryFraction, outOfBoundsFraction, 11L);
+    }
+
+    /**
+     * @param count the number of spectra
+     *
+     * @return remote sensing reflectance spectra, i.e. the reflectances divided by PI, spectra[pixel][band]
+     */
+    public float[][] createRrsSpectra(int count) {
+        final float[][] spectra = createSpectra(count);
+        for (float[] spectrum : spectra) {
+            for (int b = 0; b < spectrum.length; b++) {
+                spectrum[b] /= Math.PI;
+            }
+        }
+        return spectra;
+    }
+}
@@ -0,0 +1,113 @@
+package org.esa.beam.meris.qaa.bench;
+
+import org.esa.beam.dataio.envisat.EnvisatConstants;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.framework.gpf.OperatorException;
+import org.esa.beam.framework.gpf.annotations.Parameter;
+import org.esa.beam.framework.gpf.annotations.SourceProduct;
+import org.esa.beam.framework.gpf.pointop.PixelOperator;
+import org.esa.beam.framework.gpf.pointop.ProductConfigurer;
+import org.esa.beam.framework.gpf.pointop.Sample;
+import org.esa.beam.framework.gpf.pointop.SampleConfigurer;
+import org.esa.beam.framework.gpf.pointop.WritableSample;
+import org.esa.beam.jai.ResolutionLevel;
+import org.esa.beam.jai.VirtualBandOpImage;
+import org.esa.beam.meris.qaa.algorithm.QaaAlgorithm;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaConstants;
+import org.esa.beam.meris.qaa.algorithm.QaaResult;
+
+import java.awt.Rectangle;
+
+/**
+ * The per-pixel implementation of the QAA operator as it was before the tile based engine
+ * has been introduced. Only used as reference for the benchmarks.
+ */
+public class PixelQaaOp extends PixelOperator {
+
+    private static final int[] A_TOTAL_BAND_INDEXES = QaaBandLayout.MERIS.getATotalBandIndexes();
+    private static final int[] BB_SPM_BAND_INDEXES = QaaBandLayout.MERIS.getBbSpmBandIndexes();
+    private static final int[] A_PIG_BAND_INDEXES = QaaBandLayout.MERIS.getAPigBandIndexes();
+    private static final int[] A_YS_BAND_INDEXES = QaaBandLayout.MERIS.getAYsBandIndexes();
+    private static final int FLAG_BAND_INDEX = QaaBandLayout.MERIS.getFlagBandIndex();
+
+    @SourceProduct
+    private Product sourceProduct;
+
+    @Parameter(defaultValue = "l2_flags.WATER")
+    private String validPixelExpression;
+
+    private VirtualBandOpImage validOpImage;
+    private QaaAlgorithm qaaAlgorithm;
+    private ThreadLocal<QaaResult> qaaResult;
+
+    @Override
+    protected void prepareInputs() throws OperatorException {
+        validOpImage = VirtualBandOpImage.createMask(validPixelExpression, sourceProduct, ResolutionLevel.MAXRES);
+        qaaAlgorithm = new QaaAlgorithm();
+        qaaResult = new ThreadLocal<QaaResult>() {
+            @Override
+            protected QaaResult initialValue() {
+                return new QaaResult();
+            }
+        };
+    }
+
+    @Override
+    protected void configureTargetProduct(ProductConfigurer configurer) {
+        super.configureTargetProduct(configurer);
+        for (int i = 0; i < 16; i++) {
+            configurer.addBand("iop_" + i, ProductData.TYPE_FLOAT32, QaaConstants.NO_DATA_VALUE);
+        }
+        configurer.addBand("analytical_flags", ProductData.TYPE_UINT8);
+    }
+
+    @Override
+    protected void configureSourceSamples(SampleConfigurer sampleConfigurer) throws OperatorException {
+        for (int i = 0; i < 7; i++) {
+            sampleConfigurer.defineSample(i, EnvisatConstants.MERIS_L2_BAND_NAMES[i]);
+        }
+    }
+
+    @Override
+    protected void configureTargetSamples(SampleConfigurer sampleConfigurer) throws OperatorException {
+        for (int i = 0; i < 16; i++) {
+            sampleConfigurer.defineSample(i, "iop_" + i);
+        }
+        sampleConfigurer.defineSample(16, "analytical_flags");
+    }
+
+    @Override
+    protected void computePixel(int x, int y, Sample[] sourceSamples, WritableSample[] targetSamples) {
+        QaaResult result = qaaResult.get();
+
+        if (validOpImage.getData(new Rectangle(x, y, 1, 1)).getSample(x, y, 0) != 0) {
+            final float[] rrs = new float[sourceSamples.length];
+            for (int i = 0; i < rrs.length; i++) {
+                rrs[i] = sourceSamples[i].getFloat();
+            }
+            result = qaaAlgorithm.process(rrs, result);
+        } else {
+            result.invalidate();
+        }
+
+        final float[] a_total = result.getA_Total();
+        for (int i = 0; i < a_total.length; i++) {
+            targetSamples[A_TOTAL_BAND_INDEXES[i]].set(a_total[i]);
+        }
+        final float[] bb_spm = result.getBB_SPM();
+        for (int i = 0; i < bb_spm.length; i++) {
+            targetSamples[BB_SPM_BAND_INDEXES[i]].set(bb_spm[i]);
+        }
+        final float[] a_pig = result.getA_PIG();
+        for (int i = 0; i < a_pig.length; i++) {
+            targetSamples[A_PIG_BAND_INDEXES[i]].set(a_pig[i]);
+        }
+        final float[] a_ys = result.getA_YS();
+        for (int i = 0; i < a_ys.length; i++) {
+            targetSamples[A_YS_BAND_INDEXES[i]].set(a_ys[i]);
+        }
+        targetSamples[FLAG_BAND_INDEX].set(result.getFlags());
+    }
+}
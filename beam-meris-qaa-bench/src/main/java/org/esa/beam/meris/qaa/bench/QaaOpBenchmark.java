@@ -0,0 +1,77 @@
+package org.esa.beam.meris.qaa.bench;
+
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.gpf.Operator;
+import org.esa.beam.meris.qaa.QaaOp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.media.jai.JAI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the QAA operator in pixels per second on an in-memory scene.
+ * The per-pixel operator the tile engine has replaced is measured as reference.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class QaaOpBenchmark {
+
+    private static final int SCENE_SIZE = 1024;
+    private static final int NUM_PIXELS = SCENE_SIZE * SCENE_SIZE;
+
+    // open ocean and a land-heavy coastal scene
+    @Param({"0.0", "0.8"})
+    public double landFraction;
+
+    @Param({"VALID", "MIXED"})
+    public PixelMix pixelMix;
+
+    private Product sourceProduct;
+
+    @Setup(Level.Trial)
+    public void createSourceProduct() {
+        sourceProduct = SyntheticProduct.create(SCENE_SIZE, SCENE_SIZE, landFraction,
+                                                pixelMix.getImaginaryFraction(),
+                                                pixelMix.getOutOfBoundsFraction());
+    }
+
+    @Setup(Level.Invocation)
+    public void flushTileCache() {
+        JAI.getDefaultInstance().getTileCache().flush();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public Product tileOperator() {
+        return compute(new QaaOp());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public Product pixelOperator() {
+        return compute(new PixelQaaOp());
+    }
+
+    private Product compute(Operator operator) {
+        operator.setSourceProduct(sourceProduct);
+        final Product targetProduct = operator.getTargetProduct();
+        SyntheticProduct.computeAllBands(targetProduct);
+        return targetProduct;
+    }
+}
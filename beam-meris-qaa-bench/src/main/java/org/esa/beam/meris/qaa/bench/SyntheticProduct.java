@@ -0,0 +1,76 @@
+package org.esa.beam.meris.qaa.bench;
+
+import org.esa.beam.dataio.envisat.EnvisatConstants;
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.FlagCoding;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.datamodel.ProductData;
+
+import java.util.Random;
+
+/**
+ * Creates in-memory MERIS L2 like products used as input for the benchmarks.
+ */
+final class SyntheticProduct {
+
+    static final int WATER_FLAG_MASK = 0x200000;
+
+    private SyntheticProduct() {
+    }
+
+    /**
+     * Creates a product with the seven reflectance bands needed by QAA and a 'l2_flags' band.
+     * The left part of the scene is land, the right part water, like a coastal scene.
+     *
+     * @param width               the scene width
+     * @param height              the scene height
+     * @param landFraction        the fraction of each line which is flagged as land
+     * @param imaginaryFraction   the fraction of pixels for which QAA produces an imaginary number
+     * @param outOfBoundsFraction the fraction of pixels for which QAA produces out-of-bounds values
+     *
+     * @return the product
+     *
+     * @see SyntheticSpectra#create(int, double, double, long)
+     */
+    static Product create(int width, int height, double landFraction, double imaginaryFraction,
+                          double outOfBoundsFraction) {
+        final Product product = new Product("synthetic", "MER_FR__2P", width, height);
+        final Random random = new Random(5L);
+        final int numPixels = width * height;
+        final int coastLine = (int) Math.round(width * landFraction);
+
+        final float[][] reflec = new float[SyntheticSpectra.NUM_BANDS][numPixels];
+        final int[] l2Flags = new int[numPixels];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int index = y * width + x;
+                final float[] spectrum = SyntheticSpectra.createSpectrum(random, imaginaryFraction,
+                                                                        outOfBoundsFraction);
+                for (int b = 0; b < reflec.length; b++) {
+                    reflec[b][index] = spectrum[b];
+                }
+                l2Flags[index] = x < coastLine ? 0 : WATER_FLAG_MASK;
+            }
+        }
+
+        for (int b = 0; b < reflec.length; b++) {
+            final Band band = product.addBand(EnvisatConstants.MERIS_L2_BAND_NAMES[b], ProductData.TYPE_FLOAT32);
+            band.setSpectralWavelength(EnvisatConstants.MERIS_WAVELENGTHS[b]);
+            band.setRasterData(ProductData.createInstance(reflec[b]));
+        }
+
+        final FlagCoding flagCoding = new FlagCoding("l2_flags");
+        flagCoding.addFlag("WATER", WATER_FLAG_MASK, "Pixel is water");
+        product.getFlagCodingGroup().add(flagCoding);
+        final Band flagBand = product.addBand("l2_flags", ProductData.TYPE_INT32);
+        flagBand.setSampleCoding(flagCoding);
+        flagBand.setRasterData(ProductData.createInstance(l2Flags));
+        return product;
+    }
+
+    static void computeAllBands(Product product) {
+        for (Band band : product.getBands()) {
+            band.getSourceImage().getData();
+        }
+    }
+}
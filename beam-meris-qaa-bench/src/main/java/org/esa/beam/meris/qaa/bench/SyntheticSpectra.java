@@ -0,0 +1,85 @@
+package org.esa.beam.meris.qaa.bench;
+
+import java.util.Random;
+
+/**
+ * Creates reproducible sets of MERIS reflectance spectra for the benchmarks.
+ */
+public final class SyntheticSpectra {
+
+    public static final int NUM_BANDS = 7;
+
+    // MER_FRS_2PNMAP20110521_082527_000001943102_00366_48225_0001.N1, pixel 624/3429
+    static final float[] WATER_SPECTRUM = {
+            0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f
+    };
+
+    // turbid water, QAA computes a_ys values above the default upper bound
+    static final float[] TURBID_SPECTRUM = {
+            0.005f, 0.008f, 0.02f, 0.03f, 0.045f, 0.02f, 0.015f
+    };
+
+    // a negative reflectance at 412 nm lets step 1 of QAA produce an imaginary number
+    private static final float IMAGINARY_REFLEC_1 = -0.2f;
+
+    private SyntheticSpectra() {
+    }
+
+    /**
+     * Creates spectra varying around a clear water spectrum, mixed with spectra leading to an imaginary number
+     * and spectra leading to out-of-bounds values.
+     *
+     * @param count               the number of spectra
+     * @param imaginaryFraction   the fraction of spectra for which QAA produces an imaginary number
+     * @param outOfBoundsFraction the fraction of spectra for which QAA produces out-of-bounds values
+     * @param seed                the seed of the random generator
+     *
+     * @return the spectra, spectra[pixel][band]
+     */
+    public static float[][] create(int count, double imaginaryFraction, double outOfBoundsFraction, long seed) {
+        final Random random = new Random(seed);
+        final float[][] spectra = new float[count][];
+        for (int i = 0; i < count; i++) {
+            spectra[i] = createSpectrum(random, imaginaryFraction, outOfBoundsFraction);
+        }
+        return spectra;
+    }
+
+    /**
+     * Converts pixel-major spectra into the band-major layout expected by the batch APIs.
+     *
+     * @param spectra the spectra, spectra[pixel][band]
+     *
+     * @return the spectra, rrsByBand[band][pixel]
+     */
+    public static float[][] toBandMajor(float[][] spectra) {
+        final float[][] rrsByBand = new float[NUM_BANDS][spectra.length];
+        for (int p = 0; p < spectra.length; p++) {
+            for (int b = 0; b < NUM_BANDS; b++) {
+                rrsByBand[b][p] = spectra[p][b];
+            }
+        }
+        return rrsByBand;
+    }
+
+    static float[] createSpectrum(Random random, double imaginaryFraction, double outOfBoundsFraction) {
+        final double category = random.nextDouble();
+        if (category < imaginaryFraction) {
+            final float[] spectrum = createSpectrum(random, WATER_SPECTRUM);
+            spectrum[0] = IMAGINARY_REFLEC_1;
+            return spectrum;
+        } else if (category < imaginaryFraction + outOfBoundsFraction) {
+            return createSpectrum(random, TURBID_SPECTRUM);
+        }
+        return createSpectrum(random, WATER_SPECTRUM);
+    }
+
+    private static float[] createSpectrum(Random random, float[] baseSpectrum) {
+        final float[] spectrum = new float[NUM_BANDS];
+        final float scale = 0.9f + 0.2f * random.nextFloat();
+        for (int b = 0; b < NUM_BANDS; b++) {
+            spectrum[b] = baseSpectrum[b] * scale * (0.98f + 0.04f * random.nextFloat());
+        }
+        return spectrum;
+    }
+}
@@ -0,0 +1,86 @@
+package org.esa.beam.meris.qaa.brewin;
+
+import org.esa.beam.meris.qaa.algorithm.ImaginaryNumberException;
+import org.esa.beam.meris.qaa.algorithm.QaaResult;
+import org.esa.beam.meris.qaa.bench.PixelMix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the pixel throughput of the configurable QAA implementation for each shipped sensor configuration
+ * in double and float precision.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConfAlgorithmBenchmark {
+
+    private static final int NUM_PIXELS = 100000;
+
+    @Param({SensorConfigFactory.MERIS, SensorConfigFactory.MERIS_OLD_COEFFS, SensorConfigFactory.MODIS,
+            SensorConfigFactory.SEAWIFS})
+    public String sensor;
+
+    @Param
+    public PixelMix pixelMix;
+
+    @Param
+    public ConfAlgorithm.Precision precision;
+
+    private float[][] spectra;
+    private ConfAlgorithm algorithm;
+    private QaaResult result;
+    private ConfWorkspace workspace;
+
+    @Setup
+    public void setUp() {
+        spectra = pixelMix.createRrsSpectra(NUM_PIXELS);
+        algorithm = new ConfAlgorithm(SensorConfigFactory.create(sensor), precision);
+        result = new QaaResult();
+        workspace = new ConfWorkspace();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public void process(Blackhole blackhole) {
+        for (float[] spectrum : spectra) {
+            try {
+                blackhole.consume(algorithm.process(spectrum, result));
+            } catch (ImaginaryNumberException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public void processUnchecked(Blackhole blackhole) {
+        for (float[] spectrum : spectra) {
+            blackhole.consume(algorithm.processUnchecked(spectrum, result));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PIXELS)
+    public void processUncheckedWithWorkspace(Blackhole blackhole) {
+        for (float[] spectrum : spectra) {
+            blackhole.consume(algorithm.processUnchecked(spectrum, result, workspace));
+        }
+    }
+}
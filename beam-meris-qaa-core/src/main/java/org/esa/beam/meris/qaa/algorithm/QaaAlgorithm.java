@@ -0,0 +1,395 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import java.util.Arrays;
+
+public class QaaAlgorithm {
+
+    private static final double ONE_DIV_PI = 1.0 / Math.PI;
+
+    private QaaConfig config;
+    private final Qaa exactQaa;
+    private final Qaa fastQaa;
+
+    public QaaAlgorithm() {
+        exactQaa = new Qaa(QaaConstants.NO_DATA_VALUE, QaaMath.EXACT);
+        fastQaa = new Qaa(QaaConstants.NO_DATA_VALUE, QaaMath.FAST);
+        config = new QaaConfig();
+    }
+
+    public void setConfig(QaaConfig config) {
+        this.config = config;
+    }
+
+    public QaaConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * process QAA algorithm on a single pixel
+     *
+     * @param rrs_in reflectances at wavelengths
+     *               rrs_in[0] @ 415.5 nm
+     *               rrs_in[1] @ 442.5 nm
+     *               rrs_in[2] @ 490   nm
+     *               rrs_in[3] @ 510   nm
+     *               rrs_in[4] @ 560   nm
+     *               rrs_in[5] @ 620   nm
+     *               rrs_in[6] @ 665   nm
+     * @return the computation result
+     */
+    public QaaResult process(float[] rrs_in, QaaResult recycle) {
+        return process(rrs_in, recycle, new QaaWorkspace());
+    }
+
+    /**
+     * process QAA algorithm on a single pixel using the intermediate arrays of the given workspace.
+     * If a result to recycle is given, no heap memory is allocated. If the workspace has a
+     * {@link QaaSpectrumCache}, the result is taken from the cache if possible.
+     *
+     * @param rrs_in    reflectances at wavelengths, see {@link #process(float[], QaaResult)}
+     * @param recycle   the result to recycle, may be {@code null}
+     * @param workspace the workspace, must not be shared between threads
+     * @return the computation result
+     */
+    public QaaResult process(float[] rrs_in, QaaResult recycle, QaaWorkspace workspace) {
+        final QaaResult result = ensureResult(recycle);
+
+        final float[] rrs = workspace.rrs;
+        final boolean divideByPi = config.isDivideByPi();
+        for (int i = 0; i < rrs.length; i++) {
+            rrs[i] = rrs_in[i];
+            if (divideByPi) {
+                rrs[i] *= ONE_DIV_PI;
+            }
+        }
+
+        final int flags = computeCachedPixel(workspace);
+        if ((flags & QaaConstants.FLAG_MASK_IMAGINARY) != 0) {
+            result.invalidateImaginary();
+        } else {
+            for (int i = 0; i < QaaConstants.NUM_A_TOTAL_BANDS; i++) {
+                result.setA_Total(workspace.aTotal[i], i);
+            }
+            for (int i = 0; i < QaaConstants.NUM_BB_SPM_BANDS; i++) {
+                result.setBB_SPM(workspace.bbSpm[i], i);
+            }
+            for (int i = 0; i < QaaConstants.NUM_A_PIG_BANDS; i++) {
+                result.setA_PIG(workspace.aPig[i], i);
+            }
+            for (int i = 0; i < QaaConstants.NUM_A_YS_BANDS; i++) {
+                result.setA_YS(workspace.aYs[i], i);
+            }
+            result.setFlags(flags);
+        }
+
+        return result;
+    }
+
+    /**
+     * process QAA algorithm on a batch of pixels given as band-major arrays
+     *
+     * @param rrsByBand the reflectances, rrsByBand[band][pixel], bands ordered as described in
+     *                  {@link #process(float[], QaaResult)}
+     * @param offset    the index of the first pixel to process
+     * @param count     the number of pixels to process
+     * @param out       receives the results, the result of a pixel is stored at the same index as its input
+     */
+    public void processBatch(float[][] rrsByBand, int offset, int count, QaaResultBuffer out) {
+        processBatch(rrsByBand, offset, count, out, new QaaWorkspace());
+    }
+
+    /**
+     * process QAA algorithm on a batch of pixels using the intermediate arrays of the given workspace.
+     * No heap memory is allocated, apart from the block buffers on the first use of the workspace.
+     * Depending on {@link QaaConfig#isBlockKernel()} the pixels are processed block-wise or one by one, the IOPs
+     * of the two kernels differ by up to 1e-6 relative and the flags are the same. If the workspace has a
+     * {@link QaaSpectrumCache}, the pixels are always processed one by one and the results are taken from the cache
+     * if possible.
+     *
+     * @param rrsByBand the reflectances, rrsByBand[band][pixel]
+     * @param offset    the index of the first pixel to process
+     * @param count     the number of pixels to process
+     * @param out       receives the results, the result of a pixel is stored at the same index as its input
+     * @param workspace the workspace, must not be shared between threads
+     * @see #processBatch(float[][], int, int, QaaResultBuffer)
+     */
+    public void processBatch(float[][] rrsByBand, int offset, int count, QaaResultBuffer out,
+                             QaaWorkspace workspace) {
+        if (config.isBlockKernel() && workspace.getSpectrumCache() == null) {
+            workspace.getBlockKernel().process(rrsByBand, offset, count, config, out);
+            return;
+        }
+
+        final float[] rrs = workspace.rrs;
+        final boolean divideByPi = config.isDivideByPi();
+        final float[][] aTotalOut = out.getA_Total();
+        final float[][] bbSpmOut = out.getBB_SPM();
+        final float[][] aPigOut = out.getA_PIG();
+        final float[][] aYsOut = out.getA_YS();
+        final byte[] flagsOut = out.getFlags();
+
+        final int end = offset + count;
+        for (int p = offset; p < end; p++) {
+            load(rrsByBand, p, divideByPi, rrs);
+
+            final int flags = computeCachedPixel(workspace);
+            final boolean imaginary = (flags & QaaConstants.FLAG_MASK_IMAGINARY) != 0;
+            store(workspace.aTotal, aTotalOut, p, imaginary);
+            store(workspace.bbSpm, bbSpmOut, p, imaginary);
+            store(workspace.aPig, aPigOut, p, imaginary);
+            store(workspace.aYs, aYsOut, p, imaginary);
+            flagsOut[p] = (byte) flags;
+        }
+    }
+
+    /**
+     * process QAA algorithm on a batch of pixels given as scaled 16-bit integers. Steps 0.1 - 1 are looked up in
+     * the given tables, which replaces the per-pixel scaling, division by PI, division and square root. The pixels
+     * are always processed by the block kernel, whatever {@link QaaConfig#isBlockKernel()} says, and a
+     * {@link QaaSpectrumCache} of the workspace is not used. The results are the same as those of
+     * {@link #processBatch(float[][], int, int, QaaResultBuffer, QaaWorkspace)} with the block kernel on the scaled
+     * values, so they differ from those of the per-pixel kernel by up to 1e-6 relative.
+     *
+     * @param rawByBand the raw reflectances, rawByBand[band][pixel], bands ordered as described in
+     *                  {@link #process(float[], QaaResult)}
+     * @param offset    the index of the first pixel to process
+     * @param count     the number of pixels to process
+     * @param lut       the lookup tables for the scaling of the bands, must be compatible with the configuration
+     * @param out       receives the results, the result of a pixel is stored at the same index as its input
+     * @param workspace the workspace, must not be shared between threads
+     * @throws IllegalArgumentException if the tables have been created for different divide-by-PI or fast-math settings
+     */
+    public void processBatch(short[][] rawByBand, int offset, int count, QaaRrsLut lut, QaaResultBuffer out,
+                             QaaWorkspace workspace) {
+        workspace.getBlockKernel().process(rawByBand, offset, count, lut, config, out);
+    }
+
+    /**
+     * process QAA algorithm on a batch of pixels for several bound variants at once. Steps 0 - 10 are computed
+     * once with the divide-by-PI, fast-math and decomposition settings of the configuration of this algorithm,
+     * then the bounds of each variant are applied and the results are stored into the buffer of the variant.
+     * Only the bounds of the variants are used. Depending on {@link QaaConfig#isBlockKernel()} the pixels are
+     * processed block-wise, or one by one without bounds and the bounds are applied by {@link QaaBoundsFilter}.
+     * A {@link QaaSpectrumCache} of the workspace is not used. The results for a variant are the same as those of
+     * {@link #processBatch(float[][], int, int, QaaResultBuffer, QaaWorkspace)} with its bounds.
+     *
+     * @param rrsByBand the reflectances, rrsByBand[band][pixel]
+     * @param offset    the index of the first pixel to process
+     * @param count     the number of pixels to process
+     * @param variants  the configurations providing the bounds
+     * @param outs      receive the results, one buffer per variant
+     * @param workspace the workspace, must not be shared between threads
+     * @throws IllegalArgumentException if the numbers of variants and buffers differ
+     */
+    public void processBatch(float[][] rrsByBand, int offset, int count, QaaConfig[] variants,
+                             QaaResultBuffer[] outs, QaaWorkspace workspace) {
+        checkVariants(variants, outs);
+        if (config.isBlockKernel()) {
+            workspace.getBlockKernel().process(rrsByBand, offset, count, config, variants, outs);
+            return;
+        }
+
+        final QaaConfig unboundedConfig = createUnboundedConfig(config);
+        final QaaResultBuffer unbounded = workspace.getUnboundedBuffer();
+        final int chunkSize = unbounded.getCapacity();
+        final int end = offset + count;
+        for (int start = offset; start < end; start += chunkSize) {
+            final int n = Math.min(chunkSize, end - start);
+            for (int i = 0; i < n; i++) {
+                load(rrsByBand, start + i, unboundedConfig.isDivideByPi(), workspace.rrs);
+                final int flags = computePixel(workspace, unboundedConfig);
+                final boolean imaginary = (flags & QaaConstants.FLAG_MASK_IMAGINARY) != 0;
+                store(workspace.aTotal, unbounded.getA_Total(), i, imaginary);
+                store(workspace.bbSpm, unbounded.getBB_SPM(), i, imaginary);
+                store(workspace.aPig, unbounded.getA_PIG(), i, imaginary);
+                store(workspace.aYs, unbounded.getA_YS(), i, imaginary);
+                unbounded.getFlags()[i] = (byte) flags;
+            }
+            for (int v = 0; v < variants.length; v++) {
+                QaaBoundsFilter.apply(unbounded, 0, start, n, variants[v], outs[v]);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #processBatch(float[][], int, int, QaaConfig[], QaaResultBuffer[], QaaWorkspace)} with the
+     * block kernel, but for pixels given as scaled 16-bit integers, see
+     * {@link #processBatch(short[][], int, int, QaaRrsLut, QaaResultBuffer, QaaWorkspace)}.
+     *
+     * @throws IllegalArgumentException if the numbers of variants and buffers differ or if the tables have been
+     *                                  created for different divide-by-PI or fast-math settings
+     */
+    public void processBatch(short[][] rawByBand, int offset, int count, QaaRrsLut lut, QaaConfig[] variants,
+                             QaaResultBuffer[] outs, QaaWorkspace workspace) {
+        checkVariants(variants, outs);
+        workspace.getBlockKernel().process(rawByBand, offset, count, lut, config, variants, outs);
+    }
+
+    /*
+     * The steps of the configuration of this algorithm without any bounds, the bounds of the variants are
+     * applied afterwards.
+     */
+    private static QaaConfig createUnboundedConfig(QaaConfig config) {
+        final QaaConfig unboundedConfig = new QaaConfig();
+        unboundedConfig.setDivideByPi(config.isDivideByPi());
+        unboundedConfig.setBlockKernel(false);
+        unboundedConfig.setFastMath(config.isFastMath());
+        unboundedConfig.setDecomposition(config.isDecomposition());
+        QaaBoundsFilter.removeBounds(unboundedConfig);
+        return unboundedConfig;
+    }
+
+    private static void checkVariants(QaaConfig[] variants, QaaResultBuffer[] outs) {
+        if (variants.length != outs.length) {
+            throw new IllegalArgumentException(String.format("Expected %d result buffers but got %d",
+                                                             variants.length, outs.length));
+        }
+    }
+
+    private static void load(float[][] rrsByBand, int p, boolean divideByPi, float[] rrs) {
+        for (int i = 0; i < rrs.length; i++) {
+            rrs[i] = rrsByBand[i][p];
+            if (divideByPi) {
+                rrs[i] *= ONE_DIV_PI;
+            }
+        }
+    }
+
+    private static void store(float[] values, float[][] target, int p, boolean imaginary) {
+        for (int i = 0; i < values.length; i++) {
+            if (target[i] != null) {
+                target[i][p] = imaginary ? QaaConstants.NO_DATA_VALUE : values[i];
+            }
+        }
+    }
+
+    static QaaResult ensureResult(QaaResult recycle) {
+        QaaResult result = recycle;
+        if (result == null) {
+            result = new QaaResult();
+        }
+        result.reset();
+
+        return result;
+    }
+
+    private int computeCachedPixel(QaaWorkspace workspace) {
+        final QaaSpectrumCache cache = workspace.getSpectrumCache();
+        if (cache == null) {
+            return computePixel(workspace, config);
+        }
+        int flags = cache.get(workspace, config);
+        if (flags == QaaSpectrumCache.MISS) {
+            flags = computePixel(workspace, config);
+            cache.put(workspace, flags);
+        }
+        return flags;
+    }
+
+    /*
+     * Runs steps 0 - 10 with the given configuration on workspace.rrs and writes the bounded results into the
+     * output arrays of the workspace. Returns the flags of the pixel.
+     */
+    private int computePixel(QaaWorkspace workspace, QaaConfig config) {
+        /**
+         * QAA v5 processing
+         */
+        final Qaa qaa = config.isFastMath() ? fastQaa : exactQaa;
+        // steps 0-6
+        // The length of pixel is 7 bands, rrs_pixel... are 6 bands
+        final int status = qaa.qaaf_v5_unchecked(workspace.rrs, workspace.rrs_pixel, workspace.a_pixel,
+                                                 workspace.bbSpm_pixel, workspace.u);
+        if (status == QaaConstants.FLAG_MASK_IMAGINARY) {
+            return status;
+        }
+
+        int flags = QaaConstants.FLAG_MASK_VALID;
+        flags |= computeBbSpm(workspace.bbSpm_pixel, workspace.bbSpm, config);
+        if (!config.isDecomposition()) {
+            Arrays.fill(workspace.aTotal, QaaConstants.NO_DATA_VALUE);
+            Arrays.fill(workspace.aPig, QaaConstants.NO_DATA_VALUE);
+            Arrays.fill(workspace.aYs, QaaConstants.NO_DATA_VALUE);
+            return flags;
+        }
+
+        // steps 7-10
+        qaa.qaaf_decomp(workspace.rrs_pixel, workspace.a_pixel, workspace.aPig_pixel, workspace.aYs_pixel);
+
+        flags |= computeATotal(workspace.aPig_pixel, workspace.aYs_pixel, workspace.aTotal, config);
+        flags |= computeAPig(workspace.aPig_pixel, workspace.aPig, config);
+        flags |= computeAYs(workspace.aYs_pixel, workspace.aYs, config);
+        return flags;
+    }
+
+    private static int computeATotal(float[] aph_pixel, float[] adg_pixel, float[] aTotal, QaaConfig config) {
+        int flags = 0;
+        for (int i = 0; i < QaaConstants.NUM_A_TOTAL_BANDS; i++) {
+            float a = (float) QaaConstants.AW_COEFS[i] + aph_pixel[i] + adg_pixel[i];
+            boolean isOob = isOutOfBounds(a, config.getATotalLower(), config.getATotalUpper());
+            if (isOob) {
+                // @todo 2 tb/tb case not covered by tests tb 2013-02-25
+                flags |= QaaConstants.FLAG_MASK_A_TOTAL_OOB;
+                aTotal[i] = QaaConstants.NO_DATA_VALUE;
+            } else {
+                aTotal[i] = a;
+            }
+        }
+        return flags;
+    }
+
+    private static int computeBbSpm(float[] bbSpm_pixel, float[] bbSpm, QaaConfig config) {
+        int flags = 0;
+        for (int i = 0; i < QaaConstants.NUM_BB_SPM_BANDS; i++) {
+            float bb = (float) QaaConstants.BBW_COEFS[i] + bbSpm_pixel[i];
+            boolean isOob = isOutOfBounds(bb, config.getBbSpmsLower(), config.getBbSpmsUpper());
+            if (isOob) {
+                // @todo 2 tb/tb case not covered by tests tb 2013-02-25
+                flags |= QaaConstants.FLAG_MASK_BB_SPM_OOB;
+                bbSpm[i] = QaaConstants.NO_DATA_VALUE;
+            } else {
+                bbSpm[i] = bb;
+            }
+        }
+        return flags;
+    }
+
+    private static int computeAPig(float[] aPig_pixel, float[] aPig, QaaConfig config) {
+        int flags = 0;
+        for (int i = 0; i < QaaConstants.NUM_A_PIG_BANDS; i++) {
+            float ap = aPig_pixel[i];
+            boolean isOob = isOutOfBounds(ap, config.getAPigLower(), config.getAPigUpper());
+            if (isOob) {
+                // @todo 2 tb/tb case not covered by tests tb 2013-02-25
+                flags |= QaaConstants.FLAG_MASK_A_PIG_OOB;
+                aPig[i] = QaaConstants.NO_DATA_VALUE;
+            } else {
+                aPig[i] = ap;
+            }
+        }
+        return flags;
+    }
+
+    private static int computeAYs(float[] ays_pixel, float[] aYs, QaaConfig config) {
+        int flags = 0;
+        for (int i = 0; i < QaaConstants.NUM_A_YS_BANDS; i++) {
+            float ays = ays_pixel[i];
+            boolean isOob = isOutOfBounds(ays, config.getAYsLower(), config.getAYsUpper());
+            if (isOob) {
+                // @todo 2 tb/tb case not covered by tests tb 2013-02-25
+                flags |= QaaConstants.FLAG_MASK_A_YS_OOB;
+                if (ays < 0) {
+                    // @todo 2 tb/tb case not covered by tests tb 2013-02-25
+                    flags |= QaaConstants.FLAG_MASK_NEGATIVE_AYS;
+                }
+                aYs[i] = QaaConstants.NO_DATA_VALUE;
+            } else {
+                aYs[i] = ays;
+            }
+        }
+        return flags;
+    }
+
+    static boolean isOutOfBounds(float value, float lowerBound, float upperBound) {
+        return value < lowerBound || value > upperBound;
+    }
+}
@@ -0,0 +1,134 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+/**
+ * The layout of the IOP output of a sensor. a_total and bb_spm are written for the first bands of the sensor,
+ * a_pig and a_ys for the first bands of those. The IOP bands are numbered consecutively in the order a_total,
+ * bb_spm, a_pig and a_ys, followed by the flag band. All index tables are computed once when the layout is
+ * created, so the per-pixel code only looks up flat arrays.
+ * <p/>
+ * A layout is immutable and can be shared between threads.
+ */
+public final class QaaBandLayout {
+
+    private static final String[] GROUP_NAMES = {"a_total", "bb_spm", "a_pig", "a_ys"};
+
+    /**
+     * The layout of MERIS, the only layout processed by {@link QaaAlgorithm}. a_total and bb_spm are written for
+     * the first 5 bands, a_pig and a_ys for the first 3.
+     */
+    public static final QaaBandLayout MERIS = new QaaBandLayout(QaaConstants.WAVELENGTH,
+                                                                QaaConstants.NUM_A_TOTAL_BANDS,
+                                                                QaaConstants.NUM_A_PIG_BANDS);
+
+    private final int numATotalBands;
+    private final int numAPigBands;
+    private final int[][] groupBandIndexes;
+    private final int[] iopWavelengths;
+    private final String[] iopBandNames;
+
+    /**
+     * @param wavelengths    the wavelengths of the sensor bands, used for the names of the IOP bands
+     * @param numATotalBands the number of bands a_total and bb_spm are written for
+     * @param numAPigBands   the number of bands a_pig and a_ys are written for
+     * @throws IllegalArgumentException if a number of bands is not positive or exceeds the number of wavelengths
+     */
+    public QaaBandLayout(int[] wavelengths, int numATotalBands, int numAPigBands) {
+        checkNumBands(numATotalBands, wavelengths.length, "a_total");
+        checkNumBands(numAPigBands, wavelengths.length, "a_pig");
+        this.numATotalBands = numATotalBands;
+        this.numAPigBands = numAPigBands;
+        final int[] groupSizes = {numATotalBands, numATotalBands, numAPigBands, numAPigBands};
+        groupBandIndexes = new int[GROUP_NAMES.length][];
+        iopWavelengths = new int[2 * numATotalBands + 2 * numAPigBands];
+        iopBandNames = new String[iopWavelengths.length];
+        int bandIndex = 0;
+        for (int g = 0; g < GROUP_NAMES.length; g++) {
+            groupBandIndexes[g] = new int[groupSizes[g]];
+            for (int i = 0; i < groupSizes[g]; i++) {
+                groupBandIndexes[g][i] = bandIndex;
+                iopWavelengths[bandIndex] = wavelengths[i];
+                iopBandNames[bandIndex] = GROUP_NAMES[g] + "_" + wavelengths[i];
+                bandIndex++;
+            }
+        }
+    }
+
+    private static void checkNumBands(int numBands, int numWavelengths, String groupName) {
+        if (numBands <= 0 || numBands > numWavelengths) {
+            throw new IllegalArgumentException(String.format(
+                    "The number of %s bands must be between 1 and %d but is %d", groupName, numWavelengths,
+                    numBands));
+        }
+    }
+
+    /**
+     * @return the names of the groups, in the order of {@link #getGroupBandIndexes(int)}
+     */
+    public static String[] getGroupNames() {
+        return GROUP_NAMES.clone();
+    }
+
+    /**
+     * @return the number of bands a_total and bb_spm are written for
+     */
+    public int getNumATotalBands() {
+        return numATotalBands;
+    }
+
+    /**
+     * @return the number of bands a_pig and a_ys are written for
+     */
+    public int getNumAPigBands() {
+        return numAPigBands;
+    }
+
+    public int getNumIopBands() {
+        return iopWavelengths.length;
+    }
+
+    /**
+     * @return the index following the IOP bands
+     */
+    public int getFlagBandIndex() {
+        return iopWavelengths.length;
+    }
+
+    /**
+     * @param group the index of the group in {@link #getGroupNames()}
+     * @return the IOP band indexes of the group
+     */
+    public int[] getGroupBandIndexes(int group) {
+        return groupBandIndexes[group].clone();
+    }
+
+    public int[] getATotalBandIndexes() {
+        return getGroupBandIndexes(0);
+    }
+
+    public int[] getBbSpmBandIndexes() {
+        return getGroupBandIndexes(1);
+    }
+
+    public int[] getAPigBandIndexes() {
+        return getGroupBandIndexes(2);
+    }
+
+    public int[] getAYsBandIndexes() {
+        return getGroupBandIndexes(3);
+    }
+
+    /**
+     * @param bandIndex the index of the IOP band
+     * @return the wavelength of the band
+     */
+    public int getWavelength(int bandIndex) {
+        return iopWavelengths[bandIndex];
+    }
+
+    /**
+     * @return the names of the IOP bands like "a_pig_443", indexed by the IOP band index
+     */
+    public String[] getIopBandNames() {
+        return iopBandNames.clone();
+    }
+}
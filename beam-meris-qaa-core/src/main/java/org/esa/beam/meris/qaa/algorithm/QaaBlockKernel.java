@@ -0,0 +1,451 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import java.util.Arrays;
+
+import static org.esa.beam.meris.qaa.algorithm.Qaa.IDX_410;
+import static org.esa.beam.meris.qaa.algorithm.Qaa.IDX_440;
+import static org.esa.beam.meris.qaa.algorithm.Qaa.IDX_490;
+import static org.esa.beam.meris.qaa.algorithm.Qaa.IDX_560;
+import static org.esa.beam.meris.qaa.algorithm.Qaa.IDX_670;
+import static org.esa.beam.meris.qaa.algorithm.Qaa.acoefs;
+import static org.esa.beam.meris.qaa.algorithm.Qaa.g0;
+import static org.esa.beam.meris.qaa.algorithm.Qaa.g1;
+
+/*
+ * Data parallel variant of steps 0 - 10 of QAA v5 which processes blocks of pixels instead of single pixels.
+ * The intermediate values are kept in structure-of-arrays layout, every step is a loop over all pixels of the
+ * block. This way the arithmetic steps are simple counted loops over float arrays which the JIT compiler is
+ * able to unroll and vectorise. Pixels producing an imaginary number are not branched out of the computation
+ * but masked: their lanes are skipped by the transcendental steps and written as no-data at the end.
+ *
+ * The arithmetic follows Qaa and QaaAlgorithm, except that powers are rewritten as exp(y * ln(x)) with the
+ * logarithms shared between steps and bands. The IOPs differ from those of the scalar implementation by up to
+ * 1e-6 relative, the flags are the same. An instance holds the block buffers and is not thread safe.
+ */
+final class QaaBlockKernel {
+
+    static final int BLOCK_SIZE = 256;
+
+    private static final int NUM_BANDS = 7;
+    private static final int NUM_IOP_BANDS = NUM_BANDS - 1;
+    private static final double ONE_DIV_PI = 1.0 / Math.PI;
+    private static final double G0_SQUARE = Math.pow(g0, 2.0);
+    private static final double LN_10 = Math.log(10.0);
+    private static final double[] LN_WAVELENGTH_RATIO = createLnWavelengthRatios();
+    private static final int LANE_VALID = 0;
+    private static final int LANE_IMAGINARY = 1;
+
+    private final float noDataValue;
+    private final float[][] Rrs;
+    private final float[][] rrs;
+    private final float[][] u;
+    private final float[][] bbp;
+    private final float[][] a;
+    private final float[][] aph;
+    private final float[][] adg;
+    private final float[] bbp560;
+    private final float[] Y;
+    private final double[] S;
+    private final float[] ag440;
+    private final int[] lanes;
+    private final int[] flags;
+
+    QaaBlockKernel(float noDataValue) {
+        this.noDataValue = noDataValue;
+        Rrs = new float[NUM_BANDS][BLOCK_SIZE];
+        rrs = new float[NUM_BANDS][BLOCK_SIZE];
+        u = new float[NUM_IOP_BANDS][BLOCK_SIZE];
+        bbp = new float[NUM_IOP_BANDS][BLOCK_SIZE];
+        a = new float[NUM_IOP_BANDS][BLOCK_SIZE];
+        aph = new float[NUM_IOP_BANDS][BLOCK_SIZE];
+        adg = new float[NUM_IOP_BANDS][BLOCK_SIZE];
+        bbp560 = new float[BLOCK_SIZE];
+        Y = new float[BLOCK_SIZE];
+        S = new double[BLOCK_SIZE];
+        ag440 = new float[BLOCK_SIZE];
+        lanes = new int[BLOCK_SIZE];
+        flags = new int[BLOCK_SIZE];
+    }
+
+    /*
+     * Same contract as QaaAlgorithm.processBatch(), the pixels are processed in blocks of BLOCK_SIZE.
+     */
+    void process(float[][] rrsByBand, int offset, int count, QaaConfig config, QaaResultBuffer out) {
+        final QaaMath math = QaaMath.get(config.isFastMath());
+        final int end = offset + count;
+        for (int start = offset; start < end; start += BLOCK_SIZE) {
+            final int n = Math.min(BLOCK_SIZE, end - start);
+            load(rrsByBand, start, n, config.isDivideByPi());
+            prepare(n, math);
+            computeV5(n, math);
+            if (config.isDecomposition()) {
+                computeDecomp(n, math);
+            }
+            store(start, n, config.isDecomposition(), config, out);
+        }
+    }
+
+    /*
+     * Same as process(), but for scaled 16-bit integers. Steps 0.1 - 1 are looked up in the tables, only the
+     * Rrs670 correction is computed.
+     */
+    void process(short[][] rawByBand, int offset, int count, QaaRrsLut lut, QaaConfig config, QaaResultBuffer out) {
+        if (!lut.isCompatible(config)) {
+            throw new IllegalArgumentException("The lookup tables do not match the configuration");
+        }
+        final QaaMath math = QaaMath.get(config.isFastMath());
+        final int end = offset + count;
+        for (int start = offset; start < end; start += BLOCK_SIZE) {
+            final int n = Math.min(BLOCK_SIZE, end - start);
+            lookUp(rawByBand, start, n, lut, math);
+            computeV5(n, math);
+            if (config.isDecomposition()) {
+                computeDecomp(n, math);
+            }
+            store(start, n, config.isDecomposition(), config, out);
+        }
+    }
+
+    /*
+     * Same as process(), but the bounds of each variant are applied to the shared results of steps 0 - 10 and
+     * stored into the buffer of the variant. Only the bounds of the variants are used.
+     */
+    void process(float[][] rrsByBand, int offset, int count, QaaConfig config, QaaConfig[] variants,
+                 QaaResultBuffer[] outs) {
+        final QaaMath math = QaaMath.get(config.isFastMath());
+        final int end = offset + count;
+        for (int start = offset; start < end; start += BLOCK_SIZE) {
+            final int n = Math.min(BLOCK_SIZE, end - start);
+            load(rrsByBand, start, n, config.isDivideByPi());
+            prepare(n, math);
+            computeV5(n, math);
+            if (config.isDecomposition()) {
+                computeDecomp(n, math);
+            }
+            for (int v = 0; v < variants.length; v++) {
+                store(start, n, config.isDecomposition(), variants[v], outs[v]);
+            }
+        }
+    }
+
+    /*
+     * Same as process() for scaled 16-bit integers, but with the bounds of each variant applied.
+     */
+    void process(short[][] rawByBand, int offset, int count, QaaRrsLut lut, QaaConfig config, QaaConfig[] variants,
+                 QaaResultBuffer[] outs) {
+        if (!lut.isCompatible(config)) {
+            throw new IllegalArgumentException("The lookup tables do not match the configuration");
+        }
+        final QaaMath math = QaaMath.get(config.isFastMath());
+        final int end = offset + count;
+        for (int start = offset; start < end; start += BLOCK_SIZE) {
+            final int n = Math.min(BLOCK_SIZE, end - start);
+            lookUp(rawByBand, start, n, lut, math);
+            computeV5(n, math);
+            if (config.isDecomposition()) {
+                computeDecomp(n, math);
+            }
+            for (int v = 0; v < variants.length; v++) {
+                store(start, n, config.isDecomposition(), variants[v], outs[v]);
+            }
+        }
+    }
+
+    private void load(float[][] rrsByBand, int start, int n, boolean divideByPi) {
+        for (int b = 0; b < NUM_BANDS; b++) {
+            final float[] src = rrsByBand[b];
+            final float[] dst = Rrs[b];
+            if (divideByPi) {
+                for (int i = 0; i < n; i++) {
+                    dst[i] = (float) (src[start + i] * ONE_DIV_PI);
+                }
+            } else {
+                System.arraycopy(src, start, dst, 0, n);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            lanes[i] = LANE_VALID;
+        }
+    }
+
+    private void lookUp(short[][] rawByBand, int start, int n, QaaRrsLut lut, QaaMath math) {
+        for (int i = 0; i < n; i++) {
+            lanes[i] = LANE_VALID;
+        }
+        // steps 0.2 and 1, a value producing an imaginary number is tabulated as NaN and masks the lane
+        for (int b = 0; b < NUM_IOP_BANDS; b++) {
+            final short[] src = rawByBand[b];
+            final float[] lutr = lut.rrs[b];
+            final float[] lutu = lut.u[b];
+            final float[] r = rrs[b];
+            final float[] ub = u[b];
+            for (int i = 0; i < n; i++) {
+                final int index = QaaRrsLut.index(src[start + i]);
+                r[i] = lutr[index];
+                ub[i] = lutu[index];
+                lanes[i] |= ub[i] != ub[i] ? LANE_IMAGINARY : LANE_VALID;
+            }
+        }
+
+        // step 0.1 prepare Rrs670, the correction is the only value which is not tabulated
+        final short[] src490 = rawByBand[IDX_490];
+        final short[] src560 = rawByBand[IDX_560];
+        final short[] src670 = rawByBand[IDX_670];
+        final float[] lutR490 = lut.Rrs[IDX_490];
+        final float[] lutR560 = lut.Rrs[IDX_560];
+        final float[] lutR670 = lut.Rrs[IDX_670];
+        final float[] lutr670 = lut.rrs[IDX_670];
+        final float[] r670 = rrs[IDX_670];
+        for (int i = 0; i < n; i++) {
+            final int index560 = QaaRrsLut.index(src560[start + i]);
+            final int index670 = QaaRrsLut.index(src670[start + i]);
+            final float R670 = lutR670[index670];
+            r670[i] = lutr670[index670];
+            if (R670 > lut.Rrs670Upper[index560] || R670 < lut.Rrs670Lower[index560] || R670 == noDataValue) {
+                final float R490 = lutR490[QaaRrsLut.index(src490[start + i])];
+                float Rrs670 = (float) (0.00018 * math.pow(R490 / lutR560[index560], -3.19));
+                Rrs670 += lut.Rrs670Base[index560];
+                r670[i] = (float) (Rrs670 / (0.52 + 1.7 * Rrs670));
+            }
+        }
+    }
+
+    /*
+     * Steps 0.1 - 1 for float input.
+     */
+    private void prepare(int n, QaaMath math) {
+        // step 0.1 prepare Rrs670, the correction is rare and stays a branch
+        final float[] R490 = Rrs[IDX_490];
+        final float[] R560 = Rrs[IDX_560];
+        final float[] R670 = Rrs[IDX_670];
+        for (int i = 0; i < n; i++) {
+            final double lnR560 = math.log(R560[i]);
+            final float upper = (float) (20.0 * R560[i] * Math.sqrt(R560[i]));
+            final float lower = (float) (0.9 * math.exp(1.7 * lnR560));
+            if (R670[i] > upper || R670[i] < lower || R670[i] == noDataValue) {
+                float Rrs670 = (float) (0.00018 * math.pow(R490[i] / R560[i], -3.19));
+                Rrs670 += (float) (1.27 * math.exp(1.47 * lnR560));
+                R670[i] = Rrs670;
+            }
+        }
+
+        // step 0.2 prepare rrs
+        for (int b = 0; b < NUM_BANDS; b++) {
+            final float[] R = Rrs[b];
+            final float[] r = rrs[b];
+            for (int i = 0; i < n; i++) {
+                r[i] = (float) (R[i] / (0.52 + 1.7 * R[i]));
+            }
+        }
+
+        // step 1, a negative or NaN radicand masks the lane
+        for (int b = 0; b < NUM_IOP_BANDS; b++) {
+            final float[] r = rrs[b];
+            final float[] ub = u[b];
+            for (int i = 0; i < n; i++) {
+                final double nom = G0_SQUARE + 4.0 * g1 * r[i];
+                ub[i] = (float) ((Math.sqrt(nom) - g0) / (2.0 * g1));
+                lanes[i] |= !(nom >= 0) ? LANE_IMAGINARY : LANE_VALID;
+            }
+        }
+    }
+
+    private void computeV5(int n, QaaMath math) {
+        // steps 2 - 4
+        final float[] r440 = rrs[IDX_440];
+        final float[] r490 = rrs[IDX_490];
+        final float[] r560 = rrs[IDX_560];
+        final float[] r670 = rrs[IDX_670];
+        final float[] u560 = u[IDX_560];
+        for (int i = 0; i < n; i++) {
+            final float denom = r560[i] + 5 * r670[i] * (r670[i] / r490[i]);
+            final float numer = r440[i] + r490[i];
+            final float result = numer / denom;
+            if (!(result > 0)) {
+                lanes[i] |= LANE_IMAGINARY;
+            }
+            if (lanes[i] != LANE_VALID) {
+                continue;
+            }
+            float rho = (float) math.log10(result);
+            rho = (float) (acoefs[0] + acoefs[1] * rho + acoefs[2] * rho * rho);
+            final float a560 = (float) (QaaConstants.AW_COEFS[IDX_560] + math.exp(LN_10 * rho));
+            bbp560[i] = (float) (((u560[i] * a560) / (1.0 - u560[i])) - QaaConstants.BBW_COEFS[IDX_560]);
+            final float rat = r440[i] / r560[i];
+            Y[i] = (float) (2.0 * (1.0 - 1.2 * math.exp(-0.9 * rat)));
+        }
+
+        // step 5, pow(ratio, Y) with the logarithm of the band ratio taken once
+        for (int b = 0; b < NUM_IOP_BANDS; b++) {
+            final double lnRatio = LN_WAVELENGTH_RATIO[b];
+            final float[] bbpb = bbp[b];
+            for (int i = 0; i < n; i++) {
+                if (lanes[i] == LANE_VALID) {
+                    bbpb[i] = (float) (bbp560[i] * math.exp(Y[i] * lnRatio));
+                }
+            }
+        }
+
+        // step 6
+        for (int b = 0; b < NUM_IOP_BANDS; b++) {
+            final double bbw = QaaConstants.BBW_COEFS[b];
+            final float[] ub = u[b];
+            final float[] bbpb = bbp[b];
+            final float[] ab = a[b];
+            for (int i = 0; i < n; i++) {
+                ab[i] = (float) (((1.0 - ub[i]) * (bbw + bbpb[i])) / ub[i]);
+            }
+        }
+    }
+
+    private void computeDecomp(int n, QaaMath math) {
+        // steps 7 - 9
+        final float[] r440 = rrs[IDX_440];
+        final float[] r560 = rrs[IDX_560];
+        final float[] a410 = a[IDX_410];
+        final float[] a440 = a[IDX_440];
+        final double deltaWl = QaaConstants.WAVELENGTH[IDX_440] - QaaConstants.WAVELENGTH[IDX_410];
+        for (int i = 0; i < n; i++) {
+            if (lanes[i] != LANE_VALID) {
+                continue;
+            }
+            final float rat = r440[i] / r560[i];
+            final float symbol = (float) (0.74 + (0.2 / (0.8 + rat)));
+            S[i] = 0.015 + 0.002 / (0.6 + rat);
+            final float zeta = (float) math.exp(S[i] * deltaWl);
+            final float denom = zeta - symbol;
+            final float dif1 = a410[i] - symbol * a440[i];
+            final float dif2 = (float) (QaaConstants.AW_COEFS[IDX_410] - symbol * QaaConstants.AW_COEFS[IDX_440]);
+            ag440[i] = (dif1 - dif2) / denom;
+        }
+
+        // step 10
+        for (int b = 0; b < NUM_IOP_BANDS; b++) {
+            final double deltaWlb = QaaConstants.WAVELENGTH[b] - QaaConstants.WAVELENGTH[IDX_440];
+            final double aw = QaaConstants.AW_COEFS[b];
+            final float[] ab = a[b];
+            final float[] adgb = adg[b];
+            final float[] aphb = aph[b];
+            for (int i = 0; i < n; i++) {
+                if (lanes[i] == LANE_VALID) {
+                    adgb[i] = (float) (ag440[i] * math.exp(-1 * S[i] * deltaWlb));
+                    aphb[i] = (float) (ab[i] - adgb[i] - aw);
+                }
+            }
+        }
+    }
+
+    /*
+     * Applies the bounds of the configuration. Bands without an output array are not written, but their values
+     * still contribute to the flags.
+     */
+    private void store(int start, int n, boolean decomposition, QaaConfig config, QaaResultBuffer out) {
+        for (int i = 0; i < n; i++) {
+            flags[i] = QaaConstants.FLAG_MASK_VALID;
+        }
+
+        final float[][] bbSpmOut = out.getBB_SPM();
+        final float bbSpmLower = config.getBbSpmsLower();
+        final float bbSpmUpper = config.getBbSpmsUpper();
+        for (int b = 0; b < QaaConstants.NUM_BB_SPM_BANDS; b++) {
+            final float bbw = (float) QaaConstants.BBW_COEFS[b];
+            final float[] bbpb = bbp[b];
+            final float[] dst = bbSpmOut[b];
+            for (int i = 0; i < n; i++) {
+                final float value = bbw + bbpb[i];
+                final boolean isOob = value < bbSpmLower || value > bbSpmUpper;
+                flags[i] |= isOob ? QaaConstants.FLAG_MASK_BB_SPM_OOB : 0;
+                if (dst != null) {
+                    dst[start + i] = isOob ? QaaConstants.NO_DATA_VALUE : value;
+                }
+            }
+        }
+
+        if (decomposition) {
+            storeDecomp(start, n, config, out);
+        } else {
+            fillNoData(out.getA_Total(), start, n);
+            fillNoData(out.getA_PIG(), start, n);
+            fillNoData(out.getA_YS(), start, n);
+        }
+
+        // masked lanes are overwritten, their intermediate values are undefined
+        final byte[] flagsOut = out.getFlags();
+        for (int i = 0; i < n; i++) {
+            if (lanes[i] != LANE_VALID) {
+                out.invalidateImaginary(start + i);
+            } else {
+                flagsOut[start + i] = (byte) flags[i];
+            }
+        }
+    }
+
+    private void storeDecomp(int start, int n, QaaConfig config, QaaResultBuffer out) {
+        final float[][] aTotalOut = out.getA_Total();
+        final float aTotalLower = config.getATotalLower();
+        final float aTotalUpper = config.getATotalUpper();
+        for (int b = 0; b < QaaConstants.NUM_A_TOTAL_BANDS; b++) {
+            final float aw = (float) QaaConstants.AW_COEFS[b];
+            final float[] aphb = aph[b];
+            final float[] adgb = adg[b];
+            final float[] dst = aTotalOut[b];
+            for (int i = 0; i < n; i++) {
+                final float value = aw + aphb[i] + adgb[i];
+                final boolean isOob = value < aTotalLower || value > aTotalUpper;
+                flags[i] |= isOob ? QaaConstants.FLAG_MASK_A_TOTAL_OOB : 0;
+                if (dst != null) {
+                    dst[start + i] = isOob ? QaaConstants.NO_DATA_VALUE : value;
+                }
+            }
+        }
+
+        final float[][] aPigOut = out.getA_PIG();
+        final float aPigLower = config.getAPigLower();
+        final float aPigUpper = config.getAPigUpper();
+        for (int b = 0; b < QaaConstants.NUM_A_PIG_BANDS; b++) {
+            final float[] aphb = aph[b];
+            final float[] dst = aPigOut[b];
+            for (int i = 0; i < n; i++) {
+                final float value = aphb[i];
+                final boolean isOob = value < aPigLower || value > aPigUpper;
+                flags[i] |= isOob ? QaaConstants.FLAG_MASK_A_PIG_OOB : 0;
+                if (dst != null) {
+                    dst[start + i] = isOob ? QaaConstants.NO_DATA_VALUE : value;
+                }
+            }
+        }
+
+        final float[][] aYsOut = out.getA_YS();
+        final float aYsLower = config.getAYsLower();
+        final float aYsUpper = config.getAYsUpper();
+        for (int b = 0; b < QaaConstants.NUM_A_YS_BANDS; b++) {
+            final float[] adgb = adg[b];
+            final float[] dst = aYsOut[b];
+            for (int i = 0; i < n; i++) {
+                final float value = adgb[i];
+                final boolean isOob = value < aYsLower || value > aYsUpper;
+                flags[i] |= isOob ? QaaConstants.FLAG_MASK_A_YS_OOB : 0;
+                flags[i] |= isOob && value < 0 ? QaaConstants.FLAG_MASK_NEGATIVE_AYS : 0;
+                if (dst != null) {
+                    dst[start + i] = isOob ? QaaConstants.NO_DATA_VALUE : value;
+                }
+            }
+        }
+    }
+
+    private static void fillNoData(float[][] bands, int start, int n) {
+        for (float[] dst : bands) {
+            if (dst != null) {
+                Arrays.fill(dst, start, start + n, QaaConstants.NO_DATA_VALUE);
+            }
+        }
+    }
+
+    private static double[] createLnWavelengthRatios() {
+        final double[] lnRatios = new double[NUM_IOP_BANDS];
+        for (int b = 0; b < NUM_IOP_BANDS; b++) {
+            lnRatios[b] = Math.log((float) QaaConstants.WAVELENGTH[IDX_560] / (float) QaaConstants.WAVELENGTH[b]);
+        }
+        return lnRatios;
+    }
+}
@@ -0,0 +1,105 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+/**
+ * Applies the bounds of a {@link QaaConfig} to unbounded results, as computed by {@link QaaAlgorithm} with a
+ * configuration prepared by {@link #removeBounds(QaaConfig)}. The unbounded IOPs together with the flags
+ * {@link QaaConstants#FLAG_MASK_VALID}, {@link QaaConstants#FLAG_MASK_IMAGINARY} and
+ * {@link QaaConstants#FLAG_MASK_INVALID} are all that is needed to derive the bounded results and out-of-bounds
+ * flags for any other bounds, without computing the algorithm again. The results are the same as those of the
+ * algorithm with these bounds.
+ */
+public final class QaaBoundsFilter {
+
+    private QaaBoundsFilter() {
+    }
+
+    /**
+     * Removes the bounds of the given configuration, no value is out of bounds then.
+     *
+     * @param config the configuration to change
+     */
+    public static void removeBounds(QaaConfig config) {
+        config.setATotalLower(Float.NEGATIVE_INFINITY);
+        config.setATotalUpper(Float.POSITIVE_INFINITY);
+        config.setBbSpmsLower(Float.NEGATIVE_INFINITY);
+        config.setBbSpmsUpper(Float.POSITIVE_INFINITY);
+        config.setAPigLower(Float.NEGATIVE_INFINITY);
+        config.setAPigUpper(Float.POSITIVE_INFINITY);
+        config.setAYsLower(Float.NEGATIVE_INFINITY);
+        config.setAYsUpper(Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Applies the bounds to the given unbounded results. Only pixels flagged as valid are checked, the other
+     * pixels are copied. Bands without an array in the target buffer are skipped, bands without an array in the
+     * source buffer are written as no-data.
+     *
+     * @param unbounded the unbounded results
+     * @param offset    the index of the first pixel
+     * @param count     the number of pixels
+     * @param config    provides the bounds
+     * @param out       receives the bounded results and the flags, may be the source buffer
+     */
+    public static void apply(QaaResultBuffer unbounded, int offset, int count, QaaConfig config,
+                             QaaResultBuffer out) {
+        apply(unbounded, offset, offset, count, config, out);
+    }
+
+    /*
+     * Same as apply(), but the unbounded result of the pixel at index p of the target is read at
+     * sourceOffset + p - offset, so a small source buffer can be reused for the chunks of a large batch.
+     */
+    static void apply(QaaResultBuffer unbounded, int sourceOffset, int offset, int count, QaaConfig config,
+                      QaaResultBuffer out) {
+        final byte[] flagsIn = unbounded.getFlags();
+        final byte[] flagsOut = out.getFlags();
+        final int shift = sourceOffset - offset;
+        final int end = offset + count;
+        for (int p = offset; p < end; p++) {
+            flagsOut[p] = (byte) (flagsIn[p + shift] & ~QaaConstants.FLAG_MASK_NEGATIVE_AYS);
+        }
+        apply(unbounded.getA_Total(), shift, offset, end, config.getATotalLower(), config.getATotalUpper(),
+              QaaConstants.FLAG_MASK_A_TOTAL_OOB, flagsIn, out.getA_Total(), flagsOut);
+        apply(unbounded.getBB_SPM(), shift, offset, end, config.getBbSpmsLower(), config.getBbSpmsUpper(),
+              QaaConstants.FLAG_MASK_BB_SPM_OOB, flagsIn, out.getBB_SPM(), flagsOut);
+        apply(unbounded.getA_PIG(), shift, offset, end, config.getAPigLower(), config.getAPigUpper(),
+              QaaConstants.FLAG_MASK_A_PIG_OOB, flagsIn, out.getA_PIG(), flagsOut);
+        apply(unbounded.getA_YS(), shift, offset, end, config.getAYsLower(), config.getAYsUpper(),
+              QaaConstants.FLAG_MASK_A_YS_OOB, flagsIn, out.getA_YS(), flagsOut);
+    }
+
+    /*
+     * The flags of a group are cleared first, so a buffer can be filtered in place. Negative out-of-bounds
+     * values of a_ys raise FLAG_MASK_NEGATIVE_AYS, as in the algorithm.
+     */
+    private static void apply(float[][] source, int shift, int start, int end, float lower, float upper,
+                              int oobMask, byte[] flagsIn, float[][] target, byte[] flagsOut) {
+        for (int p = start; p < end; p++) {
+            flagsOut[p] &= ~oobMask;
+        }
+        final boolean isAYs = oobMask == QaaConstants.FLAG_MASK_A_YS_OOB;
+        for (int b = 0; b < source.length; b++) {
+            final float[] src = source[b];
+            final float[] dst = target[b];
+            for (int p = start; p < end; p++) {
+                final float value = src != null ? src[p + shift] : QaaConstants.NO_DATA_VALUE;
+                if ((flagsIn[p + shift] & QaaConstants.FLAG_MASK_VALID) == 0) {
+                    if (dst != null) {
+                        dst[p] = QaaConstants.NO_DATA_VALUE;
+                    }
+                    continue;
+                }
+                final boolean isOob = QaaAlgorithm.isOutOfBounds(value, lower, upper);
+                if (isOob) {
+                    flagsOut[p] |= oobMask;
+                    if (isAYs && value < 0) {
+                        flagsOut[p] |= QaaConstants.FLAG_MASK_NEGATIVE_AYS;
+                    }
+                }
+                if (dst != null) {
+                    dst[p] = isOob ? QaaConstants.NO_DATA_VALUE : value;
+                }
+            }
+        }
+    }
+}
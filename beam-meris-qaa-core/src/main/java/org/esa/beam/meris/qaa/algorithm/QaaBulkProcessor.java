@@ -0,0 +1,272 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Processes large band-major arrays of pixels with a single call on all cores. The pixels are split recursively
+ * into ranges of at most the grain size, which are processed by the tasks of a {@link ForkJoinPool} using
+ * {@link QaaAlgorithm#processBatch(float[][], int, int, QaaResultBuffer, QaaWorkspace)}. The result of a pixel
+ * does not depend on the splitting, so the results and the returned {@link QaaFlagCounts} are the same for
+ * any pool and grain size.
+ * <p/>
+ * A processor may be shared between threads. The configuration of the algorithm must not be changed while a
+ * call is in progress.
+ */
+public class QaaBulkProcessor {
+
+    public static final int DEFAULT_GRAIN_SIZE = 4096;
+
+    private static final int NUM_IOP_BANDS = QaaBandLayout.MERIS.getNumIopBands();
+
+    private static ForkJoinPool defaultPool;
+
+    private final QaaAlgorithm algorithm;
+    private final ForkJoinPool pool;
+    private final int grainSize;
+    private final ThreadLocal<QaaWorkspace> workspaces;
+    private final ThreadLocal<Scratch> scratches;
+
+    /**
+     * Creates a processor using a pool shared by all processors, having as many threads as there are processors
+     * available, and the default grain size.
+     *
+     * @param algorithm the algorithm
+     */
+    public QaaBulkProcessor(QaaAlgorithm algorithm) {
+        this(algorithm, getDefaultPool(), DEFAULT_GRAIN_SIZE);
+    }
+
+    /**
+     * @param algorithm the algorithm
+     * @param pool      the pool executing the tasks
+     * @param grainSize the maximum number of pixels processed by a single task
+     * @throws IllegalArgumentException if the grain size is not positive
+     */
+    public QaaBulkProcessor(QaaAlgorithm algorithm, ForkJoinPool pool, int grainSize) {
+        if (grainSize <= 0) {
+            throw new IllegalArgumentException("Grain size must be positive: " + grainSize);
+        }
+        this.algorithm = algorithm;
+        this.pool = pool;
+        this.grainSize = grainSize;
+        workspaces = new ThreadLocal<QaaWorkspace>() {
+            @Override
+            protected QaaWorkspace initialValue() {
+                return new QaaWorkspace();
+            }
+        };
+        scratches = new ThreadLocal<Scratch>();
+    }
+
+    public int getGrainSize() {
+        return grainSize;
+    }
+
+    /**
+     * Processes the given pixels in parallel.
+     *
+     * @param rrsByBand the reflectances, rrsByBand[band][pixel], bands ordered as described in
+     *                  {@link QaaAlgorithm#process(float[], QaaResult)}
+     * @param offset    the index of the first pixel to process
+     * @param count     the number of pixels to process
+     * @param out       receives the results, the result of a pixel is stored at the same index as its input
+     * @return the number of pixels having each of the flags raised
+     */
+    public QaaFlagCounts process(float[][] rrsByBand, int offset, int count, QaaResultBuffer out) {
+        final long[] counts = pool.invoke(new ArrayTask(rrsByBand, offset, offset + count, out));
+        return new QaaFlagCounts(count, counts);
+    }
+
+    /**
+     * Processes the pixels of the given buffers in parallel. The pixels start at the current position of each
+     * buffer, the positions and limits of the buffers are not changed.
+     *
+     * @param rrsByBand the reflectances of the bands ordered as described in
+     *                  {@link QaaAlgorithm#process(float[], QaaResult)}
+     * @param iops      receives the 16 IOP bands in the order of the band indexes of {@link QaaBandLayout#MERIS};
+     *                  bands which are {@code null} are not stored
+     * @param flags     receives the flags, may be {@code null}
+     * @param count     the number of pixels to process
+     * @return the number of pixels having each of the flags raised
+     * @throws IllegalArgumentException if the number of bands is wrong or a buffer has less remaining
+     *                                  elements than the number of pixels
+     */
+    public QaaFlagCounts process(FloatBuffer[] rrsByBand, FloatBuffer[] iops, ByteBuffer flags, int count) {
+        checkBuffers(rrsByBand, iops, flags, count);
+        final long[] counts = pool.invoke(new BufferTask(rrsByBand, iops, flags, 0, count));
+        return new QaaFlagCounts(count, counts);
+    }
+
+    private static synchronized ForkJoinPool getDefaultPool() {
+        if (defaultPool == null) {
+            defaultPool = new ForkJoinPool();
+        }
+        return defaultPool;
+    }
+
+    private static void checkBuffers(FloatBuffer[] rrsByBand, FloatBuffer[] iops, ByteBuffer flags, int count) {
+        if (rrsByBand.length != QaaConstants.WAVELENGTH.length + 1) {
+            throw new IllegalArgumentException(String.format("Expected %d input bands but got %d",
+                                                             QaaConstants.WAVELENGTH.length + 1, rrsByBand.length));
+        }
+        if (iops.length != NUM_IOP_BANDS) {
+            throw new IllegalArgumentException(String.format("Expected %d IOP bands but got %d",
+                                                             NUM_IOP_BANDS, iops.length));
+        }
+        for (FloatBuffer buffer : rrsByBand) {
+            checkRemaining(buffer.remaining(), count);
+        }
+        for (FloatBuffer buffer : iops) {
+            if (buffer != null) {
+                checkRemaining(buffer.remaining(), count);
+            }
+        }
+        if (flags != null) {
+            checkRemaining(flags.remaining(), count);
+        }
+    }
+
+    private static void checkRemaining(int remaining, int count) {
+        if (remaining < count) {
+            throw new IllegalArgumentException(String.format("Expected %d values but got %d", count, remaining));
+        }
+    }
+
+    private static long[] sum(long[] counts1, long[] counts2) {
+        for (int i = 0; i < counts1.length; i++) {
+            counts1[i] += counts2[i];
+        }
+        return counts1;
+    }
+
+    private Scratch getScratch() {
+        Scratch scratch = scratches.get();
+        if (scratch == null) {
+            scratch = new Scratch(grainSize);
+            scratches.set(scratch);
+        }
+        return scratch;
+    }
+
+    /*
+     * Processes the pixels [start, end) of arrays.
+     */
+    private class ArrayTask extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = -6127539054612987413L;
+
+        private final float[][] rrsByBand;
+        private final int start;
+        private final int end;
+        private final QaaResultBuffer out;
+
+        ArrayTask(float[][] rrsByBand, int start, int end, QaaResultBuffer out) {
+            this.rrsByBand = rrsByBand;
+            this.start = start;
+            this.end = end;
+            this.out = out;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (end - start <= grainSize) {
+                algorithm.processBatch(rrsByBand, start, end - start, out, workspaces.get());
+                final long[] counts = new long[QaaFlagCounts.NUM_FLAGS];
+                QaaFlagCounts.count(out.getFlags(), start, end, counts);
+                return counts;
+            }
+            final int middle = (start + end) >>> 1;
+            final ArrayTask second = new ArrayTask(rrsByBand, middle, end, out);
+            second.fork();
+            final long[] counts = new ArrayTask(rrsByBand, start, middle, out).compute();
+            return sum(counts, second.join());
+        }
+    }
+
+    /*
+     * Processes the pixels [start, end) relative to the positions of buffers.
+     */
+    private class BufferTask extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = 4815077269339180726L;
+
+        private final FloatBuffer[] rrsByBand;
+        private final FloatBuffer[] iops;
+        private final ByteBuffer flags;
+        private final int start;
+        private final int end;
+
+        BufferTask(FloatBuffer[] rrsByBand, FloatBuffer[] iops, ByteBuffer flags, int start, int end) {
+            this.rrsByBand = rrsByBand;
+            this.iops = iops;
+            this.flags = flags;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (end - start <= grainSize) {
+                return computeDirectly();
+            }
+            final int middle = (start + end) >>> 1;
+            final BufferTask second = new BufferTask(rrsByBand, iops, flags, middle, end);
+            second.fork();
+            final long[] counts = new BufferTask(rrsByBand, iops, flags, start, middle).compute();
+            return sum(counts, second.join());
+        }
+
+        private long[] computeDirectly() {
+            final int n = end - start;
+            final Scratch scratch = getScratch();
+            for (int i = 0; i < rrsByBand.length; i++) {
+                final FloatBuffer source = rrsByBand[i].duplicate();
+                source.position(source.position() + start);
+                source.get(scratch.rrsByBand[i], 0, n);
+            }
+
+            algorithm.processBatch(scratch.rrsByBand, 0, n, scratch.out, workspaces.get());
+
+            for (int i = 0; i < iops.length; i++) {
+                if (iops[i] != null) {
+                    final FloatBuffer target = iops[i].duplicate();
+                    target.position(target.position() + start);
+                    target.put(scratch.iops[i], 0, n);
+                }
+            }
+            if (flags != null) {
+                final ByteBuffer target = flags.duplicate();
+                target.position(target.position() + start);
+                target.put(scratch.out.getFlags(), 0, n);
+            }
+            final long[] counts = new long[QaaFlagCounts.NUM_FLAGS];
+            QaaFlagCounts.count(scratch.out.getFlags(), 0, n, counts);
+            return counts;
+        }
+    }
+
+    /*
+     * The arrays a thread copies the pixels of a task from and to the buffers.
+     */
+    private static class Scratch {
+
+        final float[][] rrsByBand;
+        final float[][] iops;
+        final QaaResultBuffer out;
+
+        Scratch(int capacity) {
+            rrsByBand = new float[QaaConstants.WAVELENGTH.length + 1][capacity];
+            out = new QaaResultBuffer(capacity);
+            iops = new float[NUM_IOP_BANDS][];
+            int index = 0;
+            for (float[][] group : new float[][][]{out.getA_Total(), out.getBB_SPM(), out.getA_PIG(), out.getA_YS()}) {
+                for (float[] bandValues : group) {
+                    iops[index++] = bandValues;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+public class QaaConfig {
+
+    /**
+     * System property selecting the default for {@link #isBlockKernel()}, set it to {@code true} to process
+     * batches by the block kernel by default.
+     */
+    public static final String BLOCK_KERNEL_PROPERTY = "beam.meris.qaa.blockKernel";
+
+    private boolean divideByPi;
+    private boolean blockKernel;
+    private boolean fastMath;
+    private boolean decomposition;
+    private float aTotalLower;
+    private float aTotalUpper;
+    private float bbSpmsLower;
+    private float bbSpmsUpper;
+    private float aPigLower;
+    private float aPigUpper;
+    private float aYsLower;
+    private float aYsUpper;
+
+    public QaaConfig() {
+        divideByPi = true;
+        blockKernel = Boolean.parseBoolean(System.getProperty(BLOCK_KERNEL_PROPERTY, "false"));
+        decomposition = true;
+        aTotalLower = QaaConstants.A_TOTAL_LOWER_DEFAULT;
+        aTotalUpper = QaaConstants.A_TOTAL_UPPER_DEFAULT;
+        bbSpmsLower = QaaConstants.BB_SPM_LOWER_DEFAULT;
+        bbSpmsUpper = QaaConstants.BB_SPM_UPPER_DEFAULT;
+        aPigLower = QaaConstants.A_PIG_LOWER_DEFAULT;
+        aPigUpper = QaaConstants.A_PIG_UPPER_DEFAULT;
+        aYsLower = QaaConstants.A_YS_LOWER_DEFAULT;
+        aYsUpper = QaaConstants.A_YS_UPPER_DEFAULT;
+    }
+
+    public boolean isDivideByPi() {
+        return divideByPi;
+    }
+
+    public void setDivideByPi(boolean divideByPi) {
+        this.divideByPi = divideByPi;
+    }
+
+    /**
+     * @return {@code true} if batches of pixels are processed block-wise by the data parallel kernel,
+     *         {@code false} if every pixel is processed on its own, see {@link #setBlockKernel(boolean)}
+     */
+    public boolean isBlockKernel() {
+        return blockKernel;
+    }
+
+    /**
+     * Selects the kernel of the batch processing. The block kernel computes powers as exp(y * ln(x)), its
+     * results differ from those of the per-pixel kernel by up to 1e-6 relative. Disabled by default, unless
+     * the system property {@link #BLOCK_KERNEL_PROPERTY} is set to {@code true}.
+     *
+     * @param blockKernel {@code true} to process batches block-wise
+     */
+    public void setBlockKernel(boolean blockKernel) {
+        this.blockKernel = blockKernel;
+    }
+
+    /**
+     * @return {@code true} if pow, exp and log10 are computed by approximations accurate to about 1e-9,
+     *         see {@link #setFastMath(boolean)}
+     */
+    public boolean isFastMath() {
+        return fastMath;
+    }
+
+    /**
+     * Enables the fast-math mode. The transcendental functions of the QAA kernel are replaced by table
+     * driven polynomial approximations. Their maximum errors are 5e-10 relative for exp, 1e-9 absolute for
+     * log10 and 2e-9 * max(1, |y|) relative for pow(x, y), well below the float precision of the results.
+     * Disabled by default.
+     *
+     * @param fastMath {@code true} to enable the fast-math mode
+     */
+    public void setFastMath(boolean fastMath) {
+        this.fastMath = fastMath;
+    }
+
+    /**
+     * @return {@code true} if the decomposition of the absorption (steps 7 - 10) is computed,
+     *         see {@link #setDecomposition(boolean)}
+     */
+    public boolean isDecomposition() {
+        return decomposition;
+    }
+
+    /**
+     * Selects whether the decomposition of the absorption into pigment and yellow substance absorption
+     * (steps 7 - 10) is computed. If it is skipped, a_pig, a_ys and - with the exception of the multi-sensor
+     * algorithm, which derives it from step 6 - a_total are set to the no-data value and their flags are not
+     * raised. Only bb_spm is computed then. Enabled by default.
+     *
+     * @param decomposition {@code false} to skip steps 7 - 10
+     */
+    public void setDecomposition(boolean decomposition) {
+        this.decomposition = decomposition;
+    }
+
+    public float getATotalLower() {
+        return aTotalLower;
+    }
+
+    public void setATotalLower(float aTotalLower) {
+        this.aTotalLower = aTotalLower;
+    }
+
+    public float getATotalUpper() {
+        return aTotalUpper;
+    }
+
+    public void setATotalUpper(float aTotalUpper) {
+        this.aTotalUpper = aTotalUpper;
+    }
+
+    public float getBbSpmsLower() {
+        return bbSpmsLower;
+    }
+
+    public void setBbSpmsLower(float bbSpmsLower) {
+        this.bbSpmsLower = bbSpmsLower;
+    }
+
+    public float getBbSpmsUpper() {
+        return bbSpmsUpper;
+    }
+
+    public void setBbSpmsUpper(float bbSpmsUpper) {
+        this.bbSpmsUpper = bbSpmsUpper;
+    }
+
+    public float getAPigLower() {
+        return aPigLower;
+    }
+
+    public void setAPigLower(float aPigLower) {
+        this.aPigLower = aPigLower;
+    }
+
+    public float getAPigUpper() {
+        return aPigUpper;
+    }
+
+    public void setAPigUpper(float aPigUpper) {
+        this.aPigUpper = aPigUpper;
+    }
+
+    public float getAYsLower() {
+        return aYsLower;
+    }
+
+    public void setAYsLower(float AYsLower) {
+        this.aYsLower = AYsLower;
+    }
+
+    public float getAYsUpper() {
+        return aYsUpper;
+    }
+
+    public void setAYsUpper(float AYsUpper) {
+        this.aYsUpper = AYsUpper;
+    }
+}
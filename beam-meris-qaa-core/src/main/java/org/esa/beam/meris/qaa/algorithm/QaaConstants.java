@@ -5,11 +5,6 @@ package org.esa.beam.meris.qaa.algorithm;
  */
 public final class QaaConstants {
 
-    public static final int[] A_TOTAL_BAND_INDEXES = {0, 1, 2, 3, 4};
-    public static final int[] BB_SPM_BAND_INDEXES = {5, 6, 7, 8, 9};
-    public static final int[] A_PIG_BAND_INDEXES = {10, 11, 12};
-    public static final int[] A_YS_BAND_INDEXES = {13, 14, 15};
-
     public static final int[] WAVELENGTH = {412, 443, 490, 510, 560, 620};
 
     public static final int FLAG_MASK_VALID = 0x0001;
@@ -0,0 +1,57 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+/**
+ * The number of pixels having each of the QAA flags raised, as aggregated by {@link QaaBulkProcessor}.
+ */
+public class QaaFlagCounts {
+
+    static final int NUM_FLAGS = 8;
+
+    private final long pixelCount;
+    private final long[] counts;
+
+    QaaFlagCounts(long pixelCount, long[] counts) {
+        this.pixelCount = pixelCount;
+        this.counts = counts;
+    }
+
+    /**
+     * @return the number of processed pixels
+     */
+    public long getPixelCount() {
+        return pixelCount;
+    }
+
+    /**
+     * @param flagMask one of the flag masks of {@link QaaConstants}, e.g. {@link QaaConstants#FLAG_MASK_VALID}
+     * @return the number of pixels with the flag raised
+     * @throws IllegalArgumentException if the mask is not a single flag
+     */
+    public long getCount(int flagMask) {
+        if (Integer.bitCount(flagMask) != 1 || flagMask >= 1 << NUM_FLAGS) {
+            throw new IllegalArgumentException("Not a single flag: " + flagMask);
+        }
+        return counts[Integer.numberOfTrailingZeros(flagMask)];
+    }
+
+    /*
+     * Adds the flags of the pixels in [start, end) to counts, indexed by bit.
+     */
+    static void count(byte[] flags, int start, int end, long[] counts) {
+        for (int i = start; i < end; i++) {
+            int pixelFlags = flags[i] & 0xFF;
+            while (pixelFlags != 0) {
+                counts[Integer.numberOfTrailingZeros(pixelFlags)]++;
+                pixelFlags &= pixelFlags - 1;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QaaFlagCounts[pixels=%d, valid=%d, imaginary=%d, negative_a_ys=%d, invalid=%d, " +
+                             "a_total_oob=%d, bb_spm_oob=%d, a_pig_oob=%d, a_ys_oob=%d]",
+                             pixelCount, counts[0], counts[1], counts[2], counts[3],
+                             counts[4], counts[5], counts[6], counts[7]);
+    }
+}
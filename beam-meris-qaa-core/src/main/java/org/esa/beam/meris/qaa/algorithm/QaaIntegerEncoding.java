@@ -0,0 +1,115 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+/**
+ * Linear encoding of the IOPs as 16-bit integers. The valid range of each IOP group, as given by the bounds of a
+ * {@link QaaConfig}, is mapped onto all but one of the 65536 raw values, the remaining value encodes the no-data
+ * value. For unsigned encoding the valid range maps to 0 - 65534 and the no-data value is 65535, for signed encoding
+ * it maps to -32767 - 32767 and the no-data value is -32768. The geophysical value is
+ * {@code raw * scalingFactor + scalingOffset}, the quantisation step is the scaling factor.
+ * <p/>
+ * An encoding is immutable and can be shared between threads.
+ */
+public class QaaIntegerEncoding {
+
+    private static final int NUM_STEPS = 65534;
+
+    private final boolean signed;
+    private final int minRaw;
+    private final int maxRaw;
+    private final int noDataRaw;
+    private final double[] scalingFactors;
+    private final double[] scalingOffsets;
+
+    /**
+     * @param signed whether the raw values are signed
+     * @param config provides the valid ranges of the IOP groups
+     * @throws IllegalArgumentException if a valid range is empty or not finite
+     */
+    public QaaIntegerEncoding(boolean signed, QaaConfig config) {
+        this(signed, config, QaaBandLayout.MERIS);
+    }
+
+    /**
+     * @param signed whether the raw values are signed
+     * @param config provides the valid ranges of the IOP groups
+     * @param layout defines the IOP band indexes of the groups
+     * @throws IllegalArgumentException if a valid range is empty or not finite
+     */
+    public QaaIntegerEncoding(boolean signed, QaaConfig config, QaaBandLayout layout) {
+        this.signed = signed;
+        minRaw = signed ? Short.MIN_VALUE + 1 : 0;
+        maxRaw = minRaw + NUM_STEPS;
+        noDataRaw = signed ? Short.MIN_VALUE : NUM_STEPS + 1;
+        scalingFactors = new double[layout.getNumIopBands()];
+        scalingOffsets = new double[layout.getNumIopBands()];
+        setRange(layout.getATotalBandIndexes(), config.getATotalLower(), config.getATotalUpper(), "a_total");
+        setRange(layout.getBbSpmBandIndexes(), config.getBbSpmsLower(), config.getBbSpmsUpper(), "bb_spm");
+        setRange(layout.getAPigBandIndexes(), config.getAPigLower(), config.getAPigUpper(), "a_pig");
+        setRange(layout.getAYsBandIndexes(), config.getAYsLower(), config.getAYsUpper(), "a_ys");
+    }
+
+    private void setRange(int[] bandIndexes, float lower, float upper, String groupName) {
+        if (Float.isInfinite(lower) || Float.isInfinite(upper) || !(lower < upper)) {
+            throw new IllegalArgumentException(String.format(
+                    "The valid range of %s [%s, %s] cannot be encoded as integers", groupName, lower, upper));
+        }
+        final double scalingFactor = ((double) upper - (double) lower) / NUM_STEPS;
+        for (int bandIndex : bandIndexes) {
+            scalingFactors[bandIndex] = scalingFactor;
+            scalingOffsets[bandIndex] = lower - minRaw * scalingFactor;
+        }
+    }
+
+    public boolean isSigned() {
+        return signed;
+    }
+
+    /**
+     * @return the raw value encoding the no-data value
+     */
+    public int getNoDataValue() {
+        return noDataRaw;
+    }
+
+    /**
+     * @param bandIndex the index of the IOP band, as defined by the {@link QaaBandLayout}
+     * @return the scaling factor of the band
+     */
+    public double getScalingFactor(int bandIndex) {
+        return scalingFactors[bandIndex];
+    }
+
+    /**
+     * @param bandIndex the index of the IOP band, as defined by the {@link QaaBandLayout}
+     * @return the scaling offset of the band
+     */
+    public double getScalingOffset(int bandIndex) {
+        return scalingOffsets[bandIndex];
+    }
+
+    /**
+     * Encodes the values of one IOP band. The no-data value NaN is encoded as {@link #getNoDataValue()}, values
+     * outside of the valid range, which do not occur in the results of the QAA algorithms, are clamped.
+     *
+     * @param bandIndex the index of the IOP band
+     * @param values    the geophysical values
+     * @param raw       receives the raw values at the same indexes
+     * @param offset    the index of the first value
+     * @param count     the number of values
+     */
+    public void encode(int bandIndex, float[] values, short[] raw, int offset, int count) {
+        final double inverseFactor = 1.0 / scalingFactors[bandIndex];
+        final double scalingOffset = scalingOffsets[bandIndex];
+        final short noData = (short) noDataRaw;
+        final int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            final float value = values[i];
+            if (Float.isNaN(value)) {
+                raw[i] = noData;
+            } else {
+                final long rounded = Math.round((value - scalingOffset) * inverseFactor);
+                raw[i] = (short) Math.max(minRaw, Math.min(maxRaw, rounded));
+            }
+        }
+    }
+}
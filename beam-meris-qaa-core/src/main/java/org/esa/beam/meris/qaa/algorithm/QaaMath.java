@@ -0,0 +1,144 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+/*
+ * The transcendental functions used by the QAA kernels. EXACT delegates to java.lang.Math, FAST uses
+ * table driven polynomial approximations which are accurate far beyond float precision but cheaper than the
+ * library functions. The maximum errors of FAST, measured against java.lang.Math:
+ *
+ *   exp(x)     for |x| <= 80          relative 5e-10
+ *   log(x)     for x in [1e-30, 1e30] absolute 1e-9
+ *   log10(x)   for x in [1e-30, 1e30] absolute 1e-9
+ *   pow(x, y)  for x in [1e-4, 1e4]   relative 2e-9 * max(1, |y|), if |y * log(x)| <= 80
+ *
+ * Special values (NaN, infinities, zero and negative arguments) are treated like java.lang.Math does,
+ * except that FAST.pow(x, y) with negative x is always NaN and subnormal arguments of log are treated as zero.
+ */
+enum QaaMath {
+
+    EXACT {
+        @Override
+        double exp(double x) {
+            return Math.exp(x);
+        }
+
+        @Override
+        double log(double x) {
+            return Math.log(x);
+        }
+
+        @Override
+        double log10(double x) {
+            return Math.log10(x);
+        }
+
+        @Override
+        double pow(double x, double y) {
+            return Math.pow(x, y);
+        }
+    },
+
+    FAST {
+        @Override
+        double exp(double x) {
+            return fastExp(x);
+        }
+
+        @Override
+        double log(double x) {
+            return fastLog(x);
+        }
+
+        @Override
+        double log10(double x) {
+            return fastLog(x) * ONE_DIV_LN_10;
+        }
+
+        @Override
+        double pow(double x, double y) {
+            return fastExp(y * fastLog(x));
+        }
+    };
+
+    private static final double LN_2 = Math.log(2.0);
+    private static final double ONE_DIV_LN_10 = 1.0 / Math.log(10.0);
+    private static final double EXP_OVERFLOW = 709.0;
+    private static final double EXP_UNDERFLOW = -708.0;
+    private static final int EXP_TABLE_BITS = 8;
+    private static final int EXP_TABLE_SIZE = 1 << EXP_TABLE_BITS;
+    private static final double EXP_SCALE = EXP_TABLE_SIZE / LN_2;
+    private static final double EXP_STEP = LN_2 / EXP_TABLE_SIZE;
+    // adding 1.5 * 2^52 rounds a double to the nearest integer which then is found in the lower mantissa bits
+    private static final double ROUNDING_SHIFTER = 6755399441055744.0;
+    private static final double[] EXP_TABLE = new double[EXP_TABLE_SIZE];
+    private static final int LOG_TABLE_BITS = 7;
+    private static final int LOG_TABLE_SHIFT = 52 - LOG_TABLE_BITS;
+    private static final double[] LOG_TABLE = new double[1 << LOG_TABLE_BITS];
+    private static final double[] INV_TABLE = new double[1 << LOG_TABLE_BITS];
+    private static final long MIN_NORMAL_BITS = 0x0010000000000000L;
+    private static final long INFINITY_BITS = 0x7ff0000000000000L;
+    private static final long MANTISSA_MASK = 0x000fffffffffffffL;
+    private static final long EXPONENT_BIAS = 1023L;
+
+    static {
+        for (int j = 0; j < EXP_TABLE_SIZE; j++) {
+            EXP_TABLE[j] = Math.pow(2.0, (double) j / EXP_TABLE_SIZE);
+        }
+        for (int j = 0; j < LOG_TABLE.length; j++) {
+            final double m = 1.0 + (double) j / LOG_TABLE.length;
+            LOG_TABLE[j] = Math.log(m);
+            INV_TABLE[j] = 1.0 / m;
+        }
+    }
+
+    abstract double exp(double x);
+
+    abstract double log(double x);
+
+    abstract double log10(double x);
+
+    abstract double pow(double x, double y);
+
+    static QaaMath get(boolean fastMath) {
+        return fastMath ? FAST : EXACT;
+    }
+
+    /*
+     * exp(x) = 2^(k / 256) * exp(r) with |r| <= ln(2) / 512, 2^(j / 256) is tabulated and exp(r) is
+     * approximated by its Taylor polynomial of degree 2.
+     */
+    static double fastExp(double x) {
+        if (!(x > EXP_UNDERFLOW && x < EXP_OVERFLOW)) {
+            if (x != x) {
+                return x;
+            }
+            return x > 0.0 ? Double.POSITIVE_INFINITY : 0.0;
+        }
+        final double kd = x * EXP_SCALE + ROUNDING_SHIFTER;
+        final int k = (int) Double.doubleToRawLongBits(kd);
+        final double r = x - (kd - ROUNDING_SHIFTER) * EXP_STEP;
+        final double p = 1.0 + r * (1.0 + r * 0.5);
+        final long scale = ((k >> EXP_TABLE_BITS) + EXPONENT_BIAS) << 52;
+        return p * EXP_TABLE[k & (EXP_TABLE_SIZE - 1)] * Double.longBitsToDouble(scale);
+    }
+
+    /*
+     * log(x) = e * ln(2) + log(c) + log(m / c) with x = m * 2^e and c the tabulated 1 + j / 128 next below m.
+     * log(1 + t) with 0 <= t < 1 / 128 is approximated by its Taylor polynomial of degree 3.
+     */
+    static double fastLog(double x) {
+        final long bits = Double.doubleToRawLongBits(x);
+        // negative numbers, zero, subnormal numbers, infinity and NaN
+        if (bits < MIN_NORMAL_BITS || bits >= INFINITY_BITS) {
+            if (x > 0.0 && x < Double.MIN_NORMAL) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            return Math.log(x);
+        }
+        final long e = (bits >>> 52) - EXPONENT_BIAS;
+        final int j = (int) ((bits & MANTISSA_MASK) >>> LOG_TABLE_SHIFT);
+        final double m = Double.longBitsToDouble((bits & MANTISSA_MASK) | (EXPONENT_BIAS << 52));
+        final double t = m * INV_TABLE[j] - 1.0;
+        final double logM = t * (1.0 - t * (0.5 - t * (1.0 / 3)));
+        return e * LN_2 + LOG_TABLE[j] + logM;
+    }
+}
@@ -9,10 +9,17 @@ public class QaaResult {
     private int flags;
 
     public QaaResult() {
-        A_Total = new float[QaaConstants.NUM_A_TOTAL_BANDS];
-        BB_SPM = new float[QaaConstants.NUM_BB_SPM_BANDS];
-        A_PIG = new float[QaaConstants.NUM_A_PIG_BANDS];
-        A_YS = new float[QaaConstants.NUM_A_YS_BANDS];
+        this(QaaBandLayout.MERIS);
+    }
+
+    /**
+     * @param layout defines the number of bands of the IOP groups
+     */
+    public QaaResult(QaaBandLayout layout) {
+        A_Total = new float[layout.getNumATotalBands()];
+        BB_SPM = new float[layout.getNumATotalBands()];
+        A_PIG = new float[layout.getNumAPigBands()];
+        A_YS = new float[layout.getNumAPigBands()];
 
         setValid(true);
     }
@@ -86,6 +93,10 @@ public class QaaResult {
         return flags;
     }
 
+    void setFlags(int flags) {
+        this.flags = flags;
+    }
+
     public void setAYsOutOfBounds(boolean outOfBounds) {
         if (outOfBounds) {
             flags |= QaaConstants.FLAG_MASK_A_YS_OOB;
@@ -0,0 +1,153 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Holds the results of {@link QaaAlgorithm#processBatch} for many pixels in band-major arrays,
+ * e.g. {@code getA_Total()[band][pixel]}. The flags of a pixel are stored as unsigned byte.
+ * <p/>
+ * The array of a single band may be {@code null}, the values of that band are then not stored. This way only
+ * the bands actually needed have to be allocated.
+ */
+public class QaaResultBuffer {
+
+    private final float[][] A_Total;
+    private final float[][] BB_SPM;
+    private final float[][] A_PIG;
+    private final float[][] A_YS;
+    private final byte[] flags;
+
+    /**
+     * Creates a buffer for the given number of pixels.
+     *
+     * @param capacity the number of pixels
+     */
+    public QaaResultBuffer(int capacity) {
+        this(QaaBandLayout.MERIS, capacity);
+    }
+
+    /**
+     * Creates a buffer for the given number of pixels and the bands of the given layout.
+     *
+     * @param layout   defines the number of bands of the IOP groups
+     * @param capacity the number of pixels
+     */
+    public QaaResultBuffer(QaaBandLayout layout, int capacity) {
+        this(layout,
+             new float[layout.getNumATotalBands()][capacity],
+             new float[layout.getNumATotalBands()][capacity],
+             new float[layout.getNumAPigBands()][capacity],
+             new float[layout.getNumAPigBands()][capacity],
+             new byte[capacity]);
+    }
+
+    /**
+     * Creates a buffer which writes into the given arrays. All arrays must have the same length, the arrays of
+     * single bands may be {@code null}.
+     *
+     * @param A_Total receives a_total, A_Total[band][pixel]
+     * @param BB_SPM  receives bb_spm, BB_SPM[band][pixel]
+     * @param A_PIG   receives a_pig, A_PIG[band][pixel]
+     * @param A_YS    receives a_ys, A_YS[band][pixel]
+     * @param flags   receives the flags
+     */
+    public QaaResultBuffer(float[][] A_Total, float[][] BB_SPM, float[][] A_PIG, float[][] A_YS, byte[] flags) {
+        this(QaaBandLayout.MERIS, A_Total, BB_SPM, A_PIG, A_YS, flags);
+    }
+
+    /**
+     * Same as {@link #QaaResultBuffer(float[][], float[][], float[][], float[][], byte[])}, but the number of
+     * bands of the IOP groups is given by the layout.
+     */
+    public QaaResultBuffer(QaaBandLayout layout, float[][] A_Total, float[][] BB_SPM, float[][] A_PIG,
+                           float[][] A_YS, byte[] flags) {
+        checkLength(A_Total, layout.getNumATotalBands(), flags.length);
+        checkLength(BB_SPM, layout.getNumATotalBands(), flags.length);
+        checkLength(A_PIG, layout.getNumAPigBands(), flags.length);
+        checkLength(A_YS, layout.getNumAPigBands(), flags.length);
+        this.A_Total = A_Total;
+        this.BB_SPM = BB_SPM;
+        this.A_PIG = A_PIG;
+        this.A_YS = A_YS;
+        this.flags = flags;
+    }
+
+    public int getCapacity() {
+        return flags.length;
+    }
+
+    public float[][] getA_Total() {
+        return A_Total;
+    }
+
+    public float[][] getBB_SPM() {
+        return BB_SPM;
+    }
+
+    public float[][] getA_PIG() {
+        return A_PIG;
+    }
+
+    public float[][] getA_YS() {
+        return A_YS;
+    }
+
+    public byte[] getFlags() {
+        return flags;
+    }
+
+    public int getFlags(int index) {
+        return flags[index] & 0xFF;
+    }
+
+    /**
+     * Marks the given pixels as not processed, the measurements are set to the no-data value and
+     * the flag {@link QaaConstants#FLAG_MASK_INVALID} is raised.
+     *
+     * @param offset the index of the first pixel
+     * @param count  the number of pixels
+     */
+    public void invalidate(int offset, int count) {
+        final int end = offset + count;
+        fill(A_Total, offset, end);
+        fill(BB_SPM, offset, end);
+        fill(A_PIG, offset, end);
+        fill(A_YS, offset, end);
+        Arrays.fill(flags, offset, end, (byte) QaaConstants.FLAG_MASK_INVALID);
+    }
+
+    /**
+     * Marks the given pixel as producing an imaginary number, the measurements are set to the no-data value
+     * and the flag {@link QaaConstants#FLAG_MASK_IMAGINARY} is raised.
+     *
+     * @param index the index of the pixel
+     */
+    public void invalidateImaginary(int index) {
+        fill(A_Total, index, index + 1);
+        fill(BB_SPM, index, index + 1);
+        fill(A_PIG, index, index + 1);
+        fill(A_YS, index, index + 1);
+        flags[index] = (byte) QaaConstants.FLAG_MASK_IMAGINARY;
+    }
+
+    private static void fill(float[][] measurements, int start, int end) {
+        for (float[] bandValues : measurements) {
+            if (bandValues != null) {
+                Arrays.fill(bandValues, start, end, QaaConstants.NO_DATA_VALUE);
+            }
+        }
+    }
+
+    private static void checkLength(float[][] measurements, int numBands, int capacity) {
+        if (measurements.length != numBands) {
+            throw new IllegalArgumentException(String.format("Expected %d bands but got %d", numBands,
+                                                             measurements.length));
+        }
+        for (float[] bandValues : measurements) {
+            if (bandValues != null && bandValues.length != capacity) {
+                throw new IllegalArgumentException(String.format("Expected %d values but got %d", capacity,
+                                                                 bandValues.length));
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import static org.esa.beam.meris.qaa.algorithm.Qaa.IDX_560;
+import static org.esa.beam.meris.qaa.algorithm.Qaa.g0;
+import static org.esa.beam.meris.qaa.algorithm.Qaa.g1;
+
+/**
+ * Lookup tables for the steps of QAA v5 which only depend on the value of a single band, for reflectances
+ * stored as scaled 16-bit integers. For every band and every possible raw value the tables hold the remote
+ * sensing reflectance Rrs (scaled and divided by PI if configured), the below sea-surface reflectance rrs
+ * (step 0.2) and u (step 1). Only the tabulated Rrs of the bands at 490, 560 and 670 nm are needed later on.
+ * For the band at 560 nm they additionally hold the bounds of the Rrs670 check and the part of the Rrs670
+ * correction which only depends on Rrs560 (step 0.1).
+ * <p/>
+ * The tables are computed with the arithmetic of the block kernel, so the results of
+ * {@link QaaAlgorithm#processBatch(short[][], int, int, QaaRrsLut, QaaResultBuffer, QaaWorkspace)} are the same as
+ * those of the float batch processing by the block kernel on the scaled values. A lookup table is immutable and can be shared between
+ * threads, it needs about 6 MB.
+ */
+public class QaaRrsLut {
+
+    static final int NUM_BANDS = 7;
+    private static final int TABLE_SIZE = 1 << 16;
+    private static final double ONE_DIV_PI = 1.0 / Math.PI;
+    private static final double G0_SQUARE = Math.pow(g0, 2.0);
+
+    final float[][] Rrs;
+    final float[][] rrs;
+    // NaN marks a value producing an imaginary number
+    final float[][] u;
+    final float[] Rrs670Upper;
+    final float[] Rrs670Lower;
+    final float[] Rrs670Base;
+    private final boolean divideByPi;
+    private final boolean fastMath;
+
+    /**
+     * Creates the lookup tables. The raw values of signed bands are interpreted as two's complement, those of
+     * unsigned bands as unsigned 16-bit integers. The geophysical value is {@code raw * scalingFactor + scalingOffset}.
+     *
+     * @param scalingFactors the scaling factors of the seven bands
+     * @param scalingOffsets the scaling offsets of the seven bands
+     * @param signed         whether the raw values of the seven bands are signed
+     * @param config         provides the divide-by-PI and fast-math settings
+     */
+    public QaaRrsLut(double[] scalingFactors, double[] scalingOffsets, boolean[] signed, QaaConfig config) {
+        if (scalingFactors.length != NUM_BANDS || scalingOffsets.length != NUM_BANDS || signed.length != NUM_BANDS) {
+            throw new IllegalArgumentException("Scaling of " + NUM_BANDS + " bands expected");
+        }
+        divideByPi = config.isDivideByPi();
+        fastMath = config.isFastMath();
+        final QaaMath math = QaaMath.get(fastMath);
+
+        Rrs = new float[NUM_BANDS][TABLE_SIZE];
+        rrs = new float[NUM_BANDS][TABLE_SIZE];
+        u = new float[NUM_BANDS - 1][];
+        for (int b = 0; b < NUM_BANDS; b++) {
+            final float[] Rb = Rrs[b];
+            final float[] rb = rrs[b];
+            for (int index = 0; index < TABLE_SIZE; index++) {
+                final int raw = signed[b] ? (short) index : index;
+                final float value = (float) (raw * scalingFactors[b] + scalingOffsets[b]);
+                Rb[index] = divideByPi ? (float) (value * ONE_DIV_PI) : value;
+                rb[index] = (float) (Rb[index] / (0.52 + 1.7 * Rb[index]));
+            }
+            if (b < NUM_BANDS - 1) {
+                u[b] = new float[TABLE_SIZE];
+                for (int index = 0; index < TABLE_SIZE; index++) {
+                    final double nom = G0_SQUARE + 4.0 * g1 * rb[index];
+                    u[b][index] = nom < 0 ? Float.NaN : (float) ((Math.sqrt(nom) - g0) / (2.0 * g1));
+                }
+            }
+        }
+
+        Rrs670Upper = new float[TABLE_SIZE];
+        Rrs670Lower = new float[TABLE_SIZE];
+        Rrs670Base = new float[TABLE_SIZE];
+        final float[] R560 = Rrs[IDX_560];
+        for (int index = 0; index < TABLE_SIZE; index++) {
+            final double lnR560 = math.log(R560[index]);
+            Rrs670Upper[index] = (float) (20.0 * R560[index] * Math.sqrt(R560[index]));
+            Rrs670Lower[index] = (float) (0.9 * math.exp(1.7 * lnR560));
+            Rrs670Base[index] = (float) (1.27 * math.exp(1.47 * lnR560));
+        }
+    }
+
+    /**
+     * @param config the configuration to check
+     * @return whether the tables have been computed for the divide-by-PI and fast-math settings of the configuration
+     */
+    public boolean isCompatible(QaaConfig config) {
+        return config.isDivideByPi() == divideByPi && config.isFastMath() == fastMath;
+    }
+
+    static int index(short raw) {
+        return raw & 0xFFFF;
+    }
+}
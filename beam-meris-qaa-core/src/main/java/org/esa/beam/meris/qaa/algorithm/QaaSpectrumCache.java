@@ -0,0 +1,241 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of QAA results keyed by the reflectance spectrum of a pixel. Scenes of open ocean or lakes
+ * contain many identical spectra, for those the steps 0 - 10 are computed only once. The cache is used by
+ * {@link QaaAlgorithm} when it is set on the {@link QaaWorkspace}, see {@link QaaWorkspace#setSpectrumCache}.
+ * <p/>
+ * The key is the spectrum after the division by PI. With a quantisation step of 0 the bit patterns of the
+ * reflectances are compared, so a hit returns exactly the result of the computation. With a positive step the
+ * reflectances are rounded to multiples of the step, and all spectra of a quantisation cell get the result of the
+ * first spectrum of the cell that has been computed.
+ * <p/>
+ * The cached results only hold for one configuration. If the cache is used with another {@link QaaConfig}
+ * instance it is cleared, changes of the configuration instance itself are not detected.
+ * <p/>
+ * A cache is not thread safe, like the workspace each thread needs its own instance.
+ */
+public class QaaSpectrumCache {
+
+    /**
+     * The entry removed when a new spectrum is added to a full cache.
+     */
+    public enum Eviction {
+        /**
+         * The least recently used spectrum is removed.
+         */
+        LRU,
+        /**
+         * The spectrum added first is removed, hits do not change the order.
+         */
+        FIFO
+    }
+
+    static final int MISS = -1;
+
+    private static final int NUM_BANDS = 7;
+    private static final int NUM_VALUES = QaaConstants.NUM_A_TOTAL_BANDS + QaaConstants.NUM_BB_SPM_BANDS +
+                                          QaaConstants.NUM_A_PIG_BANDS + QaaConstants.NUM_A_YS_BANDS;
+
+    private final int capacity;
+    private final float quantisationStep;
+    private final Eviction eviction;
+    private final Map<Key, CachedResult> entries;
+    private final Key probe;
+    private CachedResult evicted;
+    private QaaConfig config;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Creates a cache comparing the exact spectra and evicting the least recently used one.
+     *
+     * @param capacity the maximum number of spectra
+     */
+    public QaaSpectrumCache(int capacity) {
+        this(capacity, 0.0f, Eviction.LRU);
+    }
+
+    /**
+     * @param capacity         the maximum number of spectra
+     * @param quantisationStep the step the reflectances are rounded to, 0 compares the exact values
+     * @param eviction         the entry removed from a full cache
+     * @throws IllegalArgumentException if the capacity is not positive or the step is negative
+     */
+    public QaaSpectrumCache(int capacity, float quantisationStep, Eviction eviction) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (!(quantisationStep >= 0.0f)) {
+            throw new IllegalArgumentException("quantisationStep must not be negative");
+        }
+        this.capacity = capacity;
+        this.quantisationStep = quantisationStep;
+        this.eviction = eviction;
+        entries = new LinkedHashMap<Key, CachedResult>(16, 0.75f, eviction == Eviction.LRU) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+                if (size() > QaaSpectrumCache.this.capacity) {
+                    evicted = eldest.getValue();
+                    return true;
+                }
+                return false;
+            }
+        };
+        probe = new Key(new int[NUM_BANDS]);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public float getQuantisationStep() {
+        return quantisationStep;
+    }
+
+    public Eviction getEviction() {
+        return eviction;
+    }
+
+    /**
+     * @return the number of cached spectra
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of pixels whose result has been taken from the cache
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of pixels whose result has been computed
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Removes all spectra and resets the counters.
+     */
+    public void clear() {
+        clearEntries();
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    private void clearEntries() {
+        entries.clear();
+        evicted = null;
+    }
+
+    /*
+     * Looks up the spectrum in workspace.rrs. On a hit the results are copied into the output arrays of the
+     * workspace and the flags are returned, otherwise MISS. In the latter case the spectrum is remembered for
+     * the following call of put().
+     */
+    int get(QaaWorkspace workspace, QaaConfig config) {
+        if (config != this.config) {
+            clearEntries();
+            this.config = config;
+        }
+        probe.set(workspace.rrs, quantisationStep);
+        final CachedResult entry = entries.get(probe);
+        if (entry == null) {
+            missCount++;
+            return MISS;
+        }
+        hitCount++;
+        entry.copyTo(workspace);
+        return entry.flags;
+    }
+
+    /*
+     * Stores the results of the spectrum of the last missed get() call.
+     */
+    void put(QaaWorkspace workspace, int flags) {
+        CachedResult entry = evicted;
+        evicted = null;
+        if (entry == null) {
+            entry = new CachedResult();
+        }
+        entry.copyFrom(workspace, flags);
+        entries.put(probe.copy(), entry);
+    }
+
+    private static final class Key {
+
+        private final int[] values;
+        private int hash;
+
+        private Key(int[] values) {
+            this.values = values;
+        }
+
+        private void set(float[] rrs, float quantisationStep) {
+            for (int i = 0; i < NUM_BANDS; i++) {
+                values[i] = quantisationStep > 0.0f ? Math.round(rrs[i] / quantisationStep)
+                                                    : Float.floatToIntBits(rrs[i]);
+            }
+            hash = Arrays.hashCode(values);
+        }
+
+        private Key copy() {
+            final Key key = new Key(values.clone());
+            key.hash = hash;
+            return key;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.equals(values, ((Key) obj).values);
+        }
+    }
+
+    private static final class CachedResult {
+
+        private final float[] values = new float[NUM_VALUES];
+        private int flags;
+
+        private void copyFrom(QaaWorkspace workspace, int flags) {
+            this.flags = flags;
+            if ((flags & QaaConstants.FLAG_MASK_IMAGINARY) != 0) {
+                return;
+            }
+            int offset = 0;
+            System.arraycopy(workspace.aTotal, 0, values, offset, workspace.aTotal.length);
+            offset += workspace.aTotal.length;
+            System.arraycopy(workspace.bbSpm, 0, values, offset, workspace.bbSpm.length);
+            offset += workspace.bbSpm.length;
+            System.arraycopy(workspace.aPig, 0, values, offset, workspace.aPig.length);
+            offset += workspace.aPig.length;
+            System.arraycopy(workspace.aYs, 0, values, offset, workspace.aYs.length);
+        }
+
+        private void copyTo(QaaWorkspace workspace) {
+            if ((flags & QaaConstants.FLAG_MASK_IMAGINARY) != 0) {
+                return;
+            }
+            int offset = 0;
+            System.arraycopy(values, offset, workspace.aTotal, 0, workspace.aTotal.length);
+            offset += workspace.aTotal.length;
+            System.arraycopy(values, offset, workspace.bbSpm, 0, workspace.bbSpm.length);
+            offset += workspace.bbSpm.length;
+            System.arraycopy(values, offset, workspace.aPig, 0, workspace.aPig.length);
+            offset += workspace.aPig.length;
+            System.arraycopy(values, offset, workspace.aYs, 0, workspace.aYs.length);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+/**
+ * Holds the intermediate arrays needed by {@link QaaAlgorithm} to process a single pixel.
+ * By recycling a workspace the whole processing of steps 0 - 10 runs without any heap allocation.
+ * <p/>
+ * A workspace is not thread safe, each thread needs its own instance.
+ */
+public class QaaWorkspace {
+
+    final float[] rrs;
+    final float[] rrs_pixel;
+    final float[] u;
+    final float[] a_pixel;
+    final float[] bbSpm_pixel;
+    final float[] aPig_pixel;
+    final float[] aYs_pixel;
+    final float[] aTotal;
+    final float[] bbSpm;
+    final float[] aPig;
+    final float[] aYs;
+    private QaaBlockKernel blockKernel;
+    private QaaResultBuffer unboundedBuffer;
+    private QaaSpectrumCache spectrumCache;
+
+    public QaaWorkspace() {
+        rrs = new float[7];
+        rrs_pixel = new float[7];
+        u = new float[6];
+        a_pixel = new float[6];
+        bbSpm_pixel = new float[6];
+        aPig_pixel = new float[6];
+        aYs_pixel = new float[6];
+        aTotal = new float[QaaConstants.NUM_A_TOTAL_BANDS];
+        bbSpm = new float[QaaConstants.NUM_BB_SPM_BANDS];
+        aPig = new float[QaaConstants.NUM_A_PIG_BANDS];
+        aYs = new float[QaaConstants.NUM_A_YS_BANDS];
+    }
+
+    /**
+     * Sets the cache consulted by {@link QaaAlgorithm} before a pixel is computed. As the cache is not thread
+     * safe either, it must only be shared by workspaces used in the same thread.
+     *
+     * @param spectrumCache the cache, {@code null} disables caching
+     */
+    public void setSpectrumCache(QaaSpectrumCache spectrumCache) {
+        this.spectrumCache = spectrumCache;
+    }
+
+    public QaaSpectrumCache getSpectrumCache() {
+        return spectrumCache;
+    }
+
+    /*
+     * The block buffers are only allocated if the workspace is used for batch processing.
+     */
+    QaaBlockKernel getBlockKernel() {
+        if (blockKernel == null) {
+            blockKernel = new QaaBlockKernel(QaaConstants.NO_DATA_VALUE);
+        }
+        return blockKernel;
+    }
+
+    /*
+     * Receives the unbounded results of a chunk of pixels when bound variants are processed one by one.
+     */
+    QaaResultBuffer getUnboundedBuffer() {
+        if (unboundedBuffer == null) {
+            unboundedBuffer = new QaaResultBuffer(QaaBlockKernel.BLOCK_SIZE);
+        }
+        return unboundedBuffer;
+    }
+}
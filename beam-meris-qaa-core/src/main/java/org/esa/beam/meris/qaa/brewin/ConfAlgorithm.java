@@ -0,0 +1,235 @@
+package org.esa.beam.meris.qaa.brewin;
+
+import org.esa.beam.meris.qaa.algorithm.ImaginaryNumberException;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.esa.beam.meris.qaa.algorithm.QaaConstants;
+import org.esa.beam.meris.qaa.algorithm.QaaResult;
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+
+public class ConfAlgorithm {
+
+    private static final String IMAGINARY_MESSAGE = "Will produce an imaginary number";
+    private static final double ONE_DIV_PI = 1.0 / Math.PI;
+
+    /**
+     * The precision of the intermediate values. FLOAT is faster and deviates from DOUBLE by some float ulps,
+     * the deviation is quantified by the tests of this class for each sensor.
+     */
+    public enum Precision {
+        DOUBLE,
+        FLOAT
+    }
+
+    private final SensorKernel kernel;
+    private final QaaBandLayout bandLayout;
+    private final Precision precision;
+    private QaaConfig config;
+
+    public ConfAlgorithm(SensorConfig sensorConfig) {
+        this(sensorConfig, Precision.DOUBLE);
+    }
+
+    public ConfAlgorithm(SensorConfig sensorConfig, Precision precision) {
+        kernel = new SensorKernel(sensorConfig);
+        bandLayout = kernel.getLayout().getBandLayout();
+        this.precision = precision;
+        config = new QaaConfig();
+    }
+
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return the band indexes of the sensor, derived when the algorithm has been created
+     */
+    public SensorLayout getSensorLayout() {
+        return kernel.getLayout();
+    }
+
+    /**
+     * Sets the configuration used by {@link #processBatch}, {@link #process} does not use it.
+     *
+     * @param config the configuration
+     */
+    public void setConfig(QaaConfig config) {
+        this.config = config;
+    }
+
+    public QaaConfig getConfig() {
+        return config;
+    }
+
+    public QaaResult process(float[] Rrs, QaaResult recycle) throws ImaginaryNumberException {
+        return process(Rrs, recycle, new ConfWorkspace());
+    }
+
+    /**
+     * Same as {@link #process(float[], QaaResult)}, but uses the intermediate arrays of the given workspace.
+     * If a result to recycle is given, no heap memory is allocated.
+     *
+     * @param Rrs       the remote sensing reflectances
+     * @param recycle   the result to recycle, may be {@code null}
+     * @param workspace the workspace, must not be shared between threads
+     * @return the computation result
+     * @throws ImaginaryNumberException if an imaginary number would be produced
+     */
+    public QaaResult process(float[] Rrs, QaaResult recycle, ConfWorkspace workspace) throws
+            ImaginaryNumberException {
+        final QaaResult result = ensureResult(recycle);
+        if (compute(Rrs, workspace, result, true) == QaaConstants.FLAG_MASK_IMAGINARY) {
+            throw new ImaginaryNumberException(IMAGINARY_MESSAGE, findImaginaryNumber(Rrs, workspace));
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #process(float[], QaaResult)}, but instead of throwing an {@link ImaginaryNumberException}
+     * the result is invalidated and the flag {@link QaaConstants#FLAG_MASK_IMAGINARY} is set.
+     *
+     * @param Rrs     the remote sensing reflectances
+     * @param recycle the result to recycle, may be {@code null}
+     * @return the computation result
+     */
+    public QaaResult processUnchecked(float[] Rrs, QaaResult recycle) {
+        return processUnchecked(Rrs, recycle, new ConfWorkspace());
+    }
+
+    /**
+     * Same as {@link #processUnchecked(float[], QaaResult)}, but uses the intermediate arrays of the given
+     * workspace. If a result to recycle is given, no heap memory is allocated.
+     *
+     * @param Rrs       the remote sensing reflectances
+     * @param recycle   the result to recycle, may be {@code null}
+     * @param workspace the workspace, must not be shared between threads
+     * @return the computation result
+     */
+    public QaaResult processUnchecked(float[] Rrs, QaaResult recycle, ConfWorkspace workspace) {
+        final QaaResult result = ensureResult(recycle);
+        if (compute(Rrs, workspace, result, true) == QaaConstants.FLAG_MASK_IMAGINARY) {
+            result.invalidateImaginary();
+        }
+        return result;
+    }
+
+    /**
+     * process the algorithm on a batch of pixels given as band-major arrays. Other than {@link #process} this
+     * method applies the configuration: the input is divided by PI if requested and values outside of the valid
+     * ranges are replaced by the no-data value and flagged, like {@link org.esa.beam.meris.qaa.algorithm.QaaAlgorithm}
+     * does. Pixels producing an imaginary number are flagged.
+     *
+     * @param rrsByBand the reflectances, rrsByBand[band][pixel], bands ordered as the wavelengths of the sensor
+     * @param offset    the index of the first pixel to process
+     * @param count     the number of pixels to process
+     * @param out       receives the results, the result of a pixel is stored at the same index as its input;
+     *                  its bands must match the band layout of {@link #getSensorLayout()}
+     */
+    public void processBatch(float[][] rrsByBand, int offset, int count, QaaResultBuffer out) {
+        processBatch(rrsByBand, offset, count, out, new ConfWorkspace());
+    }
+
+    /**
+     * Same as {@link #processBatch(float[][], int, int, QaaResultBuffer)}, but uses the intermediate arrays of
+     * the given workspace. No heap memory is allocated.
+     *
+     * @param rrsByBand the reflectances, rrsByBand[band][pixel]
+     * @param offset    the index of the first pixel to process
+     * @param count     the number of pixels to process
+     * @param out       receives the results, the result of a pixel is stored at the same index as its input
+     * @param workspace the workspace, must not be shared between threads
+     */
+    public void processBatch(float[][] rrsByBand, int offset, int count, QaaResultBuffer out,
+                             ConfWorkspace workspace) {
+        final int numBands = kernel.getNumBands();
+        final float[] Rrs = workspace.getRrs(numBands);
+        final QaaResult result = workspace.getResult(bandLayout);
+        final boolean divideByPi = config.isDivideByPi();
+        final boolean decomposition = config.isDecomposition();
+
+        final int end = offset + count;
+        for (int p = offset; p < end; p++) {
+            for (int b = 0; b < numBands; b++) {
+                Rrs[b] = rrsByBand[b][p];
+                if (divideByPi) {
+                    Rrs[b] *= ONE_DIV_PI;
+                }
+            }
+            if (compute(Rrs, workspace, result, decomposition) == QaaConstants.FLAG_MASK_IMAGINARY) {
+                out.invalidateImaginary(p);
+            } else {
+                out.getFlags()[p] = (byte) storeBounded(result, p, out);
+            }
+        }
+    }
+
+    private int compute(float[] Rrs, ConfWorkspace workspace, QaaResult result, boolean decomposition) {
+        if (precision == Precision.FLOAT) {
+            return kernel.computeFloat(Rrs, workspace, result, decomposition);
+        }
+        return kernel.compute(Rrs, workspace, result, decomposition);
+    }
+
+    /*
+     * Only needed for the exception message, the number is always recomputed in double precision.
+     */
+    private double findImaginaryNumber(float[] Rrs, ConfWorkspace workspace) {
+        if (precision == Precision.FLOAT) {
+            kernel.compute(Rrs, workspace, new QaaResult(bandLayout), true);
+        }
+        return kernel.findImaginaryNumber(workspace.rrs, Rrs.length);
+    }
+
+    /*
+     * Copies the result into the buffer, values out of bounds are replaced by the no-data value.
+     * Returns the flags of the pixel.
+     */
+    private int storeBounded(QaaResult result, int p, QaaResultBuffer out) {
+        int flags = QaaConstants.FLAG_MASK_VALID;
+        if (storeBounded(result.getA_Total(), out.getA_Total(), p, config.getATotalLower(), config.getATotalUpper())) {
+            flags |= QaaConstants.FLAG_MASK_A_TOTAL_OOB;
+        }
+        if (storeBounded(result.getBB_SPM(), out.getBB_SPM(), p, config.getBbSpmsLower(), config.getBbSpmsUpper())) {
+            flags |= QaaConstants.FLAG_MASK_BB_SPM_OOB;
+        }
+        if (storeBounded(result.getA_PIG(), out.getA_PIG(), p, config.getAPigLower(), config.getAPigUpper())) {
+            flags |= QaaConstants.FLAG_MASK_A_PIG_OOB;
+        }
+        final float[] a_ys = result.getA_YS();
+        if (storeBounded(a_ys, out.getA_YS(), p, config.getAYsLower(), config.getAYsUpper())) {
+            flags |= QaaConstants.FLAG_MASK_A_YS_OOB;
+            for (float value : a_ys) {
+                if (value < 0 && value < config.getAYsLower()) {
+                    flags |= QaaConstants.FLAG_MASK_NEGATIVE_AYS;
+                }
+            }
+        }
+        return flags;
+    }
+
+    private static boolean storeBounded(float[] values, float[][] target, int p, float lower, float upper) {
+        boolean isOob = false;
+        for (int i = 0; i < values.length; i++) {
+            final float value = values[i];
+            final boolean valueOob = value < lower || value > upper;
+            if (target[i] != null) {
+                target[i][p] = valueOob ? QaaConstants.NO_DATA_VALUE : value;
+            }
+            isOob |= valueOob;
+        }
+        return isOob;
+    }
+
+    /*
+     * A result created for another band layout cannot be recycled and is replaced.
+     */
+    private QaaResult ensureResult(QaaResult recycle) {
+        QaaResult result = recycle;
+        if (result == null || !ConfWorkspace.fits(result, bandLayout)) {
+            result = new QaaResult(bandLayout);
+        }
+        result.reset();
+
+        return result;
+    }
+}
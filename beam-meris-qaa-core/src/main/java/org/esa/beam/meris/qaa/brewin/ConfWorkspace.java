@@ -0,0 +1,76 @@
+package org.esa.beam.meris.qaa.brewin;
+
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaResult;
+
+/**
+ * Holds the intermediate arrays needed by {@link ConfAlgorithm} to process a single pixel, in double and in
+ * float precision. By recycling a workspace the processing runs without any heap allocation.
+ * <p/>
+ * A workspace is not thread safe, each thread needs its own instance.
+ */
+public class ConfWorkspace {
+
+    private static final int DEFAULT_CAPACITY = 7;
+
+    double[] Rrs_in;
+    double[] rrs;
+    double[] U;
+    double[] a;
+    float[] Rrs_in_f;
+    float[] rrs_f;
+    float[] U_f;
+    float[] a_f;
+    private QaaResult result;
+    private float[] Rrs;
+
+    public ConfWorkspace() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /*
+     * Spectra with more bands than expected are accepted by the algorithm, the arrays grow on demand.
+     */
+    void ensureCapacity(int numBands) {
+        if (Rrs_in.length < numBands) {
+            allocate(numBands);
+        }
+    }
+
+    private void allocate(int capacity) {
+        Rrs_in = new double[capacity];
+        rrs = new double[capacity];
+        U = new double[capacity];
+        a = new double[capacity];
+        Rrs_in_f = new float[capacity];
+        rrs_f = new float[capacity];
+        U_f = new float[capacity];
+        a_f = new float[capacity];
+    }
+
+    /*
+     * The input spectrum of batch processing. Its length must match the number of bands of the sensor, as the
+     * kernel takes the number of bands from the input.
+     */
+    float[] getRrs(int numBands) {
+        if (Rrs == null || Rrs.length != numBands) {
+            Rrs = new float[numBands];
+        }
+        return Rrs;
+    }
+
+    /*
+     * The result of batch processing, sized by the band layout of the sensor.
+     */
+    QaaResult getResult(QaaBandLayout bandLayout) {
+        if (result == null || !fits(result, bandLayout)) {
+            result = new QaaResult(bandLayout);
+        }
+        return result;
+    }
+
+    static boolean fits(QaaResult result, QaaBandLayout bandLayout) {
+        return result.getA_Total().length == bandLayout.getNumATotalBands() &&
+               result.getA_PIG().length == bandLayout.getNumAPigBands();
+    }
+}
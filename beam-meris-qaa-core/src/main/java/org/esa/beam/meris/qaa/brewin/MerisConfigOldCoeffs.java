@@ -1,6 +1,6 @@
 package org.esa.beam.meris.qaa.brewin;
 
-public class MerisConfigOldCoeffs implements SensorConfig {
+public class MerisConfigOldCoeffs implements SensorDescriptor {
 
     private static final double[] awCoefficients = {-1.273, -1.163, -0.295};
     private static final double referenceWavelength = 560.0;
@@ -32,4 +32,14 @@ public class MerisConfigOldCoeffs implements SensorConfig {
     public double[] getSpecficBackscatters() {
         return specificBackscatters;
     }
+
+    @Override
+    public int getNumATotalBands() {
+        return 5;
+    }
+
+    @Override
+    public int getNumAPigBands() {
+        return 3;
+    }
 }
@@ -1,6 +1,6 @@
 package org.esa.beam.meris.qaa.brewin;
 
-public class SeaWifsConfig implements SensorConfig {
+public class SeaWifsConfig implements SensorDescriptor {
 
     private static final double[] awCoefficients = {-1.146, -1.366, -0.469};
     private static final double referenceWavelength = 555.0;
@@ -32,4 +32,14 @@ public class SeaWifsConfig implements SensorConfig {
     public double[] getSpecficBackscatters() {
         return specificBackscatters;
     }
+
+    @Override
+    public int getNumATotalBands() {
+        return 5;
+    }
+
+    @Override
+    public int getNumAPigBands() {
+        return 3;
+    }
 }
@@ -0,0 +1,39 @@
+package org.esa.beam.meris.qaa.brewin;
+
+/**
+ * Creates the shipped {@link SensorDescriptor}s by name.
+ */
+public class SensorConfigFactory {
+
+    public static final String MERIS = "MERIS";
+    public static final String MERIS_OLD_COEFFS = "MERIS_OLD_COEFFS";
+    public static final String MODIS = "MODIS";
+    public static final String SEAWIFS = "SEAWIFS";
+
+    private static final String[] SENSOR_NAMES = {MERIS, MERIS_OLD_COEFFS, MODIS, SEAWIFS};
+
+    private SensorConfigFactory() {
+    }
+
+    public static String[] getSensorNames() {
+        return SENSOR_NAMES.clone();
+    }
+
+    /**
+     * @param sensorName one of the names returned by {@link #getSensorNames()}
+     * @return a new configuration of the sensor
+     * @throws IllegalArgumentException if the sensor is not known
+     */
+    public static SensorDescriptor create(String sensorName) {
+        if (MERIS.equals(sensorName)) {
+            return new MerisConfig();
+        } else if (MERIS_OLD_COEFFS.equals(sensorName)) {
+            return new MerisConfigOldCoeffs();
+        } else if (MODIS.equals(sensorName)) {
+            return new ModisConfig();
+        } else if (SEAWIFS.equals(sensorName)) {
+            return new SeaWifsConfig();
+        }
+        throw new IllegalArgumentException("Unknown sensor: " + sensorName);
+    }
+}
@@ -0,0 +1,14 @@
+package org.esa.beam.meris.qaa.brewin;
+
+/**
+ * A {@link SensorConfig} which also defines the IOP output of the sensor. a_total and bb_spm are written for the
+ * first {@link #getNumATotalBands()} bands of {@link #getWavelengths()}, a_pig and a_ys for the first
+ * {@link #getNumAPigBands()} bands. The band indexes used by the algorithm are derived from the wavelengths by
+ * {@link SensorLayout}, so a sensor with any number of bands only needs to provide its descriptor.
+ */
+public interface SensorDescriptor extends SensorConfig {
+
+    int getNumATotalBands();
+
+    int getNumAPigBands();
+}
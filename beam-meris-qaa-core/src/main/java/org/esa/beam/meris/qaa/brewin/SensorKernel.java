@@ -0,0 +1,336 @@
+package org.esa.beam.meris.qaa.brewin;
+
+import org.esa.beam.meris.qaa.algorithm.QaaConstants;
+import org.esa.beam.meris.qaa.algorithm.QaaResult;
+
+/**
+ * The QAA computation of {@link ConfAlgorithm} compiled for one {@link SensorConfig}. Everything which only
+ * depends on the sensor, the band indexes of its {@link SensorLayout}, the wavelength ratios of the bbp power
+ * law, the wavelength differences of the adg slope and the coefficients, is computed once when the kernel is
+ * created. Powers with a sensor dependent base are evaluated as exp(N * ln(base)) with the logarithm taken from
+ * the tables. The per-pixel loops run over flat tables without branching on the band index, for any number
+ * of bands.
+ * <p/>
+ * The computation is available in double precision and in float precision. Both use the intermediate arrays
+ * of a {@link ConfWorkspace} and do not allocate.
+ * <p/>
+ * A kernel is immutable and can be shared between threads.
+ */
+final class SensorKernel {
+
+    // Coefficients as defined by Gordon et al. (1988) and modified by Lee et al. (2002) to estimate bb/a+bb referred to as U
+    // @todo 1 tb/tb gx constants differ wrt old implementation
+    static final double g0 = 0.089;
+    static final double g0_square = g0 * g0;
+    static final double g1 = 0.125;
+    private static final float g0_f = (float) g0;
+    private static final float g0_square_f = (float) g0_square;
+    private static final float g1_f = (float) g1;
+    private static final double LN_10 = Math.log(10.0);
+
+    private final SensorLayout layout;
+    private final int numBands;
+    // a_total and bb_spm are written for the first numATotalBands bands, a_pig and a_ys for the first numAPigBands
+    private final int numATotalBands;
+    private final int numAPigBands;
+    // the bands near 412, 443, 490 and 667 nm and the band of the reference wavelength
+    private final int idx_410;
+    private final int idx_440;
+    private final int idx_490;
+    private final int idx_560;
+    private final int idx_670;
+    // according to paper(An Update of the Quasi-Analytical Algorithm (QAA_v5), equation (6)), these constants should vary on a per-sensor basis
+    // private static final double[] A_COEFFS = {-1.273, -1.163, -0.295};
+    private final double a_coeff0;
+    private final double a_coeff1;
+    private final double a_coeff2;
+    private final double[] aw;
+    private final double[] bbw;
+    // ln(reference_wavelength / wavelengths[i])
+    private final double[] ln_ratio_wl;
+    // -(wavelengths[i] - wavelengths[idx_440])
+    private final double[] neg_delta_wl_440;
+    // wavelengths[idx_440] - wavelengths[idx_410]
+    private final double delta_wl_410;
+    // the same constants for the float precision kernel
+    private final float a_coeff0_f;
+    private final float a_coeff1_f;
+    private final float a_coeff2_f;
+    private final float[] aw_f;
+    private final float[] bbw_f;
+    private final float[] ln_ratio_wl_f;
+    private final float[] neg_delta_wl_440_f;
+    private final float delta_wl_410_f;
+
+    /**
+     * Creates the kernel for the given sensor. The arrays of the configuration are copied.
+     *
+     * @param sensorConfig the sensor configuration
+     * @throws IllegalArgumentException if the band indexes cannot be derived, see {@link SensorLayout}
+     */
+    SensorKernel(SensorConfig sensorConfig) {
+        final double[] a_coeffs = sensorConfig.getAwCoefficients();
+        final double[] wavelengths = sensorConfig.getWavelengths();
+        final double reference_wavelength = sensorConfig.getReferenceWavelength();
+
+        layout = new SensorLayout(sensorConfig);
+        numBands = layout.getNumBands();
+        numATotalBands = layout.getBandLayout().getNumATotalBands();
+        numAPigBands = layout.getBandLayout().getNumAPigBands();
+        idx_410 = layout.getIndex410();
+        idx_440 = layout.getIndex440();
+        idx_490 = layout.getIndex490();
+        idx_560 = layout.getIndexReference();
+        idx_670 = layout.getIndex670();
+        a_coeff0 = a_coeffs[0];
+        a_coeff1 = a_coeffs[1];
+        a_coeff2 = a_coeffs[2];
+        aw = sensorConfig.getSpecificAbsorptions().clone();
+        bbw = sensorConfig.getSpecficBackscatters().clone();
+        ln_ratio_wl = new double[numBands];
+        neg_delta_wl_440 = new double[numBands];
+        for (int i = 0; i < numBands; i++) {
+            ln_ratio_wl[i] = Math.log(reference_wavelength / wavelengths[i]);
+            neg_delta_wl_440[i] = -1.0 * (wavelengths[i] - wavelengths[idx_440]);
+        }
+        delta_wl_410 = wavelengths[idx_440] - wavelengths[idx_410];
+
+        a_coeff0_f = (float) a_coeff0;
+        a_coeff1_f = (float) a_coeff1;
+        a_coeff2_f = (float) a_coeff2;
+        aw_f = toFloat(aw);
+        bbw_f = toFloat(bbw);
+        ln_ratio_wl_f = toFloat(ln_ratio_wl);
+        neg_delta_wl_440_f = toFloat(neg_delta_wl_440);
+        delta_wl_410_f = (float) delta_wl_410;
+    }
+
+    private static float[] toFloat(double[] values) {
+        final float[] floats = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            floats[i] = (float) values[i];
+        }
+        return floats;
+    }
+
+    int getNumBands() {
+        return numBands;
+    }
+
+    SensorLayout getLayout() {
+        return layout;
+    }
+
+    /*
+     * Fills the result and returns FLAG_MASK_VALID, or returns FLAG_MASK_IMAGINARY if an imaginary number would be
+     * produced. Computes in double precision, the below sea-surface remote sensing reflectances are left in
+     * workspace.rrs. Without decomposition a_pig and a_ys are set to the no-data value. Nothing is allocated.
+     */
+    int compute(float[] Rrs, ConfWorkspace workspace, QaaResult result, boolean decomposition) {
+        final int length = Rrs.length;
+        workspace.ensureCapacity(length);
+        final double[] Rrs_in = workspace.Rrs_in;
+        final double[] rrs = workspace.rrs;
+        final double[] U = workspace.U;
+        final double[] a = workspace.a;
+
+        final double Rrs_560 = Rrs[idx_560];
+        final double ln_Rrs_560 = Math.log(Rrs_560);
+        final double up_667 = 20.0 * Rrs_560 * Math.sqrt(Rrs_560);
+        final double lw_667 = 0.9 * Math.exp(1.7 * ln_Rrs_560);
+
+        for (int i = 0; i < length; i++) {
+            Rrs_in[i] = Rrs[i];
+        }
+
+        // Check Rrs(667 or 665)
+        if (Rrs_in[idx_670] > up_667 || Rrs_in[idx_670] < lw_667) {
+            Rrs_in[idx_670] = 1.27 * Math.exp(1.47 * ln_Rrs_560);
+            // @todo 1 tb/tb old implementation has a positive exponent
+            Rrs_in[idx_670] += 0.00018 * Math.pow((Rrs_in[idx_490] / Rrs_in[idx_560]), -3.19);
+        }
+
+        // Coefficients for converting Rrs to rrs (above to below sea-surface)
+        for (int i = 0; i < length; i++) {
+            rrs[i] = Rrs_in[i] / (0.52 + 1.7 * Rrs_in[i]);
+        }
+
+        for (int i = 0; i < length; i++) {
+            final double nom = g0_square + 4.0 * g1 * rrs[i];
+            if (nom >= 0.0) {
+                U[i] = (Math.sqrt(nom) - g0) / (2.0 * g1);
+            } else {
+                return QaaConstants.FLAG_MASK_IMAGINARY;
+            }
+        }
+
+        // Estimation of a at reference wavelength
+        final double numer = rrs[idx_440] + rrs[idx_490];
+        final double denom = rrs[idx_560] + 5. * (rrs[idx_670] / rrs[idx_490]) * rrs[idx_670];
+        final double quot = numer / denom;
+        if (quot <= 0.0) {
+            return QaaConstants.FLAG_MASK_IMAGINARY;
+        }
+        final double X = Math.log10(quot);
+
+        final double rho = a_coeff0 + a_coeff1 * X + a_coeff2 * X * X;
+        final double a_555 = aw[idx_560] + Math.exp(LN_10 * rho);
+
+        // Estimation of bbp at reference wavelength
+        final double bbp_555 = U[idx_560] * a_555 / (1 - U[idx_560]) - bbw[idx_560];
+
+        // Exponent of bbp
+        final double ratio = rrs[idx_440] / rrs[idx_560];
+        final double N = 2.0 * (1.0 - 1.2 * Math.exp(-0.9 * ratio));
+
+        // Estimation of bbp, bb and a at all wavelengths, the output bands come first
+        for (int i = 0; i < numATotalBands; i++) {
+            final double bb = bbp_555 * Math.exp(N * ln_ratio_wl[i]) + bbw[i];
+            a[i] = (1.0 - U[i]) * bb / U[i];
+            result.setA_Total((float) a[i], i);
+            result.setBB_SPM((float) bb, i);
+        }
+        for (int i = numATotalBands; i < numBands; i++) {
+            final double bb = bbp_555 * Math.exp(N * ln_ratio_wl[i]) + bbw[i];
+            a[i] = (1.0 - U[i]) * bb / U[i];
+        }
+
+        if (!decomposition) {
+            return skipDecomposition(result);
+        }
+
+        // Estimate ratio of aph411/aph443
+        final double Ratio_aph = 0.74 + 0.2 / (0.8 + ratio);
+
+        // Estimate ratio of adg411/adg443
+        final double Slope_adg = 0.015 + 0.002 / (0.6 + ratio);
+        final double Ratio_adg = Math.exp(Slope_adg * delta_wl_410);
+
+        // Estimation of adg and aph at all wavelengths
+        final double adg_443 = ((a[idx_410] - Ratio_aph * a[idx_440]) - (aw[idx_410] - Ratio_aph * aw[idx_440])) / (Ratio_adg - Ratio_aph);
+        for (int i = 0; i < numAPigBands; i++) {
+            final double adg = adg_443 * Math.exp(Slope_adg * neg_delta_wl_440[i]);
+            result.setA_PIG((float) (a[i] - aw[i] - adg), i);
+            result.setA_YS((float) adg, i);
+        }
+
+        return QaaConstants.FLAG_MASK_VALID;
+    }
+
+    /*
+     * Same as compute, but all intermediate values are floats. The transcendental functions are evaluated in
+     * double precision and rounded. The below sea-surface remote sensing reflectances are left in workspace.rrs_f.
+     */
+    int computeFloat(float[] Rrs, ConfWorkspace workspace, QaaResult result, boolean decomposition) {
+        final int length = Rrs.length;
+        workspace.ensureCapacity(length);
+        final float[] Rrs_in = workspace.Rrs_in_f;
+        final float[] rrs = workspace.rrs_f;
+        final float[] U = workspace.U_f;
+        final float[] a = workspace.a_f;
+
+        final float Rrs_560 = Rrs[idx_560];
+        final float ln_Rrs_560 = (float) Math.log(Rrs_560);
+        final float up_667 = 20.0f * Rrs_560 * (float) Math.sqrt(Rrs_560);
+        final float lw_667 = 0.9f * (float) Math.exp(1.7f * ln_Rrs_560);
+
+        for (int i = 0; i < length; i++) {
+            Rrs_in[i] = Rrs[i];
+        }
+
+        // Check Rrs(667 or 665)
+        if (Rrs_in[idx_670] > up_667 || Rrs_in[idx_670] < lw_667) {
+            Rrs_in[idx_670] = 1.27f * (float) Math.exp(1.47f * ln_Rrs_560);
+            Rrs_in[idx_670] += 0.00018f * (float) Math.pow((Rrs_in[idx_490] / Rrs_in[idx_560]), -3.19);
+        }
+
+        // Coefficients for converting Rrs to rrs (above to below sea-surface)
+        for (int i = 0; i < length; i++) {
+            rrs[i] = Rrs_in[i] / (0.52f + 1.7f * Rrs_in[i]);
+        }
+
+        for (int i = 0; i < length; i++) {
+            final float nom = g0_square_f + 4.0f * g1_f * rrs[i];
+            if (nom >= 0.0f) {
+                U[i] = ((float) Math.sqrt(nom) - g0_f) / (2.0f * g1_f);
+            } else {
+                return QaaConstants.FLAG_MASK_IMAGINARY;
+            }
+        }
+
+        // Estimation of a at reference wavelength
+        final float numer = rrs[idx_440] + rrs[idx_490];
+        final float denom = rrs[idx_560] + 5.f * (rrs[idx_670] / rrs[idx_490]) * rrs[idx_670];
+        final float quot = numer / denom;
+        if (quot <= 0.0f) {
+            return QaaConstants.FLAG_MASK_IMAGINARY;
+        }
+        final float X = (float) Math.log10(quot);
+
+        final float rho = a_coeff0_f + a_coeff1_f * X + a_coeff2_f * X * X;
+        final float a_555 = aw_f[idx_560] + (float) Math.exp(LN_10 * rho);
+
+        // Estimation of bbp at reference wavelength
+        final float bbp_555 = U[idx_560] * a_555 / (1 - U[idx_560]) - bbw_f[idx_560];
+
+        // Exponent of bbp
+        final float ratio = rrs[idx_440] / rrs[idx_560];
+        final float N = 2.0f * (1.0f - 1.2f * (float) Math.exp(-0.9f * ratio));
+
+        // Estimation of bbp, bb and a at all wavelengths, the output bands come first
+        for (int i = 0; i < numATotalBands; i++) {
+            final float bb = bbp_555 * (float) Math.exp(N * ln_ratio_wl_f[i]) + bbw_f[i];
+            a[i] = (1.0f - U[i]) * bb / U[i];
+            result.setA_Total(a[i], i);
+            result.setBB_SPM(bb, i);
+        }
+        for (int i = numATotalBands; i < numBands; i++) {
+            final float bb = bbp_555 * (float) Math.exp(N * ln_ratio_wl_f[i]) + bbw_f[i];
+            a[i] = (1.0f - U[i]) * bb / U[i];
+        }
+
+        if (!decomposition) {
+            return skipDecomposition(result);
+        }
+
+        // Estimate ratio of aph411/aph443
+        final float Ratio_aph = 0.74f + 0.2f / (0.8f + ratio);
+
+        // Estimate ratio of adg411/adg443
+        final float Slope_adg = 0.015f + 0.002f / (0.6f + ratio);
+        final float Ratio_adg = (float) Math.exp(Slope_adg * delta_wl_410_f);
+
+        // Estimation of adg and aph at all wavelengths
+        final float adg_443 = ((a[idx_410] - Ratio_aph * a[idx_440]) - (aw_f[idx_410] - Ratio_aph * aw_f[idx_440])) / (Ratio_adg - Ratio_aph);
+        for (int i = 0; i < numAPigBands; i++) {
+            final float adg = adg_443 * (float) Math.exp(Slope_adg * neg_delta_wl_440_f[i]);
+            result.setA_PIG(a[i] - aw_f[i] - adg, i);
+            result.setA_YS(adg, i);
+        }
+
+        return QaaConstants.FLAG_MASK_VALID;
+    }
+
+    private int skipDecomposition(QaaResult result) {
+        for (int i = 0; i < numAPigBands; i++) {
+            result.setA_PIG(QaaConstants.NO_DATA_VALUE, i);
+            result.setA_YS(QaaConstants.NO_DATA_VALUE, i);
+        }
+        return QaaConstants.FLAG_MASK_VALID;
+    }
+
+    /*
+     * Recomputes the number which caused compute to fail, only needed for the exception message.
+     */
+    double findImaginaryNumber(double[] rrs, int length) {
+        for (int i = 0; i < length; i++) {
+            final double nom = g0_square + 4.0 * g1 * rrs[i];
+            if (nom < 0.0) {
+                return nom;
+            }
+        }
+        final double numer = rrs[idx_440] + rrs[idx_490];
+        final double denom = rrs[idx_560] + 5. * (rrs[idx_670] / rrs[idx_490]) * rrs[idx_670];
+        return numer / denom;
+    }
+}
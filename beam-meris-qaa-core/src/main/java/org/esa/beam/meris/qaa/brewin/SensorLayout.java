@@ -0,0 +1,109 @@
+package org.esa.beam.meris.qaa.brewin;
+
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+
+/**
+ * The band indexes of a sensor, derived once from its wavelengths. The QAA refers to the bands near 412, 443,
+ * 490 and 667 nm and to the band of the reference wavelength; each of them is the band with the nearest
+ * wavelength. The IOP output is given by a {@link SensorDescriptor}, other configurations write a_total and
+ * bb_spm for the first five bands and a_pig and a_ys for the first three, as MERIS does.
+ * <p/>
+ * A layout is immutable and can be shared between threads.
+ */
+public final class SensorLayout {
+
+    private static final int DEFAULT_NUM_A_TOTAL_BANDS = 5;
+    private static final int DEFAULT_NUM_A_PIG_BANDS = 3;
+
+    private final int numBands;
+    private final int index410;
+    private final int index440;
+    private final int index490;
+    private final int indexReference;
+    private final int index670;
+    private final QaaBandLayout bandLayout;
+
+    /**
+     * @param sensorConfig the sensor configuration, a {@link SensorDescriptor} defines the IOP output
+     * @throws IllegalArgumentException if two of the bands referred to by the QAA are the same or the IOP output
+     *                                  does not fit the bands of the sensor
+     */
+    public SensorLayout(SensorConfig sensorConfig) {
+        final double[] wavelengths = sensorConfig.getWavelengths();
+        numBands = wavelengths.length;
+        index410 = findNearestBand(wavelengths, 412.0);
+        index440 = findNearestBand(wavelengths, 443.0);
+        index490 = findNearestBand(wavelengths, 490.0);
+        indexReference = findNearestBand(wavelengths, sensorConfig.getReferenceWavelength());
+        index670 = findNearestBand(wavelengths, 667.0);
+        final int[] indexes = {index410, index440, index490, indexReference, index670};
+        for (int i = 0; i < indexes.length; i++) {
+            for (int j = i + 1; j < indexes.length; j++) {
+                if (indexes[i] == indexes[j]) {
+                    throw new IllegalArgumentException(String.format(
+                            "The band at %s nm is used for more than one purpose", wavelengths[indexes[i]]));
+                }
+            }
+        }
+
+        final int numATotalBands;
+        final int numAPigBands;
+        if (sensorConfig instanceof SensorDescriptor) {
+            numATotalBands = ((SensorDescriptor) sensorConfig).getNumATotalBands();
+            numAPigBands = ((SensorDescriptor) sensorConfig).getNumAPigBands();
+        } else {
+            numATotalBands = DEFAULT_NUM_A_TOTAL_BANDS;
+            numAPigBands = DEFAULT_NUM_A_PIG_BANDS;
+        }
+        bandLayout = new QaaBandLayout(roundWavelengths(wavelengths), numATotalBands, numAPigBands);
+    }
+
+    private static int findNearestBand(double[] wavelengths, double wavelength) {
+        int nearest = 0;
+        for (int i = 1; i < wavelengths.length; i++) {
+            if (Math.abs(wavelengths[i] - wavelength) < Math.abs(wavelengths[nearest] - wavelength)) {
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    private static int[] roundWavelengths(double[] wavelengths) {
+        final int[] rounded = new int[wavelengths.length];
+        for (int i = 0; i < wavelengths.length; i++) {
+            rounded[i] = (int) Math.round(wavelengths[i]);
+        }
+        return rounded;
+    }
+
+    public int getNumBands() {
+        return numBands;
+    }
+
+    /**
+     * @return the layout of the IOP output, the names of the IOP bands carry the rounded wavelengths
+     */
+    public QaaBandLayout getBandLayout() {
+        return bandLayout;
+    }
+
+    int getIndex410() {
+        return index410;
+    }
+
+    int getIndex440() {
+        return index440;
+    }
+
+    int getIndex490() {
+        return index490;
+    }
+
+    int getIndexReference() {
+        return indexReference;
+    }
+
+    int getIndex670() {
+        return index670;
+    }
+}
@@ -0,0 +1,71 @@
+package org.esa.beam.meris.qaa.spectra;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads spectra from text with one spectrum per line. A line holds the seven reflectances in the band order of
+ * {@link org.esa.beam.meris.qaa.algorithm.QaaAlgorithm#process}, separated by commas, semicolons, tabs or blanks.
+ * A first line which does not start with a number is taken as header and skipped, as are empty lines and lines
+ * starting with '#'. An empty value or 'NaN' marks a missing reflectance.
+ */
+class CsvSpectrumReader implements SpectrumReader {
+
+    private final BufferedReader reader;
+    private int lineNumber;
+    private boolean firstLineRead;
+
+    CsvSpectrumReader(Reader reader) {
+        this.reader = new BufferedReader(reader);
+    }
+
+    @Override
+    public int read(float[][] rrsByBand) throws IOException {
+        final int capacity = rrsByBand[0].length;
+        int count = 0;
+        String line;
+        while (count < capacity && (line = reader.readLine()) != null) {
+            lineNumber++;
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            final String[] values = trimmed.split("\\s*[,;\\t]\\s*|\\s+", -1);
+            if (!firstLineRead) {
+                firstLineRead = true;
+                if (!startsWithNumber(values[0])) {
+                    continue;
+                }
+            }
+            if (values.length != NUM_BANDS) {
+                throw new IOException(String.format("Line %d: expected %d reflectances but found %d",
+                                                    lineNumber, NUM_BANDS, values.length));
+            }
+            for (int b = 0; b < NUM_BANDS; b++) {
+                rrsByBand[b][count] = parse(values[b]);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private float parse(String value) throws IOException {
+        if (value.isEmpty()) {
+            return Float.NaN;
+        }
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("Line %d: '%s' is not a number", lineNumber, value));
+        }
+    }
+
+    private static boolean startsWithNumber(String value) {
+        if (value.isEmpty()) {
+            return true;
+        }
+        final char c = value.charAt(0);
+        return Character.isDigit(c) || c == '-' || c == '+' || c == '.' || value.startsWith("NaN");
+    }
+}
@@ -0,0 +1,70 @@
+package org.esa.beam.meris.qaa.spectra;
+
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the results as text with one line per spectrum. A header line names the columns, which are the IOPs,
+ * named like the bands of the Meris.QaaIOP operator, followed by the flags. No-data values are written as 'NaN'.
+ */
+class CsvSpectrumWriter implements SpectrumWriter {
+
+    private static final char SEPARATOR = ',';
+
+    private final Writer writer;
+    private final StringBuilder line;
+    private boolean headerWritten;
+
+    CsvSpectrumWriter(Writer writer) {
+        this.writer = new BufferedWriter(writer);
+        line = new StringBuilder();
+    }
+
+    @Override
+    public void write(QaaResultBuffer results, int count) throws IOException {
+        if (!headerWritten) {
+            writeHeader();
+        }
+        final float[][] aTotal = results.getA_Total();
+        final float[][] bbSpm = results.getBB_SPM();
+        final float[][] aPig = results.getA_PIG();
+        final float[][] aYs = results.getA_YS();
+        for (int i = 0; i < count; i++) {
+            line.setLength(0);
+            appendValues(aTotal, i);
+            appendValues(bbSpm, i);
+            appendValues(aPig, i);
+            appendValues(aYs, i);
+            line.append(results.getFlags(i)).append('\n');
+            writer.write(line.toString());
+        }
+    }
+
+    private void appendValues(float[][] values, int index) {
+        for (float[] bandValues : values) {
+            line.append(bandValues[index]).append(SEPARATOR);
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        line.setLength(0);
+        for (String name : QaaBandLayout.MERIS.getIopBandNames()) {
+            line.append(name).append(SEPARATOR);
+        }
+        line.append("flags\n");
+        writer.write(line.toString());
+        headerWritten = true;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!headerWritten) {
+            writeHeader();
+        }
+        writer.flush();
+    }
+}
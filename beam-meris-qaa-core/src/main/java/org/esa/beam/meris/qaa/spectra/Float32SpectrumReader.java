@@ -0,0 +1,59 @@
+package org.esa.beam.meris.qaa.spectra;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Reads spectra from records of seven little-endian 32-bit floats, in the band order of
+ * {@link org.esa.beam.meris.qaa.algorithm.QaaAlgorithm#process}. The stream has no header.
+ */
+class Float32SpectrumReader implements SpectrumReader {
+
+    private static final int RECORD_SIZE = NUM_BANDS * 4;
+
+    private final InputStream inputStream;
+    private byte[] bytes;
+
+    Float32SpectrumReader(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+    @Override
+    public int read(float[][] rrsByBand) throws IOException {
+        final int capacity = rrsByBand[0].length;
+        if (bytes == null || bytes.length != capacity * RECORD_SIZE) {
+            bytes = new byte[capacity * RECORD_SIZE];
+        }
+        final int numBytes = readFully(bytes);
+        if (numBytes % RECORD_SIZE != 0) {
+            throw new IOException(String.format("The stream ends within a record, %d bytes are left",
+                                                numBytes % RECORD_SIZE));
+        }
+        final int count = numBytes / RECORD_SIZE;
+        final FloatBuffer values = ByteBuffer.wrap(bytes, 0, numBytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        for (int i = 0; i < count; i++) {
+            for (int b = 0; b < NUM_BANDS; b++) {
+                rrsByBand[b][i] = values.get();
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Reads until the array is full or the stream ends.
+     */
+    private int readFully(byte[] buffer) throws IOException {
+        int numBytes = 0;
+        while (numBytes < buffer.length) {
+            final int n = inputStream.read(buffer, numBytes, buffer.length - numBytes);
+            if (n < 0) {
+                break;
+            }
+            numBytes += n;
+        }
+        return numBytes;
+    }
+}
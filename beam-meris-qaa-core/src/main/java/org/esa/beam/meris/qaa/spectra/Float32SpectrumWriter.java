@@ -0,0 +1,57 @@
+package org.esa.beam.meris.qaa.spectra;
+
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes the results as records of 17 little-endian 32-bit floats: the 16 IOPs in the order of the band indexes
+ * of {@link org.esa.beam.meris.qaa.algorithm.QaaConstants}, followed by the flags, which are exactly
+ * representable as float. No-data values are NaN.
+ */
+class Float32SpectrumWriter implements SpectrumWriter {
+
+    static final int RECORD_LENGTH = 17;
+
+    private final OutputStream outputStream;
+    private ByteBuffer buffer;
+
+    Float32SpectrumWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public void write(QaaResultBuffer results, int count) throws IOException {
+        final int size = count * RECORD_LENGTH * 4;
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear();
+        final float[][] aTotal = results.getA_Total();
+        final float[][] bbSpm = results.getBB_SPM();
+        final float[][] aPig = results.getA_PIG();
+        final float[][] aYs = results.getA_YS();
+        for (int i = 0; i < count; i++) {
+            putValues(aTotal, i);
+            putValues(bbSpm, i);
+            putValues(aPig, i);
+            putValues(aYs, i);
+            buffer.putFloat(results.getFlags(i));
+        }
+        outputStream.write(buffer.array(), 0, size);
+    }
+
+    private void putValues(float[][] values, int index) {
+        for (float[] bandValues : values) {
+            buffer.putFloat(bandValues[index]);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+}
@@ -0,0 +1,228 @@
+package org.esa.beam.meris.qaa.spectra;
+
+import org.esa.beam.meris.qaa.algorithm.QaaAlgorithm;
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+import org.esa.beam.meris.qaa.algorithm.QaaWorkspace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Processes files of reflectance spectra, e.g. in-situ or simulated Rrs databases, with {@link QaaAlgorithm}
+ * outside of BEAM. The spectra are streamed in batches: while the worker threads process some batches, the next
+ * batch is read and the finished ones are written in input order. At most two batches per thread exist, so the
+ * memory needed does not depend on the size of the file.
+ */
+public class QaaSpectrumProcessor {
+
+    static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private final QaaAlgorithm algorithm;
+    private final int numThreads;
+    private final int batchSize;
+
+    /**
+     * @param config     the configuration of the algorithm
+     * @param numThreads the number of worker threads
+     * @param batchSize  the number of spectra per batch
+     */
+    public QaaSpectrumProcessor(QaaConfig config, int numThreads, int batchSize) {
+        if (numThreads <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("numThreads and batchSize must be positive");
+        }
+        algorithm = new QaaAlgorithm();
+        algorithm.setConfig(config);
+        this.numThreads = numThreads;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Processes all spectra of the input and writes the results in the same format. The streams are not closed.
+     *
+     * @param inputStream  the spectra
+     * @param outputStream receives the results
+     * @param format       the format of input and output
+     * @return the number of processed spectra
+     * @throws IOException if the input cannot be read or the output cannot be written
+     */
+    public long process(InputStream inputStream, OutputStream outputStream, SpectrumFormat format)
+            throws IOException {
+        final SpectrumWriter writer = format.createWriter(outputStream);
+        final long count = process(format.createReader(inputStream), writer);
+        writer.flush();
+        return count;
+    }
+
+    long process(SpectrumReader reader, SpectrumWriter writer) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        final Deque<Future<Batch>> pending = new ArrayDeque<Future<Batch>>();
+        final int maxBatches = 2 * numThreads;
+        int numBatches = 0;
+        long spectrumCount = 0;
+        try {
+            while (true) {
+                final Batch batch;
+                if (numBatches < maxBatches) {
+                    batch = new Batch(batchSize);
+                    numBatches++;
+                } else {
+                    // recycle the oldest batch once it has been written
+                    batch = writeNext(pending, writer);
+                }
+                batch.count = reader.read(batch.rrsByBand);
+                if (batch.count == 0) {
+                    break;
+                }
+                spectrumCount += batch.count;
+                pending.add(executor.submit(batch));
+            }
+            while (!pending.isEmpty()) {
+                writeNext(pending, writer);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return spectrumCount;
+    }
+
+    private static Batch writeNext(Deque<Future<Batch>> pending, SpectrumWriter writer) throws IOException {
+        final Batch batch;
+        try {
+            batch = pending.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a batch");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        writer.write(batch.results, batch.count);
+        return batch;
+    }
+
+    /*
+     * The arrays of a batch of spectra. A batch is processed by one worker at a time, so it owns its workspace.
+     */
+    private class Batch implements Callable<Batch> {
+
+        private final float[][] rrsByBand;
+        private final QaaResultBuffer results;
+        private final QaaWorkspace workspace;
+        private int count;
+
+        private Batch(int capacity) {
+            rrsByBand = new float[SpectrumReader.NUM_BANDS][capacity];
+            results = new QaaResultBuffer(capacity);
+            workspace = new QaaWorkspace();
+        }
+
+        /*
+         * Spectra with a missing reflectance are not processed but marked as invalid.
+         */
+        @Override
+        public Batch call() {
+            int runStart = 0;
+            while (runStart < count) {
+                final boolean valid = isComplete(runStart);
+                int runEnd = runStart + 1;
+                while (runEnd < count && isComplete(runEnd) == valid) {
+                    runEnd++;
+                }
+                if (valid) {
+                    algorithm.processBatch(rrsByBand, runStart, runEnd - runStart, results, workspace);
+                } else {
+                    results.invalidate(runStart, runEnd - runStart);
+                }
+                runStart = runEnd;
+            }
+            return this;
+        }
+
+        private boolean isComplete(int index) {
+            for (float[] bandValues : rrsByBand) {
+                if (Float.isNaN(bandValues[index])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public static void main(String[] args) {
+        SpectrumFormat format = SpectrumFormat.CSV;
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        int batchSize = DEFAULT_BATCH_SIZE;
+        final QaaConfig config = new QaaConfig();
+        // the input is Rrs, not MERIS water leaving reflectance
+        config.setDivideByPi(false);
+        String inputPath = null;
+        String outputPath = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-format".equals(args[i])) {
+                    format = SpectrumFormat.valueOf(args[++i].toUpperCase(Locale.ENGLISH));
+                } else if ("-threads".equals(args[i])) {
+                    numThreads = Integer.parseInt(args[++i]);
+                } else if ("-batchSize".equals(args[i])) {
+                    batchSize = Integer.parseInt(args[++i]);
+                } else if ("-divideByPi".equals(args[i])) {
+                    config.setDivideByPi(true);
+                } else if ("-fastMath".equals(args[i])) {
+                    config.setFastMath(true);
+                } else if (inputPath == null) {
+                    inputPath = args[i];
+                } else if (outputPath == null) {
+                    outputPath = args[i];
+                } else {
+                    throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            outputPath = null;
+        }
+        if (outputPath == null) {
+            System.err.println("Usage: QaaSpectrumProcessor [-format csv|float32] [-threads <n>] " +
+                               "[-batchSize <n>] [-divideByPi] [-fastMath] <input|-> <output|->");
+            System.exit(1);
+        }
+        try {
+            final QaaSpectrumProcessor processor = new QaaSpectrumProcessor(config, numThreads, batchSize);
+            final InputStream inputStream = new BufferedInputStream(
+                    "-".equals(inputPath) ? System.in : new FileInputStream(inputPath));
+            final OutputStream outputStream = new BufferedOutputStream(
+                    "-".equals(outputPath) ? System.out : new FileOutputStream(outputPath));
+            final long startTime = System.nanoTime();
+            final long count;
+            try {
+                count = processor.process(inputStream, outputStream, format);
+            } finally {
+                inputStream.close();
+                outputStream.close();
+            }
+            final double seconds = (System.nanoTime() - startTime) * 1.0e-9;
+            System.err.println(String.format(Locale.ENGLISH, "Processed %d spectra in %.2f s, %.0f spectra/s",
+                                             count, seconds, count / seconds));
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
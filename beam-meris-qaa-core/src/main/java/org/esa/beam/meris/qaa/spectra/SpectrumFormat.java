@@ -0,0 +1,49 @@
+package org.esa.beam.meris.qaa.spectra;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+
+/**
+ * The file formats of {@link QaaSpectrumProcessor}. Input and output always have the same format.
+ */
+public enum SpectrumFormat {
+
+    /**
+     * Text with one spectrum per line, see {@link CsvSpectrumReader} and {@link CsvSpectrumWriter}.
+     */
+    CSV {
+        @Override
+        SpectrumReader createReader(InputStream inputStream) {
+            return new CsvSpectrumReader(new InputStreamReader(inputStream, ASCII));
+        }
+
+        @Override
+        SpectrumWriter createWriter(OutputStream outputStream) {
+            return new CsvSpectrumWriter(new OutputStreamWriter(outputStream, ASCII));
+        }
+    },
+
+    /**
+     * Records of little-endian 32-bit floats, see {@link Float32SpectrumReader} and {@link Float32SpectrumWriter}.
+     */
+    FLOAT32 {
+        @Override
+        SpectrumReader createReader(InputStream inputStream) {
+            return new Float32SpectrumReader(inputStream);
+        }
+
+        @Override
+        SpectrumWriter createWriter(OutputStream outputStream) {
+            return new Float32SpectrumWriter(outputStream);
+        }
+    };
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    abstract SpectrumReader createReader(InputStream inputStream);
+
+    abstract SpectrumWriter createWriter(OutputStream outputStream);
+}
@@ -0,0 +1,23 @@
+package org.esa.beam.meris.qaa.spectra;
+
+import java.io.IOException;
+
+/**
+ * Reads reflectance spectra batch-wise from a stream. The stream is not closed by the reader.
+ */
+interface SpectrumReader {
+
+    /**
+     * The number of reflectances of a spectrum.
+     */
+    int NUM_BANDS = 7;
+
+    /**
+     * Reads the next spectra, at most as many as the arrays can hold.
+     *
+     * @param rrsByBand receives the reflectances, rrsByBand[band][spectrum]
+     * @return the number of spectra read, 0 at the end of the stream
+     * @throws IOException if the stream cannot be read or is malformed
+     */
+    int read(float[][] rrsByBand) throws IOException;
+}
@@ -0,0 +1,26 @@
+package org.esa.beam.meris.qaa.spectra;
+
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+
+import java.io.IOException;
+
+/**
+ * Writes the results of the spectra to a stream, in the order of the spectra. The stream is not closed by the
+ * writer.
+ */
+interface SpectrumWriter {
+
+    /**
+     * @param results the results
+     * @param count   the number of results, starting at index 0
+     * @throws IOException if the results cannot be written
+     */
+    void write(QaaResultBuffer results, int count) throws IOException;
+
+    /**
+     * Writes all buffered output to the stream. Must be called after the last results have been written.
+     *
+     * @throws IOException if the output cannot be written
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,427 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static junit.framework.Assert.*;
+
+public class QaaAlgorithmTest {
+
+    private QaaAlgorithm algorithm;
+
+    @Before
+    public void setUp() {
+        algorithm = new QaaAlgorithm();
+    }
+
+    @Test
+    public void testProcess_MERIS() throws ImaginaryNumberException {
+        final float[] rrs = {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f};
+
+        final QaaResult result = algorithm.process(rrs, null);
+
+        final int flags = result.getFlags();
+        assertEquals(1, flags);
+
+        final float[] a_total = result.getA_Total();
+        assertEquals(QaaConstants.NUM_A_TOTAL_BANDS, a_total.length);
+        assertEquals(0.03845500573515892f, a_total[0], 1e-8);
+        assertEquals(0.030030209571123123f, a_total[1], 1e-8);
+        assertEquals(0.030713409185409546f, a_total[2], 1e-8);
+        assertEquals(0.046738818287849426f, a_total[3], 1e-8);
+        assertEquals(0.06614950299263f, a_total[4], 1e-8);
+
+        final float[] bb_spm = result.getBB_SPM();
+        assertEquals(QaaConstants.NUM_BB_SPM_BANDS, bb_spm.length);
+        assertEquals(0.007518719881772995f, bb_spm[0], 1e-8);
+        assertEquals(0.006027825176715851f, bb_spm[1], 1e-8);
+        assertEquals(0.004540313966572285f, bb_spm[2], 1e-8);
+        assertEquals(0.0040666270069777966f, bb_spm[3], 1e-8);
+        assertEquals(0.0032066269777715206f, bb_spm[4], 1e-8);
+
+        final float[] a_pig = result.getA_PIG();
+        assertEquals(QaaConstants.NUM_A_PIG_BANDS, a_pig.length);
+        assertEquals(0.0028468116652220488f, a_pig[0], 1e-8);
+        assertEquals(0.0036492901854217052f, a_pig[1], 1e-8);
+        assertEquals(0.006425064522773027f, a_pig[2], 1e-8);
+
+        final float[] a_ys = result.getA_YS();
+        assertEquals(QaaConstants.NUM_A_YS_BANDS, a_ys.length);
+        assertEquals(0.030918193981051445f, a_ys[0], 1e-8);
+        assertEquals(0.019170919433236122f, a_ys[1], 1e-8);
+        assertEquals(0.009288343600928783f, a_ys[2], 1e-8);
+    }
+
+    @Test
+    public void testProcess_imaginaryNumber() {
+        final float[] rrs = {-0.2f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f};
+
+        final QaaResult result = algorithm.process(rrs, null);
+
+        assertEquals(QaaConstants.FLAG_MASK_IMAGINARY, result.getFlags());
+        assertTrue(Float.isNaN(result.getA_Total()[0]));
+        assertTrue(Float.isNaN(result.getBB_SPM()[4]));
+        assertTrue(Float.isNaN(result.getA_PIG()[1]));
+        assertTrue(Float.isNaN(result.getA_YS()[2]));
+    }
+
+    @Test
+    public void testProcess_withWorkspaceIsAllocationFree() {
+        final ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mxBean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) mxBean;
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() &&
+                          threadMXBean.isThreadAllocatedMemoryEnabled());
+
+        final float[] rrs = {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f};
+        final QaaResult result = new QaaResult();
+        final QaaWorkspace workspace = new QaaWorkspace();
+        // warm up, class loading and compilation shall not be measured
+        for (int i = 0; i < 20000; i++) {
+            algorithm.process(rrs, result, workspace);
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long bytesBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10000; i++) {
+            algorithm.process(rrs, result, workspace);
+        }
+        final long bytesAllocated = threadMXBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        // a single allocation per pixel would sum up to at least 160 kB, allow some bytes for the measurement itself
+        assertTrue("allocated bytes: " + bytesAllocated, bytesAllocated < 1024);
+        assertEquals(1, result.getFlags());
+        assertEquals(0.03845500573515892f, result.getA_Total()[0], 1e-8);
+    }
+
+    @Test
+    public void testProcessBatch() {
+        final float[][] spectra = {
+                {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f},
+                {-0.2f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f},
+                {0.0020f, 0.0025f, 0.0041f, 0.0052f, 0.0070f, 0.0023f, 0.0019f},
+        };
+        // band-major with one unprocessed pixel in front
+        final float[][] rrsByBand = new float[7][spectra.length + 1];
+        for (int p = 0; p < spectra.length; p++) {
+            for (int b = 0; b < 7; b++) {
+                rrsByBand[b][p + 1] = spectra[p][b];
+            }
+        }
+        final QaaResultBuffer buffer = new QaaResultBuffer(spectra.length + 1);
+
+        algorithm.processBatch(rrsByBand, 1, spectra.length, buffer);
+
+        assertEquals(0, buffer.getFlags(0));
+        assertEquals(0.f, buffer.getA_Total()[0][0], 1e-8);
+        assertEquals(QaaConstants.FLAG_MASK_IMAGINARY, buffer.getFlags(2));
+        for (int p = 0; p < spectra.length; p++) {
+            final QaaResult expected = algorithm.process(spectra[p], null);
+            assertEquals(expected.getFlags(), buffer.getFlags(p + 1));
+            assertBandsEqual(expected.getA_Total(), buffer.getA_Total(), p + 1);
+            assertBandsEqual(expected.getBB_SPM(), buffer.getBB_SPM(), p + 1);
+            assertBandsEqual(expected.getA_PIG(), buffer.getA_PIG(), p + 1);
+            assertBandsEqual(expected.getA_YS(), buffer.getA_YS(), p + 1);
+        }
+    }
+
+    @Test
+    public void testProcessBatch_withoutDecomposition() {
+        final float[][] spectra = {
+                {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f},
+                {-0.2f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f},
+                {0.0020f, 0.0025f, 0.0041f, 0.0052f, 0.0070f, 0.0023f, 0.0019f},
+        };
+        final float[][] rrsByBand = new float[7][spectra.length];
+        for (int p = 0; p < spectra.length; p++) {
+            for (int b = 0; b < 7; b++) {
+                rrsByBand[b][p] = spectra[p][b];
+            }
+        }
+        final QaaResultBuffer expected = new QaaResultBuffer(spectra.length);
+        algorithm.processBatch(rrsByBand, 0, spectra.length, expected);
+
+        final int decompFlags = QaaConstants.FLAG_MASK_A_TOTAL_OOB | QaaConstants.FLAG_MASK_A_PIG_OOB |
+                                QaaConstants.FLAG_MASK_A_YS_OOB | QaaConstants.FLAG_MASK_NEGATIVE_AYS;
+        for (boolean blockKernel : new boolean[]{true, false}) {
+            final QaaConfig config = new QaaConfig();
+            config.setBlockKernel(blockKernel);
+            config.setDecomposition(false);
+            algorithm.setConfig(config);
+            final QaaResultBuffer actual = new QaaResultBuffer(spectra.length);
+
+            algorithm.processBatch(rrsByBand, 0, spectra.length, actual);
+
+            for (int p = 0; p < spectra.length; p++) {
+                assertEquals(expected.getFlags(p) & ~decompFlags, actual.getFlags(p));
+                for (int i = 0; i < QaaConstants.NUM_BB_SPM_BANDS; i++) {
+                    assertEquals(expected.getBB_SPM()[i][p], actual.getBB_SPM()[i][p], 0.0f);
+                    assertTrue(Float.isNaN(actual.getA_Total()[i][p]));
+                }
+                for (int i = 0; i < QaaConstants.NUM_A_PIG_BANDS; i++) {
+                    assertTrue(Float.isNaN(actual.getA_PIG()[i][p]));
+                    assertTrue(Float.isNaN(actual.getA_YS()[i][p]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testProcessBatch_onlySelectedBandsAreStored() {
+        final float[] rrs = {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f};
+        final float[][] rrsByBand = new float[7][2];
+        for (int b = 0; b < 7; b++) {
+            rrsByBand[b][0] = rrs[b];
+            rrsByBand[b][1] = rrs[b];
+        }
+        final QaaResult expected = algorithm.process(rrs, null);
+
+        for (boolean blockKernel : new boolean[]{true, false}) {
+            algorithm.getConfig().setBlockKernel(blockKernel);
+            final float[][] bbSpm = new float[QaaConstants.NUM_BB_SPM_BANDS][];
+            bbSpm[4] = new float[2];
+            final float[][] aPig = new float[QaaConstants.NUM_A_PIG_BANDS][];
+            aPig[1] = new float[2];
+            final QaaResultBuffer buffer = new QaaResultBuffer(new float[QaaConstants.NUM_A_TOTAL_BANDS][],
+                                                               bbSpm, aPig,
+                                                               new float[QaaConstants.NUM_A_YS_BANDS][],
+                                                               new byte[2]);
+
+            algorithm.processBatch(rrsByBand, 0, 2, buffer);
+
+            assertEquals(expected.getFlags(), buffer.getFlags(1));
+            assertEquals(expected.getBB_SPM()[4], bbSpm[4][1], 1e-8);
+            assertEquals(expected.getA_PIG()[1], aPig[1][1], 1e-8);
+        }
+    }
+
+    @Test
+    public void testProcessBatch_variants() {
+        assertVariantsMatchSingleConfig(false);
+    }
+
+    @Test
+    public void testProcessBatch_variants_blockKernel() {
+        assertVariantsMatchSingleConfig(true);
+    }
+
+    @Test
+    public void testProcessBatch_variantsKeepPrimaryBands() {
+        // several chunks of the per-pixel processing of variants; with fast math the results of the block kernel
+        // differ in the last bits for some of these pixels
+        final int count = 8 * QaaBlockKernel.BLOCK_SIZE + 5;
+        final float[][] rrsByBand = QaaTestSpectra.createSpectra(count, 11L);
+        rrsByBand[6][5] = Float.NaN;
+        algorithm.getConfig().setBlockKernel(false);
+        algorithm.getConfig().setFastMath(true);
+        final QaaConfig narrow = new QaaConfig();
+        narrow.setAPigUpper(0.05f);
+        final QaaResultBuffer expected = new QaaResultBuffer(count);
+        final QaaResultBuffer[] outs = {new QaaResultBuffer(count), new QaaResultBuffer(count)};
+
+        algorithm.processBatch(rrsByBand, 0, count, expected);
+        algorithm.processBatch(rrsByBand, 0, count, new QaaConfig[]{algorithm.getConfig(), narrow}, outs,
+                               new QaaWorkspace());
+
+        assertResultsEqual(expected, outs[0], count);
+        assertEquals(QaaConstants.FLAG_MASK_IMAGINARY, outs[0].getFlags(5));
+    }
+
+    private void assertVariantsMatchSingleConfig(boolean blockKernel) {
+        final int count = QaaBlockKernel.BLOCK_SIZE + 5;
+        final float[][] rrsByBand = QaaTestSpectra.createSpectra(count, 13L);
+        algorithm.getConfig().setBlockKernel(blockKernel);
+        final QaaConfig narrow = new QaaConfig();
+        narrow.setATotalUpper(0.5f);
+        narrow.setBbSpmsUpper(0.01f);
+        narrow.setAPigUpper(0.05f);
+        narrow.setAYsLower(0.01f);
+        // the steps are configured by the algorithm, the fast-math and kernel settings of the variant are ignored
+        narrow.setFastMath(true);
+        narrow.setBlockKernel(!blockKernel);
+        final QaaConfig[] variants = {new QaaConfig(), narrow};
+        final QaaResultBuffer[] outs = {new QaaResultBuffer(count), new QaaResultBuffer(count)};
+
+        algorithm.processBatch(rrsByBand, 0, count, variants, outs, new QaaWorkspace());
+
+        for (int v = 0; v < variants.length; v++) {
+            final QaaConfig config = new QaaConfig();
+            config.setBlockKernel(blockKernel);
+            config.setATotalUpper(variants[v].getATotalUpper());
+            config.setBbSpmsUpper(variants[v].getBbSpmsUpper());
+            config.setAPigUpper(variants[v].getAPigUpper());
+            config.setAYsLower(variants[v].getAYsLower());
+            final QaaAlgorithm single = new QaaAlgorithm();
+            single.setConfig(config);
+            final QaaResultBuffer expected = new QaaResultBuffer(count);
+            single.processBatch(rrsByBand, 0, count, expected);
+            assertResultsEqual(expected, outs[v], count);
+        }
+        int numDifferentFlags = 0;
+        for (int p = 0; p < count; p++) {
+            if (outs[0].getFlags(p) != outs[1].getFlags(p)) {
+                numDifferentFlags++;
+            }
+        }
+        assertTrue(numDifferentFlags > 0);
+        assertEquals(QaaConstants.FLAG_MASK_IMAGINARY, outs[1].getFlags(3));
+    }
+
+    private static void assertResultsEqual(QaaResultBuffer expected, QaaResultBuffer actual, int count) {
+        for (int p = 0; p < count; p++) {
+            assertEquals("flags of pixel " + p, expected.getFlags(p), actual.getFlags(p));
+            for (int i = 0; i < QaaConstants.NUM_A_TOTAL_BANDS; i++) {
+                assertEquals(expected.getA_Total()[i][p], actual.getA_Total()[i][p], 0.0f);
+                assertEquals(expected.getBB_SPM()[i][p], actual.getBB_SPM()[i][p], 0.0f);
+            }
+            for (int i = 0; i < QaaConstants.NUM_A_PIG_BANDS; i++) {
+                assertEquals(expected.getA_PIG()[i][p], actual.getA_PIG()[i][p], 0.0f);
+                assertEquals(expected.getA_YS()[i][p], actual.getA_YS()[i][p], 0.0f);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testProcessBatch_variantsWithoutBuffer() {
+        algorithm.processBatch(new float[7][1], 0, 1, new QaaConfig[]{new QaaConfig(), new QaaConfig()},
+                               new QaaResultBuffer[]{new QaaResultBuffer(1)}, new QaaWorkspace());
+    }
+
+    // @todo 3 tb/tb test divide by PI 2013-02-22
+
+    @Test
+    public void testSetGetConfig() {
+        final QaaConfig config = new QaaConfig();
+
+        algorithm.setConfig(config);
+        assertEquals(config, algorithm.getConfig());
+    }
+
+    @Test
+    public void testAlgorithmInitiallyHasConfig() {
+        assertNotNull(algorithm.getConfig());
+    }
+
+    @Test
+    public void testEnsureResult() {
+        QaaResult result = QaaAlgorithm.ensureResult(null);
+        assertNotNull(result);
+
+        final QaaResult recycle = new QaaResult();
+        result = QaaAlgorithm.ensureResult(recycle);
+        assertNotNull(result);
+        assertSame(recycle, result);
+    }
+
+    @Test
+    public void testIsOutOfBounds() {
+        assertFalse(QaaAlgorithm.isOutOfBounds(2, 1, 3));
+        assertFalse(QaaAlgorithm.isOutOfBounds(-1.45f, -2, -1));
+        assertFalse(QaaAlgorithm.isOutOfBounds(-0.45f, -1, 1));
+
+        assertTrue(QaaAlgorithm.isOutOfBounds(-4, 1, 3));
+        assertTrue(QaaAlgorithm.isOutOfBounds(0, -2, -1));
+        assertTrue(QaaAlgorithm.isOutOfBounds(1.1f, -1, 1));
+    }
+
+//    Product:	MER_FRS_2PNMAP20110521_082527_000001943102_00366_48225_0001.N1
+//
+//    Image-X:	624	pixel
+//    Image-Y:	3429	pixel
+//    Longitude:	24°59'16" E	degree
+//    Latitude:	32°17'59" N	degree
+//
+//    BandName	Wavelength	Unit	Bandwidth	Unit	Value	Unit	Solar Flux	Unit
+//    reflec_1:	412.691	nm	9.937	nm	0.030262154	dl	1675.9521	mW/(m^2*nm)
+//    reflec_2:	442.55902	nm	9.946	nm	0.031086152	dl	1836.3625	mW/(m^2*nm)
+//    reflec_3:	489.88202	nm	9.957001	nm	0.022717977	dl	1884.6876	mW/(m^2*nm)
+//    reflec_4:	509.81903	nm	9.961	nm	0.013177891	dl	1885.2732	mW/(m^2*nm)
+//    reflec_5:	559.69403	nm	9.97	nm	0.0072450927	dl	1762.2621	mW/(m^2*nm)
+//    reflec_6:	619.601	nm	9.979	nm	0.0028870495	dl	1613.4071	mW/(m^2*nm)
+//    reflec_7:	664.57306	nm	9.985001	nm	0.0024475828	dl	1496.9568	mW/(m^2*nm)
+//    reflec_8:	680.82104	nm	7.4880004	nm	0.0020630497	dl	1438.8444	mW/(m^2*nm)
+//    reflec_9:	708.32904	nm	9.992001	nm	7.4465E-4	dl	1376.0726	mW/(m^2*nm)
+//    reflec_10:	753.37103	nm	7.4950004	nm	4.3336122E-4	dl	1237.3849	mW/(m^2*nm)
+//    reflec_12:	778.40906	nm	15.010001	nm	1.4038353E-4	dl	1150.6112	mW/(m^2*nm)
+//    reflec_13:	864.87604	nm	20.047	nm	-1.3428307E-4	dl	936.69135	mW/(m^2*nm)
+//    reflec_14:	884.94403	nm	10.018001	nm	-6.105316E-6	dl	908.79034	mW/(m^2*nm)
+//    water_vapour:					0.29999998	g/cm^2
+//    algal_1:					0.1517408	mg/m^3
+//    algal_2:					0.026619313	mg/m^3
+//    yellow_subs:					0.017718133	1/m
+//    total_susp:					0.24312341	g/m^3
+//    photosyn_rad:					1860.9502	myEinstein/(m^2*s)
+//    toa_veg:					NaN	1
+//    boa_veg:					NaN	1
+//    rect_refl_red:					NaN	dl
+//    rect_refl_nir:					NaN	dl
+//    surf_press:					NaN	hPa
+//    aero_alpha:					0.19606298	dl
+//    aero_opt_thick_443:					NaN	dl
+//    aero_opt_thick_550:					0.4336939	dl
+//    aero_opt_thick_865:					0.3968504	dl
+//    cloud_albedo:					NaN	dl
+//    cloud_opt_thick:					NaN	dl
+//    cloud_top_press:					NaN	hPa
+//    cloud_type:					NaN
+//    l2_flags:					2359432
+//
+//    latitude:	32.299618	deg
+//    longitude:	24.987894	deg
+//    dem_alt:	-1073.2852	m
+//    dem_rough:	0.0	m
+//    lat_corr:	0.0	deg
+//    lon_corr:	0.0	deg
+//    sun_zenith:	27.12353	deg
+//    sun_azimuth:	109.91053	deg
+//    view_zenith:	31.929405	deg
+//    view_azimuth:	101.009575	deg
+//    zonal_wind:	-1.5785156	m/s
+//    merid_wind:	-2.8183596	m/s
+//    atm_press:	1015.8	hPa
+//    ozone:	296.88425	DU
+//    rel_hum:	69.98047	%
+//
+//    l2_flags.LAND:	false
+//    l2_flags.CLOUD:	false
+//    l2_flags.WATER:	true
+//    l2_flags.PCD_1_13:	false
+//    l2_flags.PCD_14:	false
+//    l2_flags.PCD_15:	true
+//    l2_flags.PCD_16:	false
+//    l2_flags.PCD_17:	false
+//    l2_flags.PCD_18:	false
+//    l2_flags.PCD_19:	false
+//    l2_flags.COASTLINE:	false
+//    l2_flags.COSMETIC:	false
+//    l2_flags.SUSPECT:	false
+//    l2_flags.OOADB:	false
+//    l2_flags.ABSOA_DUST:	false
+//    l2_flags.CASE2_S:	false
+//    l2_flags.CASE2_ANOM:	true
+//    l2_flags.TOAVI_BRIGHT:	false
+//    l2_flags.CASE2_Y:	false
+//    l2_flags.TOAVI_BAD:	false
+//    l2_flags.ICE_HAZE:	false
+//    l2_flags.TOAVI_CSI:	false
+//    l2_flags.MEDIUM_GLINT:	false
+//    l2_flags.TOAVI_WS:	false
+//    l2_flags.LARS_ON:	false
+//    l2_flags.BPAC_ON:	true
+//    l2_flags.HIGH_GLINT:	false
+//    l2_flags.TOAVI_INVAL_REC:	false
+//    l2_flags.LOW_SUN:	false
+//    l2_flags.LOW_PRESSURE:	false
+//    l2_flags.WHITE_SCATTERER:	false
+
+    private static void assertBandsEqual(float[] expected, float[][] actual, int pixelIndex) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i][pixelIndex], 1e-8);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class QaaBandLayoutTest {
+
+    @Test
+    public void testMeris_equalsConstants() {
+        final QaaBandLayout layout = QaaBandLayout.MERIS;
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, layout.getATotalBandIndexes());
+        assertArrayEquals(new int[]{5, 6, 7, 8, 9}, layout.getBbSpmBandIndexes());
+        assertArrayEquals(new int[]{10, 11, 12}, layout.getAPigBandIndexes());
+        assertArrayEquals(new int[]{13, 14, 15}, layout.getAYsBandIndexes());
+        assertEquals(16, layout.getNumIopBands());
+        assertEquals(16, layout.getFlagBandIndex());
+        assertEquals("bb_spm_560", layout.getIopBandNames()[9]);
+        assertEquals(443, layout.getWavelength(14));
+    }
+
+    @Test
+    public void testMoreBands() {
+        final QaaBandLayout layout = new QaaBandLayout(new int[]{412, 443, 490, 510, 560, 620, 665}, 7, 4);
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6}, layout.getATotalBandIndexes());
+        assertArrayEquals(new int[]{7, 8, 9, 10, 11, 12, 13}, layout.getBbSpmBandIndexes());
+        assertArrayEquals(new int[]{14, 15, 16, 17}, layout.getAPigBandIndexes());
+        assertArrayEquals(new int[]{18, 19, 20, 21}, layout.getAYsBandIndexes());
+        assertEquals(22, layout.getFlagBandIndex());
+        assertEquals("a_total_665", layout.getIopBandNames()[6]);
+        assertEquals("a_ys_510", layout.getIopBandNames()[21]);
+        assertArrayEquals(layout.getAPigBandIndexes(), layout.getGroupBandIndexes(2));
+    }
+
+    @Test
+    public void testResultSizes() {
+        final QaaBandLayout layout = new QaaBandLayout(new int[]{412, 443, 490, 510, 560, 620, 665}, 7, 4);
+
+        final QaaResult result = new QaaResult(layout);
+        assertEquals(7, result.getBB_SPM().length);
+        assertEquals(4, result.getA_YS().length);
+
+        final QaaResultBuffer buffer = new QaaResultBuffer(layout, 10);
+        assertEquals(7, buffer.getA_Total().length);
+        assertEquals(4, buffer.getA_PIG().length);
+        assertEquals(10, buffer.getA_PIG()[3].length);
+
+        final QaaIntegerEncoding encoding = new QaaIntegerEncoding(false, new QaaConfig(), layout);
+        assertEquals(encoding.getScalingFactor(0), encoding.getScalingFactor(6), 0.0);
+        assertEquals(encoding.getScalingFactor(18), encoding.getScalingFactor(21), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyBands() {
+        new QaaBandLayout(new int[]{412, 443, 490}, 4, 3);
+    }
+}
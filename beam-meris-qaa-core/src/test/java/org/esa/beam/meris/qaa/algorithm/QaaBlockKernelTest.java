@@ -0,0 +1,112 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QaaBlockKernelTest {
+
+    // relative to the value, the arithmetic is the same but the JIT may fold the constants differently
+    private static final double EPS = 1e-6;
+
+    private QaaConfig config;
+
+    @Before
+    public void setUp() {
+        config = new QaaConfig();
+    }
+
+    @Test
+    public void testProcess_matchesScalarKernel() {
+        assertBlockMatchesScalar(QaaTestSpectra.createSpectra(3 * QaaBlockKernel.BLOCK_SIZE + 17, 42L), 5);
+    }
+
+    @Test
+    public void testProcess_matchesScalarKernel_notDividedByPi() {
+        config.setDivideByPi(false);
+        final float[][] spectra = QaaTestSpectra.createSpectra(QaaBlockKernel.BLOCK_SIZE + 1, 17L);
+        for (float[] bandValues : spectra) {
+            for (int p = 0; p < bandValues.length; p++) {
+                bandValues[p] /= (float) Math.PI;
+            }
+        }
+
+        assertBlockMatchesScalar(spectra, 0);
+    }
+
+    @Test
+    public void testProcess_matchesScalarKernel_narrowBounds() {
+        config.setATotalUpper(0.5f);
+        config.setBbSpmsUpper(0.01f);
+        config.setAPigUpper(0.05f);
+        config.setAYsLower(0.01f);
+
+        assertBlockMatchesScalar(QaaTestSpectra.createSpectra(2 * QaaBlockKernel.BLOCK_SIZE, 7L), 0);
+    }
+
+    @Test
+    public void testProcess_matchesScalarKernel_nanInput() {
+        // pixel b has a NaN in band b, pixel 7 is a regular one
+        final float[][] spectra = QaaTestSpectra.createSpectra(8, 5L);
+        for (int b = 0; b < 7; b++) {
+            spectra[b][b] = Float.NaN;
+        }
+
+        assertBlockMatchesScalar(spectra, 0);
+    }
+
+    @Test
+    public void testProcess_leavesPixelsOutsideOfBatchUntouched() {
+        final float[][] spectra = QaaTestSpectra.createSpectra(10, 3L);
+        final QaaResultBuffer buffer = new QaaResultBuffer(10);
+
+        new QaaBlockKernel(QaaConstants.NO_DATA_VALUE).process(spectra, 2, 6, config, buffer);
+
+        assertEquals(0, buffer.getFlags(1));
+        assertEquals(0.f, buffer.getA_Total()[0][1], 0.0);
+        assertTrue(buffer.getFlags(2) != 0);
+        assertTrue(buffer.getFlags(7) != 0);
+        assertEquals(0, buffer.getFlags(8));
+        assertEquals(0.f, buffer.getA_YS()[2][8], 0.0);
+    }
+
+    private void assertBlockMatchesScalar(float[][] spectra, int offset) {
+        final int count = spectra[0].length - offset;
+        final QaaResultBuffer blockResult = new QaaResultBuffer(spectra[0].length);
+        final QaaResultBuffer scalarResult = new QaaResultBuffer(spectra[0].length);
+
+        config.setBlockKernel(true);
+        process(spectra, offset, count, blockResult);
+        config.setBlockKernel(false);
+        process(spectra, offset, count, scalarResult);
+
+        for (int p = offset; p < offset + count; p++) {
+            assertEquals("flags of pixel " + p, scalarResult.getFlags(p), blockResult.getFlags(p));
+            assertBandsEqual(scalarResult.getA_Total(), blockResult.getA_Total(), p);
+            assertBandsEqual(scalarResult.getBB_SPM(), blockResult.getBB_SPM(), p);
+            assertBandsEqual(scalarResult.getA_PIG(), blockResult.getA_PIG(), p);
+            assertBandsEqual(scalarResult.getA_YS(), blockResult.getA_YS(), p);
+        }
+    }
+
+    private void process(float[][] spectra, int offset, int count, QaaResultBuffer out) {
+        final QaaAlgorithm algorithm = new QaaAlgorithm();
+        algorithm.setConfig(config);
+        algorithm.processBatch(spectra, offset, count, out);
+    }
+
+    private static void assertBandsEqual(float[][] expected, float[][] actual, int pixel) {
+        for (int b = 0; b < expected.length; b++) {
+            final float expectedValue = expected[b][pixel];
+            final float actualValue = actual[b][pixel];
+            if (Float.isNaN(expectedValue)) {
+                assertTrue("band " + b + " of pixel " + pixel, Float.isNaN(actualValue));
+            } else {
+                assertEquals("band " + b + " of pixel " + pixel, expectedValue, actualValue,
+                             EPS * Math.abs(expectedValue));
+            }
+        }
+    }
+}
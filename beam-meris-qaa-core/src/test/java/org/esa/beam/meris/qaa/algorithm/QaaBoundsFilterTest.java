@@ -0,0 +1,111 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QaaBoundsFilterTest {
+
+    private static final int NUM_PIXELS = 1000;
+
+    @Test
+    public void testRemoveBounds() {
+        final QaaConfig config = new QaaConfig();
+
+        QaaBoundsFilter.removeBounds(config);
+
+        assertEquals(Float.NEGATIVE_INFINITY, config.getATotalLower(), 0.0f);
+        assertEquals(Float.POSITIVE_INFINITY, config.getBbSpmsUpper(), 0.0f);
+        assertEquals(Float.NEGATIVE_INFINITY, config.getAYsLower(), 0.0f);
+        assertTrue(config.isDivideByPi());
+    }
+
+    @Test
+    public void testApply_matchesAlgorithm() {
+        final QaaConfig narrow = new QaaConfig();
+        narrow.setATotalUpper(0.5f);
+        narrow.setBbSpmsUpper(0.01f);
+        narrow.setAPigUpper(0.05f);
+        narrow.setAYsLower(0.01f);
+        final float[][] spectra = QaaTestSpectra.createSpectra(NUM_PIXELS, 42L);
+        final QaaResultBuffer unbounded = processUnbounded(spectra);
+
+        for (QaaConfig config : new QaaConfig[]{new QaaConfig(), narrow}) {
+            final QaaResultBuffer expected = process(spectra, config);
+            final QaaResultBuffer actual = new QaaResultBuffer(NUM_PIXELS);
+
+            QaaBoundsFilter.apply(unbounded, 0, NUM_PIXELS, config, actual);
+
+            assertResultsEqual(expected, actual);
+        }
+    }
+
+    @Test
+    public void testApply_inPlace() {
+        final float[][] spectra = QaaTestSpectra.createSpectra(NUM_PIXELS, 7L);
+        final QaaConfig config = new QaaConfig();
+        config.setAYsLower(0.02f);
+        final QaaResultBuffer buffer = processUnbounded(spectra);
+
+        QaaBoundsFilter.apply(buffer, 0, NUM_PIXELS, config, buffer);
+
+        assertResultsEqual(process(spectra, config), buffer);
+    }
+
+    @Test
+    public void testApply_keepsInvalidPixels() {
+        final QaaResultBuffer buffer = new QaaResultBuffer(3);
+        buffer.invalidate(0, 1);
+        buffer.invalidateImaginary(1);
+        buffer.getFlags()[2] = (byte) QaaConstants.FLAG_MASK_VALID;
+        buffer.getA_YS()[0][2] = -0.5f;
+        final QaaResultBuffer out = new QaaResultBuffer(3);
+
+        QaaBoundsFilter.apply(buffer, 0, 3, new QaaConfig(), out);
+
+        assertEquals(QaaConstants.FLAG_MASK_INVALID, out.getFlags(0));
+        assertEquals(QaaConstants.FLAG_MASK_IMAGINARY, out.getFlags(1));
+        assertTrue(Float.isNaN(out.getBB_SPM()[0][1]));
+        assertEquals(QaaConstants.FLAG_MASK_VALID | QaaConstants.FLAG_MASK_A_YS_OOB |
+                     QaaConstants.FLAG_MASK_NEGATIVE_AYS, out.getFlags(2));
+        assertEquals(0.0f, out.getA_Total()[0][2], 0.0f);
+        assertTrue(Float.isNaN(out.getA_YS()[0][2]));
+    }
+
+    private static QaaResultBuffer processUnbounded(float[][] spectra) {
+        final QaaConfig config = new QaaConfig();
+        QaaBoundsFilter.removeBounds(config);
+        final QaaResultBuffer unbounded = process(spectra, config);
+        for (int p = 0; p < NUM_PIXELS; p++) {
+            final int flags = unbounded.getFlags(p);
+            assertTrue(flags == QaaConstants.FLAG_MASK_VALID || flags == QaaConstants.FLAG_MASK_IMAGINARY);
+        }
+        return unbounded;
+    }
+
+    private static QaaResultBuffer process(float[][] spectra, QaaConfig config) {
+        final QaaAlgorithm algorithm = new QaaAlgorithm();
+        config.setBlockKernel(true);
+        algorithm.setConfig(config);
+        final QaaResultBuffer buffer = new QaaResultBuffer(NUM_PIXELS);
+        algorithm.processBatch(spectra, 0, NUM_PIXELS, buffer);
+        return buffer;
+    }
+
+    private static void assertResultsEqual(QaaResultBuffer expected, QaaResultBuffer actual) {
+        for (int p = 0; p < NUM_PIXELS; p++) {
+            assertEquals("flags of pixel " + p, expected.getFlags(p), actual.getFlags(p));
+            assertBandsEqual(expected.getA_Total(), actual.getA_Total(), p);
+            assertBandsEqual(expected.getBB_SPM(), actual.getBB_SPM(), p);
+            assertBandsEqual(expected.getA_PIG(), actual.getA_PIG(), p);
+            assertBandsEqual(expected.getA_YS(), actual.getA_YS(), p);
+        }
+    }
+
+    private static void assertBandsEqual(float[][] expected, float[][] actual, int pixel) {
+        for (int b = 0; b < expected.length; b++) {
+            assertEquals("band " + b + " of pixel " + pixel, expected[b][pixel], actual[b][pixel], 0.0f);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QaaBulkProcessorTest {
+
+    private static final int NUM_PIXELS = 10007;
+
+    private QaaAlgorithm algorithm;
+    private ForkJoinPool pool;
+    private float[][] spectra;
+    private QaaResultBuffer expected;
+
+    @Before
+    public void setUp() {
+        algorithm = new QaaAlgorithm();
+        pool = new ForkJoinPool(4);
+        spectra = QaaTestSpectra.createSpectra(NUM_PIXELS, 42L);
+        expected = new QaaResultBuffer(NUM_PIXELS);
+        algorithm.processBatch(spectra, 0, NUM_PIXELS, expected);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testProcess_matchesSequentialProcessing() {
+        for (int grainSize : new int[]{1000, 64, 1, NUM_PIXELS, 100000}) {
+            final QaaResultBuffer actual = new QaaResultBuffer(NUM_PIXELS);
+            new QaaBulkProcessor(algorithm, pool, grainSize).process(spectra, 0, NUM_PIXELS, actual);
+
+            assertResultsEqual(expected, actual, 0, NUM_PIXELS);
+        }
+    }
+
+    @Test
+    public void testProcess_withDefaultPool() {
+        final QaaResultBuffer actual = new QaaResultBuffer(NUM_PIXELS);
+
+        final QaaFlagCounts counts = new QaaBulkProcessor(algorithm).process(spectra, 0, NUM_PIXELS, actual);
+
+        assertEquals(NUM_PIXELS, counts.getPixelCount());
+        assertResultsEqual(expected, actual, 0, NUM_PIXELS);
+    }
+
+    @Test
+    public void testProcess_countsFlags() {
+        final QaaFlagCounts counts = new QaaBulkProcessor(algorithm, pool, 500).process(
+                spectra, 0, NUM_PIXELS, new QaaResultBuffer(NUM_PIXELS));
+
+        assertEquals(NUM_PIXELS, counts.getPixelCount());
+        for (int bit = 0; bit < 8; bit++) {
+            final int mask = 1 << bit;
+            int expectedCount = 0;
+            for (int p = 0; p < NUM_PIXELS; p++) {
+                if ((expected.getFlags(p) & mask) != 0) {
+                    expectedCount++;
+                }
+            }
+            assertEquals("flag " + mask, expectedCount, counts.getCount(mask));
+        }
+        assertEquals(NUM_PIXELS / 10 + 1, counts.getCount(QaaConstants.FLAG_MASK_IMAGINARY));
+        assertTrue(counts.getCount(QaaConstants.FLAG_MASK_VALID) > 0);
+    }
+
+    @Test
+    public void testProcess_isDeterministic() {
+        final QaaBulkProcessor processor = new QaaBulkProcessor(algorithm, pool, 100);
+        final QaaFlagCounts counts1 = processor.process(spectra, 0, NUM_PIXELS, new QaaResultBuffer(NUM_PIXELS));
+        final QaaFlagCounts counts2 = new QaaBulkProcessor(algorithm, new ForkJoinPool(1), 3000).process(
+                spectra, 0, NUM_PIXELS, new QaaResultBuffer(NUM_PIXELS));
+
+        assertEquals(counts1.toString(), counts2.toString());
+    }
+
+    @Test
+    public void testProcess_subRange() {
+        final QaaResultBuffer actual = new QaaResultBuffer(NUM_PIXELS);
+
+        final QaaFlagCounts counts = new QaaBulkProcessor(algorithm, pool, 128).process(spectra, 100, 1000, actual);
+
+        assertEquals(1000, counts.getPixelCount());
+        assertEquals(0, actual.getFlags(99));
+        assertEquals(0, actual.getFlags(1100));
+        assertResultsEqual(expected, actual, 100, 1000);
+    }
+
+    @Test
+    public void testProcess_buffers() {
+        final int position = 5;
+        final FloatBuffer[] input = new FloatBuffer[7];
+        for (int b = 0; b < input.length; b++) {
+            input[b] = FloatBuffer.allocate(position + NUM_PIXELS);
+            input[b].position(position);
+            input[b].put(spectra[b]);
+            input[b].position(position);
+        }
+        final FloatBuffer[] iops = new FloatBuffer[16];
+        for (int i = 0; i < iops.length; i++) {
+            if (i != 7) {
+                iops[i] = ByteBuffer.allocateDirect(4 * NUM_PIXELS).asFloatBuffer();
+            }
+        }
+        final ByteBuffer flags = ByteBuffer.allocate(NUM_PIXELS);
+
+        final QaaFlagCounts counts = new QaaBulkProcessor(algorithm, pool, 700).process(input, iops, flags,
+                                                                                         NUM_PIXELS);
+
+        assertEquals(NUM_PIXELS, counts.getPixelCount());
+        assertEquals(position, input[0].position());
+        assertEquals(0, iops[0].position());
+        for (int p = 0; p < NUM_PIXELS; p += 7) {
+            assertEquals(expected.getFlags(p), flags.get(p) & 0xFF);
+            assertValueEquals(expected.getA_Total()[1][p], iops[QaaBandLayout.MERIS.getATotalBandIndexes()[1]].get(p));
+            assertValueEquals(expected.getBB_SPM()[4][p], iops[QaaBandLayout.MERIS.getBbSpmBandIndexes()[4]].get(p));
+            assertValueEquals(expected.getA_PIG()[0][p], iops[QaaBandLayout.MERIS.getAPigBandIndexes()[0]].get(p));
+            assertValueEquals(expected.getA_YS()[2][p], iops[QaaBandLayout.MERIS.getAYsBandIndexes()[2]].get(p));
+        }
+    }
+
+    @Test
+    public void testProcess_buffersTooSmall() {
+        final FloatBuffer[] input = new FloatBuffer[7];
+        for (int b = 0; b < input.length; b++) {
+            input[b] = FloatBuffer.allocate(10);
+        }
+        try {
+            new QaaBulkProcessor(algorithm).process(input, new FloatBuffer[16], null, 11);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidGrainSize() {
+        new QaaBulkProcessor(algorithm, pool, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFlagCounts_invalidMask() {
+        new QaaBulkProcessor(algorithm).process(spectra, 0, 10, new QaaResultBuffer(NUM_PIXELS)).getCount(0x03);
+    }
+
+    private static void assertResultsEqual(QaaResultBuffer expected, QaaResultBuffer actual, int offset, int count) {
+        for (int p = offset; p < offset + count; p++) {
+            assertEquals("flags of pixel " + p, expected.getFlags(p), actual.getFlags(p));
+            assertBandsEqual(expected.getA_Total(), actual.getA_Total(), p);
+            assertBandsEqual(expected.getBB_SPM(), actual.getBB_SPM(), p);
+            assertBandsEqual(expected.getA_PIG(), actual.getA_PIG(), p);
+            assertBandsEqual(expected.getA_YS(), actual.getA_YS(), p);
+        }
+    }
+
+    private static void assertBandsEqual(float[][] expected, float[][] actual, int pixel) {
+        for (int b = 0; b < expected.length; b++) {
+            assertValueEquals(expected[b][pixel], actual[b][pixel]);
+        }
+    }
+
+    private static void assertValueEquals(float expected, float actual) {
+        assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(actual));
+    }
+}
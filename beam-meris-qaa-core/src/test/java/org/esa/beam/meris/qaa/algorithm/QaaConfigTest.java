@@ -17,6 +17,9 @@ public class QaaConfigTest {
     @Test
     public void testDefaultConstruction() {
         assertTrue(config.isDivideByPi());
+        assertFalse(config.isBlockKernel());
+        assertFalse(config.isFastMath());
+        assertTrue(config.isDecomposition());
 
         assertEquals(-0.02f, config.getATotalLower());
         assertEquals(5.0f, config.getATotalUpper());
@@ -37,6 +40,33 @@ public class QaaConfigTest {
         assertTrue(config.isDivideByPi());
     }
 
+    @Test
+    public void testSetIsBlockKernel() {
+        config.setBlockKernel(false);
+        assertFalse(config.isBlockKernel());
+
+        config.setBlockKernel(true);
+        assertTrue(config.isBlockKernel());
+    }
+
+    @Test
+    public void testSetIsDecomposition() {
+        config.setDecomposition(false);
+        assertFalse(config.isDecomposition());
+
+        config.setDecomposition(true);
+        assertTrue(config.isDecomposition());
+    }
+
+    @Test
+    public void testSetIsFastMath() {
+        config.setFastMath(true);
+        assertTrue(config.isFastMath());
+
+        config.setFastMath(false);
+        assertFalse(config.isFastMath());
+    }
+
     @Test
     public void testSetGetATotalLower() {
         final float a_total_lower_1 = 2.5f;
@@ -0,0 +1,131 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the fast-math mode against the exact kernel, both for the single functions and for the
+ * QAA results over the range of realistic water reflectances.
+ */
+public class QaaFastMathTest {
+
+    private static final int NUM_SPECTRA = 200000;
+    // float precision of the results; values close to zero additionally need an absolute tolerance as
+    // step 9 amplifies a difference of one ulp in the total absorption by its cancellation
+    private static final double MAX_RELATIVE_ERROR = 1e-5;
+    private static final double MAX_ABSOLUTE_ERROR = 1e-6;
+
+    @Test
+    public void testExp() {
+        final Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            final double x = (2 * random.nextDouble() - 1) * 80;
+            assertEquals(1.0, QaaMath.FAST.exp(x) / Math.exp(x), 5e-10);
+        }
+        assertEquals(1.0, QaaMath.FAST.exp(0.0), 0.0);
+    }
+
+    @Test
+    public void testExp_specialValues() {
+        assertTrue(Double.isNaN(QaaMath.FAST.exp(Double.NaN)));
+        assertEquals(0.0, QaaMath.FAST.exp(Double.NEGATIVE_INFINITY), 0.0);
+        assertEquals(0.0, QaaMath.FAST.exp(-1000.0), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, QaaMath.FAST.exp(Double.POSITIVE_INFINITY), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, QaaMath.FAST.exp(1000.0), 0.0);
+    }
+
+    @Test
+    public void testLogAndLog10() {
+        final Random random = new Random(2);
+        for (int i = 0; i < 100000; i++) {
+            final double x = Math.pow(10, (2 * random.nextDouble() - 1) * 30);
+            assertEquals(Math.log(x), QaaMath.FAST.log(x), 1e-9);
+            assertEquals(Math.log10(x), QaaMath.FAST.log10(x), 1e-9);
+            final double y = 0.5 + random.nextDouble();
+            assertEquals(Math.log(y), QaaMath.FAST.log(y), 1e-9);
+        }
+        assertEquals(0.0, QaaMath.FAST.log(1.0), 0.0);
+    }
+
+    @Test
+    public void testLog_specialValues() {
+        assertTrue(Double.isNaN(QaaMath.FAST.log(Double.NaN)));
+        assertTrue(Double.isNaN(QaaMath.FAST.log(-1.0)));
+        assertTrue(Double.isNaN(QaaMath.FAST.log(Double.NEGATIVE_INFINITY)));
+        assertEquals(Double.NEGATIVE_INFINITY, QaaMath.FAST.log(0.0), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, QaaMath.FAST.log(Double.POSITIVE_INFINITY), 0.0);
+    }
+
+    @Test
+    public void testPow() {
+        final Random random = new Random(3);
+        for (int i = 0; i < 100000; i++) {
+            final double x = Math.pow(10, (2 * random.nextDouble() - 1) * 4);
+            final double y = (2 * random.nextDouble() - 1) * 5;
+            assertEquals(1.0, QaaMath.FAST.pow(x, y) / Math.pow(x, y), 2e-9 * Math.max(1.0, Math.abs(y)));
+        }
+        assertEquals(0.0, QaaMath.FAST.pow(0.0, 1.5), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, QaaMath.FAST.pow(0.0, -3.19), 0.0);
+        assertTrue(Double.isNaN(QaaMath.FAST.pow(-0.1, 1.5)));
+    }
+
+    @Test
+    public void testFastMathMatchesExactKernel_perPixel() {
+        assertFastMatchesExact(false);
+    }
+
+    @Test
+    public void testFastMathMatchesExactKernel_blockKernel() {
+        assertFastMatchesExact(true);
+    }
+
+    /*
+     * Runs both kernels over spectra between clear and turbid water with magnitudes from a tenth to five
+     * times the reference spectra. Flags may only differ for values which lie within the tolerance around
+     * a bound of the valid range.
+     */
+    private static void assertFastMatchesExact(boolean blockKernel) {
+        final float[][] spectra = QaaTestSpectra.createRealisticSpectra(NUM_SPECTRA, 4L);
+        final QaaResultBuffer exact = process(spectra, false, blockKernel);
+        final QaaResultBuffer fast = process(spectra, true, blockKernel);
+
+        int numFlagDifferences = 0;
+        for (int p = 0; p < NUM_SPECTRA; p++) {
+            if (exact.getFlags(p) != fast.getFlags(p)) {
+                numFlagDifferences++;
+                continue;
+            }
+            assertBandsClose(exact.getA_Total(), fast.getA_Total(), p);
+            assertBandsClose(exact.getBB_SPM(), fast.getBB_SPM(), p);
+            assertBandsClose(exact.getA_PIG(), fast.getA_PIG(), p);
+            assertBandsClose(exact.getA_YS(), fast.getA_YS(), p);
+        }
+        assertTrue("flags differ for " + numFlagDifferences + " spectra", numFlagDifferences <= NUM_SPECTRA / 10000);
+    }
+
+    private static QaaResultBuffer process(float[][] spectra, boolean fastMath, boolean blockKernel) {
+        final QaaAlgorithm algorithm = new QaaAlgorithm();
+        algorithm.getConfig().setFastMath(fastMath);
+        algorithm.getConfig().setBlockKernel(blockKernel);
+        final QaaResultBuffer buffer = new QaaResultBuffer(spectra[0].length);
+        algorithm.processBatch(spectra, 0, spectra[0].length, buffer);
+        return buffer;
+    }
+
+    private static void assertBandsClose(float[][] expected, float[][] actual, int pixel) {
+        for (int b = 0; b < expected.length; b++) {
+            final float expectedValue = expected[b][pixel];
+            final float actualValue = actual[b][pixel];
+            if (Float.isNaN(expectedValue)) {
+                assertTrue(Float.isNaN(actualValue));
+            } else {
+                assertEquals("band " + b + " of pixel " + pixel, expectedValue, actualValue,
+                             MAX_RELATIVE_ERROR * Math.abs(expectedValue) + MAX_ABSOLUTE_ERROR);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QaaIntegerEncodingTest {
+
+    private QaaConfig config;
+
+    @Before
+    public void setUp() {
+        config = new QaaConfig();
+        config.setATotalLower(0.001f);
+        config.setATotalUpper(5.0f);
+        config.setBbSpmsLower(0.0001f);
+        config.setBbSpmsUpper(1.0f);
+    }
+
+    @Test
+    public void testUnsigned_scalingAndNoData() {
+        final QaaIntegerEncoding encoding = new QaaIntegerEncoding(false, config);
+
+        assertFalse(encoding.isSigned());
+        assertEquals(65535, encoding.getNoDataValue());
+        final int bandIndex = QaaBandLayout.MERIS.getATotalBandIndexes()[2];
+        assertEquals((5.0 - 0.001) / 65534, encoding.getScalingFactor(bandIndex), 1.0e-9);
+        assertEquals(0.001, encoding.getScalingOffset(bandIndex), 1.0e-6);
+    }
+
+    @Test
+    public void testSigned_scalingAndNoData() {
+        final QaaIntegerEncoding encoding = new QaaIntegerEncoding(true, config);
+
+        assertTrue(encoding.isSigned());
+        assertEquals(Short.MIN_VALUE, encoding.getNoDataValue());
+        final int bandIndex = QaaBandLayout.MERIS.getBbSpmBandIndexes()[0];
+        final double factor = encoding.getScalingFactor(bandIndex);
+        assertEquals((1.0 - 0.0001) / 65534, factor, 1.0e-9);
+        // the lower bound is encoded as the smallest value above the no-data value
+        assertEquals(0.0001, -32767 * factor + encoding.getScalingOffset(bandIndex), 1.0e-6);
+    }
+
+    @Test
+    public void testEncode_boundsAndNoData() {
+        final int bandIndex = QaaBandLayout.MERIS.getATotalBandIndexes()[0];
+        final float[] values = {0.001f, 5.0f, Float.NaN, -1.0f, 10.0f};
+        final short[] raw = new short[values.length];
+
+        new QaaIntegerEncoding(false, config).encode(bandIndex, values, raw, 0, values.length);
+        assertEquals(0, raw[0] & 0xffff);
+        assertEquals(65534, raw[1] & 0xffff);
+        assertEquals(65535, raw[2] & 0xffff);
+        assertEquals(0, raw[3] & 0xffff);
+        assertEquals(65534, raw[4] & 0xffff);
+
+        new QaaIntegerEncoding(true, config).encode(bandIndex, values, raw, 0, values.length);
+        assertEquals(-32767, raw[0]);
+        assertEquals(32767, raw[1]);
+        assertEquals(Short.MIN_VALUE, raw[2]);
+        assertEquals(-32767, raw[3]);
+        assertEquals(32767, raw[4]);
+    }
+
+    @Test
+    public void testEncode_roundTripErrorIsHalfAStep() {
+        final int bandIndex = QaaBandLayout.MERIS.getAPigBandIndexes()[1];
+        final float[] values = new float[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = config.getAPigLower() + i * (config.getAPigUpper() - config.getAPigLower()) / values.length;
+        }
+        for (boolean signed : new boolean[]{false, true}) {
+            final QaaIntegerEncoding encoding = new QaaIntegerEncoding(signed, config);
+            final short[] raw = new short[values.length];
+            encoding.encode(bandIndex, values, raw, 0, values.length);
+
+            final double factor = encoding.getScalingFactor(bandIndex);
+            final double offset = encoding.getScalingOffset(bandIndex);
+            for (int i = 0; i < values.length; i++) {
+                final int rawValue = signed ? raw[i] : raw[i] & 0xffff;
+                assertEquals(values[i], rawValue * factor + offset, factor / 2 + 1.0e-7);
+            }
+        }
+    }
+
+    @Test
+    public void testEncode_onlyTheGivenRange() {
+        final float[] values = {1.0f, 1.0f, 1.0f, 1.0f};
+        final short[] raw = new short[values.length];
+
+        new QaaIntegerEncoding(false, config).encode(QaaBandLayout.MERIS.getAYsBandIndexes()[0], values, raw, 1, 2);
+
+        assertEquals(0, raw[0]);
+        assertTrue(raw[1] != 0);
+        assertTrue(raw[2] != 0);
+        assertEquals(0, raw[3]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyRange() {
+        config.setAYsLower(1.0f);
+        config.setAYsUpper(1.0f);
+        new QaaIntegerEncoding(false, config);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInfiniteRange() {
+        config.setAPigUpper(Float.POSITIVE_INFINITY);
+        new QaaIntegerEncoding(true, config);
+    }
+}
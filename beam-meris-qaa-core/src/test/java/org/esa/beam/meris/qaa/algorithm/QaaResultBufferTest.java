@@ -0,0 +1,113 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class QaaResultBufferTest {
+
+    @Test
+    public void testConstruction() {
+        final QaaResultBuffer buffer = new QaaResultBuffer(12);
+
+        assertEquals(12, buffer.getCapacity());
+        assertEquals(QaaConstants.NUM_A_TOTAL_BANDS, buffer.getA_Total().length);
+        assertEquals(12, buffer.getA_Total()[0].length);
+        assertEquals(QaaConstants.NUM_BB_SPM_BANDS, buffer.getBB_SPM().length);
+        assertEquals(QaaConstants.NUM_A_PIG_BANDS, buffer.getA_PIG().length);
+        assertEquals(QaaConstants.NUM_A_YS_BANDS, buffer.getA_YS().length);
+        assertEquals(12, buffer.getFlags().length);
+    }
+
+    @Test
+    public void testConstructionWithArrays() {
+        final float[][] a_total = new float[QaaConstants.NUM_A_TOTAL_BANDS][4];
+        final byte[] flags = new byte[4];
+        final QaaResultBuffer buffer = new QaaResultBuffer(a_total,
+                                                           new float[QaaConstants.NUM_BB_SPM_BANDS][4],
+                                                           new float[QaaConstants.NUM_A_PIG_BANDS][4],
+                                                           new float[QaaConstants.NUM_A_YS_BANDS][4],
+                                                           flags);
+
+        assertSame(a_total, buffer.getA_Total());
+        assertSame(flags, buffer.getFlags());
+    }
+
+    @Test
+    public void testConstructionWithMissingBands() {
+        final float[][] a_pig = {null, new float[4], null};
+        final QaaResultBuffer buffer = new QaaResultBuffer(new float[QaaConstants.NUM_A_TOTAL_BANDS][],
+                                                           new float[QaaConstants.NUM_BB_SPM_BANDS][],
+                                                           a_pig,
+                                                           new float[QaaConstants.NUM_A_YS_BANDS][],
+                                                           new byte[4]);
+
+        buffer.invalidate(0, 2);
+        buffer.invalidateImaginary(3);
+
+        assertTrue(Float.isNaN(a_pig[1][0]));
+        assertEquals(0.0f, a_pig[1][2], 0.0f);
+        assertTrue(Float.isNaN(a_pig[1][3]));
+        assertNull(a_pig[0]);
+        assertEquals(QaaConstants.FLAG_MASK_IMAGINARY, buffer.getFlags(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructionWithArraysOfDifferentLength() {
+        new QaaResultBuffer(new float[QaaConstants.NUM_A_TOTAL_BANDS][4],
+                            new float[QaaConstants.NUM_BB_SPM_BANDS][4],
+                            new float[QaaConstants.NUM_A_PIG_BANDS][3],
+                            new float[QaaConstants.NUM_A_YS_BANDS][4],
+                            new byte[4]);
+    }
+
+    @Test
+    public void testGetFlagsIsUnsigned() {
+        final QaaResultBuffer buffer = new QaaResultBuffer(2);
+        buffer.getFlags()[1] = (byte) (QaaConstants.FLAG_MASK_A_YS_OOB | QaaConstants.FLAG_MASK_VALID);
+
+        assertEquals(0, buffer.getFlags(0));
+        assertEquals(0x81, buffer.getFlags(1));
+    }
+
+    @Test
+    public void testInvalidate() {
+        final QaaResultBuffer buffer = new QaaResultBuffer(4);
+
+        buffer.invalidate(1, 2);
+
+        for (float[] a_pig : buffer.getA_PIG()) {
+            assertEquals(0.f, a_pig[0], 1e-8);
+            assertEquals(Float.NaN, a_pig[1], 1e-8);
+            assertEquals(Float.NaN, a_pig[2], 1e-8);
+            assertEquals(0.f, a_pig[3], 1e-8);
+        }
+        assertEquals(Float.NaN, buffer.getA_Total()[4][2], 1e-8);
+        assertEquals(Float.NaN, buffer.getBB_SPM()[0][1], 1e-8);
+        assertEquals(Float.NaN, buffer.getA_YS()[2][1], 1e-8);
+        assertEquals(0, buffer.getFlags(0));
+        assertEquals(QaaConstants.FLAG_MASK_INVALID, buffer.getFlags(1));
+        assertEquals(QaaConstants.FLAG_MASK_INVALID, buffer.getFlags(2));
+        assertEquals(0, buffer.getFlags(3));
+    }
+
+    @Test
+    public void testInvalidateImaginary() {
+        final QaaResultBuffer buffer = new QaaResultBuffer(3);
+
+        buffer.invalidateImaginary(1);
+
+        assertEquals(0.f, buffer.getA_Total()[0][0], 1e-8);
+        assertEquals(Float.NaN, buffer.getA_Total()[0][1], 1e-8);
+        assertEquals(Float.NaN, buffer.getBB_SPM()[4][1], 1e-8);
+        assertEquals(Float.NaN, buffer.getA_PIG()[1][1], 1e-8);
+        assertEquals(Float.NaN, buffer.getA_YS()[2][1], 1e-8);
+        assertEquals(0.f, buffer.getA_YS()[2][2], 1e-8);
+        assertEquals(0, buffer.getFlags(0));
+        assertEquals(QaaConstants.FLAG_MASK_IMAGINARY, buffer.getFlags(1));
+        assertEquals(0, buffer.getFlags(2));
+    }
+}
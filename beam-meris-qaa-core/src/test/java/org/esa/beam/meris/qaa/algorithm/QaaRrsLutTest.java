@@ -0,0 +1,120 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class QaaRrsLutTest {
+
+    private static final int NUM_PIXELS = 20000;
+
+    @Test
+    public void testProcessBatch_equalsFloatInput_unsigned() {
+        final double[] factors = {2.0e-5, 2.0e-5, 2.5e-5, 2.5e-5, 3.0e-5, 3.0e-5, 3.0e-5};
+        final double[] offsets = {-0.3, -0.3, -0.3, -0.3, -0.3, -0.3, -0.3};
+        assertLutEqualsFloatInput(factors, offsets, new boolean[7], new QaaConfig());
+    }
+
+    @Test
+    public void testProcessBatch_equalsFloatInput_signed() {
+        final double[] factors = {1.0e-5, 1.0e-5, 1.0e-5, 1.0e-5, 1.0e-5, 1.0e-5, 1.0e-5};
+        final double[] offsets = {0.01, 0.01, 0.01, 0.01, 0.01, 0.01, 0.01};
+        final boolean[] signed = {true, true, true, true, true, true, true};
+        assertLutEqualsFloatInput(factors, offsets, signed, new QaaConfig());
+    }
+
+    @Test
+    public void testProcessBatch_equalsFloatInput_fastMathNotDividedByPi() {
+        final double[] factors = {1.0e-5, 1.0e-5, 1.0e-5, 1.0e-5, 1.0e-5, 1.0e-5, 1.0e-5};
+        final double[] offsets = new double[7];
+        final boolean[] signed = {true, true, true, true, true, true, true};
+        final QaaConfig config = new QaaConfig();
+        config.setFastMath(true);
+        config.setDivideByPi(false);
+        assertLutEqualsFloatInput(factors, offsets, signed, config);
+    }
+
+    @Test
+    public void testProcessBatch_incompatibleConfig() {
+        final QaaConfig config = new QaaConfig();
+        final QaaRrsLut lut = new QaaRrsLut(new double[7], new double[7], new boolean[7], config);
+        final QaaAlgorithm algorithm = new QaaAlgorithm();
+        algorithm.getConfig().setDivideByPi(!config.isDivideByPi());
+
+        try {
+            algorithm.processBatch(new short[7][1], 0, 1, lut, new QaaResultBuffer(1), new QaaWorkspace());
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testCreate_wrongNumberOfBands() {
+        try {
+            new QaaRrsLut(new double[6], new double[6], new boolean[6], new QaaConfig());
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /*
+     * The raw values are derived from realistic spectra, every hundredth spectrum produces an imaginary number.
+     * The results are compared bit by bit to the block kernel processing of the scaled values.
+     */
+    private static void assertLutEqualsFloatInput(double[] factors, double[] offsets, boolean[] signed,
+                                                  QaaConfig config) {
+        final Random random = new Random(7);
+        final float[] spectrum = new float[7];
+        final short[][] raw = new short[7][NUM_PIXELS];
+        final float[][] scaled = new float[7][NUM_PIXELS];
+        for (int p = 0; p < NUM_PIXELS; p++) {
+            QaaTestSpectra.createRealisticSpectrum(random, spectrum);
+            for (int b = 0; b < 7; b++) {
+                double value = spectrum[b];
+                if (p % 100 == 0 && b == 0) {
+                    value = -0.2;
+                }
+                final long rawValue = Math.round((value - offsets[b]) / factors[b]);
+                final long minValue = signed[b] ? Short.MIN_VALUE : 0;
+                final long maxValue = signed[b] ? Short.MAX_VALUE : 65535;
+                raw[b][p] = (short) Math.max(minValue, Math.min(maxValue, rawValue));
+                final int rawInt = signed[b] ? raw[b][p] : raw[b][p] & 0xFFFF;
+                scaled[b][p] = (float) (rawInt * factors[b] + offsets[b]);
+            }
+        }
+
+        // the raw input is always processed by the block kernel
+        config.setBlockKernel(true);
+        final QaaAlgorithm algorithm = new QaaAlgorithm();
+        algorithm.setConfig(config);
+        final QaaResultBuffer expected = new QaaResultBuffer(NUM_PIXELS);
+        algorithm.processBatch(scaled, 0, NUM_PIXELS, expected, new QaaWorkspace());
+
+        final QaaRrsLut lut = new QaaRrsLut(factors, offsets, signed, config);
+        final QaaResultBuffer actual = new QaaResultBuffer(NUM_PIXELS);
+        algorithm.processBatch(raw, 0, NUM_PIXELS, lut, actual, new QaaWorkspace());
+
+        int numImaginary = 0;
+        for (int p = 0; p < NUM_PIXELS; p++) {
+            assertEquals(expected.getFlags(p), actual.getFlags(p));
+            if (expected.getFlags(p) == QaaConstants.FLAG_MASK_IMAGINARY) {
+                numImaginary++;
+            }
+        }
+        assertEquals(true, numImaginary >= NUM_PIXELS / 100);
+        assertGroupEquals(expected.getA_Total(), actual.getA_Total());
+        assertGroupEquals(expected.getBB_SPM(), actual.getBB_SPM());
+        assertGroupEquals(expected.getA_PIG(), actual.getA_PIG());
+        assertGroupEquals(expected.getA_YS(), actual.getA_YS());
+    }
+
+    private static void assertGroupEquals(float[][] expected, float[][] actual) {
+        for (int b = 0; b < expected.length; b++) {
+            assertArrayEquals(expected[b], actual[b], 0.0f);
+        }
+    }
+}
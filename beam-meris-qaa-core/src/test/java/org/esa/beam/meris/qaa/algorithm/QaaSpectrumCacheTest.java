@@ -0,0 +1,199 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QaaSpectrumCacheTest {
+
+    private static final float[] SPECTRUM_A = {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f};
+    private static final float[] SPECTRUM_B = {0.0020f, 0.0025f, 0.0041f, 0.0052f, 0.0070f, 0.0023f, 0.0019f};
+    private static final float[] SPECTRUM_C = {0.012f, 0.013f, 0.014f, 0.012f, 0.009f, 0.002f, 0.0015f};
+    private static final float[] IMAGINARY = {-0.2f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f};
+
+    private QaaAlgorithm algorithm;
+    private QaaWorkspace workspace;
+
+    @Before
+    public void setUp() {
+        algorithm = new QaaAlgorithm();
+        workspace = new QaaWorkspace();
+    }
+
+    @Test
+    public void testConstruction() {
+        final QaaSpectrumCache cache = new QaaSpectrumCache(100);
+        assertEquals(100, cache.getCapacity());
+        assertEquals(0.0f, cache.getQuantisationStep(), 0.0f);
+        assertEquals(QaaSpectrumCache.Eviction.LRU, cache.getEviction());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruction_zeroCapacity() {
+        new QaaSpectrumCache(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruction_negativeQuantisationStep() {
+        new QaaSpectrumCache(10, -1.0e-5f, QaaSpectrumCache.Eviction.FIFO);
+    }
+
+    @Test
+    public void testProcess_hitsReturnTheComputedResult() {
+        final QaaResult expectedA = algorithm.process(SPECTRUM_A, null);
+        final QaaResult expectedImaginary = algorithm.process(IMAGINARY, null);
+        final QaaSpectrumCache cache = new QaaSpectrumCache(10);
+        workspace.setSpectrumCache(cache);
+
+        for (int i = 0; i < 3; i++) {
+            assertResultEquals(expectedA, algorithm.process(SPECTRUM_A, null, workspace));
+            assertResultEquals(expectedImaginary, algorithm.process(IMAGINARY, null, workspace));
+        }
+
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(4, cache.getHitCount());
+    }
+
+    @Test
+    public void testProcessBatch_sameResultsAsWithoutCache() {
+        final float[][] spectra = {SPECTRUM_A, SPECTRUM_B, SPECTRUM_A, IMAGINARY, SPECTRUM_A, SPECTRUM_B, IMAGINARY};
+        final float[][] rrsByBand = new float[7][spectra.length];
+        for (int p = 0; p < spectra.length; p++) {
+            for (int b = 0; b < 7; b++) {
+                rrsByBand[b][p] = spectra[p][b];
+            }
+        }
+        final QaaResultBuffer expected = new QaaResultBuffer(spectra.length);
+        algorithm.processBatch(rrsByBand, 0, spectra.length, expected, new QaaWorkspace());
+
+        final QaaSpectrumCache cache = new QaaSpectrumCache(10);
+        workspace.setSpectrumCache(cache);
+        final QaaResultBuffer actual = new QaaResultBuffer(spectra.length);
+        algorithm.processBatch(rrsByBand, 0, spectra.length, actual, workspace);
+
+        assertArrayEquals(expected.getFlags(), actual.getFlags());
+        assertBandsEqual(expected.getA_Total(), actual.getA_Total());
+        assertBandsEqual(expected.getBB_SPM(), actual.getBB_SPM());
+        assertBandsEqual(expected.getA_PIG(), actual.getA_PIG());
+        assertBandsEqual(expected.getA_YS(), actual.getA_YS());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(4, cache.getHitCount());
+    }
+
+    @Test
+    public void testEviction_LRU() {
+        final QaaSpectrumCache cache = new QaaSpectrumCache(2, 0.0f, QaaSpectrumCache.Eviction.LRU);
+        workspace.setSpectrumCache(cache);
+
+        process(SPECTRUM_A, SPECTRUM_B, SPECTRUM_A, SPECTRUM_C);
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getMissCount());
+
+        // B has been evicted, A was used more recently
+        process(SPECTRUM_A);
+        assertEquals(2, cache.getHitCount());
+        process(SPECTRUM_B);
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testEviction_FIFO() {
+        final QaaSpectrumCache cache = new QaaSpectrumCache(2, 0.0f, QaaSpectrumCache.Eviction.FIFO);
+        workspace.setSpectrumCache(cache);
+
+        process(SPECTRUM_A, SPECTRUM_B, SPECTRUM_A, SPECTRUM_C);
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getMissCount());
+
+        // A has been evicted although it was hit
+        process(SPECTRUM_B);
+        assertEquals(2, cache.getHitCount());
+        process(SPECTRUM_A);
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testEviction_recycledEntriesHoldTheNewResults() {
+        final QaaSpectrumCache cache = new QaaSpectrumCache(1);
+        workspace.setSpectrumCache(cache);
+
+        process(SPECTRUM_A, SPECTRUM_B, IMAGINARY, SPECTRUM_C);
+
+        assertResultEquals(algorithm.process(SPECTRUM_C, null), algorithm.process(SPECTRUM_C, null, workspace));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testQuantisation() {
+        final float[] nearA = SPECTRUM_A.clone();
+        nearA[3] += 2.0e-6f;
+
+        final QaaSpectrumCache exactCache = new QaaSpectrumCache(10);
+        workspace.setSpectrumCache(exactCache);
+        process(SPECTRUM_A, nearA);
+        assertEquals(0, exactCache.getHitCount());
+
+        final QaaSpectrumCache quantisingCache = new QaaSpectrumCache(10, 1.0e-4f, QaaSpectrumCache.Eviction.LRU);
+        workspace.setSpectrumCache(quantisingCache);
+        final QaaResult expected = algorithm.process(SPECTRUM_A, null, workspace);
+        assertResultEquals(expected, algorithm.process(nearA, null, workspace));
+        assertEquals(1, quantisingCache.getHitCount());
+    }
+
+    @Test
+    public void testOtherConfigClearsTheSpectra() {
+        final QaaSpectrumCache cache = new QaaSpectrumCache(10);
+        workspace.setSpectrumCache(cache);
+        process(SPECTRUM_A, SPECTRUM_A);
+        assertEquals(1, cache.getHitCount());
+
+        final QaaConfig config = new QaaConfig();
+        config.setDivideByPi(false);
+        algorithm.setConfig(config);
+        final QaaResult result = algorithm.process(SPECTRUM_A, null, workspace);
+
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.size());
+        final QaaAlgorithm uncached = new QaaAlgorithm();
+        uncached.setConfig(config);
+        assertResultEquals(uncached.process(SPECTRUM_A, null), result);
+    }
+
+    @Test
+    public void testClear() {
+        final QaaSpectrumCache cache = new QaaSpectrumCache(10);
+        workspace.setSpectrumCache(cache);
+        process(SPECTRUM_A, SPECTRUM_A, SPECTRUM_B);
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    private void process(float[]... spectra) {
+        for (float[] spectrum : spectra) {
+            algorithm.process(spectrum, null, workspace);
+        }
+    }
+
+    private static void assertResultEquals(QaaResult expected, QaaResult actual) {
+        assertEquals(expected.getFlags(), actual.getFlags());
+        assertArrayEquals(expected.getA_Total(), actual.getA_Total(), 0.0f);
+        assertArrayEquals(expected.getBB_SPM(), actual.getBB_SPM(), 0.0f);
+        assertArrayEquals(expected.getA_PIG(), actual.getA_PIG(), 0.0f);
+        assertArrayEquals(expected.getA_YS(), actual.getA_YS(), 0.0f);
+    }
+
+    private static void assertBandsEqual(float[][] expected, float[][] actual) {
+        for (int b = 0; b < expected.length; b++) {
+            assertArrayEquals(expected[b], actual[b], 0.0f);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.esa.beam.meris.qaa.algorithm;
+
+import java.util.Random;
+
+/**
+ * Reflectance spectra of the seven MERIS bands shared by the tests, a clear and a turbid water spectrum and
+ * random spectra derived from them. Public as the tests of the brewin package use it as well.
+ */
+public final class QaaTestSpectra {
+
+    public static final float[] CLEAR_SPECTRUM = {
+            0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f
+    };
+    public static final float[] TURBID_SPECTRUM = {0.005f, 0.008f, 0.02f, 0.03f, 0.045f, 0.02f, 0.015f};
+
+    private QaaTestSpectra() {
+    }
+
+    /**
+     * Band-major spectra varied around the clear and the turbid water spectrum, every tenth spectrum
+     * produces an imaginary number.
+     *
+     * @param count the number of spectra
+     * @param seed  the seed of the random numbers
+     * @return the spectra, spectra[band][pixel]
+     */
+    public static float[][] createSpectra(int count, long seed) {
+        final Random random = new Random(seed);
+        final float[][] spectra = new float[7][count];
+        for (int p = 0; p < count; p++) {
+            final float[] base = random.nextBoolean() ? CLEAR_SPECTRUM : TURBID_SPECTRUM;
+            for (int b = 0; b < 7; b++) {
+                spectra[b][p] = base[b] * (0.8f + 0.4f * random.nextFloat());
+            }
+            if (p % 10 == 3) {
+                spectra[0][p] = -0.2f;
+            }
+        }
+        return spectra;
+    }
+
+    /**
+     * Band-major spectra as created by {@link #createRealisticSpectrum(Random, float[])}.
+     *
+     * @param count the number of spectra
+     * @param seed  the seed of the random numbers
+     * @return the spectra, spectra[band][pixel]
+     */
+    public static float[][] createRealisticSpectra(int count, long seed) {
+        final Random random = new Random(seed);
+        final float[] spectrum = new float[7];
+        final float[][] spectra = new float[7][count];
+        for (int p = 0; p < count; p++) {
+            createRealisticSpectrum(random, spectrum);
+            for (int b = 0; b < 7; b++) {
+                spectra[b][p] = spectrum[b];
+            }
+        }
+        return spectra;
+    }
+
+    /**
+     * Creates a mixture of clear and turbid water with a magnitude from a tenth to five times the reference
+     * spectra.
+     *
+     * @param random   the source of the random numbers
+     * @param spectrum receives the seven reflectances
+     */
+    public static void createRealisticSpectrum(Random random, float[] spectrum) {
+        final float turbidity = random.nextFloat();
+        final float magnitude = (float) Math.pow(10, -1 + random.nextDouble() * Math.log10(50));
+        for (int b = 0; b < 7; b++) {
+            final float base = (1 - turbidity) * CLEAR_SPECTRUM[b] + turbidity * TURBID_SPECTRUM[b];
+            spectrum[b] = magnitude * base * (0.9f + 0.2f * random.nextFloat());
+        }
+    }
+}
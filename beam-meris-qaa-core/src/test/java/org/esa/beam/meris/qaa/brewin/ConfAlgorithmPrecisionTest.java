@@ -0,0 +1,115 @@
+package org.esa.beam.meris.qaa.brewin;
+
+import org.esa.beam.meris.qaa.algorithm.QaaConstants;
+import org.esa.beam.meris.qaa.algorithm.QaaResult;
+import org.esa.beam.meris.qaa.algorithm.QaaTestSpectra;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Quantifies the deviation of the float precision kernel from the double precision reference for each sensor.
+ * Only values within the default valid ranges of the operators are compared, values outside are replaced by the no-data value
+ * anyway. The measured maxima over the realistic spectra are (relative for values above 0.01 / absolute):
+ * <pre>
+ *              a_total          bb_spm           a_pig            a_ys
+ *   MERIS      1.4e-5 / 6.3e-5  1.0e-6 / 1.0e-6  1.3e-3 / 2.3e-4  1.7e-5 / 5.8e-6
+ *   MERIS_OLD  1.7e-5 / 8.7e-5  1.2e-6 / 1.2e-6  6.7e-4 / 3.6e-4  1.8e-5 / 6.8e-6
+ *   MODIS      1.4e-5 / 5.9e-5  1.1e-6 / 1.0e-6  7.8e-4 / 6.9e-5  1.8e-5 / 6.3e-6
+ *   SEAWIFS    1.4e-5 / 6.2e-5  1.1e-6 / 1.1e-6  7.0e-4 / 6.6e-4  1.7e-5 / 5.8e-6
+ * </pre>
+ * a_pig is the difference of the total absorption and the absorptions of water and yellow substance, the
+ * cancellation amplifies the rounding errors of the float computation.
+ */
+public class ConfAlgorithmPrecisionTest {
+
+    // the bands of the MERIS test spectra used, without 620 nm
+    private static final int[] BANDS = {0, 1, 2, 3, 4, 6};
+    private static final int NUM_SPECTRA = 200000;
+    private static final double RELATIVE_THRESHOLD = 0.01;
+    // a_total, bb_spm, a_pig, a_ys; the bounds are the defaults of the operators
+    private static final float[] LOWER_BOUNDS = {0.001f, 0.0001f, 0.0001f, 0.0001f};
+    private static final float[] UPPER_BOUNDS = {5.0f, 1.0f, 3.0f, 1.0f};
+    private static final double[] MAX_RELATIVE_ERRORS = {5e-5, 5e-6, 3e-3, 5e-5};
+    private static final double[] MAX_ABSOLUTE_ERRORS = {2e-4, 5e-6, 1e-3, 3e-5};
+
+    @Test
+    public void testFloatPrecision_Meris() {
+        assertFloatMatchesDouble(SensorConfigFactory.MERIS);
+    }
+
+    @Test
+    public void testFloatPrecision_MerisOldCoeffs() {
+        assertFloatMatchesDouble(SensorConfigFactory.MERIS_OLD_COEFFS);
+    }
+
+    @Test
+    public void testFloatPrecision_Modis() {
+        assertFloatMatchesDouble(SensorConfigFactory.MODIS);
+    }
+
+    @Test
+    public void testFloatPrecision_SeaWiFS() {
+        assertFloatMatchesDouble(SensorConfigFactory.SEAWIFS);
+    }
+
+    private static void assertFloatMatchesDouble(String sensor) {
+        final ConfAlgorithm reference = new ConfAlgorithm(SensorConfigFactory.create(sensor));
+        final ConfAlgorithm algorithm = new ConfAlgorithm(SensorConfigFactory.create(sensor),
+                                                          ConfAlgorithm.Precision.FLOAT);
+        final ConfWorkspace workspace = new ConfWorkspace();
+        final QaaResult expected = new QaaResult();
+        final QaaResult actual = new QaaResult();
+
+        final double[] maxRelativeErrors = new double[4];
+        final double[] maxAbsoluteErrors = new double[4];
+        final Random random = new Random(5);
+        final float[] merisSpectrum = new float[7];
+        final float[] spectrum = new float[BANDS.length];
+        int numCompared = 0;
+        for (int p = 0; p < NUM_SPECTRA; p++) {
+            QaaTestSpectra.createRealisticSpectrum(random, merisSpectrum);
+            for (int b = 0; b < BANDS.length; b++) {
+                spectrum[b] = merisSpectrum[BANDS[b]];
+            }
+            reference.processUnchecked(spectrum, expected, workspace);
+            algorithm.processUnchecked(spectrum, actual, workspace);
+
+            assertEquals(expected.getFlags(), actual.getFlags());
+            if (expected.getFlags() == QaaConstants.FLAG_MASK_IMAGINARY) {
+                continue;
+            }
+            final float[][] expectedGroups = {
+                    expected.getA_Total(), expected.getBB_SPM(), expected.getA_PIG(), expected.getA_YS()
+            };
+            final float[][] actualGroups = {
+                    actual.getA_Total(), actual.getBB_SPM(), actual.getA_PIG(), actual.getA_YS()
+            };
+            for (int g = 0; g < expectedGroups.length; g++) {
+                for (int i = 0; i < expectedGroups[g].length; i++) {
+                    final float expectedValue = expectedGroups[g][i];
+                    if (expectedValue < LOWER_BOUNDS[g] || expectedValue > UPPER_BOUNDS[g]) {
+                        continue;
+                    }
+                    final double error = Math.abs(expectedValue - actualGroups[g][i]);
+                    maxAbsoluteErrors[g] = Math.max(maxAbsoluteErrors[g], error);
+                    if (expectedValue > RELATIVE_THRESHOLD) {
+                        maxRelativeErrors[g] = Math.max(maxRelativeErrors[g], error / expectedValue);
+                    }
+                    numCompared++;
+                }
+            }
+        }
+
+        assertTrue(numCompared > NUM_SPECTRA);
+        for (int g = 0; g < maxRelativeErrors.length; g++) {
+            assertTrue(sensor + ": relative error of group " + g + " is " + maxRelativeErrors[g],
+                       maxRelativeErrors[g] <= MAX_RELATIVE_ERRORS[g]);
+            assertTrue(sensor + ": absolute error of group " + g + " is " + maxAbsoluteErrors[g],
+                       maxAbsoluteErrors[g] <= MAX_ABSOLUTE_ERRORS[g]);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package org.esa.beam.meris.qaa.brewin;
+
+import org.esa.beam.meris.qaa.algorithm.ImaginaryNumberException;
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.esa.beam.meris.qaa.algorithm.QaaConstants;
+import org.esa.beam.meris.qaa.algorithm.QaaResult;
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ConfAlgorithmTest {
+
+    @Test
+    public void testProcess_Meris() throws ImaginaryNumberException {
+        final float[] rrs_in = {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f};
+
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new MerisConfig());
+
+        final QaaResult result = algorithm.process(rrs_in, null);
+        final float[] a_total = result.getA_Total();
+        assertEquals(0.0326309, a_total[0], 1e-6);
+        assertEquals(0.0264908, a_total[1], 1e-6);
+        assertEquals(0.0289172, a_total[2], 1e-6);
+        assertEquals(0.0455736, a_total[3], 1e-6);
+        assertEquals(0.0657829, a_total[4], 1e-6);
+
+        final float[] bb_spm = result.getBB_SPM();
+        assertEquals(0.0205040, bb_spm[0], 1e-6);
+        assertEquals(0.0171448, bb_spm[1], 1e-6);
+        assertEquals(0.0133822, bb_spm[2], 1e-6);
+        assertEquals(0.0121625, bb_spm[3], 1e-6);
+        assertEquals(0.00977813, bb_spm[4], 1e-6);
+
+        final float[] a_pig = result.getA_PIG();
+        assertEquals(0.00263956, a_pig[0], 1e-6);
+        assertEquals(0.00337634, a_pig[1], 1e-6);
+        assertEquals(0.00614989, a_pig[2], 1e-6);
+
+        final float[] a_ys = result.getA_YS();
+        assertEquals(0.0254953, a_ys[0], 1e-6);
+        assertEquals(0.0160453, a_ys[1], 1e-6);
+        assertEquals(0.0077673, a_ys[2], 1e-6);
+    }
+
+    @Test
+    public void testProcess_Modis() throws ImaginaryNumberException {
+        final float[] rrs_in = {0.0019080009f, 0.0029860009f, 0.0029160008f, 0.0030800009f, 0.0029520008f, 0.0011980009f};
+
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new ModisConfig());
+
+        final QaaResult result = algorithm.process(rrs_in, null);
+        final float[] a_total = result.getA_Total();
+        assertEquals(0.326133, a_total[0], 1e-6);
+        assertEquals(0.177058, a_total[1], 1e-6);
+        assertEquals(0.147228, a_total[2], 1e-6);
+        assertEquals(0.118495, a_total[3], 1e-6);
+        assertEquals(0.117016, a_total[4], 1e-6);
+
+        final float[] bb_spm = result.getBB_SPM();
+        assertEquals(0.0131830, bb_spm[0], 1e-6);
+        assertEquals(0.0111027, bb_spm[1], 1e-6);
+        assertEquals(0.00902051, bb_spm[2], 1e-6);
+        assertEquals(0.00765894, bb_spm[3], 1e-6);
+        assertEquals(0.00725599, bb_spm[4], 1e-6);
+
+        final float[] a_pig = result.getA_PIG();
+        assertEquals(-0.0426686, a_pig[0], 1e-6);
+        assertEquals(-0.0501741, a_pig[1], 1e-6);
+        assertEquals(0.0267035, a_pig[2], 1e-6);
+
+        final float[] a_ys = result.getA_YS();
+        assertEquals(0.364251, a_ys[0], 1e-6);
+        assertEquals(0.220163, a_ys[1], 1e-6);
+        assertEquals(0.106008, a_ys[2], 1e-6);
+    }
+
+    @Test
+    public void testProcess_SeaWiFS() throws ImaginaryNumberException {
+        final float[] rrs_in = {
+                0.00167972470255084f,
+                0.00186919071018569f,
+                0.0027188008445359f,
+                0.00309262196610828f,
+                0.00406382197640373f,
+                0.00120514585009823f
+        };
+
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new SeaWifsConfig());
+
+        final QaaResult result = algorithm.process(rrs_in, null);
+        final float[] a_total = result.getA_Total();
+        assertEquals(0.585938, a_total[0], 1e-6);
+        assertEquals(0.477027, a_total[1], 1e-6);
+        assertEquals(0.293892, a_total[2], 1e-6);
+        assertEquals(0.24889, a_total[3], 1e-6);
+        assertEquals(0.176759, a_total[4], 1e-6);
+
+        final float[] bb_spm = result.getBB_SPM();
+        assertEquals(0.0208942, bb_spm[0], 1e-6);
+        assertEquals(0.0188968, bb_spm[1], 1e-6);
+        assertEquals(0.0168142, bb_spm[2], 1e-6);
+        assertEquals(0.0161515, bb_spm[3], 1e-6);
+        assertEquals(0.0149729, bb_spm[4], 1e-6);
+
+        final float[] a_pig = result.getA_PIG();
+        assertEquals(0.240965, a_pig[0], 1e-6);
+        assertEquals(0.268238, a_pig[1], 1e-6);
+        assertEquals(0.187655, a_pig[2], 1e-6);
+
+        final float[] a_ys = result.getA_YS();
+        assertEquals(0.340423, a_ys[0], 1e-6);
+        assertEquals(0.201719, a_ys[1], 1e-6);
+        assertEquals(0.0912376, a_ys[2], 1e-6);
+    }
+
+    @Test
+    public void testProcess_Meris_oldCoeffs() throws ImaginaryNumberException {
+        // this testcase implements a comparison between the old implementation used in te operator and the
+        // algorithm supplied by PML - the assertions of the old testcase are used to test the new algorithm with the
+        // configuration used by the old algorithm tb 2013-03-01
+        final float[] rrs_in = {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0024475828f};
+
+        // old input vector was not normalized to PI - do it now tb 2013-03-01
+        for (int i = 0; i < rrs_in.length; i++) {
+            rrs_in[i] /= Math.PI;
+
+        }
+        //                       413               440          490          510            560            620              665
+        //final float[] rrs = {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f};
+
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new MerisConfigOldCoeffs());
+
+        final QaaResult result = algorithm.process(rrs_in, null);
+        final float[] a_total = result.getA_Total();
+        assertEquals(0.03845500573515892f, a_total[0], 1e-4);
+        assertEquals(0.030030209571123123f, a_total[1], 1e-4);
+        assertEquals(0.030713409185409546f, a_total[2], 1e-4);
+        assertEquals(0.046738818287849426f, a_total[3], 1e-4);
+        assertEquals(0.06614950299263f, a_total[4], 1e-4);
+
+        final float[] bb_spm = result.getBB_SPM();
+        assertEquals(0.007518719881772995f, bb_spm[0], 1e-4);
+        assertEquals(0.006027825176715851f, bb_spm[1], 1e-4);
+        assertEquals(0.004540313966572285f, bb_spm[2], 1e-4);
+        assertEquals(0.0040666270069777966f, bb_spm[3], 1e-4);
+        assertEquals(0.0032066269777715206f, bb_spm[4], 1e-4);
+
+        final float[] a_pig = result.getA_PIG();
+        assertEquals(0.0028468116652220488f, a_pig[0], 1e-4);
+        assertEquals(0.0036492901854217052f, a_pig[1], 1e-4);
+        assertEquals(0.006425064522773027f, a_pig[2], 1e-4);
+
+        final float[] a_ys = result.getA_YS();
+        assertEquals(0.030918193981051445f, a_ys[0], 1e-4);
+        assertEquals(0.019170919433236122f, a_ys[1], 1e-4);
+        assertEquals(0.009288343600928783f, a_ys[2], 1e-4);
+    }
+
+    @Test
+    public void testProcess_imaginaryNumberThrowsException() {
+        final float[] rrs_in = {-0.2f, 0.0029860009f, 0.0029160008f, 0.0030800009f, 0.0029520008f, 0.0011980009f};
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new ModisConfig());
+
+        try {
+            algorithm.process(rrs_in, null);
+            fail("ImaginaryNumberException expected");
+        } catch (ImaginaryNumberException expected) {
+            assertTrue(expected.getMessage().startsWith("Will produce an imaginary number: -"));
+        }
+    }
+
+    @Test
+    public void testProcessUnchecked_imaginaryNumber() {
+        final float[] rrs_in = {-0.2f, 0.0029860009f, 0.0029160008f, 0.0030800009f, 0.0029520008f, 0.0011980009f};
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new ModisConfig());
+
+        final QaaResult result = algorithm.processUnchecked(rrs_in, new QaaResult());
+        assertEquals(QaaConstants.FLAG_MASK_IMAGINARY, result.getFlags());
+        assertTrue(Float.isNaN(result.getA_Total()[0]));
+        assertTrue(Float.isNaN(result.getA_YS()[2]));
+    }
+
+    @Test
+    public void testProcessUnchecked_equalsProcess() throws ImaginaryNumberException {
+        final float[] rrs_in = {0.0019080009f, 0.0029860009f, 0.0029160008f, 0.0030800009f, 0.0029520008f, 0.0011980009f};
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new ModisConfig());
+
+        final QaaResult expected = algorithm.process(rrs_in, null);
+        final QaaResult actual = algorithm.processUnchecked(rrs_in, null);
+        assertEquals(QaaConstants.FLAG_MASK_VALID, actual.getFlags());
+        assertArrayEquals(expected.getA_Total(), actual.getA_Total(), 0.f);
+        assertArrayEquals(expected.getBB_SPM(), actual.getBB_SPM(), 0.f);
+        assertArrayEquals(expected.getA_PIG(), actual.getA_PIG(), 0.f);
+        assertArrayEquals(expected.getA_YS(), actual.getA_YS(), 0.f);
+    }
+
+    @Test
+    public void testProcess_withWorkspace_equalsProcess() throws ImaginaryNumberException {
+        final float[] rrs_in = {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f};
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new MerisConfig());
+        final QaaResult expected = algorithm.process(rrs_in, null);
+
+        final ConfWorkspace workspace = new ConfWorkspace();
+        final QaaResult recycle = new QaaResult();
+        for (int i = 0; i < 2; i++) {
+            final QaaResult actual = algorithm.process(rrs_in, recycle, workspace);
+            assertSame(recycle, actual);
+            assertArrayEquals(expected.getA_Total(), actual.getA_Total(), 0.f);
+            assertArrayEquals(expected.getBB_SPM(), actual.getBB_SPM(), 0.f);
+            assertArrayEquals(expected.getA_PIG(), actual.getA_PIG(), 0.f);
+            assertArrayEquals(expected.getA_YS(), actual.getA_YS(), 0.f);
+        }
+    }
+
+    @Test
+    public void testProcess_floatPrecision_Modis() throws ImaginaryNumberException {
+        final float[] rrs_in = {0.0019080009f, 0.0029860009f, 0.0029160008f, 0.0030800009f, 0.0029520008f, 0.0011980009f};
+
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new ModisConfig(), ConfAlgorithm.Precision.FLOAT);
+        assertEquals(ConfAlgorithm.Precision.FLOAT, algorithm.getPrecision());
+
+        final QaaResult result = algorithm.process(rrs_in, null);
+        final float[] a_total = result.getA_Total();
+        assertEquals(0.326133, a_total[0], 1e-6);
+        assertEquals(0.177058, a_total[1], 1e-6);
+        assertEquals(0.147228, a_total[2], 1e-6);
+        assertEquals(0.118495, a_total[3], 1e-6);
+        assertEquals(0.117016, a_total[4], 1e-6);
+        assertEquals(0.0131830, result.getBB_SPM()[0], 1e-6);
+    }
+
+    @Test
+    public void testProcess_floatPrecision_imaginaryNumberThrowsException() {
+        final float[] rrs_in = {-0.2f, 0.0029860009f, 0.0029160008f, 0.0030800009f, 0.0029520008f, 0.0011980009f};
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new ModisConfig(), ConfAlgorithm.Precision.FLOAT);
+
+        try {
+            algorithm.process(rrs_in, null);
+            fail("ImaginaryNumberException expected");
+        } catch (ImaginaryNumberException expected) {
+            assertTrue(expected.getMessage().startsWith("Will produce an imaginary number: -"));
+        }
+    }
+
+    @Test
+    public void testProcessBatch_equalsProcess() throws ImaginaryNumberException {
+        final float[] rrs_in = {0.0019080009f, 0.0029860009f, 0.0029160008f, 0.0030800009f, 0.0029520008f, 0.0011980009f};
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new ModisConfig());
+        algorithm.setConfig(createUnboundedConfig());
+        final QaaResult expected = algorithm.process(rrs_in, null);
+
+        final QaaResultBuffer buffer = new QaaResultBuffer(3);
+        algorithm.processBatch(toBandMajor(rrs_in, 3), 1, 2, buffer);
+
+        assertEquals(0, buffer.getFlags(0));
+        assertEquals(0.f, buffer.getA_Total()[0][0], 0.f);
+        for (int p = 1; p < 3; p++) {
+            assertEquals(QaaConstants.FLAG_MASK_VALID, buffer.getFlags(p));
+            assertPixelEquals(expected, buffer, p);
+        }
+    }
+
+    @Test
+    public void testProcessBatch_divideByPi() throws ImaginaryNumberException {
+        final float[] rrs_in = {0.0019080009f, 0.0029860009f, 0.0029160008f, 0.0030800009f, 0.0029520008f, 0.0011980009f};
+        final float[] rrs_pi = new float[rrs_in.length];
+        for (int i = 0; i < rrs_in.length; i++) {
+            rrs_pi[i] = (float) (rrs_in[i] * Math.PI);
+        }
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new ModisConfig());
+        final QaaConfig config = createUnboundedConfig();
+        config.setDivideByPi(true);
+        algorithm.setConfig(config);
+        final QaaResult expected = algorithm.process(rrs_in, null);
+
+        final QaaResultBuffer buffer = new QaaResultBuffer(1);
+        algorithm.processBatch(toBandMajor(rrs_pi, 1), 0, 1, buffer);
+
+        assertEquals(QaaConstants.FLAG_MASK_VALID, buffer.getFlags(0));
+        assertEquals(expected.getA_Total()[0], buffer.getA_Total()[0][0], 1e-6);
+        assertEquals(expected.getBB_SPM()[4], buffer.getBB_SPM()[4][0], 1e-6);
+        assertEquals(expected.getA_YS()[2], buffer.getA_YS()[2][0], 1e-6);
+    }
+
+    @Test
+    public void testProcessBatch_outOfBounds() throws ImaginaryNumberException {
+        final float[] rrs_in = {0.0019080009f, 0.0029860009f, 0.0029160008f, 0.0030800009f, 0.0029520008f, 0.0011980009f};
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new ModisConfig());
+        final QaaResult expected = algorithm.process(rrs_in, null);
+        final QaaConfig config = createUnboundedConfig();
+        config.setATotalUpper(0.2f);
+        config.setAYsLower(0.5f);
+        algorithm.setConfig(config);
+
+        final QaaResultBuffer buffer = new QaaResultBuffer(1);
+        algorithm.processBatch(toBandMajor(rrs_in, 1), 0, 1, buffer);
+
+        assertEquals(QaaConstants.FLAG_MASK_VALID | QaaConstants.FLAG_MASK_A_TOTAL_OOB | QaaConstants.FLAG_MASK_A_YS_OOB,
+                     buffer.getFlags(0));
+        assertTrue(Float.isNaN(buffer.getA_Total()[0][0]));
+        assertEquals(expected.getA_Total()[1], buffer.getA_Total()[1][0], 0.f);
+        assertEquals(expected.getBB_SPM()[0], buffer.getBB_SPM()[0][0], 0.f);
+        for (float[] a_ys : buffer.getA_YS()) {
+            assertTrue(Float.isNaN(a_ys[0]));
+        }
+    }
+
+    @Test
+    public void testProcessBatch_imaginaryNumber() {
+        final float[] rrs_in = {-0.2f, 0.0029860009f, 0.0029160008f, 0.0030800009f, 0.0029520008f, 0.0011980009f};
+        final ConfAlgorithm algorithm = new ConfAlgorithm(new ModisConfig());
+
+        final QaaResultBuffer buffer = new QaaResultBuffer(1);
+        algorithm.processBatch(toBandMajor(rrs_in, 1), 0, 1, buffer);
+
+        assertEquals(QaaConstants.FLAG_MASK_IMAGINARY, buffer.getFlags(0));
+        assertTrue(Float.isNaN(buffer.getA_Total()[0][0]));
+        assertTrue(Float.isNaN(buffer.getA_YS()[2][0]));
+    }
+
+    @Test
+    public void testProcessBatch_withoutDecomposition() throws ImaginaryNumberException {
+        final float[] rrs_in = {0.0019080009f, 0.0029860009f, 0.0029160008f, 0.0030800009f, 0.0029520008f, 0.0011980009f};
+        for (ConfAlgorithm.Precision precision : ConfAlgorithm.Precision.values()) {
+            final ConfAlgorithm algorithm = new ConfAlgorithm(new ModisConfig(), precision);
+            final QaaConfig config = createUnboundedConfig();
+            algorithm.setConfig(config);
+            final QaaResult expected = algorithm.process(rrs_in, null);
+            config.setDecomposition(false);
+
+            final QaaResultBuffer buffer = new QaaResultBuffer(2);
+            algorithm.processBatch(toBandMajor(rrs_in, 2), 0, 2, buffer, new ConfWorkspace());
+
+            for (int p = 0; p < 2; p++) {
+                assertEquals(QaaConstants.FLAG_MASK_VALID, buffer.getFlags(p));
+                for (int i = 0; i < expected.getA_Total().length; i++) {
+                    assertEquals(expected.getA_Total()[i], buffer.getA_Total()[i][p], 0.f);
+                    assertEquals(expected.getBB_SPM()[i], buffer.getBB_SPM()[i][p], 0.f);
+                }
+                for (int i = 0; i < expected.getA_PIG().length; i++) {
+                    assertTrue(Float.isNaN(buffer.getA_PIG()[i][p]));
+                    assertTrue(Float.isNaN(buffer.getA_YS()[i][p]));
+                }
+            }
+        }
+    }
+
+    private static QaaConfig createUnboundedConfig() {
+        final QaaConfig config = new QaaConfig();
+        config.setDivideByPi(false);
+        config.setATotalLower(-Float.MAX_VALUE);
+        config.setATotalUpper(Float.MAX_VALUE);
+        config.setBbSpmsLower(-Float.MAX_VALUE);
+        config.setBbSpmsUpper(Float.MAX_VALUE);
+        config.setAPigLower(-Float.MAX_VALUE);
+        config.setAPigUpper(Float.MAX_VALUE);
+        config.setAYsLower(-Float.MAX_VALUE);
+        config.setAYsUpper(Float.MAX_VALUE);
+        return config;
+    }
+
+    private static float[][] toBandMajor(float[] spectrum, int numPixels) {
+        final float[][] rrsByBand = new float[spectrum.length][numPixels];
+        for (int b = 0; b < spectrum.length; b++) {
+            Arrays.fill(rrsByBand[b], spectrum[b]);
+        }
+        return rrsByBand;
+    }
+
+    private static void assertPixelEquals(QaaResult expected, QaaResultBuffer buffer, int p) {
+        for (int i = 0; i < expected.getA_Total().length; i++) {
+            assertEquals(expected.getA_Total()[i], buffer.getA_Total()[i][p], 0.f);
+            assertEquals(expected.getBB_SPM()[i], buffer.getBB_SPM()[i][p], 0.f);
+        }
+        for (int i = 0; i < expected.getA_PIG().length; i++) {
+            assertEquals(expected.getA_PIG()[i], buffer.getA_PIG()[i][p], 0.f);
+            assertEquals(expected.getA_YS()[i], buffer.getA_YS()[i][p], 0.f);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.esa.beam.meris.qaa.brewin;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SensorConfigFactoryTest {
+
+    @Test
+    public void testCreate() {
+        assertTrue(SensorConfigFactory.create(SensorConfigFactory.MERIS) instanceof MerisConfig);
+        assertTrue(SensorConfigFactory.create(SensorConfigFactory.MERIS_OLD_COEFFS) instanceof MerisConfigOldCoeffs);
+        assertTrue(SensorConfigFactory.create(SensorConfigFactory.MODIS) instanceof ModisConfig);
+        assertTrue(SensorConfigFactory.create(SensorConfigFactory.SEAWIFS) instanceof SeaWifsConfig);
+    }
+
+    @Test
+    public void testCreate_unknownSensor() {
+        try {
+            SensorConfigFactory.create("OLCI");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testGetSensorNames() {
+        final String[] names = SensorConfigFactory.getSensorNames();
+        assertEquals(4, names.length);
+        for (String name : names) {
+            SensorConfigFactory.create(name);
+        }
+        names[0] = "changed";
+        assertEquals(SensorConfigFactory.MERIS, SensorConfigFactory.getSensorNames()[0]);
+    }
+}
@@ -0,0 +1,73 @@
+package org.esa.beam.meris.qaa.brewin;
+
+import org.esa.beam.meris.qaa.algorithm.QaaConstants;
+import org.esa.beam.meris.qaa.algorithm.QaaResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SensorKernelTest {
+
+    private static final float[] RRS = {0.0049f, 0.0052f, 0.0047f, 0.0031f, 0.0024f, 0.00019f};
+
+    @Test
+    public void testGetNumBands() {
+        assertEquals(6, new SensorKernel(new MerisConfig()).getNumBands());
+        assertEquals(6, new SensorKernel(new SeaWifsConfig()).getNumBands());
+    }
+
+    @Test
+    public void testCompute_isNotAffectedByLaterChangesOfTheConfig() {
+        final ModisConfig modisConfig = new ModisConfig();
+        final double[] wavelengths = modisConfig.getWavelengths().clone();
+        final double[] absorptions = modisConfig.getSpecificAbsorptions().clone();
+        final double[] backscatters = modisConfig.getSpecficBackscatters().clone();
+        final SensorConfig mutableConfig = createConfig(modisConfig, wavelengths, absorptions, backscatters);
+
+        final SensorKernel kernel = new SensorKernel(mutableConfig);
+        final QaaResult expected = new QaaResult();
+        assertEquals(QaaConstants.FLAG_MASK_VALID, kernel.compute(RRS, new ConfWorkspace(), expected, true));
+
+        wavelengths[0] = 300.0;
+        absorptions[4] = 1.0;
+        backscatters[1] = 1.0;
+        final QaaResult actual = new QaaResult();
+        kernel.compute(RRS, new ConfWorkspace(), actual, true);
+
+        assertArrayEquals(expected.getA_Total(), actual.getA_Total(), 0.0f);
+        assertArrayEquals(expected.getBB_SPM(), actual.getBB_SPM(), 0.0f);
+        assertArrayEquals(expected.getA_PIG(), actual.getA_PIG(), 0.0f);
+        assertArrayEquals(expected.getA_YS(), actual.getA_YS(), 0.0f);
+    }
+
+    private static SensorConfig createConfig(final SensorConfig template, final double[] wavelengths,
+                                             final double[] absorptions, final double[] backscatters) {
+        return new SensorConfig() {
+            @Override
+            public double[] getAwCoefficients() {
+                return template.getAwCoefficients();
+            }
+
+            @Override
+            public double getReferenceWavelength() {
+                return template.getReferenceWavelength();
+            }
+
+            @Override
+            public double[] getWavelengths() {
+                return wavelengths;
+            }
+
+            @Override
+            public double[] getSpecificAbsorptions() {
+                return absorptions;
+            }
+
+            @Override
+            public double[] getSpecficBackscatters() {
+                return backscatters;
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package org.esa.beam.meris.qaa.brewin;
+
+import org.esa.beam.meris.qaa.algorithm.ImaginaryNumberException;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.esa.beam.meris.qaa.algorithm.QaaConstants;
+import org.esa.beam.meris.qaa.algorithm.QaaResult;
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SensorLayoutTest {
+
+    // MERIS with the band at 620 nm inserted
+    private static final double[] WAVELENGTHS_620 = {413.0, 443.0, 490.0, 510.0, 560.0, 620.0, 665.0};
+    private static final float[] RRS = {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f,
+            0.0028870495f};
+    private static final float[] RRS_620 = {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f,
+            0.0031f, 0.0028870495f};
+
+    @Test
+    public void testIndexes_shippedSensors() {
+        for (String sensorName : SensorConfigFactory.getSensorNames()) {
+            final SensorLayout layout = new SensorLayout(SensorConfigFactory.create(sensorName));
+            assertEquals(sensorName, 0, layout.getIndex410());
+            assertEquals(sensorName, 1, layout.getIndex440());
+            assertEquals(sensorName, 2, layout.getIndex490());
+            assertEquals(sensorName, 4, layout.getIndexReference());
+            assertEquals(sensorName, 5, layout.getIndex670());
+            assertEquals(sensorName, 16, layout.getBandLayout().getNumIopBands());
+        }
+    }
+
+    @Test
+    public void testBandLayout_roundsWavelengths() {
+        final SensorConfig config = createDescriptor(new double[]{413.0, 442.5, 490.0, 510.0, 559.6, 665.0}, 5, 3);
+
+        final QaaBandLayout bandLayout = new SensorLayout(config).getBandLayout();
+        assertArrayEquals(new String[]{"a_total_413", "a_total_443", "a_total_490", "a_total_510", "a_total_560"},
+                          Arrays.copyOf(bandLayout.getIopBandNames(), 5));
+    }
+
+    @Test
+    public void testMoreBands() throws ImaginaryNumberException {
+        final ConfAlgorithm algorithm = new ConfAlgorithm(createDescriptor(WAVELENGTHS_620, 6, 3));
+        final QaaBandLayout bandLayout = algorithm.getSensorLayout().getBandLayout();
+        assertEquals(6, algorithm.getSensorLayout().getIndex670());
+        assertEquals("a_total_620", bandLayout.getIopBandNames()[5]);
+
+        final QaaResult expected = new ConfAlgorithm(new MerisConfig()).process(RRS, null);
+        final QaaResult actual = algorithm.process(RRS_620, null);
+        assertEquals(6, actual.getA_Total().length);
+        for (int i = 0; i < expected.getA_Total().length; i++) {
+            assertEquals(expected.getA_Total()[i], actual.getA_Total()[i], 0.0f);
+            assertEquals(expected.getBB_SPM()[i], actual.getBB_SPM()[i], 0.0f);
+        }
+        assertArrayEquals(expected.getA_PIG(), actual.getA_PIG(), 0.0f);
+        assertArrayEquals(expected.getA_YS(), actual.getA_YS(), 0.0f);
+
+        final QaaConfig config = new QaaConfig();
+        config.setDivideByPi(false);
+        config.setATotalUpper(Float.MAX_VALUE);
+        config.setBbSpmsUpper(Float.MAX_VALUE);
+        algorithm.setConfig(config);
+        final float[][] rrsByBand = new float[RRS_620.length][1];
+        for (int b = 0; b < RRS_620.length; b++) {
+            rrsByBand[b][0] = RRS_620[b];
+        }
+        final QaaResultBuffer buffer = new QaaResultBuffer(bandLayout, 1);
+        algorithm.processBatch(rrsByBand, 0, 1, buffer);
+        assertEquals(QaaConstants.FLAG_MASK_VALID, buffer.getFlags(0) & QaaConstants.FLAG_MASK_VALID);
+        assertEquals(actual.getA_Total()[5], buffer.getA_Total()[5][0], 0.0f);
+        assertEquals(actual.getBB_SPM()[5], buffer.getBB_SPM()[5][0], 0.0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSameBandForTwoPurposes() {
+        new SensorLayout(createDescriptor(new double[]{412.0, 443.0, 490.0, 667.0}, 3, 2));
+    }
+
+    private static SensorDescriptor createDescriptor(final double[] wavelengths, final int numATotalBands,
+                                                     final int numAPigBands) {
+        final MerisConfig template = new MerisConfig();
+        final double[] absorptions = new double[wavelengths.length];
+        final double[] backscatters = new double[wavelengths.length];
+        for (int i = 0; i < wavelengths.length; i++) {
+            // the coefficients of the MERIS band nearest to the wavelength
+            int nearest = 0;
+            for (int j = 1; j < template.getWavelengths().length; j++) {
+                if (Math.abs(template.getWavelengths()[j] - wavelengths[i]) <
+                    Math.abs(template.getWavelengths()[nearest] - wavelengths[i])) {
+                    nearest = j;
+                }
+            }
+            absorptions[i] = template.getSpecificAbsorptions()[nearest];
+            backscatters[i] = template.getSpecficBackscatters()[nearest];
+        }
+        return new SensorDescriptor() {
+            @Override
+            public int getNumATotalBands() {
+                return numATotalBands;
+            }
+
+            @Override
+            public int getNumAPigBands() {
+                return numAPigBands;
+            }
+
+            @Override
+            public double[] getAwCoefficients() {
+                return template.getAwCoefficients();
+            }
+
+            @Override
+            public double getReferenceWavelength() {
+                return template.getReferenceWavelength();
+            }
+
+            @Override
+            public double[] getWavelengths() {
+                return wavelengths;
+            }
+
+            @Override
+            public double[] getSpecificAbsorptions() {
+                return absorptions;
+            }
+
+            @Override
+            public double[] getSpecficBackscatters() {
+                return backscatters;
+            }
+        };
+    }
+}
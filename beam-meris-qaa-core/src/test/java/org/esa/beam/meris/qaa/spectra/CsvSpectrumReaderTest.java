@@ -0,0 +1,57 @@
+package org.esa.beam.meris.qaa.spectra;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class CsvSpectrumReaderTest {
+
+    @Test
+    public void testRead_headerCommentsAndSeparators() throws IOException {
+        final String text = "# simulation set 1\n" +
+                            "rrs_412,rrs_443,rrs_490,rrs_510,rrs_560,rrs_620,rrs_665\n" +
+                            "0.01,0.02,0.03,0.04,0.05,0.06,0.07\n" +
+                            "\n" +
+                            "0.11;0.12;0.13;0.14;0.15;0.16;0.17\n" +
+                            "0.21\t0.22\t0.23\t0.24\t0.25\t0.26\t0.27\n" +
+                            "0.31 0.32  0.33 0.34 0.35 0.36 0.37\n" +
+                            "0.41,,0.43,0.44,0.45,0.46,NaN\n";
+        final CsvSpectrumReader reader = new CsvSpectrumReader(new StringReader(text));
+        final float[][] rrsByBand = new float[7][3];
+
+        assertEquals(3, reader.read(rrsByBand));
+        assertEquals(0.01f, rrsByBand[0][0], 0.0f);
+        assertEquals(0.17f, rrsByBand[6][1], 0.0f);
+        assertEquals(0.23f, rrsByBand[2][2], 0.0f);
+
+        assertEquals(2, reader.read(rrsByBand));
+        assertEquals(0.37f, rrsByBand[6][0], 0.0f);
+        assertEquals(0.41f, rrsByBand[0][1], 0.0f);
+        assertTrue(Float.isNaN(rrsByBand[1][1]));
+        assertTrue(Float.isNaN(rrsByBand[6][1]));
+
+        assertEquals(0, reader.read(rrsByBand));
+    }
+
+    @Test
+    public void testRead_withoutHeader() throws IOException {
+        final CsvSpectrumReader reader = new CsvSpectrumReader(new StringReader("1,2,3,4,5,6,7\n"));
+        final float[][] rrsByBand = new float[7][4];
+
+        assertEquals(1, reader.read(rrsByBand));
+        assertEquals(1.0f, rrsByBand[0][0], 0.0f);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_wrongNumberOfValues() throws IOException {
+        new CsvSpectrumReader(new StringReader("1,2,3,4,5,6\n")).read(new float[7][4]);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_notANumber() throws IOException {
+        new CsvSpectrumReader(new StringReader("1,2,3,4,5,6,7\n1,2,x,4,5,6,7\n")).read(new float[7][4]);
+    }
+}
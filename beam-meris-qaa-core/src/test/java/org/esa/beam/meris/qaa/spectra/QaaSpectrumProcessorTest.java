@@ -0,0 +1,142 @@
+package org.esa.beam.meris.qaa.spectra;
+
+import org.esa.beam.meris.qaa.algorithm.QaaAlgorithm;
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.esa.beam.meris.qaa.algorithm.QaaResult;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class QaaSpectrumProcessorTest {
+
+    private static final float[][] SPECTRA = {
+            {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f},
+            {0.0020f, 0.0025f, 0.0041f, 0.0052f, 0.0070f, 0.0023f, 0.0019f},
+            {-0.2f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f},
+            {0.012f, 0.013f, 0.014f, 0.012f, 0.009f, 0.002f, 0.0015f}
+    };
+    private static final int NUM_SPECTRA = 103;
+
+    @Test
+    public void testProcess_float32() throws IOException {
+        final ByteBuffer input = ByteBuffer.allocate(NUM_SPECTRA * 7 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < NUM_SPECTRA; i++) {
+            for (float rrs : getSpectrum(i)) {
+                input.putFloat(rrs);
+            }
+        }
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // small batches and several threads, so the batches are recycled and finish out of order
+        final long count = new QaaSpectrumProcessor(new QaaConfig(), 3, 5).process(
+                new ByteArrayInputStream(input.array()), output, SpectrumFormat.FLOAT32);
+
+        assertEquals(NUM_SPECTRA, count);
+        final ByteBuffer results = ByteBuffer.wrap(output.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(NUM_SPECTRA * 17 * 4, results.remaining());
+        for (int i = 0; i < NUM_SPECTRA; i++) {
+            final float[] record = new float[17];
+            for (int j = 0; j < record.length; j++) {
+                record[j] = results.getFloat();
+            }
+            assertRecordEquals(i, expectedRecord(getSpectrum(i)), record);
+        }
+    }
+
+    @Test
+    public void testProcess_csv() throws IOException {
+        final StringBuilder input = new StringBuilder("Rrs412,Rrs443,Rrs490,Rrs510,Rrs560,Rrs620,Rrs665\n");
+        for (int i = 0; i < NUM_SPECTRA; i++) {
+            final float[] spectrum = getSpectrum(i);
+            for (int b = 0; b < spectrum.length; b++) {
+                input.append(b > 0 ? "," : "").append(spectrum[b]);
+            }
+            input.append('\n');
+        }
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        final long count = new QaaSpectrumProcessor(new QaaConfig(), 2, 8).process(
+                new ByteArrayInputStream(input.toString().getBytes("US-ASCII")), output, SpectrumFormat.CSV);
+
+        assertEquals(NUM_SPECTRA, count);
+        final String[] lines = output.toString("US-ASCII").split("\n");
+        assertEquals(NUM_SPECTRA + 1, lines.length);
+        assertTrue(lines[0].startsWith("a_total_412,a_total_443,"));
+        assertTrue(lines[0].endsWith(",a_ys_490,flags"));
+        for (int i = 0; i < NUM_SPECTRA; i++) {
+            final String[] values = lines[i + 1].split(",");
+            final float[] record = new float[values.length];
+            for (int j = 0; j < values.length; j++) {
+                record[j] = Float.parseFloat(values[j]);
+            }
+            assertRecordEquals(i, expectedRecord(getSpectrum(i)), record);
+        }
+    }
+
+    @Test
+    public void testProcess_incompleteSpectrumIsInvalid() throws IOException {
+        final String input = "0.01,0.02,0.03,0.04,0.05,,0.07\n";
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new QaaSpectrumProcessor(new QaaConfig(), 1, 4).process(new ByteArrayInputStream(input.getBytes("US-ASCII")),
+                                                                 output, SpectrumFormat.CSV);
+
+        final String[] lines = output.toString("US-ASCII").split("\n");
+        assertTrue(lines[1].startsWith("NaN,NaN,"));
+        assertTrue(lines[1].endsWith(",8"));
+    }
+
+    @Test
+    public void testProcess_emptyInput() throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        final long count = new QaaSpectrumProcessor(new QaaConfig(), 2, 4).process(
+                new ByteArrayInputStream(new byte[0]), output, SpectrumFormat.FLOAT32);
+
+        assertEquals(0, count);
+        assertEquals(0, output.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testProcess_truncatedRecord() throws IOException {
+        new QaaSpectrumProcessor(new QaaConfig(), 2, 4).process(new ByteArrayInputStream(new byte[7 * 4 + 3]),
+                                                                 new ByteArrayOutputStream(), SpectrumFormat.FLOAT32);
+    }
+
+    private static float[] getSpectrum(int index) {
+        return SPECTRA[index % SPECTRA.length];
+    }
+
+    private static float[] expectedRecord(float[] spectrum) {
+        final QaaResult result = new QaaAlgorithm().process(spectrum, null);
+        final float[] record = new float[17];
+        int j = 0;
+        for (float value : result.getA_Total()) {
+            record[j++] = value;
+        }
+        for (float value : result.getBB_SPM()) {
+            record[j++] = value;
+        }
+        for (float value : result.getA_PIG()) {
+            record[j++] = value;
+        }
+        for (float value : result.getA_YS()) {
+            record[j++] = value;
+        }
+        record[j] = result.getFlags();
+        return record;
+    }
+
+    private static void assertRecordEquals(int index, float[] expected, float[] actual) {
+        assertEquals("spectrum " + index, expected.length, actual.length);
+        for (int j = 0; j < expected.length; j++) {
+            assertEquals("spectrum " + index + ", value " + j, expected[j], actual[j], 1.0e-6f);
+        }
+    }
+}
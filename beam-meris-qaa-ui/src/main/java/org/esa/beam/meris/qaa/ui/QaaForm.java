@@ -69,6 +69,8 @@ public class QaaForm extends JTabbedPane {
     private JScrollPane createParametersPanel(final AppContext appContext, PropertySet propertySet) {
         PropertyDescriptor validExpressionDescriptor = propertySet.getDescriptor("validPixelExpression");
         validExpressionDescriptor.setAttribute("propertyEditor", new ExpressionPropertyEditor(appContext));
+        // the bound variants are a list of structures, they can only be given in graph and parameter files
+        propertySet.getDescriptor("boundsVariants").setAttribute("visible", false);
         PropertyPane parametersPane = new PropertyPane(propertySet);
         final JPanel parametersPanel = parametersPane.createPanel();
         parametersPanel.setBorder(new EmptyBorder(4, 4, 4, 4));
@@ -0,0 +1,552 @@
+package org.esa.beam.meris.qaa;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.FlagCoding;
+import org.esa.beam.framework.datamodel.Mask;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.framework.gpf.Operator;
+import org.esa.beam.framework.gpf.OperatorException;
+import org.esa.beam.framework.gpf.Tile;
+import org.esa.beam.jai.ResolutionLevel;
+import org.esa.beam.jai.VirtualBandOpImage;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaBoundsFilter;
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.esa.beam.meris.qaa.algorithm.QaaConstants;
+import org.esa.beam.meris.qaa.algorithm.QaaIntegerEncoding;
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+import org.esa.beam.util.ProductUtils;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The tile engine shared by the QAA operators. It creates the IOP and flag bands of the target product and
+ * feeds the valid pixels of each tile line by line as batches into the {@link BatchProcessor} of the subclass.
+ * The target product has one or more output sets, each consisting of IOP bands and a flag band whose names are
+ * suffixed with the suffix of the set.
+ */
+abstract class AbstractQaaOp extends Operator {
+
+    static final String ENCODING_FLOAT32 = "FLOAT32";
+    static final String ENCODING_INT16 = "INT16";
+    static final String ENCODING_UINT16 = "UINT16";
+    static final String UNBOUNDED_PRODUCT_TYPE = "QAA_L2_UNBOUNDED";
+
+    private static final String PRODUCT_TYPE = "QAA_L2";
+
+    // in the order of QaaBandLayout.getGroupNames()
+    private static final String[] GROUP_DESCRIPTIONS = {
+            "Total absorption coefficient of all water constituents at %d nm.",
+            "Backscattering of suspended particulate matter at %d nm.",
+            "Pigment absorption coefficient at %d nm.",
+            "Yellow substance absorption coefficient at %d nm."
+    };
+    private static final String FLAG_CODING = "analytical_flags";
+    static final String ANALYSIS_FLAG_BAND_NAME = FLAG_CODING;
+
+    private VirtualBandOpImage validOpImage;
+    private QaaBandLayout bandLayout;
+    private Band[] sourceBands;
+    private Band[][] targetBands;
+    private boolean rawInput;
+    private QaaIntegerEncoding[] integerEncodings;
+    private QaaTileCache tileCache;
+    private String tileCacheKey;
+
+    /**
+     * Processes a batch of valid pixels of a tile. A processor is created per tile and is therefore only used by
+     * one thread.
+     */
+    interface BatchProcessor {
+
+        /**
+         * @param offset the index of the first pixel
+         * @param count  the number of pixels
+         * @param outs   receive the results, one buffer per output set in the order of the suffixes
+         */
+        void processBatch(int offset, int count, QaaResultBuffer[] outs);
+    }
+
+    /**
+     * @param rrsByBand the geophysical source samples of the tile, rrsByBand[band][pixel]
+     * @return a new processor for the pixels of the tile
+     */
+    abstract BatchProcessor createBatchProcessor(float[][] rrsByBand);
+
+    /**
+     * Only called if the tile engine has been initialised for raw input.
+     *
+     * @param rawByBand the raw source samples of the tile, rawByBand[band][pixel]
+     * @return a new processor for the pixels of the tile
+     */
+    BatchProcessor createBatchProcessor(short[][] rawByBand) {
+        throw new IllegalStateException("Raw input is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Creates and sets the target product. Must be called from {@link #initialize()}.
+     *
+     * @param sourceProduct        the source product
+     * @param sourceBands          the reflectance bands in the order expected by the batch processor
+     * @param validPixelExpression the expression defining the pixels to be processed
+     * @param bandLayout           the layout of the IOP bands, defining their indexes and names
+     */
+    void initTileEngine(Product sourceProduct, Band[] sourceBands, String validPixelExpression,
+                        QaaBandLayout bandLayout) {
+        initTileEngine(sourceProduct, sourceBands, validPixelExpression, bandLayout, false,
+                       selectIopBands(null, bandLayout), null);
+    }
+
+    /**
+     * Same as {@link #initTileEngine(Product, Band[], String, QaaBandLayout)}, but if rawInput is set the raw
+     * samples of the source bands, which must be 16-bit integer bands, are passed to
+     * {@link #createBatchProcessor(short[][])}. Only the IOP bands selected by iopSelection are added to the
+     * target product, the arrays of the other bands are {@code null} in the result buffer. If an integer encoding
+     * is given, the IOP bands are written as scaled 16-bit integers, otherwise as floats.
+     */
+    void initTileEngine(Product sourceProduct, Band[] sourceBands, String validPixelExpression,
+                        QaaBandLayout bandLayout, boolean rawInput, boolean[] iopSelection,
+                        QaaIntegerEncoding integerEncoding) {
+        initTileEngine(sourceProduct, sourceBands, validPixelExpression, bandLayout, rawInput, iopSelection,
+                       new String[]{""}, new QaaIntegerEncoding[]{integerEncoding});
+    }
+
+    /**
+     * Same as {@link #initTileEngine(Product, Band[], String, QaaBandLayout, boolean, boolean[], QaaIntegerEncoding)},
+     * but
+     * with an output set per suffix. The names of the bands, flag codings and masks of a set are suffixed with its
+     * suffix, the first set usually has the empty suffix. Each set has its own integer encoding, or {@code null}
+     * for float output.
+     */
+    void initTileEngine(Product sourceProduct, Band[] sourceBands, String validPixelExpression,
+                        QaaBandLayout bandLayout, boolean rawInput, boolean[] iopSelection,
+                        String[] outputSetSuffixes, QaaIntegerEncoding[] integerEncodings) {
+        if (!sourceProduct.isCompatibleBandArithmeticExpression(validPixelExpression)) {
+            String message = String.format("The given expression '%s' is not compatible with the source product.",
+                                           validPixelExpression);
+            throw new OperatorException(message);
+        }
+        validOpImage = VirtualBandOpImage.createMask(validPixelExpression,
+                                                     sourceProduct,
+                                                     ResolutionLevel.MAXRES);
+        this.bandLayout = bandLayout;
+        this.sourceBands = sourceBands;
+        this.rawInput = rawInput;
+        this.integerEncodings = integerEncodings;
+        setTargetProduct(createTargetProduct(sourceProduct, iopSelection, outputSetSuffixes));
+    }
+
+    /**
+     * Enables the tile cache. The computed tiles are stored in the cache and read from it instead of being
+     * computed again. Must be called after the tile engine has been initialised.
+     *
+     * @param tileCache the cache
+     * @param key       identifies the source product and all parameters affecting the target samples
+     */
+    void setTileCache(QaaTileCache tileCache, String key) {
+        this.tileCache = tileCache;
+        this.tileCacheKey = key;
+    }
+
+    /**
+     * Resolves the output band names given by the user. A name is either the name of an IOP band, like
+     * "a_pig_443", or the name of a group, like "a_pig", which selects all bands of the group.
+     *
+     * @param outputBands the names, all IOP bands are selected if {@code null} or empty
+     * @param bandLayout  the layout of the IOP bands
+     * @return whether an IOP band is selected, indexed like the band indexes of the layout
+     * @throws OperatorException if a name is unknown
+     */
+    static boolean[] selectIopBands(String[] outputBands, QaaBandLayout bandLayout) {
+        final boolean[] selection = new boolean[bandLayout.getNumIopBands()];
+        if (outputBands == null || outputBands.length == 0) {
+            Arrays.fill(selection, true);
+            return selection;
+        }
+        for (String name : outputBands) {
+            if (!select(name.trim(), bandLayout, selection)) {
+                throw new OperatorException(String.format(
+                        "Unknown output band '%s', expected one of %s or a band name like '%s'",
+                        name, Arrays.toString(QaaBandLayout.getGroupNames()),
+                        bandLayout.getIopBandNames()[bandLayout.getAPigBandIndexes()[0]]));
+            }
+        }
+        return selection;
+    }
+
+    private static boolean select(String name, QaaBandLayout bandLayout, boolean[] selection) {
+        final String[] groupNames = QaaBandLayout.getGroupNames();
+        final String[] iopBandNames = bandLayout.getIopBandNames();
+        boolean found = false;
+        for (int g = 0; g < groupNames.length; g++) {
+            final boolean isGroup = name.equals(groupNames[g]);
+            for (int bandIndex : bandLayout.getGroupBandIndexes(g)) {
+                if (isGroup || name.equals(iopBandNames[bandIndex])) {
+                    selection[bandIndex] = true;
+                    found = true;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param outputEncoding one of {@link #ENCODING_FLOAT32}, {@link #ENCODING_INT16} and {@link #ENCODING_UINT16}
+     * @param config         provides the valid ranges mapped onto the integers
+     * @param bandLayout     the layout of the IOP bands
+     * @return the integer encoding, or {@code null} for float output
+     * @throws OperatorException if a valid range cannot be encoded
+     */
+    static QaaIntegerEncoding createIntegerEncoding(String outputEncoding, QaaConfig config,
+                                                    QaaBandLayout bandLayout) {
+        if (ENCODING_FLOAT32.equals(outputEncoding)) {
+            return null;
+        }
+        try {
+            return new QaaIntegerEncoding(ENCODING_INT16.equals(outputEncoding), config, bandLayout);
+        } catch (IllegalArgumentException e) {
+            throw new OperatorException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes the bounds of the configuration, so that the IOPs are written unbounded and can be re-thresholded
+     * by {@link QaaRethresholdOp}. The product type of the target product has to be set to
+     * {@link #UNBOUNDED_PRODUCT_TYPE}.
+     *
+     * @param config         the configuration to change
+     * @param outputEncoding the output encoding, must be {@link #ENCODING_FLOAT32}
+     * @throws OperatorException if the output encoding is an integer encoding, which requires bounds
+     */
+    static void removeBounds(QaaConfig config, String outputEncoding) {
+        if (!ENCODING_FLOAT32.equals(outputEncoding)) {
+            throw new OperatorException(String.format(
+                    "Unbounded IOPs can only be written with the output encoding %s", ENCODING_FLOAT32));
+        }
+        QaaBoundsFilter.removeBounds(config);
+    }
+
+    /**
+     * @param iopSelection the selected IOP bands
+     * @param groups       the band indexes of the groups to check, e.g. {@link QaaBandLayout#getAPigBandIndexes()}
+     * @return whether a band of one of the groups is selected
+     */
+    static boolean isAnySelected(boolean[] iopSelection, int[]... groups) {
+        for (int[] bandIndexes : groups) {
+            for (int bandIndex : bandIndexes) {
+                if (iopSelection[bandIndex]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Product createTargetProduct(Product sourceProduct, boolean[] iopSelection, String[] outputSetSuffixes) {
+        final int sceneWidth = sourceProduct.getSceneRasterWidth();
+        final int sceneHeight = sourceProduct.getSceneRasterHeight();
+        final Product targetProduct = new Product(sourceProduct.getName(), PRODUCT_TYPE, sceneWidth, sceneHeight);
+        targetProduct.setStartTime(sourceProduct.getStartTime());
+        targetProduct.setEndTime(sourceProduct.getEndTime());
+        ProductUtils.copyMetadata(sourceProduct, targetProduct);
+        ProductUtils.copyGeoCoding(sourceProduct, targetProduct);
+
+        targetBands = new Band[outputSetSuffixes.length][];
+        for (int s = 0; s < outputSetSuffixes.length; s++) {
+            targetBands[s] = addOutputSet(targetProduct, bandLayout, iopSelection, outputSetSuffixes[s],
+                                          integerEncodings[s]);
+        }
+        return targetProduct;
+    }
+
+    private static Band[] addOutputSet(Product targetProduct, QaaBandLayout bandLayout, boolean[] iopSelection,
+                                       String suffix, QaaIntegerEncoding integerEncoding) {
+        final Band[] bands = new Band[bandLayout.getNumIopBands() + 1];
+        final String[] iopBandNames = bandLayout.getIopBandNames();
+        for (int g = 0; g < GROUP_DESCRIPTIONS.length; g++) {
+            for (int bandIndex : bandLayout.getGroupBandIndexes(g)) {
+                if (iopSelection[bandIndex]) {
+                    bands[bandIndex] = addBand(targetProduct, bandIndex, iopBandNames[bandIndex],
+                                               bandLayout.getWavelength(bandIndex), suffix, GROUP_DESCRIPTIONS[g],
+                                               integerEncoding);
+                }
+            }
+        }
+
+        final String flagBandName = ANALYSIS_FLAG_BAND_NAME + suffix;
+        final FlagCoding flagCoding = new FlagCoding(FLAG_CODING + suffix);
+        flagCoding.setDescription("QAA-for-IOP specific flags.");
+        targetProduct.getFlagCodingGroup().add(flagCoding);
+
+        //noinspection PointlessBitwiseExpression
+        addFlagAndMask(targetProduct, flagCoding, flagBandName, suffix, "normal", "Valid water pixels",
+                       QaaConstants.FLAG_MASK_VALID, Color.BLUE);
+        addFlagAndMask(targetProduct, flagCoding, flagBandName, suffix, "imaginary_number",
+                       "Pixels that are classified as water, but an imaginary number would have been produced",
+                       QaaConstants.FLAG_MASK_IMAGINARY, Color.RED);
+        addFlagAndMask(targetProduct, flagCoding, flagBandName, suffix, "negative_a_ys",
+                       "Pixels that are classified  as water, but one or more of the bands contain a negative a_ys value",
+                       QaaConstants.FLAG_MASK_NEGATIVE_AYS, Color.YELLOW);
+        addFlagAndMask(targetProduct, flagCoding, flagBandName, suffix, "non_water",
+                       "Pixels that are not classified as a water pixel (land/cloud)",
+                       QaaConstants.FLAG_MASK_INVALID, Color.BLACK);
+        addFlagAndMask(targetProduct, flagCoding, flagBandName, suffix, "a_total_oob",
+                       "At least one value of the a_total spectrum is out of bounds",
+                       QaaConstants.FLAG_MASK_A_TOTAL_OOB, Color.CYAN);
+        addFlagAndMask(targetProduct, flagCoding, flagBandName, suffix, "bb_spm_oob",
+                       "At least one value of the bb_spm spectrum is out of bounds",
+                       QaaConstants.FLAG_MASK_BB_SPM_OOB, Color.MAGENTA);
+        addFlagAndMask(targetProduct, flagCoding, flagBandName, suffix, "a_pig_oob",
+                       "At least one value of the a_pig spectrum is out of bounds",
+                       QaaConstants.FLAG_MASK_A_PIG_OOB, Color.ORANGE);
+        addFlagAndMask(targetProduct, flagCoding, flagBandName, suffix, "a_ys_oob",
+                       "At least one value of the a_ys spectrum is out of bounds",
+                       QaaConstants.FLAG_MASK_A_YS_OOB, Color.PINK);
+
+        final int sceneWidth = targetProduct.getSceneRasterWidth();
+        final int sceneHeight = targetProduct.getSceneRasterHeight();
+        Band analyticalFlagBand = new Band(flagBandName, ProductData.TYPE_UINT8, sceneWidth, sceneHeight);
+        analyticalFlagBand.setSampleCoding(flagCoding);
+        targetProduct.addBand(analyticalFlagBand);
+        bands[bandLayout.getFlagBandIndex()] = analyticalFlagBand;
+        return bands;
+    }
+
+    @Override
+    public void computeTileStack(Map<Band, Tile> targetTiles, Rectangle targetRectangle, ProgressMonitor pm) throws
+            OperatorException {
+        pm.beginTask("Computing QAA IOPs", targetRectangle.height);
+        try {
+            final OutputSet[] outputSets = new OutputSet[targetBands.length];
+            final QaaResultBuffer[] resultBuffers = new QaaResultBuffer[targetBands.length];
+            for (int s = 0; s < targetBands.length; s++) {
+                outputSets[s] = new OutputSet(targetBands[s], bandLayout, integerEncodings[s], targetTiles);
+                resultBuffers[s] = outputSets[s].resultBuffer;
+            }
+            if (tileCache != null) {
+                final Object[] sampleArrays = getSampleArrays(outputSets);
+                final String key = QaaTileCache.createKey(tileCacheKey, targetRectangle.toString());
+                if (tileCache.read(key, sampleArrays)) {
+                    pm.worked(targetRectangle.height);
+                } else {
+                    computeSamples(targetRectangle, outputSets, resultBuffers, pm);
+                    tileCache.write(key, sampleArrays);
+                }
+            } else {
+                computeSamples(targetRectangle, outputSets, resultBuffers, pm);
+            }
+
+            for (OutputSet outputSet : outputSets) {
+                outputSet.setTargetSamples(targetTiles);
+            }
+        } finally {
+            pm.done();
+        }
+    }
+
+    private void computeSamples(Rectangle targetRectangle, OutputSet[] outputSets, QaaResultBuffer[] resultBuffers,
+                                ProgressMonitor pm) {
+        final int[] validSamples = getValidSamples(targetRectangle);
+        if (containsValidSample(validSamples)) {
+            final BatchProcessor processor = createBatchProcessor(targetRectangle);
+            final int width = targetRectangle.width;
+            for (int lineStart = 0; lineStart < validSamples.length; lineStart += width) {
+                checkForCancellation();
+                processLine(validSamples, lineStart, lineStart + width, resultBuffers, processor);
+                for (OutputSet outputSet : outputSets) {
+                    outputSet.encode(lineStart, width);
+                }
+                pm.worked(1);
+            }
+        } else {
+            // e.g. land or clouds, the source tiles are not requested at all
+            for (OutputSet outputSet : outputSets) {
+                outputSet.resultBuffer.invalidate(0, validSamples.length);
+                outputSet.encode(0, validSamples.length);
+            }
+            pm.worked(targetRectangle.height);
+        }
+    }
+
+    /*
+     * The raw sample arrays of all target bands, in the order of the output sets and their bands.
+     */
+    private static Object[] getSampleArrays(OutputSet[] outputSets) {
+        final List<Object> arrays = new ArrayList<Object>();
+        for (OutputSet outputSet : outputSets) {
+            for (ProductData data : outputSet.targetData) {
+                if (data != null) {
+                    arrays.add(data.getElems());
+                }
+            }
+        }
+        return arrays.toArray();
+    }
+
+    static boolean containsValidSample(int[] validSamples) {
+        for (int validSample : validSamples) {
+            if (validSample != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BatchProcessor createBatchProcessor(Rectangle targetRectangle) {
+        if (rawInput) {
+            final short[][] rawSamples = new short[sourceBands.length][];
+            for (int i = 0; i < sourceBands.length; i++) {
+                rawSamples[i] = (short[]) getSourceTile(sourceBands[i], targetRectangle).getRawSamples().getElems();
+            }
+            return createBatchProcessor(rawSamples);
+        }
+        final float[][] sourceSamples = new float[sourceBands.length][];
+        for (int i = 0; i < sourceBands.length; i++) {
+            sourceSamples[i] = getSourceTile(sourceBands[i], targetRectangle).getSamplesFloat();
+        }
+        return createBatchProcessor(sourceSamples);
+    }
+
+    /*
+     * Feeds each run of consecutive valid pixels of the line as one batch into the processor.
+     */
+    private static void processLine(int[] validSamples, int lineStart, int lineEnd,
+                                    QaaResultBuffer[] resultBuffers, BatchProcessor processor) {
+        int runStart = lineStart;
+        while (runStart < lineEnd) {
+            final boolean valid = validSamples[runStart] != 0;
+            int runEnd = runStart + 1;
+            while (runEnd < lineEnd && (validSamples[runEnd] != 0) == valid) {
+                runEnd++;
+            }
+            if (valid) {
+                processor.processBatch(runStart, runEnd - runStart, resultBuffers);
+            } else {
+                for (QaaResultBuffer resultBuffer : resultBuffers) {
+                    resultBuffer.invalidate(runStart, runEnd - runStart);
+                }
+            }
+            runStart = runEnd;
+        }
+    }
+
+    static QaaResultBuffer createResultBuffer(QaaBandLayout bandLayout, float[][] iopSamples, byte[] flagSamples) {
+        return new QaaResultBuffer(bandLayout,
+                                   select(iopSamples, bandLayout.getATotalBandIndexes()),
+                                   select(iopSamples, bandLayout.getBbSpmBandIndexes()),
+                                   select(iopSamples, bandLayout.getAPigBandIndexes()),
+                                   select(iopSamples, bandLayout.getAYsBandIndexes()),
+                                   flagSamples);
+    }
+
+    private static float[][] select(float[][] iopSamples, int[] bandIndexes) {
+        final float[][] selection = new float[bandIndexes.length][];
+        for (int i = 0; i < bandIndexes.length; i++) {
+            selection[i] = iopSamples[bandIndexes[i]];
+        }
+        return selection;
+    }
+
+    private int[] getValidSamples(Rectangle rectangle) {
+        final Raster validRaster = validOpImage.getData(rectangle);
+        return validRaster.getSamples(rectangle.x, rectangle.y, rectangle.width, rectangle.height, 0, (int[]) null);
+    }
+
+    private static void addFlagAndMask(Product targetProduct, FlagCoding flagCoding, String flagBandName,
+                                       String suffix, String flagName, String flagDescription, int flagMask,
+                                       Color color) {
+        flagCoding.addFlag(flagName, flagMask, flagDescription);
+        final Mask mask = Mask.BandMathsType.create(flagName + suffix, flagDescription,
+                                                    targetProduct.getSceneRasterWidth(),
+                                                    targetProduct.getSceneRasterHeight(),
+                                                    flagBandName + "." + flagName,
+                                                    color, 0.5f);
+        targetProduct.getMaskGroup().add(mask);
+    }
+
+    private static Band addBand(Product targetProduct, int bandIndex, String iopBandName, int wavelength,
+                                String suffix, String descriptionPattern, QaaIntegerEncoding integerEncoding) {
+        String bandName = iopBandName + suffix;
+        final Band band;
+        if (integerEncoding != null) {
+            band = targetProduct.addBand(bandName, integerEncoding.isSigned() ? ProductData.TYPE_INT16
+                                                                              : ProductData.TYPE_UINT16);
+            band.setScalingFactor(integerEncoding.getScalingFactor(bandIndex));
+            band.setScalingOffset(integerEncoding.getScalingOffset(bandIndex));
+            band.setNoDataValue(integerEncoding.getNoDataValue());
+        } else {
+            band = targetProduct.addBand(bandName, ProductData.TYPE_FLOAT32);
+            band.setNoDataValue(QaaConstants.NO_DATA_VALUE);
+        }
+        band.setDescription(String.format(descriptionPattern, wavelength));
+        band.setUnit("m^-1");
+        band.setSpectralWavelength(wavelength);
+        band.setNoDataValueUsed(true);
+        return band;
+    }
+
+    /*
+     * The sample arrays of the target tiles of an output set. Bands which are not selected have neither a tile
+     * nor a sample array, with integer encoding the results go to float arrays and are encoded line by line.
+     */
+    private static class OutputSet {
+
+        private final Band[] bands;
+        private final QaaIntegerEncoding integerEncoding;
+        private final ProductData[] targetData;
+        private final float[][] iopSamples;
+        private final short[][] encodedSamples;
+        private final QaaResultBuffer resultBuffer;
+
+        OutputSet(Band[] bands, QaaBandLayout bandLayout, QaaIntegerEncoding integerEncoding,
+                  Map<Band, Tile> targetTiles) {
+            this.bands = bands;
+            this.integerEncoding = integerEncoding;
+            final int numIopBands = bandLayout.getNumIopBands();
+            final int flagBandIndex = bandLayout.getFlagBandIndex();
+            targetData = new ProductData[bands.length];
+            iopSamples = new float[numIopBands][];
+            encodedSamples = new short[numIopBands][];
+            for (int i = 0; i < numIopBands; i++) {
+                if (bands[i] != null) {
+                    targetData[i] = targetTiles.get(bands[i]).getRawSamples();
+                    if (integerEncoding != null) {
+                        encodedSamples[i] = (short[]) targetData[i].getElems();
+                        iopSamples[i] = new float[encodedSamples[i].length];
+                    } else {
+                        iopSamples[i] = (float[]) targetData[i].getElems();
+                    }
+                }
+            }
+            targetData[flagBandIndex] = targetTiles.get(bands[flagBandIndex]).getRawSamples();
+            resultBuffer = createResultBuffer(bandLayout, iopSamples, (byte[]) targetData[flagBandIndex].getElems());
+        }
+
+        void encode(int offset, int count) {
+            if (integerEncoding == null) {
+                return;
+            }
+            for (int i = 0; i < encodedSamples.length; i++) {
+                if (encodedSamples[i] != null) {
+                    integerEncoding.encode(i, iopSamples[i], encodedSamples[i], offset, count);
+                }
+            }
+        }
+
+        void setTargetSamples(Map<Band, Tile> targetTiles) {
+            for (int i = 0; i < bands.length; i++) {
+                if (bands[i] != null) {
+                    targetTiles.get(bands[i]).setRawSamples(targetData[i]);
+                }
+            }
+        }
+    }
+}
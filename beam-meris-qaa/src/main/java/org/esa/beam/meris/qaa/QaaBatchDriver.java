@@ -0,0 +1,433 @@
+package org.esa.beam.meris.qaa;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.beam.framework.dataio.ProductIO;
+import org.esa.beam.framework.dataio.ProductWriter;
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.framework.gpf.OperatorException;
+import org.esa.beam.framework.gpf.annotations.OperatorMetadata;
+import org.esa.beam.framework.gpf.annotations.Parameter;
+import org.esa.beam.util.logging.BeamLogManager;
+
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Processes many MERIS L2 products with {@link QaaOp} and can resume after an interruption. The target product is
+ * computed in rows of tiles, each row is written to a file in a staging directory next to the output and recorded
+ * in a {@link QaaJournal}. When all rows are present, the product is written from the row files into the staging
+ * directory and then moved into the output directory, the main file last. A product is therefore either complete
+ * or not present at all. The row files and the product files are synced to disk before they are moved, so a
+ * recorded row or a moved product survives a power loss.
+ * <p/>
+ * A run with the same parameters skips the completed products and rows. Products and rows are identified by the
+ * source file, its size and modification time, the operator version and the parameters, so changing one of them
+ * processes the product again.
+ */
+public class QaaBatchDriver {
+
+    static final int DEFAULT_ROW_HEIGHT = 512;
+    static final String DEFAULT_FORMAT = "BEAM-DIMAP";
+    static final String DEFAULT_JOURNAL_NAME = "qaa-batch.journal";
+    static final String OUTPUT_SUFFIX = "_QAA";
+    static final String STAGING_SUFFIX = ".partial";
+
+    private static final String ROW_FILE_PATTERN = "row-%05d.raw";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File outputDir;
+    private final String formatName;
+    private final int rowHeight;
+    private final Map<String, String> parameters;
+    private final QaaJournal journal;
+    private final Logger logger;
+
+    /**
+     * @param outputDir  the directory of the target products and the staging directories
+     * @param formatName the format of the target products
+     * @param rowHeight  the height of the rows the products are computed in, in lines
+     * @param parameters the parameters of {@link QaaOp} as text
+     * @param journal    records the completed products and rows
+     */
+    QaaBatchDriver(File outputDir, String formatName, int rowHeight, Map<String, String> parameters,
+                   QaaJournal journal) {
+        if (rowHeight <= 0) {
+            throw new IllegalArgumentException("The row height must be positive but is " + rowHeight);
+        }
+        this.outputDir = outputDir;
+        this.formatName = formatName;
+        this.rowHeight = rowHeight;
+        this.parameters = new TreeMap<String, String>(parameters);
+        this.journal = journal;
+        logger = BeamLogManager.getSystemLogger();
+    }
+
+    /**
+     * A product which cannot be processed is logged and skipped, so one corrupt file does not stop the batch.
+     *
+     * @param sourceFile the MERIS L2 product
+     * @return whether the product has been processed now or before
+     */
+    boolean processProduct(File sourceFile) {
+        try {
+            process(sourceFile);
+            return true;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("Failed to process '%s'", sourceFile), e);
+        } catch (OperatorException e) {
+            logger.log(Level.WARNING, String.format("Failed to process '%s'", sourceFile), e);
+        }
+        return false;
+    }
+
+    private void process(File sourceFile) throws IOException {
+        final String productKey = createProductKey(sourceFile, parameters, formatName, rowHeight);
+        if (journal.isProductCompleted(productKey)) {
+            logger.info(String.format("%s: already completed, skipped", sourceFile.getName()));
+            return;
+        }
+        final Product sourceProduct = ProductIO.readProduct(sourceFile);
+        if (sourceProduct == null) {
+            throw new IOException(String.format("No reader found for '%s'", sourceFile));
+        }
+        try {
+            final QaaOp op = new QaaOp();
+            op.setSourceProduct(sourceProduct);
+            setParameters(op, parameters);
+            final Product targetProduct = op.getTargetProduct();
+            try {
+                final String outputName = getBaseName(sourceFile) + OUTPUT_SUFFIX;
+                final File stagingDir = new File(outputDir, outputName + STAGING_SUFFIX);
+                final File rowDir = new File(stagingDir, "rows");
+                if (!rowDir.isDirectory() && !rowDir.mkdirs()) {
+                    throw new IOException("Cannot create the staging directory " + rowDir);
+                }
+                final int rowCount = computeRows(targetProduct, productKey, rowDir);
+                final File productDir = new File(stagingDir, "product");
+                final File mainFile = writeProduct(targetProduct, rowDir, rowCount, productDir, outputName);
+                syncTree(productDir);
+                moveIntoPlace(productDir, mainFile, outputDir);
+                journal.recordProduct(productKey, sourceFile.getAbsolutePath());
+                deleteTree(stagingDir);
+                logger.info(String.format("%s: completed", sourceFile.getName()));
+            } finally {
+                op.dispose();
+            }
+        } finally {
+            sourceProduct.dispose();
+        }
+    }
+
+    /*
+     * Computes the rows which are not recorded in the journal or whose file is missing or has not the expected size.
+     */
+    private int computeRows(Product targetProduct, String productKey, File rowDir) throws IOException {
+        final Band[] bands = targetProduct.getBands();
+        final int width = targetProduct.getSceneRasterWidth();
+        final int height = targetProduct.getSceneRasterHeight();
+        final int rowCount = (height + rowHeight - 1) / rowHeight;
+        final BitSet completedRows = journal.getCompletedRows(productKey);
+        int resumedCount = 0;
+        for (int row = 0; row < rowCount; row++) {
+            final File rowFile = new File(rowDir, String.format(ROW_FILE_PATTERN, row));
+            final int y = row * rowHeight;
+            final int h = Math.min(rowHeight, height - y);
+            if (completedRows.get(row) && rowFile.isFile() && rowFile.length() == getRowFileSize(bands, width, h)) {
+                resumedCount++;
+                continue;
+            }
+            final File tempFile = new File(rowDir, rowFile.getName() + TEMP_SUFFIX);
+            final RandomAccessFile file = new RandomAccessFile(tempFile, "rw");
+            final ImageOutputStream out = new FileImageOutputStream(file);
+            try {
+                // a temporary file left over by an interrupted run
+                file.setLength(0);
+                for (Band band : bands) {
+                    final ProductData data = band.createCompatibleRasterData(width, h);
+                    band.readRasterData(0, y, width, h, data, ProgressMonitor.NULL);
+                    data.writeTo(out);
+                }
+                out.flush();
+                file.getChannel().force(true);
+            } finally {
+                out.close();
+            }
+            Files.move(tempFile.toPath(), rowFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            journal.recordRow(productKey, row);
+        }
+        if (resumedCount > 0) {
+            logger.info(String.format("%s: resumed with %d of %d rows completed", targetProduct.getName(),
+                                      resumedCount, rowCount));
+        }
+        return rowCount;
+    }
+
+    /*
+     * Writes the product from the row files. A product directory left over by an interrupted run is replaced.
+     */
+    private File writeProduct(Product targetProduct, File rowDir, int rowCount, File productDir,
+                              String outputName) throws IOException {
+        final ProductWriter writer = ProductIO.getProductWriter(formatName);
+        if (writer == null) {
+            throw new IOException(String.format("No writer found for format '%s'", formatName));
+        }
+        deleteTree(productDir);
+        if (!productDir.mkdirs()) {
+            throw new IOException("Cannot create the staging directory " + productDir);
+        }
+        final File mainFile = new File(productDir,
+                                       outputName + writer.getWriterPlugIn().getDefaultFileExtensions()[0]);
+        final Band[] bands = targetProduct.getBands();
+        final int width = targetProduct.getSceneRasterWidth();
+        final int height = targetProduct.getSceneRasterHeight();
+        writer.writeProductNodes(targetProduct, mainFile);
+        try {
+            for (int row = 0; row < rowCount; row++) {
+                final int y = row * rowHeight;
+                final int h = Math.min(rowHeight, height - y);
+                final ImageInputStream in = new FileImageInputStream(new File(rowDir,
+                                                                              String.format(ROW_FILE_PATTERN, row)));
+                try {
+                    for (Band band : bands) {
+                        final ProductData data = band.createCompatibleRasterData(width, h);
+                        data.readFrom(in);
+                        if (writer.shouldWrite(band)) {
+                            writer.writeBandRasterData(band, 0, y, width, h, data, ProgressMonitor.NULL);
+                        }
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        return mainFile;
+    }
+
+    /**
+     * @return the size of a row file holding h lines of the bands
+     */
+    static long getRowFileSize(Band[] bands, int width, int h) {
+        long size = 0;
+        for (Band band : bands) {
+            size += (long) width * h * ProductData.getElemSize(band.getDataType());
+        }
+        return size;
+    }
+
+    /**
+     * Forces the content of the file, or of all files below the directory, to disk.
+     *
+     * @param file the file or directory
+     * @throws IOException if a file cannot be synced
+     */
+    static void syncTree(File file) throws IOException {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                syncTree(child);
+            }
+        } else if (file.isFile()) {
+            final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+            try {
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Moves the files of a product into the directory. A product is recognised by its main file, so an existing
+     * main file is removed first and the new one is moved last. Each file is moved atomically.
+     *
+     * @param productDir the directory containing the main file and the other files of the product
+     * @param mainFile   the main file
+     * @param targetDir  the target directory, on the same file system
+     * @throws IOException if a file cannot be moved
+     */
+    static void moveIntoPlace(File productDir, File mainFile, File targetDir) throws IOException {
+        final File targetMainFile = new File(targetDir, mainFile.getName());
+        deleteTree(targetMainFile);
+        final File[] files = productDir.listFiles();
+        if (files == null) {
+            throw new IOException("Cannot list the staging directory " + productDir);
+        }
+        for (File file : files) {
+            if (!file.equals(mainFile)) {
+                final File targetFile = new File(targetDir, file.getName());
+                deleteTree(targetFile);
+                Files.move(file.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        Files.move(mainFile.toPath(), targetMainFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the key identifying the product and the parameters in the journal
+     */
+    static String createProductKey(File sourceFile, Map<String, String> parameters, String formatName,
+                                   int rowHeight) {
+        final String version = QaaOp.class.getAnnotation(OperatorMetadata.class).version();
+        return QaaTileCache.createKey(sourceFile.getAbsolutePath(), String.valueOf(sourceFile.length()),
+                                      String.valueOf(sourceFile.lastModified()), version,
+                                      new TreeMap<String, String>(parameters).toString(), formatName,
+                                      String.valueOf(rowHeight));
+    }
+
+    /*
+     * Only parameters of simple types can be given as text, the bound variants cannot.
+     */
+    private static void setParameters(QaaOp op, Map<String, String> parameters) {
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            op.setParameter(entry.getKey(), convertParameter(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * @param name the name of a parameter of {@link QaaOp}
+     * @param text the value as text, arrays are separated by commas
+     * @return the value in the type of the parameter
+     * @throws IllegalArgumentException if the parameter is unknown or the text cannot be converted
+     */
+    static Object convertParameter(String name, String text) {
+        final Field field;
+        try {
+            field = QaaOp.class.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("Unknown parameter '" + name + "'");
+        }
+        if (field.getAnnotation(Parameter.class) == null) {
+            throw new IllegalArgumentException("Unknown parameter '" + name + "'");
+        }
+        final Class<?> type = field.getType();
+        if (type == String.class) {
+            return text;
+        } else if (type == float.class) {
+            return Float.valueOf(text);
+        } else if (type == int.class) {
+            return Integer.valueOf(text);
+        } else if (type == boolean.class) {
+            return Boolean.valueOf(text);
+        } else if (type == File.class) {
+            return new File(text);
+        } else if (type == String[].class) {
+            final String[] values = text.split(",");
+            for (int i = 0; i < values.length; i++) {
+                values[i] = values[i].trim();
+            }
+            return values;
+        } else if (type.isEnum()) {
+            for (Object constant : type.getEnumConstants()) {
+                if (((Enum) constant).name().equals(text)) {
+                    return constant;
+                }
+            }
+            throw new IllegalArgumentException(String.format("Invalid value '%s' of parameter '%s'", text, name));
+        }
+        throw new IllegalArgumentException(String.format("Parameter '%s' cannot be given as text", name));
+    }
+
+    private static String getBaseName(File file) {
+        final String name = file.getName();
+        final int dotIndex = name.lastIndexOf('.');
+        return dotIndex > 0 ? name.substring(0, dotIndex) : name;
+    }
+
+    private static void deleteTree(File file) throws IOException {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot delete " + file);
+        }
+    }
+
+    public static void main(String[] args) {
+        File journalFile = null;
+        int rowHeight = DEFAULT_ROW_HEIGHT;
+        String formatName = DEFAULT_FORMAT;
+        final Map<String, String> parameters = new TreeMap<String, String>();
+        final List<String> files = new ArrayList<String>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-journal".equals(args[i])) {
+                    journalFile = new File(args[++i]);
+                } else if ("-rowHeight".equals(args[i])) {
+                    rowHeight = Integer.parseInt(args[++i]);
+                } else if ("-format".equals(args[i])) {
+                    formatName = args[++i];
+                } else if (args[i].startsWith("-P") && args[i].indexOf('=') > 2) {
+                    final int equalsIndex = args[i].indexOf('=');
+                    final String name = args[i].substring(2, equalsIndex);
+                    final String value = args[i].substring(equalsIndex + 1);
+                    convertParameter(name, value);
+                    parameters.put(name, value);
+                } else {
+                    files.add(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            files.clear();
+        }
+        if (files.size() < 2) {
+            System.err.println("Usage: QaaBatchDriver [-journal <file>] [-rowHeight <lines>] [-format <name>] " +
+                               "[-P<parameter>=<value>]... <output dir> <product>...");
+            System.exit(1);
+        }
+        final File outputDir = new File(files.get(0));
+        if (journalFile == null) {
+            journalFile = new File(outputDir, DEFAULT_JOURNAL_NAME);
+        }
+        int failedCount = 0;
+        try {
+            if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+                throw new IOException("Cannot create the output directory " + outputDir);
+            }
+            final QaaJournal journal = new QaaJournal(journalFile);
+            try {
+                final QaaBatchDriver driver = new QaaBatchDriver(outputDir, formatName, rowHeight, parameters,
+                                                                 journal);
+                for (String productPath : files.subList(1, files.size())) {
+                    if (!driver.processProduct(new File(productPath))) {
+                        failedCount++;
+                    }
+                }
+            } finally {
+                journal.close();
+            }
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+        if (failedCount > 0) {
+            System.err.println(String.format("%d of %d products failed", failedCount, files.size() - 1));
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+
+/**
+ * A named set of valid value ranges for which {@link QaaOp} writes an additional set of IOP bands and a flag band,
+ * suffixed with the name. Bounds which are not given are taken from the operator.
+ */
+public class QaaBoundsVariant {
+
+    public String name;
+    public Float aTotalLower;
+    public Float aTotalUpper;
+    public Float bbSpmLower;
+    public Float bbSpmUpper;
+    public Float aPigLower;
+    public Float aPigUpper;
+    public Float aYsLower;
+    public Float aYsUpper;
+
+    public QaaBoundsVariant() {
+    }
+
+    public QaaBoundsVariant(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param base provides the bounds not given by this variant
+     * @return a new configuration with the bounds of this variant
+     */
+    QaaConfig createConfig(QaaConfig base) {
+        final QaaConfig config = new QaaConfig();
+        config.setDivideByPi(base.isDivideByPi());
+        config.setFastMath(base.isFastMath());
+        config.setDecomposition(base.isDecomposition());
+        config.setATotalLower(aTotalLower != null ? aTotalLower : base.getATotalLower());
+        config.setATotalUpper(aTotalUpper != null ? aTotalUpper : base.getATotalUpper());
+        config.setBbSpmsLower(bbSpmLower != null ? bbSpmLower : base.getBbSpmsLower());
+        config.setBbSpmsUpper(bbSpmUpper != null ? bbSpmUpper : base.getBbSpmsUpper());
+        config.setAPigLower(aPigLower != null ? aPigLower : base.getAPigLower());
+        config.setAPigUpper(aPigUpper != null ? aPigUpper : base.getAPigUpper());
+        config.setAYsLower(aYsLower != null ? aYsLower : base.getAYsLower());
+        config.setAYsUpper(aYsUpper != null ? aYsUpper : base.getAYsUpper());
+        return config;
+    }
+}
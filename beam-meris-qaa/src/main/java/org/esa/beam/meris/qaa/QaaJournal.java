@@ -0,0 +1,141 @@
+package org.esa.beam.meris.qaa;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The journal of {@link QaaBatchDriver}, recording the completed products and the completed tile rows of the
+ * products in progress. It is an append-only text file with one record per line:
+ * <pre>
+ *     ROW  &lt;product key&gt; &lt;row index&gt;
+ *     DONE &lt;product key&gt; &lt;source path&gt;
+ * </pre>
+ * Each record is synced to disk before the method recording it returns. A record which was not completely written
+ * when the process died is removed when the journal is opened again.
+ */
+class QaaJournal implements Closeable {
+
+    private static final String ROW = "ROW";
+    private static final String DONE = "DONE";
+    private static final String SEPARATOR = "\t";
+
+    private final Set<String> completedProducts;
+    private final Map<String, BitSet> completedRows;
+    private final FileOutputStream out;
+
+    /**
+     * Opens the journal, the file is created if it does not exist.
+     *
+     * @param file the journal file
+     * @throws IOException if the file cannot be read or opened for writing
+     */
+    QaaJournal(File file) throws IOException {
+        completedProducts = new HashSet<String>();
+        completedRows = new HashMap<String, BitSet>();
+        if (file.exists()) {
+            removeIncompleteRecord(file);
+            replay(file);
+        }
+        out = new FileOutputStream(file, true);
+    }
+
+    synchronized boolean isProductCompleted(String productKey) {
+        return completedProducts.contains(productKey);
+    }
+
+    /**
+     * @param productKey the key of the product
+     * @return the indexes of the completed rows of the product, empty if the product has not been started or is
+     *         completed
+     */
+    synchronized BitSet getCompletedRows(String productKey) {
+        final BitSet rows = completedRows.get(productKey);
+        return rows != null ? (BitSet) rows.clone() : new BitSet();
+    }
+
+    synchronized void recordRow(String productKey, int row) throws IOException {
+        append(ROW + SEPARATOR + productKey + SEPARATOR + row);
+        BitSet rows = completedRows.get(productKey);
+        if (rows == null) {
+            rows = new BitSet();
+            completedRows.put(productKey, rows);
+        }
+        rows.set(row);
+    }
+
+    synchronized void recordProduct(String productKey, String sourcePath) throws IOException {
+        append(DONE + SEPARATOR + productKey + SEPARATOR + sourcePath);
+        completedProducts.add(productKey);
+        completedRows.remove(productKey);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private void append(String record) throws IOException {
+        out.write((record + "\n").getBytes("UTF-8"));
+        out.getFD().sync();
+    }
+
+    private void replay(File file) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split(SEPARATOR);
+                if (fields.length == 3 && ROW.equals(fields[0])) {
+                    BitSet rows = completedRows.get(fields[1]);
+                    if (rows == null) {
+                        rows = new BitSet();
+                        completedRows.put(fields[1], rows);
+                    }
+                    rows.set(Integer.parseInt(fields[2]));
+                } else if (fields.length >= 2 && DONE.equals(fields[0])) {
+                    completedProducts.add(fields[1]);
+                    completedRows.remove(fields[1]);
+                } else if (!line.isEmpty()) {
+                    throw new IOException(String.format("Invalid record in journal %s: %s", file, line));
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("Invalid row index in journal %s: %s", file, e.getMessage()));
+        } finally {
+            reader.close();
+        }
+    }
+
+    /*
+     * Truncates the file after the last line break.
+     */
+    private static void removeIncompleteRecord(File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            long length = raf.length();
+            while (length > 0) {
+                raf.seek(length - 1);
+                if (raf.read() == '\n') {
+                    break;
+                }
+                length--;
+            }
+            if (length < raf.length()) {
+                raf.setLength(length);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Reads the match-up points and writes the extracted records as CSV.
+ * <p/>
+ * The point file starts with a header line naming the columns, which are separated by commas, semicolons or
+ * tabs. The columns 'lat' and 'lon' are required, 'id' and 'time' are optional. Times are given in UTC as
+ * 'yyyy-MM-dd HH:mm:ss', 'yyyy-MM-ddTHH:mm:ss' or 'yyyy-MM-dd'. Empty lines and lines starting with '#' are
+ * ignored.
+ * <p/>
+ * The output contains one line per match-up. Besides the point and the product it holds the number of pixels
+ * of the window, the number of processed pixels, the flags of the center pixel and for each IOP band the center
+ * value and the mean, the standard deviation and the number of the valid values of the window.
+ */
+class QaaMatchupCsv {
+
+    private static final String[] ID_COLUMNS = {"id", "name", "station"};
+    private static final String[] LAT_COLUMNS = {"lat", "latitude"};
+    private static final String[] LON_COLUMNS = {"lon", "long", "longitude"};
+    private static final String[] TIME_COLUMNS = {"time", "date", "datetime"};
+    private static final String[] TIME_PATTERNS = {"yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd"};
+    private static final String OUTPUT_TIME_PATTERN = "yyyy-MM-dd'T'HH:mm:ss";
+    private static final char SEPARATOR = ',';
+
+    private final Writer writer;
+    private final String[] iopBandNames;
+    private final DateFormat timeFormat;
+
+    /**
+     * @param writer      receives the records
+     * @param bandLayout the layout of the IOP bands, providing the names of the IOP columns
+     */
+    QaaMatchupCsv(Writer writer, QaaBandLayout bandLayout) {
+        this.writer = writer;
+        iopBandNames = bandLayout.getIopBandNames();
+        timeFormat = createUtcFormat(OUTPUT_TIME_PATTERN);
+    }
+
+    void writeHeader() throws IOException {
+        final StringBuilder line = new StringBuilder();
+        line.append("id,lat,lon,time,product,pixel_x,pixel_y,num_pixels,num_processed,flags");
+        for (String bandName : iopBandNames) {
+            line.append(SEPARATOR).append(bandName);
+            line.append(SEPARATOR).append(bandName).append("_mean");
+            line.append(SEPARATOR).append(bandName).append("_sigma");
+            line.append(SEPARATOR).append(bandName).append("_count");
+        }
+        writer.write(line.append('\n').toString());
+    }
+
+    /**
+     * Writes the record of a match-up.
+     *
+     * @param point       the match-up point
+     * @param productName the name of the product
+     * @param pixelX      the x coordinate of the point in the product
+     * @param pixelY      the y coordinate of the point in the product
+     * @param window      the processed window around the point
+     * @throws IOException if the record cannot be written
+     */
+    void writeRecord(QaaMatchupPoint point, String productName, float pixelX, float pixelY,
+                     QaaMatchupWindow window) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        line.append(point.getId());
+        line.append(SEPARATOR).append(point.getLat());
+        line.append(SEPARATOR).append(point.getLon());
+        line.append(SEPARATOR);
+        if (point.getTime() != null) {
+            line.append(timeFormat.format(point.getTime()));
+        }
+        line.append(SEPARATOR).append(productName);
+        line.append(SEPARATOR).append(pixelX);
+        line.append(SEPARATOR).append(pixelY);
+        line.append(SEPARATOR).append(window.getNumPixels());
+        line.append(SEPARATOR).append(window.getNumProcessed());
+        line.append(SEPARATOR).append(window.getCenterFlags());
+        for (int b = 0; b < iopBandNames.length; b++) {
+            line.append(SEPARATOR).append(window.getCenterValue(b));
+            line.append(SEPARATOR).append((float) window.getMean(b));
+            line.append(SEPARATOR).append((float) window.getSigma(b));
+            line.append(SEPARATOR).append(window.getCount(b));
+        }
+        writer.write(line.append('\n').toString());
+    }
+
+    /**
+     * Reads the match-up points.
+     *
+     * @param reader provides the point file
+     * @return the points in the order of the file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    static List<QaaMatchupPoint> readPoints(Reader reader) throws IOException {
+        final BufferedReader lineReader = new BufferedReader(reader);
+        final List<QaaMatchupPoint> points = new ArrayList<QaaMatchupPoint>();
+        String[] header = null;
+        String separator = null;
+        int idColumn = -1;
+        int latColumn = -1;
+        int lonColumn = -1;
+        int timeColumn = -1;
+        int lineNumber = 0;
+        String line;
+        while ((line = lineReader.readLine()) != null) {
+            lineNumber++;
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            if (header == null) {
+                separator = line.contains("\t") ? "\t" : line.contains(";") ? ";" : ",";
+                header = line.split(separator);
+                idColumn = findColumn(header, ID_COLUMNS);
+                latColumn = findColumn(header, LAT_COLUMNS);
+                lonColumn = findColumn(header, LON_COLUMNS);
+                timeColumn = findColumn(header, TIME_COLUMNS);
+                if (latColumn < 0 || lonColumn < 0) {
+                    throw new IOException("The header of the point file must contain the columns 'lat' and 'lon'");
+                }
+                continue;
+            }
+            final String[] values = line.split(separator, -1);
+            if (values.length != header.length) {
+                throw new IOException(String.format("Line %d: expected %d values but found %d",
+                                                    lineNumber, header.length, values.length));
+            }
+            final String id = idColumn >= 0 ? values[idColumn].trim() : String.valueOf(points.size() + 1);
+            final double lat = parseCoordinate(values[latColumn], -90.0, 90.0, lineNumber);
+            final double lon = parseCoordinate(values[lonColumn], -180.0, 180.0, lineNumber);
+            final Date time = timeColumn >= 0 ? parseTime(values[timeColumn], lineNumber) : null;
+            points.add(new QaaMatchupPoint(id, lat, lon, time));
+        }
+        return points;
+    }
+
+    private static int findColumn(String[] header, String[] names) {
+        for (int i = 0; i < header.length; i++) {
+            for (String name : names) {
+                if (header[i].trim().equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static double parseCoordinate(String text, double min, double max, int lineNumber) throws IOException {
+        final double value;
+        try {
+            value = Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("Line %d: '%s' is not a number", lineNumber, text));
+        }
+        if (value < min || value > max) {
+            throw new IOException(String.format("Line %d: coordinate %s is out of range [%s, %s]",
+                                                lineNumber, text, min, max));
+        }
+        return value;
+    }
+
+    private static Date parseTime(String text, int lineNumber) throws IOException {
+        final String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        for (String pattern : TIME_PATTERNS) {
+            final ParsePosition position = new ParsePosition(0);
+            final Date time = createUtcFormat(pattern).parse(trimmed, position);
+            if (time != null && position.getIndex() == trimmed.length()) {
+                return time;
+            }
+        }
+        throw new IOException(String.format("Line %d: cannot parse time '%s'", lineNumber, text));
+    }
+
+    private static DateFormat createUtcFormat(String pattern) {
+        final SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.ENGLISH);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        format.setLenient(false);
+        return format;
+    }
+}
@@ -0,0 +1,270 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.dataio.envisat.EnvisatConstants;
+import org.esa.beam.framework.dataio.ProductIO;
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.GeoCoding;
+import org.esa.beam.framework.datamodel.GeoPos;
+import org.esa.beam.framework.datamodel.PixelPos;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.jai.ResolutionLevel;
+import org.esa.beam.jai.VirtualBandOpImage;
+import org.esa.beam.meris.qaa.algorithm.QaaAlgorithm;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.esa.beam.util.logging.BeamLogManager;
+
+import java.awt.Rectangle;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Extracts the IOPs of MERIS L2 products at in-situ stations. Instead of processing whole scenes with
+ * {@link QaaOp}, only the pixels of a window around each station are read via the geo-coding of the product and
+ * processed with {@link QaaAlgorithm}. The results are streamed to a CSV file as described by
+ * {@link QaaMatchupCsv}, one line per station and product.
+ * <p/>
+ * A station matches a product if it lies within the scene and, if the station has a time, the time is within the
+ * maximum time difference of the sensing period of the product. Windows at the scene border are clipped.
+ */
+public class QaaMatchupExtractor {
+
+    static final int DEFAULT_WINDOW_SIZE = 3;
+    static final double DEFAULT_MAX_TIME_DIFFERENCE = 3.0;
+    static final String DEFAULT_VALID_PIXEL_EXPRESSION = "l2_flags.WATER";
+
+    private static final int NUM_SOURCE_BANDS = 7;
+    private static final long MILLIS_PER_HOUR = 3600L * 1000L;
+
+    private final String validPixelExpression;
+    private final int windowSize;
+    private final double maxTimeDifference;
+    private final QaaMatchupWindow window;
+    private final float[][] rrsByBand;
+    private final int[] validSamples;
+    private final Logger logger;
+
+    /**
+     * @param config               the configuration of the algorithm
+     * @param validPixelExpression the expression defining the pixels to be processed
+     * @param windowSize           the edge length of the window in pixels, must be odd
+     * @param maxTimeDifference    the maximum time difference between a station and a product in hours
+     */
+    QaaMatchupExtractor(QaaConfig config, String validPixelExpression, int windowSize, double maxTimeDifference) {
+        if (windowSize <= 0 || windowSize % 2 == 0) {
+            throw new IllegalArgumentException("The window size must be a positive odd number but is " + windowSize);
+        }
+        this.validPixelExpression = validPixelExpression;
+        this.windowSize = windowSize;
+        this.maxTimeDifference = maxTimeDifference;
+        final QaaAlgorithm algorithm = new QaaAlgorithm();
+        algorithm.setConfig(config);
+        final int maxPixelCount = windowSize * windowSize;
+        window = new QaaMatchupWindow(algorithm, maxPixelCount);
+        rrsByBand = new float[NUM_SOURCE_BANDS][maxPixelCount];
+        validSamples = new int[maxPixelCount];
+        logger = BeamLogManager.getSystemLogger();
+    }
+
+    /**
+     * Extracts the match-ups of one product.
+     *
+     * @param product the MERIS L2 product
+     * @param points  the stations
+     * @param csv     receives one record per match-up
+     * @return the number of match-ups
+     * @throws IOException if the product cannot be read or a record cannot be written, in the latter case an
+     *                     {@link OutputException}
+     */
+    int extract(Product product, List<QaaMatchupPoint> points, QaaMatchupCsv csv) throws IOException {
+        final GeoCoding geoCoding = product.getGeoCoding();
+        if (geoCoding == null || !geoCoding.canGetPixelPos()) {
+            logger.warning(String.format("Product '%s' has no usable geo-coding, skipped.", product.getName()));
+            return 0;
+        }
+        final Band[] sourceBands = new Band[NUM_SOURCE_BANDS];
+        for (int i = 0; i < NUM_SOURCE_BANDS; i++) {
+            final String bandName = EnvisatConstants.MERIS_L2_BAND_NAMES[i];
+            sourceBands[i] = product.getBand(bandName);
+            if (sourceBands[i] == null) {
+                throw new IOException(String.format("Product '%s' does not contain the band '%s'",
+                                                    product.getName(), bandName));
+            }
+        }
+        if (!product.isCompatibleBandArithmeticExpression(validPixelExpression)) {
+            throw new IOException(String.format("The expression '%s' is not compatible with product '%s'",
+                                                validPixelExpression, product.getName()));
+        }
+        final VirtualBandOpImage validImage = VirtualBandOpImage.createMask(validPixelExpression, product,
+                                                                            ResolutionLevel.MAXRES);
+        final Date startTime = getDate(product.getStartTime());
+        final Date endTime = getDate(product.getEndTime());
+        final Rectangle sceneBounds = new Rectangle(product.getSceneRasterWidth(), product.getSceneRasterHeight());
+        final int halfSize = windowSize / 2;
+
+        int matchupCount = 0;
+        for (QaaMatchupPoint point : points) {
+            if (!isInTime(point.getTime(), startTime, endTime, maxTimeDifference)) {
+                continue;
+            }
+            final PixelPos pixelPos = geoCoding.getPixelPos(new GeoPos((float) point.getLat(),
+                                                                       (float) point.getLon()), null);
+            if (pixelPos == null || !pixelPos.isValid()) {
+                continue;
+            }
+            final int centerX = (int) Math.floor(pixelPos.x);
+            final int centerY = (int) Math.floor(pixelPos.y);
+            if (!sceneBounds.contains(centerX, centerY)) {
+                continue;
+            }
+            final Rectangle region = new Rectangle(centerX - halfSize, centerY - halfSize,
+                                                   windowSize, windowSize).intersection(sceneBounds);
+            for (int i = 0; i < NUM_SOURCE_BANDS; i++) {
+                sourceBands[i].readPixels(region.x, region.y, region.width, region.height, rrsByBand[i]);
+            }
+            validImage.getData(region).getSamples(region.x, region.y, region.width, region.height, 0, validSamples);
+            final int centerIndex = (centerY - region.y) * region.width + (centerX - region.x);
+            window.process(rrsByBand, validSamples, region.width * region.height, centerIndex);
+            try {
+                csv.writeRecord(point, product.getName(), pixelPos.x, pixelPos.y, window);
+            } catch (IOException e) {
+                throw new OutputException(e);
+            }
+            matchupCount++;
+        }
+        return matchupCount;
+    }
+
+    /**
+     * @return whether the time lies within the maximum time difference of the sensing period. Points without
+     *         time and products without sensing period always match.
+     */
+    static boolean isInTime(Date time, Date startTime, Date endTime, double maxTimeDifference) {
+        if (time == null || startTime == null || endTime == null) {
+            return true;
+        }
+        final long millis = time.getTime();
+        final long distance;
+        if (millis < startTime.getTime()) {
+            distance = startTime.getTime() - millis;
+        } else if (millis > endTime.getTime()) {
+            distance = millis - endTime.getTime();
+        } else {
+            distance = 0;
+        }
+        return distance <= maxTimeDifference * MILLIS_PER_HOUR;
+    }
+
+    private static Date getDate(ProductData.UTC utc) {
+        return utc != null ? utc.getAsDate() : null;
+    }
+
+    /*
+     * The configuration given by the defaults of the parameters of QaaOp.
+     */
+    static QaaConfig createDefaultConfig() {
+        final QaaOp op = new QaaOp();
+        op.setParameterDefaultValues();
+        return op.createConfiguredConfig();
+    }
+
+    public static void main(String[] args) {
+        int windowSize = DEFAULT_WINDOW_SIZE;
+        double maxTimeDifference = DEFAULT_MAX_TIME_DIFFERENCE;
+        String validPixelExpression = DEFAULT_VALID_PIXEL_EXPRESSION;
+        final List<String> files = new ArrayList<String>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-window".equals(args[i])) {
+                    windowSize = Integer.parseInt(args[++i]);
+                } else if ("-maxTimeDifference".equals(args[i])) {
+                    maxTimeDifference = Double.parseDouble(args[++i]);
+                } else if ("-expression".equals(args[i])) {
+                    validPixelExpression = args[++i];
+                } else {
+                    files.add(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            files.clear();
+        }
+        if (files.size() < 3) {
+            System.err.println("Usage: QaaMatchupExtractor [-window <size>] [-maxTimeDifference <hours>] " +
+                               "[-expression <valid pixel expression>] <points.csv> <output.csv> <product>...");
+            System.exit(1);
+        }
+        try {
+            final List<QaaMatchupPoint> points;
+            final Reader pointReader = new FileReader(files.get(0));
+            try {
+                points = QaaMatchupCsv.readPoints(pointReader);
+            } finally {
+                pointReader.close();
+            }
+            final QaaMatchupExtractor extractor = new QaaMatchupExtractor(createDefaultConfig(), validPixelExpression,
+                                                                          windowSize, maxTimeDifference);
+            final Writer writer = new BufferedWriter(new FileWriter(files.get(1)));
+            try {
+                final QaaMatchupCsv csv = new QaaMatchupCsv(writer, QaaBandLayout.MERIS);
+                csv.writeHeader();
+                for (String productPath : files.subList(2, files.size())) {
+                    extractor.extractProduct(new File(productPath), points, csv);
+                    writer.flush();
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /*
+     * A product which cannot be read or processed is logged and skipped, so one corrupt file does not stop a large
+     * extraction. A failure to write the output stops the extraction, otherwise the output would silently be
+     * incomplete.
+     */
+    private void extractProduct(File file, List<QaaMatchupPoint> points, QaaMatchupCsv csv) throws IOException {
+        try {
+            final Product product = ProductIO.readProduct(file);
+            if (product == null) {
+                logger.warning(String.format("No reader found for '%s', skipped.", file));
+                return;
+            }
+            try {
+                final int matchupCount = extract(product, points, csv);
+                logger.info(String.format("%s: %d match-ups", file.getName(), matchupCount));
+            } finally {
+                product.dispose();
+            }
+        } catch (OutputException e) {
+            throw e;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("Failed to extract match-ups from '%s'", file), e);
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, String.format("Failed to extract match-ups from '%s'", file), e);
+        }
+    }
+
+    /**
+     * Signals that a record could not be written to the output.
+     */
+    static class OutputException extends IOException {
+
+        private OutputException(IOException cause) {
+            super("Failed to write the match-ups: " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.esa.beam.meris.qaa;
+
+import java.util.Date;
+
+/**
+ * A station at which IOPs are extracted by {@link QaaMatchupExtractor}.
+ */
+public class QaaMatchupPoint {
+
+    private final String id;
+    private final double lat;
+    private final double lon;
+    private final Date time;
+
+    /**
+     * @param id   the identifier written to the output
+     * @param lat  the latitude in degree
+     * @param lon  the longitude in degree
+     * @param time the time of the in-situ measurement, may be {@code null}
+     */
+    public QaaMatchupPoint(String id, double lat, double lon, Date time) {
+        this.id = id;
+        this.lat = lat;
+        this.lon = lon;
+        this.time = time;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLon() {
+        return lon;
+    }
+
+    /**
+     * @return the time of the in-situ measurement, {@code null} if the point matches products of any time
+     */
+    public Date getTime() {
+        return time;
+    }
+}
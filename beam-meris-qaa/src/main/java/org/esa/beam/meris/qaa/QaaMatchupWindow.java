@@ -0,0 +1,136 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.meris.qaa.algorithm.QaaAlgorithm;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+import org.esa.beam.meris.qaa.algorithm.QaaWorkspace;
+
+/**
+ * Computes the IOPs of the pixels of a match-up window and their statistics. For each IOP band the value of the
+ * center pixel and the mean, the standard deviation and the number of the valid values in the window are provided.
+ * Values are valid if the pixel has been processed and the value is within the bounds, i.e. it is not NaN.
+ * <p/>
+ * The arrays are reused for all windows, so an instance must not be shared between threads.
+ */
+class QaaMatchupWindow {
+
+    private final QaaAlgorithm algorithm;
+    private final QaaWorkspace workspace;
+    private final QaaResultBuffer resultBuffer;
+    private final float[][] iopSamples;
+    private final double[] means;
+    private final double[] sigmas;
+    private final int[] counts;
+    private int numPixels;
+    private int numProcessed;
+    private int centerIndex;
+
+    /**
+     * @param algorithm     the algorithm computing the IOPs
+     * @param maxPixelCount the maximum number of pixels of a window
+     */
+    QaaMatchupWindow(QaaAlgorithm algorithm, int maxPixelCount) {
+        this.algorithm = algorithm;
+        workspace = new QaaWorkspace();
+        resultBuffer = new QaaResultBuffer(maxPixelCount);
+        iopSamples = new float[QaaBandLayout.MERIS.getNumIopBands()][];
+        select(resultBuffer.getA_Total(), QaaBandLayout.MERIS.getATotalBandIndexes());
+        select(resultBuffer.getBB_SPM(), QaaBandLayout.MERIS.getBbSpmBandIndexes());
+        select(resultBuffer.getA_PIG(), QaaBandLayout.MERIS.getAPigBandIndexes());
+        select(resultBuffer.getA_YS(), QaaBandLayout.MERIS.getAYsBandIndexes());
+        means = new double[iopSamples.length];
+        sigmas = new double[iopSamples.length];
+        counts = new int[iopSamples.length];
+    }
+
+    private void select(float[][] groupSamples, int[] bandIndexes) {
+        for (int i = 0; i < bandIndexes.length; i++) {
+            iopSamples[bandIndexes[i]] = groupSamples[i];
+        }
+    }
+
+    /**
+     * Processes the pixels of a window.
+     *
+     * @param rrsByBand    the reflectances of the window pixels, rrsByBand[band][pixel]
+     * @param validSamples non-zero for the pixels to be processed
+     * @param numPixels    the number of pixels of the window
+     * @param centerIndex  the index of the pixel containing the match-up point
+     */
+    void process(float[][] rrsByBand, int[] validSamples, int numPixels, int centerIndex) {
+        this.numPixels = numPixels;
+        this.centerIndex = centerIndex;
+        numProcessed = 0;
+        for (int p = 0; p < numPixels; p++) {
+            if (validSamples[p] != 0) {
+                algorithm.processBatch(rrsByBand, p, 1, resultBuffer, workspace);
+                numProcessed++;
+            } else {
+                resultBuffer.invalidate(p, 1);
+            }
+        }
+        for (int b = 0; b < iopSamples.length; b++) {
+            computeStatistics(b);
+        }
+    }
+
+    private void computeStatistics(int bandIndex) {
+        final float[] samples = iopSamples[bandIndex];
+        int count = 0;
+        double sum = 0.0;
+        for (int p = 0; p < numPixels; p++) {
+            if (!Float.isNaN(samples[p])) {
+                sum += samples[p];
+                count++;
+            }
+        }
+        final double mean = count > 0 ? sum / count : Double.NaN;
+        double sumSquares = 0.0;
+        for (int p = 0; p < numPixels; p++) {
+            if (!Float.isNaN(samples[p])) {
+                final double deviation = samples[p] - mean;
+                sumSquares += deviation * deviation;
+            }
+        }
+        counts[bandIndex] = count;
+        means[bandIndex] = mean;
+        sigmas[bandIndex] = count > 1 ? Math.sqrt(sumSquares / (count - 1)) : Double.NaN;
+    }
+
+    int getNumPixels() {
+        return numPixels;
+    }
+
+    /**
+     * @return the number of pixels selected by the valid pixel expression
+     */
+    int getNumProcessed() {
+        return numProcessed;
+    }
+
+    int getCenterFlags() {
+        return resultBuffer.getFlags(centerIndex);
+    }
+
+    float getCenterValue(int bandIndex) {
+        return iopSamples[bandIndex][centerIndex];
+    }
+
+    /**
+     * @return the mean of the valid values, NaN if there is none
+     */
+    double getMean(int bandIndex) {
+        return means[bandIndex];
+    }
+
+    /**
+     * @return the sample standard deviation of the valid values, NaN if there are less than two
+     */
+    double getSigma(int bandIndex) {
+        return sigmas[bandIndex];
+    }
+
+    int getCount(int bandIndex) {
+        return counts[bandIndex];
+    }
+}
@@ -0,0 +1,196 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.gpf.OperatorException;
+import org.esa.beam.framework.gpf.OperatorSpi;
+import org.esa.beam.framework.gpf.annotations.OperatorMetadata;
+import org.esa.beam.framework.gpf.annotations.Parameter;
+import org.esa.beam.framework.gpf.annotations.SourceProduct;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+import org.esa.beam.meris.qaa.brewin.ConfAlgorithm;
+import org.esa.beam.meris.qaa.brewin.ConfWorkspace;
+import org.esa.beam.meris.qaa.brewin.SensorConfigFactory;
+import org.esa.beam.meris.qaa.brewin.SensorDescriptor;
+
+/**
+ * Computes the QAA IOPs with {@link ConfAlgorithm} for one of the sensors known by {@link SensorConfigFactory}.
+ * The source bands are found by their spectral wavelength, so any product providing remote sensing reflectances
+ * at the wavelengths of the sensor can be processed. The IOP bands of the target product are given by the
+ * {@link org.esa.beam.meris.qaa.brewin.SensorLayout} of the sensor, the band names carry the wavelengths of the
+ * sensor.
+ */
+@SuppressWarnings({"UnusedDeclaration"})
+@OperatorMetadata(alias = "MultiSensor.QaaIOP",
+        description = "Performs retrieval of inherent optical properties (IOPs) for " +
+                "coastal and open ocean waters for MERIS, MODIS and SeaWiFS.",
+        authors = " Zhongping Lee, Mingrui Zhang (WSU); Marco Peters (Brockmann Consult)",
+        copyright = "(C) 2013 by NRL and WSU",
+        version = "1.3.3")
+public class QaaMultiSensorOp extends AbstractQaaOp {
+
+    @SourceProduct(alias = "source", label = "Source",
+            description = "The source product containing remote sensing reflectances.")
+    private Product sourceProduct;
+
+    @Parameter(defaultValue = SensorConfigFactory.MERIS,
+            valueSet = {
+                    SensorConfigFactory.MERIS, SensorConfigFactory.MERIS_OLD_COEFFS,
+                    SensorConfigFactory.MODIS, SensorConfigFactory.SEAWIFS
+            },
+            description = "The sensor which has acquired the source product.")
+    private String sensor;
+
+    @Parameter(defaultValue = "true",
+            description = "Expression defining pixels considered for processing.")
+    private String validPixelExpression;
+
+    @Parameter(defaultValue = "5.0", label = "Wavelength tolerance", unit = "nm",
+            description = "The maximum distance between the wavelength of a source band and the one of the sensor.")
+    private float wavelengthTolerance;
+
+    @Parameter(defaultValue = "0.001", label = "'A_TOTAL' lower bound",
+            description = "The lower bound of the valid value range.")
+    private float aTotalLower;
+
+    @Parameter(defaultValue = "5.0", label = "'A_TOTAL' upper bound",
+            description = "The upper bound of the valid value range.")
+    private float aTotalUpper;
+
+    @Parameter(defaultValue = "0.0001", label = "'BB_SPM' lower bound",
+            description = "The lower bound of the valid value range.")
+    private float bbSpmLower;
+
+    @Parameter(defaultValue = "1.0", label = "'BB_SPM' upper bound",
+            description = "The upper bound of the valid value range.")
+    private float bbSpmUpper;
+
+    @Parameter(defaultValue = "0.0001", label = "'A_PIG' lower bound",
+            description = "The lower bound of the valid value range.")
+    private float aPigLower;
+
+    @Parameter(defaultValue = "3.0", label = "'A_PIG' upper bound",
+            description = "The upper bound of the valid value range.")
+    private float aPigUpper;
+
+    @Parameter(defaultValue = "0.0001", label = "'A_YS' lower bound",
+            description = "The lower bound of the valid value range.")
+    private float aYsLower;
+
+    @Parameter(defaultValue = "1.0", label = "'A_YS' upper bound",
+            description = "The upper bound of the valid value range")
+    private float aYsUpper;
+
+    @Parameter(defaultValue = "false", label = "Divide source Rrs by PI(3.14)",
+            description = "If selected the source remote reflectances are divided by PI")
+    private boolean divideByPI;
+
+    @Parameter(label = "Output bands",
+            description = "The IOP bands written to the target product, given as band names like 'a_pig_443' " +
+                    "or group names like 'a_pig'. All IOP bands are written if none is given.")
+    private String[] outputBands;
+
+    @Parameter(defaultValue = ENCODING_FLOAT32, valueSet = {ENCODING_FLOAT32, ENCODING_INT16, ENCODING_UINT16},
+            label = "Output encoding",
+            description = "The data type of the IOP bands. The integer types are scaled to the valid value ranges.")
+    private String outputEncoding;
+
+    @Parameter(defaultValue = "false", label = "Unbounded output",
+            description = "If selected the IOPs are written without bounds and the flags only mark valid, " +
+                    "imaginary and non-water pixels. Other bounds can be applied later by Meris.QaaRethreshold.")
+    private boolean unboundedOutput;
+
+    @Parameter(defaultValue = "false", label = "Single precision",
+            description = "If selected the intermediate values are computed in float instead of double precision")
+    private boolean singlePrecision;
+
+    private ConfAlgorithm confAlgorithm;
+
+    @Override
+    public void initialize() throws OperatorException {
+        final SensorDescriptor sensorDescriptor = SensorConfigFactory.create(sensor);
+        final double[] wavelengths = sensorDescriptor.getWavelengths();
+        final Band[] sourceBands = findSourceBands(sourceProduct, wavelengths, wavelengthTolerance);
+
+        confAlgorithm = new ConfAlgorithm(sensorDescriptor, singlePrecision ? ConfAlgorithm.Precision.FLOAT
+                                                                            : ConfAlgorithm.Precision.DOUBLE);
+        final QaaBandLayout bandLayout = confAlgorithm.getSensorLayout().getBandLayout();
+        final boolean[] iopSelection = selectIopBands(outputBands, bandLayout);
+        final QaaConfig config = createConfiguredConfig();
+        // a_total is computed before the decomposition
+        config.setDecomposition(isAnySelected(iopSelection, bandLayout.getAPigBandIndexes(),
+                                              bandLayout.getAYsBandIndexes()));
+        if (unboundedOutput) {
+            removeBounds(config, outputEncoding);
+        }
+        confAlgorithm.setConfig(config);
+
+        initTileEngine(sourceProduct, sourceBands, validPixelExpression, bandLayout, false, iopSelection,
+                       createIntegerEncoding(outputEncoding, config, bandLayout));
+        if (unboundedOutput) {
+            getTargetProduct().setProductType(UNBOUNDED_PRODUCT_TYPE);
+        }
+    }
+
+    private QaaConfig createConfiguredConfig() {
+        final QaaConfig config = new QaaConfig();
+        config.setDivideByPi(divideByPI);
+        config.setAPigLower(aPigLower);
+        config.setAPigUpper(aPigUpper);
+        config.setATotalLower(aTotalLower);
+        config.setATotalUpper(aTotalUpper);
+        config.setAYsLower(aYsLower);
+        config.setAYsUpper(aYsUpper);
+        config.setBbSpmsLower(bbSpmLower);
+        config.setBbSpmsUpper(bbSpmUpper);
+        return config;
+    }
+
+    @Override
+    BatchProcessor createBatchProcessor(final float[][] rrsByBand) {
+        final ConfWorkspace workspace = new ConfWorkspace();
+        return new BatchProcessor() {
+            @Override
+            public void processBatch(int offset, int count, QaaResultBuffer[] outs) {
+                confAlgorithm.processBatch(rrsByBand, offset, count, outs[0], workspace);
+            }
+        };
+    }
+
+    /*
+     * Finds for each wavelength the band with the nearest spectral wavelength. Bands without a spectral
+     * wavelength are not considered.
+     */
+    static Band[] findSourceBands(Product product, double[] wavelengths, float tolerance) {
+        final Band[] bands = new Band[wavelengths.length];
+        for (int i = 0; i < wavelengths.length; i++) {
+            double minDistance = Double.MAX_VALUE;
+            for (Band band : product.getBands()) {
+                final float bandWavelength = band.getSpectralWavelength();
+                if (bandWavelength <= 0.0f) {
+                    continue;
+                }
+                final double distance = Math.abs(bandWavelength - wavelengths[i]);
+                if (distance <= tolerance && distance < minDistance) {
+                    minDistance = distance;
+                    bands[i] = band;
+                }
+            }
+            if (bands[i] == null) {
+                String msg = String.format("Source product must contain a band with a spectral wavelength of %.1f nm (+/- %.1f nm)",
+                                           wavelengths[i], tolerance);
+                throw new OperatorException(msg);
+            }
+        }
+        return bands;
+    }
+
+    public static class Spi extends OperatorSpi {
+
+        public Spi() {
+            super(QaaMultiSensorOp.class);
+        }
+    }
+}
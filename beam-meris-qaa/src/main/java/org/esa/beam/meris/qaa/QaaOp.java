@@ -0,0 +1,548 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.dataio.envisat.EnvisatConstants;
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.framework.gpf.Operator;
+import org.esa.beam.framework.gpf.OperatorException;
+import org.esa.beam.framework.gpf.OperatorSpi;
+import org.esa.beam.framework.gpf.annotations.OperatorMetadata;
+import org.esa.beam.framework.gpf.annotations.Parameter;
+import org.esa.beam.framework.gpf.annotations.SourceProduct;
+import org.esa.beam.meris.qaa.algorithm.QaaAlgorithm;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.esa.beam.meris.qaa.algorithm.QaaIntegerEncoding;
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+import org.esa.beam.meris.qaa.algorithm.QaaRrsLut;
+import org.esa.beam.meris.qaa.algorithm.QaaSpectrumCache;
+import org.esa.beam.meris.qaa.algorithm.QaaWorkspace;
+import org.esa.beam.util.ArrayUtils;
+import org.esa.beam.util.StringUtils;
+import org.esa.beam.util.logging.BeamLogManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+@SuppressWarnings({"UnusedDeclaration"})
+@OperatorMetadata(alias = "Meris.QaaIOP",
+        description = "Performs retrieval of inherent optical properties (IOPs) for " +
+                "coastal and open ocean waters for MERIS.",
+        authors = " Zhongping Lee, Mingrui Zhang (WSU); Marco Peters (Brockmann Consult)",
+        copyright = "(C) 2013 by NRL and WSU",
+        version = "1.3.3")
+public class QaaOp extends AbstractQaaOp {
+
+    private static final int NUM_SOURCE_BANDS = 7;
+    private static final Pattern VARIANT_NAME_PATTERN = Pattern.compile("[A-Za-z0-9_]+");
+
+    @SourceProduct(alias = "source", label = "Source", description = "The source product containing reflectances.",
+            bands = {
+                    EnvisatConstants.MERIS_L2_REFLEC_1_BAND_NAME,
+                    EnvisatConstants.MERIS_L2_REFLEC_2_BAND_NAME,
+                    EnvisatConstants.MERIS_L2_REFLEC_3_BAND_NAME,
+                    EnvisatConstants.MERIS_L2_REFLEC_4_BAND_NAME,
+                    EnvisatConstants.MERIS_L2_REFLEC_5_BAND_NAME,
+                    EnvisatConstants.MERIS_L2_REFLEC_6_BAND_NAME,
+                    EnvisatConstants.MERIS_L2_REFLEC_7_BAND_NAME
+            })
+    private Product sourceProduct;
+
+    @Parameter(defaultValue = "l2_flags.WATER",
+            description = "Expression defining pixels considered for processing.")
+    private String validPixelExpression;
+
+    @Deprecated
+    @Parameter(description = "Deprecated parameter. Use 'validPixelExpression' instead.")
+    String invalidPixelExpression;
+
+    @Parameter(defaultValue = "0.001", label = "'A_TOTAL' lower bound",
+            description = "The lower bound of the valid value range.")
+    private float aTotalLower;
+
+    @Parameter(defaultValue = "5.0", label = "'A_TOTAL' upper bound",
+            description = "The upper bound of the valid value range.")
+    private float aTotalUpper;
+
+    @Parameter(defaultValue = "0.0001", label = "'BB_SPM' lower bound",
+            description = "The lower bound of the valid value range.")
+    private float bbSpmLower;
+
+    @Parameter(defaultValue = "1.0", label = "'BB_SPM' upper bound",
+            description = "The upper bound of the valid value range.")
+    private float bbSpmUpper;
+
+    @Parameter(defaultValue = "0.0001", label = "'A_PIG' lower bound",
+            description = "The lower bound of the valid value range.")
+    private float aPigLower;
+
+    @Parameter(defaultValue = "3.0", label = "'A_PIG' upper bound",
+            description = "The upper bound of the valid value range.")
+    private float aPigUpper;
+
+    @Parameter(defaultValue = "0.0001", label = "'A_YS' upper bound",
+            description = "The lower bound of the valid value range.")
+    private float aYsLower;
+
+    @Parameter(defaultValue = "1.0", label = "'A_YS' upper bound",
+            description = "The upper bound of the valid value range")
+    private float aYsUpper;
+
+    @Parameter(defaultValue = "true", label = "Divide source Rrs by PI(3.14)",
+            description = "If selected the source remote reflectances are divided by PI")
+    private boolean divideByPI;
+
+    @Parameter(defaultValue = "false", label = "Fast math",
+            description = "If selected pow, exp and log10 are computed by faster approximations accurate to about 1e-9")
+    private boolean fastMath;
+
+    @Parameter(label = "Output bands",
+            description = "The IOP bands written to the target product, given as band names like 'a_pig_443' " +
+                    "or group names like 'a_pig'. All IOP bands are written if none is given.")
+    private String[] outputBands;
+
+    @Parameter(defaultValue = ENCODING_FLOAT32, valueSet = {ENCODING_FLOAT32, ENCODING_INT16, ENCODING_UINT16},
+            label = "Output encoding",
+            description = "The data type of the IOP bands. The integer types are scaled to the valid value ranges.")
+    private String outputEncoding;
+
+    @Parameter(defaultValue = "false", label = "Lookup tables for integer input",
+            description = "If selected and the reflectances are stored as scaled 16-bit integers, the first steps " +
+                    "of the algorithm are taken from lookup tables. Only used together with the block kernel.")
+    private boolean useLookupTables;
+
+    @Parameter(defaultValue = "0", interval = "[0,*]", label = "Spectrum cache capacity",
+            description = "The number of spectra per thread whose results are cached, 0 disables the cache")
+    private int spectrumCacheCapacity;
+
+    @Parameter(defaultValue = "0.0", interval = "[0,*]", label = "Spectrum cache quantisation",
+            description = "The step the reflectances are rounded to for the cache lookup, 0 compares the exact values")
+    private float spectrumCacheQuantisation;
+
+    @Parameter(defaultValue = "LRU", label = "Spectrum cache eviction",
+            description = "The spectrum removed from a full cache, the least recently used or the first added one")
+    private QaaSpectrumCache.Eviction spectrumCacheEviction;
+
+    @Parameter(defaultValue = "false", label = "Unbounded output",
+            description = "If selected the IOPs are written without bounds and the flags only mark valid, " +
+                    "imaginary and non-water pixels. Other bounds can be applied later by Meris.QaaRethreshold.")
+    private boolean unboundedOutput;
+
+    @Parameter(itemAlias = "variant", label = "Bound variants",
+            description = "Named sets of valid value ranges, each adds IOP bands and a flag band suffixed with " +
+                    "its name. The algorithm is computed once for all of them, bounds not given are taken from " +
+                    "the parameters above.")
+    private QaaBoundsVariant[] boundsVariants;
+
+    @Parameter(label = "Tile cache directory",
+            description = "The directory of a persistent cache of computed tiles, which are reused by later runs " +
+                    "on the same source product with the same parameters. No cache is used if not given.")
+    private File tileCacheDirectory;
+
+    @Parameter(defaultValue = "1024", interval = "[1,*]", unit = "MB", label = "Tile cache size",
+            description = "The maximum size of the tile cache, the least recently used tiles are removed first")
+    private int tileCacheSize;
+
+    private QaaAlgorithm qaaAlgorithm;
+    private QaaConfig[] variantConfigs;
+    private QaaRrsLut rrsLut;
+    private ThreadLocal<QaaSpectrumCache> spectrumCache;
+    private List<QaaSpectrumCache> spectrumCaches;
+
+    @Override
+    public void initialize() throws OperatorException {
+        validateSourceProduct();
+        validateParameters();
+
+        qaaAlgorithm = new QaaAlgorithm();
+        qaaAlgorithm.setConfig(createConfiguredConfig());
+
+        final Band[] sourceBands = new Band[NUM_SOURCE_BANDS];
+        for (int i = 0; i < NUM_SOURCE_BANDS; i++) {
+            sourceBands[i] = sourceProduct.getBand(EnvisatConstants.MERIS_L2_BAND_NAMES[i]);
+        }
+        final boolean[] iopSelection = selectIopBands(outputBands, QaaBandLayout.MERIS);
+        // a_total is the sum of the decomposed absorptions
+        qaaAlgorithm.getConfig().setDecomposition(isAnySelected(iopSelection,
+                                                                QaaBandLayout.MERIS.getATotalBandIndexes(),
+                                                                QaaBandLayout.MERIS.getAPigBandIndexes(),
+                                                                QaaBandLayout.MERIS.getAYsBandIndexes()));
+        if (unboundedOutput) {
+            if (boundsVariants != null && boundsVariants.length > 0) {
+                throw new OperatorException("Bound variants cannot be combined with unbounded output");
+            }
+            removeBounds(qaaAlgorithm.getConfig(), outputEncoding);
+        }
+        if (useLookupTables) {
+            if (qaaAlgorithm.getConfig().isBlockKernel()) {
+                rrsLut = createRrsLut(sourceBands, qaaAlgorithm.getConfig());
+            } else {
+                // the tables feed the block kernel, switching to it would change the results slightly
+                getLogger().warning(String.format("The lookup tables are only used together with the block kernel, " +
+                                                  "set the system property %s=true to enable it.",
+                                                  QaaConfig.BLOCK_KERNEL_PROPERTY));
+            }
+        }
+        if (boundsVariants != null && boundsVariants.length > 0) {
+            initVariants(sourceBands, iopSelection);
+        } else {
+            if (spectrumCacheCapacity > 0) {
+                if (rrsLut != null) {
+                    // the lookup tables feed the block kernel, which does not use the cache
+                    getLogger().warning("The spectrum cache is not used together with lookup tables.");
+                } else {
+                    initSpectrumCache();
+                }
+            }
+            initTileEngine(sourceProduct, sourceBands, validPixelExpression, QaaBandLayout.MERIS, rrsLut != null,
+                           iopSelection, createIntegerEncoding(outputEncoding, qaaAlgorithm.getConfig(),
+                                                               QaaBandLayout.MERIS));
+            if (unboundedOutput) {
+                getTargetProduct().setProductType(UNBOUNDED_PRODUCT_TYPE);
+            }
+        }
+        // also for bound variants, an entry holds the bands of all of them
+        initTileCache();
+    }
+
+    /*
+     * The key of the tiles identifies the source file by its path, size and modification time, together with the
+     * operator version, the kernel and all parameters except those of the cache itself. The kernel is selected by
+     * a system property and the results of the kernels differ slightly.
+     */
+    private void initTileCache() {
+        if (tileCacheDirectory == null) {
+            return;
+        }
+        final File sourceFile = sourceProduct.getFileLocation();
+        if (sourceFile == null || !sourceFile.exists()) {
+            getLogger().warning("The source product is not read from a file, the tile cache is not used.");
+            return;
+        }
+        try {
+            final QaaTileCache tileCache = QaaTileCache.get(tileCacheDirectory, tileCacheSize * 1024L * 1024L,
+                                                            getLogger());
+            final String productKey = String.format("%s|%d|%d|%s|%dx%d", sourceFile.getAbsolutePath(),
+                                                    sourceFile.length(), sourceFile.lastModified(),
+                                                    sourceProduct.getName(), sourceProduct.getSceneRasterWidth(),
+                                                    sourceProduct.getSceneRasterHeight());
+            final String kernelKey = QaaConfig.BLOCK_KERNEL_PROPERTY + "=" +
+                                     qaaAlgorithm.getConfig().isBlockKernel();
+            setTileCache(tileCache, QaaTileCache.createKey(productKey, getClass().getName(), getVersion(),
+                                                           kernelKey, getParameterKey(this)));
+        } catch (IOException e) {
+            getLogger().warning(String.format("The tile cache is not used: %s", e.getMessage()));
+        }
+    }
+
+    private String getVersion() {
+        return getClass().getAnnotation(OperatorMetadata.class).version();
+    }
+
+    /**
+     * @param op the operator
+     * @return the values of all parameters of the operator except those of the tile cache, sorted by name
+     */
+    static String getParameterKey(QaaOp op) {
+        final Map<String, String> values = new TreeMap<String, String>();
+        for (Field field : QaaOp.class.getDeclaredFields()) {
+            if (field.getAnnotation(Parameter.class) != null && !field.getName().startsWith("tileCache")) {
+                try {
+                    field.setAccessible(true);
+                    values.put(field.getName(), formatParameterValue(field.get(op)));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return values.toString();
+    }
+
+    private static String formatParameterValue(Object value) throws IllegalAccessException {
+        if (value instanceof Object[]) {
+            final StringBuilder sb = new StringBuilder("[");
+            for (Object item : (Object[]) value) {
+                sb.append(formatParameterValue(item)).append(';');
+            }
+            return sb.append(']').toString();
+        }
+        if (value instanceof QaaBoundsVariant) {
+            final Map<String, Object> fieldValues = new TreeMap<String, Object>();
+            for (Field field : QaaBoundsVariant.class.getFields()) {
+                fieldValues.put(field.getName(), field.get(value));
+            }
+            return fieldValues.toString();
+        }
+        return String.valueOf(value);
+    }
+
+    /*
+     * The configuration of the operator is the first output set, followed by one set per variant.
+     */
+    private void initVariants(Band[] sourceBands, boolean[] iopSelection) {
+        if (spectrumCacheCapacity > 0) {
+            getLogger().warning("The spectrum cache is not used together with bound variants.");
+        }
+        final QaaConfig config = qaaAlgorithm.getConfig();
+        variantConfigs = new QaaConfig[boundsVariants.length + 1];
+        final String[] suffixes = new String[variantConfigs.length];
+        final QaaIntegerEncoding[] encodings = new QaaIntegerEncoding[variantConfigs.length];
+        variantConfigs[0] = config;
+        suffixes[0] = "";
+        encodings[0] = createIntegerEncoding(outputEncoding, config, QaaBandLayout.MERIS);
+        final Set<String> names = new HashSet<String>();
+        for (int i = 0; i < boundsVariants.length; i++) {
+            final String name = boundsVariants[i].name;
+            if (name == null || !VARIANT_NAME_PATTERN.matcher(name).matches()) {
+                throw new OperatorException(String.format(
+                        "Invalid name '%s' of a bound variant, only letters, digits and '_' are allowed", name));
+            }
+            if (!names.add(name)) {
+                throw new OperatorException(String.format("The name '%s' is used by several bound variants", name));
+            }
+            variantConfigs[i + 1] = boundsVariants[i].createConfig(config);
+            suffixes[i + 1] = "_" + name;
+            encodings[i + 1] = createIntegerEncoding(outputEncoding, variantConfigs[i + 1], QaaBandLayout.MERIS);
+        }
+        initTileEngine(sourceProduct, sourceBands, validPixelExpression, QaaBandLayout.MERIS, rrsLut != null,
+                       iopSelection, suffixes, encodings);
+    }
+
+    private QaaRrsLut createRrsLut(Band[] sourceBands, QaaConfig config) {
+        final double[] scalingFactors = new double[sourceBands.length];
+        final double[] scalingOffsets = new double[sourceBands.length];
+        final boolean[] signed = new boolean[sourceBands.length];
+        for (int i = 0; i < sourceBands.length; i++) {
+            final Band band = sourceBands[i];
+            final int dataType = band.getDataType();
+            if (band.isLog10Scaled() || (dataType != ProductData.TYPE_INT16 && dataType != ProductData.TYPE_UINT16)) {
+                getLogger().warning(String.format("Band '%s' is not a linearly scaled 16-bit integer band, " +
+                                                  "lookup tables are not used.", band.getName()));
+                return null;
+            }
+            scalingFactors[i] = band.getScalingFactor();
+            scalingOffsets[i] = band.getScalingOffset();
+            signed[i] = dataType == ProductData.TYPE_INT16;
+        }
+        return new QaaRrsLut(scalingFactors, scalingOffsets, signed, config);
+    }
+
+    /*
+     * Each thread gets its own cache, so a cache survives the tiles computed by the thread.
+     */
+    private void initSpectrumCache() {
+        spectrumCaches = Collections.synchronizedList(new ArrayList<QaaSpectrumCache>());
+        spectrumCache = new ThreadLocal<QaaSpectrumCache>() {
+            @Override
+            protected QaaSpectrumCache initialValue() {
+                final QaaSpectrumCache cache = new QaaSpectrumCache(spectrumCacheCapacity, spectrumCacheQuantisation,
+                                                                    spectrumCacheEviction);
+                spectrumCaches.add(cache);
+                return cache;
+            }
+        };
+    }
+
+    /*
+     * Returns the hits and misses summed over the caches of all threads, null if the cache is disabled.
+     */
+    long[] getSpectrumCacheCounts() {
+        if (spectrumCaches == null) {
+            return null;
+        }
+        final long[] counts = new long[2];
+        synchronized (spectrumCaches) {
+            for (QaaSpectrumCache cache : spectrumCaches) {
+                counts[0] += cache.getHitCount();
+                counts[1] += cache.getMissCount();
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public void dispose() {
+        final long[] counts = getSpectrumCacheCounts();
+        if (counts != null && counts[0] + counts[1] > 0) {
+            getLogger().info(String.format("Spectrum cache of %s: %d hits, %d misses, hit ratio %.1f%%",
+                                           getSpi().getOperatorAlias(), counts[0], counts[1],
+                                           100.0 * counts[0] / (counts[0] + counts[1])));
+        }
+        super.dispose();
+    }
+
+    QaaConfig createConfiguredConfig() {
+        final QaaConfig config = new QaaConfig();
+        config.setDivideByPi(divideByPI);
+        config.setFastMath(fastMath);
+        config.setAPigLower(aPigLower);
+        config.setAPigUpper(aPigUpper);
+        config.setATotalLower(aTotalLower);
+        config.setATotalUpper(aTotalUpper);
+        config.setAYsLower(aYsLower);
+        config.setAYsUpper(aYsUpper);
+        config.setBbSpmsLower(bbSpmLower);
+        config.setBbSpmsUpper(bbSpmUpper);
+        return config;
+    }
+
+    @Override
+    BatchProcessor createBatchProcessor(final float[][] rrsByBand) {
+        final QaaWorkspace workspace = new QaaWorkspace();
+        if (variantConfigs != null) {
+            return new BatchProcessor() {
+                @Override
+                public void processBatch(int offset, int count, QaaResultBuffer[] outs) {
+                    qaaAlgorithm.processBatch(rrsByBand, offset, count, variantConfigs, outs, workspace);
+                }
+            };
+        }
+        if (spectrumCache != null) {
+            workspace.setSpectrumCache(spectrumCache.get());
+        }
+        return new BatchProcessor() {
+            @Override
+            public void processBatch(int offset, int count, QaaResultBuffer[] outs) {
+                qaaAlgorithm.processBatch(rrsByBand, offset, count, outs[0], workspace);
+            }
+        };
+    }
+
+    @Override
+    BatchProcessor createBatchProcessor(final short[][] rawByBand) {
+        final QaaWorkspace workspace = new QaaWorkspace();
+        if (variantConfigs != null) {
+            return new BatchProcessor() {
+                @Override
+                public void processBatch(int offset, int count, QaaResultBuffer[] outs) {
+                    qaaAlgorithm.processBatch(rawByBand, offset, count, rrsLut, variantConfigs, outs, workspace);
+                }
+            };
+        }
+        return new BatchProcessor() {
+            @Override
+            public void processBatch(int offset, int count, QaaResultBuffer[] outs) {
+                qaaAlgorithm.processBatch(rawByBand, offset, count, rrsLut, outs[0], workspace);
+            }
+        };
+    }
+
+    private void validateSourceProduct() {
+        for (int i = 0; i < NUM_SOURCE_BANDS; i++) {
+            String requiredBandName = EnvisatConstants.MERIS_L2_BAND_NAMES[i];
+            if (!sourceProduct.containsBand(requiredBandName)) {
+                String msg = String.format("Source product must contain a band with the name '%s'", requiredBandName);
+                throw new OperatorException(msg);
+            }
+        }
+    }
+
+    private void validateParameters() {
+        if (StringUtils.isNotNullAndNotEmpty(invalidPixelExpression)) {
+            validPixelExpression = "not (" + invalidPixelExpression + ")";
+            final String message = String.format("The parameter 'invalidPixelExpression' of %s is deprecated. Please use 'validPixelExpression' instead. " +
+                                                         "The expression is converted to '%s'", getSpi().getOperatorAlias(), validPixelExpression);
+            getLogger().warning(message);
+        }
+    }
+
+    public static class Spi extends OperatorSpi {
+
+        private static final Map<String[], String> DEPRECATED_PARAMETERS = new HashMap<String[], String>();
+
+        static {
+            DEPRECATED_PARAMETERS.put(new String[]{"a_lower", "aLowerBound"}, "aTotalLower");
+            DEPRECATED_PARAMETERS.put(new String[]{"a_upper", "aUpperBound"}, "aTotalUpper");
+            DEPRECATED_PARAMETERS.put(new String[]{"bb_lower", "bbLowerBound"}, "bbSpmLower");
+            DEPRECATED_PARAMETERS.put(new String[]{"bb_upper", "bbUpperBound"}, "bbSpmUpper");
+            DEPRECATED_PARAMETERS.put(new String[]{"aph_lower", "aphLowerBound"}, "aPigLower");
+            DEPRECATED_PARAMETERS.put(new String[]{"aph_upper", "aphUpperBound"}, "aPigUpper");
+            DEPRECATED_PARAMETERS.put(new String[]{"adg_upper", "adgUpperBound"}, "aYsUpper");
+        }
+
+        private Logger logger;
+
+        public Spi() {
+            super(QaaOp.class);
+            logger = BeamLogManager.getSystemLogger();
+        }
+
+        @Override
+        public Operator createOperator(Map<String, Object> parameters, Map<String, Product> sourceProducts) throws
+                OperatorException {
+            if (isDeprecatedParameterUsed(parameters)) {
+                logWarning();
+                mapParameterValuesToNewParameter(parameters);
+            }
+            return super.createOperator(parameters, sourceProducts);
+        }
+
+        private boolean isDeprecatedParameterUsed(Map<String, Object> parameters) {
+            Set<String[]> deprecatedParamSet = DEPRECATED_PARAMETERS.keySet();
+            for (String[] deprecatedParameterNames : deprecatedParamSet) {
+                for (String deprecatedParameterName : deprecatedParameterNames) {
+                    if (parameters.containsKey(deprecatedParameterName)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void mapParameterValuesToNewParameter(Map<String, Object> parameters) {
+            Map<String, Object> parameterCopy = new HashMap<String, Object>(parameters);
+            Map<String, Object> parameterIterator = new HashMap<String, Object>(parameters);
+            Set<Map.Entry<String[], String>> deprecatedParameterEntrySet = DEPRECATED_PARAMETERS.entrySet();
+            for (Map.Entry<String, Object> usedParameter : parameterCopy.entrySet()) {
+                String usedParameterName = usedParameter.getKey();
+                Object usedParameterValue = usedParameter.getValue();
+                for (Map.Entry<String[], String> deprecatedParameterEntry : deprecatedParameterEntrySet) {
+                    String[] deprecatedParameterNames = deprecatedParameterEntry.getKey();
+                    if (ArrayUtils.isMemberOf(usedParameterName, deprecatedParameterNames)) {
+                        mapParameterValue(parameters, usedParameterName, usedParameterValue, deprecatedParameterEntry);
+                    }
+                }
+            }
+        }
+
+        private void mapParameterValue(Map<String, Object> parameters, String usedParameterName,
+                                       Object usedParameterValue,
+                                       Map.Entry<String[], String> deprecatedParameterEntry) {
+            parameters.remove(usedParameterName);
+            String newParameterName = deprecatedParameterEntry.getValue();
+            parameters.put(newParameterName, usedParameterValue);
+            logger.log(Level.INFO, String.format("Mapping value [%s] from '%s' to '%s'",
+                                                 usedParameterValue, usedParameterName,
+                                                 newParameterName));
+        }
+
+        private void logWarning() {
+            Set<String[]> deprecatedParamSet = DEPRECATED_PARAMETERS.keySet();
+            StringBuilder sb = new StringBuilder();
+            for (String[] names : deprecatedParamSet) {
+                sb.append(StringUtils.arrayToString(names, ", "));
+                sb.append("\n");
+            }
+            String deprecatedParamsList = sb.toString();
+            logger.log(Level.WARNING, "Deprecated parameter names are used in " + getOperatorAlias() + ".\n" +
+                    "Deprecated names are:\n" +
+                    deprecatedParamsList +
+                    "The given parameter values are mapped to the new parameters.\n" +
+                    "Please update your parameter configuration."
+            );
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.gpf.OperatorException;
+import org.esa.beam.framework.gpf.OperatorSpi;
+import org.esa.beam.framework.gpf.annotations.OperatorMetadata;
+import org.esa.beam.framework.gpf.annotations.Parameter;
+import org.esa.beam.framework.gpf.annotations.SourceProduct;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaBoundsFilter;
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies bounds to the unbounded IOPs written by {@link QaaOp} or {@link QaaMultiSensorOp} with the parameter
+ * 'unboundedOutput'. The bounded IOP bands and the flag band are derived with {@link QaaBoundsFilter}, the
+ * algorithm itself is not computed again. The IOP bands of the source are found by their names, the target product
+ * has the same bands.
+ */
+@SuppressWarnings({"UnusedDeclaration"})
+@OperatorMetadata(alias = "Meris.QaaRethreshold",
+        description = "Applies new bounds to the unbounded IOPs of a QAA product.",
+        authors = "Brockmann Consult",
+        copyright = "(C) 2013 by NRL and WSU",
+        version = "1.3.3")
+public class QaaRethresholdOp extends AbstractQaaOp {
+
+    private static final Pattern IOP_BAND_NAME_PATTERN = Pattern.compile("(a_total|bb_spm|a_pig|a_ys)_(\\d+)");
+    // the groups have at least the bands of MERIS, so that QAA products with missing bands are handled alike
+    private static final int NUM_WAVELENGTHS = QaaBandLayout.MERIS.getNumATotalBands();
+    private static final int NUM_A_PIG_WAVELENGTHS = QaaBandLayout.MERIS.getNumAPigBands();
+
+    @SourceProduct(alias = "source", label = "Source",
+            description = "The product with the unbounded IOPs and the flag band 'analytical_flags'.")
+    private Product sourceProduct;
+
+    @Parameter(defaultValue = ANALYSIS_FLAG_BAND_NAME + ".normal || " + ANALYSIS_FLAG_BAND_NAME + ".imaginary_number",
+            description = "Expression defining pixels considered for processing.")
+    private String validPixelExpression;
+
+    @Parameter(defaultValue = "0.001", label = "'A_TOTAL' lower bound",
+            description = "The lower bound of the valid value range.")
+    private float aTotalLower;
+
+    @Parameter(defaultValue = "5.0", label = "'A_TOTAL' upper bound",
+            description = "The upper bound of the valid value range.")
+    private float aTotalUpper;
+
+    @Parameter(defaultValue = "0.0001", label = "'BB_SPM' lower bound",
+            description = "The lower bound of the valid value range.")
+    private float bbSpmLower;
+
+    @Parameter(defaultValue = "1.0", label = "'BB_SPM' upper bound",
+            description = "The upper bound of the valid value range.")
+    private float bbSpmUpper;
+
+    @Parameter(defaultValue = "0.0001", label = "'A_PIG' lower bound",
+            description = "The lower bound of the valid value range.")
+    private float aPigLower;
+
+    @Parameter(defaultValue = "3.0", label = "'A_PIG' upper bound",
+            description = "The upper bound of the valid value range.")
+    private float aPigUpper;
+
+    @Parameter(defaultValue = "0.0001", label = "'A_YS' lower bound",
+            description = "The lower bound of the valid value range.")
+    private float aYsLower;
+
+    @Parameter(defaultValue = "1.0", label = "'A_YS' upper bound",
+            description = "The upper bound of the valid value range")
+    private float aYsUpper;
+
+    @Parameter(defaultValue = ENCODING_FLOAT32, valueSet = {ENCODING_FLOAT32, ENCODING_INT16, ENCODING_UINT16},
+            label = "Output encoding",
+            description = "The data type of the IOP bands. The integer types are scaled to the valid value ranges.")
+    private String outputEncoding;
+
+    private QaaConfig config;
+    private QaaBandLayout bandLayout;
+    private int[] iopBandIndexes;
+
+    @Override
+    public void initialize() throws OperatorException {
+        final Band flagBand = sourceProduct.getBand(ANALYSIS_FLAG_BAND_NAME);
+        if (flagBand == null) {
+            throw new OperatorException(String.format("Source product must contain the flag band '%s'",
+                                                      ANALYSIS_FLAG_BAND_NAME));
+        }
+        if (!UNBOUNDED_PRODUCT_TYPE.equals(sourceProduct.getProductType())) {
+            getLogger().warning(String.format("The source product is not of type %s, values which are out of " +
+                                              "the bounds of the source cannot be recovered.",
+                                              UNBOUNDED_PRODUCT_TYPE));
+        }
+
+        bandLayout = findBandLayout(sourceProduct);
+        final String[] iopBandNames = bandLayout.getIopBandNames();
+        final boolean[] iopSelection = new boolean[bandLayout.getNumIopBands()];
+        final List<Band> sourceBands = new ArrayList<Band>();
+        final List<Integer> bandIndexes = new ArrayList<Integer>();
+        for (int i = 0; i < iopSelection.length; i++) {
+            final Band band = sourceProduct.getBand(iopBandNames[i]);
+            if (band != null) {
+                iopSelection[i] = true;
+                sourceBands.add(band);
+                bandIndexes.add(i);
+            }
+        }
+        if (sourceBands.isEmpty()) {
+            throw new OperatorException("Source product does not contain any IOP band");
+        }
+        iopBandIndexes = new int[bandIndexes.size()];
+        for (int i = 0; i < iopBandIndexes.length; i++) {
+            iopBandIndexes[i] = bandIndexes.get(i);
+        }
+        // the flag band is the last source band
+        sourceBands.add(flagBand);
+
+        config = createConfiguredConfig();
+        initTileEngine(sourceProduct, sourceBands.toArray(new Band[sourceBands.size()]), validPixelExpression,
+                       bandLayout, false, iopSelection, createIntegerEncoding(outputEncoding, config, bandLayout));
+    }
+
+    /*
+     * The layout of the IOP bands of the source product. A product written for a sensor with more bands than
+     * MERIS has larger groups, which are recognised by the number of their wavelengths.
+     */
+    static QaaBandLayout findBandLayout(Product product) {
+        final SortedSet<Integer> aTotalWavelengths = new TreeSet<Integer>();
+        final SortedSet<Integer> aPigWavelengths = new TreeSet<Integer>();
+        for (Band band : product.getBands()) {
+            final Matcher matcher = IOP_BAND_NAME_PATTERN.matcher(band.getName());
+            if (matcher.matches()) {
+                final String groupName = matcher.group(1);
+                if ("a_pig".equals(groupName) || "a_ys".equals(groupName)) {
+                    aPigWavelengths.add(Integer.valueOf(matcher.group(2)));
+                } else {
+                    aTotalWavelengths.add(Integer.valueOf(matcher.group(2)));
+                }
+            }
+        }
+        return new QaaBandLayout(findWavelengths(product), Math.max(NUM_WAVELENGTHS, aTotalWavelengths.size()),
+                                 Math.max(NUM_A_PIG_WAVELENGTHS, aPigWavelengths.size()));
+    }
+
+    /*
+     * The wavelengths of all IOP bands in ascending order. The bands of a group share the bounds and the
+     * encoding, so missing bands do not disturb the assignment of the others.
+     */
+    static int[] findWavelengths(Product product) {
+        final SortedSet<Integer> wavelengths = new TreeSet<Integer>();
+        for (Band band : product.getBands()) {
+            final Matcher matcher = IOP_BAND_NAME_PATTERN.matcher(band.getName());
+            if (matcher.matches()) {
+                wavelengths.add(Integer.valueOf(matcher.group(2)));
+            }
+        }
+        final int[] result = new int[Math.max(NUM_WAVELENGTHS, wavelengths.size())];
+        int i = 0;
+        for (Integer wavelength : wavelengths) {
+            result[i++] = wavelength;
+        }
+        return result;
+    }
+
+    private QaaConfig createConfiguredConfig() {
+        final QaaConfig config = new QaaConfig();
+        config.setAPigLower(aPigLower);
+        config.setAPigUpper(aPigUpper);
+        config.setATotalLower(aTotalLower);
+        config.setATotalUpper(aTotalUpper);
+        config.setAYsLower(aYsLower);
+        config.setAYsUpper(aYsUpper);
+        config.setBbSpmsLower(bbSpmLower);
+        config.setBbSpmsUpper(bbSpmUpper);
+        return config;
+    }
+
+    @Override
+    BatchProcessor createBatchProcessor(float[][] samples) {
+        final float[][] iopSamples = new float[bandLayout.getNumIopBands()][];
+        for (int i = 0; i < iopBandIndexes.length; i++) {
+            iopSamples[iopBandIndexes[i]] = samples[i];
+        }
+        final float[] flagSamples = samples[samples.length - 1];
+        final byte[] flags = new byte[flagSamples.length];
+        for (int i = 0; i < flags.length; i++) {
+            flags[i] = (byte) flagSamples[i];
+        }
+        final QaaResultBuffer unbounded = createResultBuffer(bandLayout, iopSamples, flags);
+        return new BatchProcessor() {
+            @Override
+            public void processBatch(int offset, int count, QaaResultBuffer[] outs) {
+                QaaBoundsFilter.apply(unbounded, offset, count, config, outs[0]);
+            }
+        };
+    }
+
+    public static class Spi extends OperatorSpi {
+
+        public Spi() {
+            super(QaaRethresholdOp.class);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package org.esa.beam.meris.qaa;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * A content-addressed cache of computed tiles on local disk. An entry holds the sample arrays of all target bands
+ * of a tile and is stored in a file named by the SHA-256 hash of its key. The size of the cache is bounded, the
+ * least recently used entries are removed when it is exceeded.
+ * <p/>
+ * There is one instance per directory, it is thread safe. The entries found in the directory are indexed when the
+ * instance is created, in the order of their modification time. A failing read is treated as a miss and removes
+ * the entry, a failing write is logged and ignored, so the cache never breaks the processing.
+ */
+class QaaTileCache {
+
+    private static final int MAGIC = 0x51414154;
+    private static final String ENTRY_SUFFIX = ".tile";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Map<File, QaaTileCache> INSTANCES = new HashMap<File, QaaTileCache>();
+
+    private final File directory;
+    private final Logger logger;
+    // access ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<String, Long> entrySizes;
+    private long maxBytes;
+    private long totalBytes;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * @param directory the directory of the cache, created if it does not exist
+     * @param maxBytes  the maximum size of all entries
+     * @param logger    receives the warnings on failing writes
+     * @return the cache of the directory, the size is updated if the cache already exists
+     * @throws IOException if the directory cannot be created
+     */
+    static QaaTileCache get(File directory, long maxBytes, Logger logger) throws IOException {
+        final File canonicalDirectory = directory.getCanonicalFile();
+        synchronized (INSTANCES) {
+            QaaTileCache cache = INSTANCES.get(canonicalDirectory);
+            if (cache == null) {
+                cache = new QaaTileCache(canonicalDirectory, maxBytes, logger);
+                INSTANCES.put(canonicalDirectory, cache);
+            } else {
+                cache.setMaxBytes(maxBytes);
+            }
+            return cache;
+        }
+    }
+
+    QaaTileCache(File directory, long maxBytes, Logger logger) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create the tile cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.logger = logger;
+        entrySizes = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        indexEntries();
+    }
+
+    /**
+     * @param parts the parts of the key, e.g. the identity of the source product and the tile rectangle
+     * @return the hex encoded SHA-256 hash of the parts
+     */
+    static String createKey(String... parts) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(part.getBytes("UTF-8"));
+                digest.update((byte) 0);
+            }
+            final StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(String.format("%02x", b & 0xFF));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads an entry into the given arrays.
+     *
+     * @param key    the key
+     * @param arrays the arrays to fill, each a float[], short[] or byte[] with the same types and lengths as
+     *               written
+     * @return {@code true} if the entry has been found and read completely, otherwise an existing entry is removed
+     */
+    boolean read(String key, Object[] arrays) {
+        synchronized (this) {
+            if (entrySizes.get(key) == null) {
+                missCount++;
+                return false;
+            }
+        }
+        final File file = getFile(key);
+        boolean found = false;
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                found = readArrays(in, arrays);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // removed meanwhile or truncated, a miss
+        }
+        synchronized (this) {
+            if (found) {
+                hitCount++;
+                //noinspection ResultOfMethodCallIgnored
+                file.setLastModified(System.currentTimeMillis());
+            } else {
+                missCount++;
+                // truncated or of another layout, it would miss on every later read and never be rewritten
+                final Long size = entrySizes.remove(key);
+                if (size != null) {
+                    totalBytes -= size;
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Writes an entry and removes the least recently used entries if the size of the cache is exceeded.
+     *
+     * @param key    the key
+     * @param arrays the arrays to store, each a float[], short[] or byte[]
+     */
+    void write(String key, Object[] arrays) {
+        final File file = getFile(key);
+        final File tempFile = new File(directory, key + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+        try {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                writeArrays(out, arrays);
+            } finally {
+                out.close();
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning(String.format("Cannot write the tile cache entry %s: %s", file, e.getMessage()));
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            return;
+        }
+        synchronized (this) {
+            final Long previousSize = entrySizes.put(key, file.length());
+            totalBytes += file.length() - (previousSize != null ? previousSize : 0L);
+            evict();
+        }
+    }
+
+    synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    synchronized int getEntryCount() {
+        return entrySizes.size();
+    }
+
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    synchronized long getMissCount() {
+        return missCount;
+    }
+
+    private synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<String, Long>> iterator = entrySizes.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldest = iterator.next();
+            //noinspection ResultOfMethodCallIgnored
+            getFile(eldest.getKey()).delete();
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private void indexEntries() {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long[] modificationTimes = new long[files.length];
+        final Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            modificationTimes[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return Long.compare(modificationTimes[i1], modificationTimes[i2]);
+            }
+        });
+        for (Integer i : order) {
+            final String name = files[i].getName();
+            if (name.endsWith(ENTRY_SUFFIX)) {
+                entrySizes.put(name.substring(0, name.length() - ENTRY_SUFFIX.length()), files[i].length());
+                totalBytes += files[i].length();
+            } else if (name.endsWith(TEMP_SUFFIX)) {
+                // left over by an interrupted write
+                //noinspection ResultOfMethodCallIgnored
+                files[i].delete();
+            }
+        }
+        evict();
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key + ENTRY_SUFFIX);
+    }
+
+    private static void writeArrays(DataOutputStream out, Object[] arrays) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(arrays.length);
+        for (Object array : arrays) {
+            if (array instanceof float[]) {
+                final float[] values = (float[]) array;
+                out.writeByte('F');
+                out.writeInt(values.length);
+                for (float value : values) {
+                    out.writeFloat(value);
+                }
+            } else if (array instanceof short[]) {
+                final short[] values = (short[]) array;
+                out.writeByte('S');
+                out.writeInt(values.length);
+                for (short value : values) {
+                    out.writeShort(value);
+                }
+            } else if (array instanceof byte[]) {
+                final byte[] values = (byte[]) array;
+                out.writeByte('B');
+                out.writeInt(values.length);
+                out.write(values);
+            } else {
+                throw new IllegalArgumentException("Unsupported array type: " + array.getClass());
+            }
+        }
+    }
+
+    /*
+     * Returns false if the entry does not match the types and lengths of the arrays.
+     */
+    private static boolean readArrays(DataInputStream in, Object[] arrays) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != arrays.length) {
+            return false;
+        }
+        for (Object array : arrays) {
+            final int type = in.readByte();
+            final int length = in.readInt();
+            if (array instanceof float[] && type == 'F' && length == ((float[]) array).length) {
+                final float[] values = (float[]) array;
+                for (int i = 0; i < length; i++) {
+                    values[i] = in.readFloat();
+                }
+            } else if (array instanceof short[] && type == 'S' && length == ((short[]) array).length) {
+                final short[] values = (short[]) array;
+                for (int i = 0; i < length; i++) {
+                    values[i] = in.readShort();
+                }
+            } else if (array instanceof byte[] && type == 'B' && length == ((byte[]) array).length) {
+                in.readFully((byte[]) array);
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,118 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.meris.qaa.algorithm.QaaSpectrumCache;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QaaBatchDriverTest {
+
+    @Test
+    public void testConvertParameter() {
+        assertEquals(0.5f, QaaBatchDriver.convertParameter("aTotalUpper", "0.5"));
+        assertEquals(Boolean.TRUE, QaaBatchDriver.convertParameter("fastMath", "true"));
+        assertEquals("l2_flags.WATER", QaaBatchDriver.convertParameter("validPixelExpression", "l2_flags.WATER"));
+        assertArrayEquals(new Object[]{"a_pig", "a_ys_443"},
+                          (Object[]) QaaBatchDriver.convertParameter("outputBands", "a_pig, a_ys_443"));
+        assertEquals(QaaSpectrumCache.Eviction.FIFO,
+                     QaaBatchDriver.convertParameter("spectrumCacheEviction", "FIFO"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConvertParameter_unknown() {
+        QaaBatchDriver.convertParameter("qaaAlgorithm", "x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConvertParameter_variants() {
+        QaaBatchDriver.convertParameter("boundsVariants", "strict");
+    }
+
+    @Test
+    public void testCreateProductKey() {
+        final File file = new File("MER_RR__2P.N1");
+        final Map<String, String> parameters = new HashMap<String, String>();
+        final String key = QaaBatchDriver.createProductKey(file, parameters, "BEAM-DIMAP", 512);
+
+        assertEquals(key, QaaBatchDriver.createProductKey(file, parameters, "BEAM-DIMAP", 512));
+        assertNotEquals(key, QaaBatchDriver.createProductKey(file, parameters, "BEAM-DIMAP", 256));
+        parameters.put("aTotalUpper", "2.0");
+        assertNotEquals(key, QaaBatchDriver.createProductKey(file, parameters, "BEAM-DIMAP", 512));
+    }
+
+    @Test
+    public void testGetRowFileSize() {
+        final Band[] bands = {
+                new Band("a_pig_443", ProductData.TYPE_FLOAT32, 100, 50),
+                new Band("a_ys_443", ProductData.TYPE_INT16, 100, 50),
+                new Band("analytical_flags", ProductData.TYPE_UINT8, 100, 50)
+        };
+
+        assertEquals(100L * 16 * (4 + 2 + 1), QaaBatchDriver.getRowFileSize(bands, 100, 16));
+    }
+
+    @Test
+    public void testSyncTree() throws IOException {
+        final File root = File.createTempFile("qaa-batch", "");
+        assertTrue(root.delete());
+        final File dataDir = new File(root, "p.data");
+        assertTrue(dataDir.mkdirs());
+        write(new File(root, "p.dim"), "main");
+        write(new File(dataDir, "a_pig_443.img"), "data");
+
+        QaaBatchDriver.syncTree(root);
+
+        for (String path : new String[]{"p.data/a_pig_443.img", "p.data", "p.dim", ""}) {
+            assertTrue(new File(root, path).delete());
+        }
+    }
+
+    @Test
+    public void testMoveIntoPlace() throws IOException {
+        final File root = File.createTempFile("qaa-batch", "");
+        assertTrue(root.delete());
+        final File productDir = new File(root, "staging");
+        final File dataDir = new File(productDir, "p.data");
+        assertTrue(dataDir.mkdirs());
+        final File mainFile = new File(productDir, "p.dim");
+        write(mainFile, "new");
+        write(new File(dataDir, "a_pig_443.img"), "new");
+        // an older version of the product is replaced
+        final File targetDir = new File(root, "out");
+        assertTrue(new File(targetDir, "p.data").mkdirs());
+        write(new File(targetDir, "p.data/a_ys_443.img"), "old");
+        write(new File(targetDir, "p.dim"), "old");
+
+        QaaBatchDriver.moveIntoPlace(productDir, mainFile, targetDir);
+
+        assertTrue(new File(targetDir, "p.dim").isFile());
+        assertTrue(new File(targetDir, "p.data/a_pig_443.img").isFile());
+        assertFalse(new File(targetDir, "p.data/a_ys_443.img").exists());
+        assertEquals(0, productDir.list().length);
+        for (String path : new String[]{"out/p.data/a_pig_443.img", "out/p.data", "out/p.dim", "out", "staging", ""}) {
+            assertTrue(new File(root, path).delete());
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        final Writer writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class QaaBoundsVariantTest {
+
+    @Test
+    public void testCreateConfig() {
+        final QaaConfig base = new QaaConfig();
+        base.setDivideByPi(false);
+        base.setFastMath(true);
+        base.setDecomposition(false);
+        base.setATotalUpper(4.0f);
+        base.setBbSpmsLower(0.001f);
+        base.setAYsUpper(0.5f);
+        final QaaBoundsVariant variant = new QaaBoundsVariant("strict");
+        variant.aTotalUpper = 2.0f;
+        variant.aPigLower = 0.01f;
+        variant.aYsUpper = 0.2f;
+
+        final QaaConfig config = variant.createConfig(base);
+
+        assertFalse(config.isDivideByPi());
+        assertTrue(config.isFastMath());
+        assertFalse(config.isDecomposition());
+        assertEquals(base.getATotalLower(), config.getATotalLower(), 0.0f);
+        assertEquals(2.0f, config.getATotalUpper(), 0.0f);
+        assertEquals(0.001f, config.getBbSpmsLower(), 0.0f);
+        assertEquals(base.getBbSpmsUpper(), config.getBbSpmsUpper(), 0.0f);
+        assertEquals(0.01f, config.getAPigLower(), 0.0f);
+        assertEquals(base.getAPigUpper(), config.getAPigUpper(), 0.0f);
+        assertEquals(base.getAYsLower(), config.getAYsLower(), 0.0f);
+        assertEquals(0.2f, config.getAYsUpper(), 0.0f);
+    }
+}
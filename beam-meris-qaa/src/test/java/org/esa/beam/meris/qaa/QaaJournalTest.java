@@ -0,0 +1,91 @@
+package org.esa.beam.meris.qaa;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QaaJournalTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("qaa", ".journal");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void tearDown() {
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testRecordAndReplay() throws IOException {
+        final QaaJournal journal = new QaaJournal(file);
+        journal.recordRow("p1", 0);
+        journal.recordRow("p1", 2);
+        journal.recordRow("p2", 1);
+        journal.recordProduct("p2", "/data/p2.N1");
+        journal.close();
+
+        final QaaJournal reopened = new QaaJournal(file);
+        try {
+            assertEquals(createRows(0, 2), reopened.getCompletedRows("p1"));
+            assertFalse(reopened.isProductCompleted("p1"));
+            assertTrue(reopened.isProductCompleted("p2"));
+            assertTrue(reopened.getCompletedRows("p2").isEmpty());
+            assertTrue(reopened.getCompletedRows("p3").isEmpty());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void testIncompleteRecord() throws IOException {
+        final QaaJournal journal = new QaaJournal(file);
+        journal.recordRow("p1", 0);
+        journal.close();
+        // the process died while writing the next record
+        final OutputStream out = new FileOutputStream(file, true);
+        out.write("ROW\tp1\t1".getBytes("UTF-8"));
+        out.close();
+
+        final QaaJournal reopened = new QaaJournal(file);
+        reopened.recordRow("p1", 2);
+        reopened.close();
+
+        final QaaJournal replayed = new QaaJournal(file);
+        try {
+            assertEquals(createRows(0, 2), replayed.getCompletedRows("p1"));
+        } finally {
+            replayed.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidRecord() throws IOException {
+        final OutputStream out = new FileOutputStream(file);
+        out.write("ROW\tp1\tx\n".getBytes("UTF-8"));
+        out.close();
+
+        new QaaJournal(file);
+    }
+
+    private static BitSet createRows(int... rows) {
+        final BitSet bitSet = new BitSet();
+        for (int row : rows) {
+            bitSet.set(row);
+        }
+        return bitSet;
+    }
+}
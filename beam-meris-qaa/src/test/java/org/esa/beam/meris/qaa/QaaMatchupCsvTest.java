@@ -0,0 +1,95 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.meris.qaa.algorithm.QaaAlgorithm;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaConstants;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QaaMatchupCsvTest {
+
+    @Test
+    public void testReadPoints() throws IOException {
+        final String text = "# stations of the cruise\n" +
+                            "ID,Lat,Lon,Time\n" +
+                            "BOUSSOLE,43.367,7.9,2008-07-01 10:15:00\n" +
+                            "\n" +
+                            "AAOT,45.314,12.508,2008-07-02T09:30:00\n" +
+                            "MOBY,20.8,-157.2,\n";
+
+        final List<QaaMatchupPoint> points = QaaMatchupCsv.readPoints(new StringReader(text));
+
+        assertEquals(3, points.size());
+        assertEquals("BOUSSOLE", points.get(0).getId());
+        assertEquals(43.367, points.get(0).getLat(), 0.0);
+        assertEquals(7.9, points.get(0).getLon(), 0.0);
+        assertEquals(1214907300000L, points.get(0).getTime().getTime());
+        assertEquals(1214991000000L, points.get(1).getTime().getTime());
+        assertEquals(-157.2, points.get(2).getLon(), 0.0);
+        assertNull(points.get(2).getTime());
+    }
+
+    @Test
+    public void testReadPoints_tabSeparatedWithoutIdAndTime() throws IOException {
+        final String text = "latitude\tlongitude\n" +
+                            "43.367\t7.9\n" +
+                            "45.314\t12.508\n";
+
+        final List<QaaMatchupPoint> points = QaaMatchupCsv.readPoints(new StringReader(text));
+
+        assertEquals(2, points.size());
+        assertEquals("1", points.get(0).getId());
+        assertEquals("2", points.get(1).getId());
+        assertEquals(12.508, points.get(1).getLon(), 0.0);
+        assertNull(points.get(1).getTime());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadPoints_missingLatColumn() throws IOException {
+        QaaMatchupCsv.readPoints(new StringReader("id,lon\nA,7.9\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadPoints_latOutOfRange() throws IOException {
+        QaaMatchupCsv.readPoints(new StringReader("lat,lon\n93.0,7.9\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadPoints_malformedTime() throws IOException {
+        QaaMatchupCsv.readPoints(new StringReader("lat,lon,time\n43.0,7.9,01.07.2008\n"));
+    }
+
+    @Test
+    public void testWriteRecord() throws IOException {
+        final QaaMatchupWindow window = new QaaMatchupWindow(new QaaAlgorithm(), 1);
+        window.process(new float[7][1], new int[]{0}, 1, 0);
+        final StringWriter writer = new StringWriter();
+        final QaaMatchupCsv csv = new QaaMatchupCsv(writer, QaaBandLayout.MERIS);
+
+        csv.writeHeader();
+        csv.writeRecord(new QaaMatchupPoint("AAOT", 45.314, 12.508, null), "MER_RR__2P", 10.5f, 20.5f, window);
+
+        final String[] lines = writer.toString().split("\n");
+        assertEquals(2, lines.length);
+        final String[] header = lines[0].split(",");
+        final String[] values = lines[1].split(",", -1);
+        assertEquals(10 + 4 * 16, header.length);
+        assertEquals(header.length, values.length);
+        assertEquals("a_total_412", header[10]);
+        assertEquals("a_ys_490_count", header[header.length - 1]);
+        assertEquals("AAOT", values[0]);
+        assertEquals("", values[3]);
+        assertEquals("MER_RR__2P", values[4]);
+        assertEquals("1", values[7]);
+        assertEquals("0", values[8]);
+        assertEquals(String.valueOf(QaaConstants.FLAG_MASK_INVALID), values[9]);
+        assertEquals("NaN", values[10]);
+        assertEquals("0", values[13]);
+    }
+}
@@ -0,0 +1,51 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.framework.gpf.annotations.Parameter;
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class QaaMatchupExtractorTest {
+
+    @Test
+    public void testIsInTime() {
+        final Date start = new Date(1214907300000L);
+        final Date end = new Date(1214907400000L);
+        final long hour = 3600L * 1000L;
+
+        assertTrue(QaaMatchupExtractor.isInTime(new Date(1214907350000L), start, end, 0.0));
+        assertTrue(QaaMatchupExtractor.isInTime(new Date(start.getTime() - 2 * hour), start, end, 3.0));
+        assertFalse(QaaMatchupExtractor.isInTime(new Date(end.getTime() + 4 * hour), start, end, 3.0));
+        assertTrue(QaaMatchupExtractor.isInTime(null, start, end, 3.0));
+        assertTrue(QaaMatchupExtractor.isInTime(new Date(0L), null, null, 3.0));
+    }
+
+    @Test
+    public void testCreateDefaultConfig() throws NoSuchFieldException {
+        final QaaConfig config = QaaMatchupExtractor.createDefaultConfig();
+
+        assertTrue(config.isDivideByPi());
+        assertFalse(config.isFastMath());
+        assertEquals(getQaaOpDefault("aTotalLower"), config.getATotalLower(), 0.0f);
+        assertEquals(getQaaOpDefault("aTotalUpper"), config.getATotalUpper(), 0.0f);
+        assertEquals(getQaaOpDefault("bbSpmLower"), config.getBbSpmsLower(), 0.0f);
+        assertEquals(getQaaOpDefault("bbSpmUpper"), config.getBbSpmsUpper(), 0.0f);
+        assertEquals(getQaaOpDefault("aPigLower"), config.getAPigLower(), 0.0f);
+        assertEquals(getQaaOpDefault("aPigUpper"), config.getAPigUpper(), 0.0f);
+        assertEquals(getQaaOpDefault("aYsLower"), config.getAYsLower(), 0.0f);
+        assertEquals(getQaaOpDefault("aYsUpper"), config.getAYsUpper(), 0.0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEvenWindowSize() {
+        new QaaMatchupExtractor(QaaMatchupExtractor.createDefaultConfig(), "true", 4, 3.0);
+    }
+
+    private static float getQaaOpDefault(String parameterName) throws NoSuchFieldException {
+        final Parameter parameter = QaaOp.class.getDeclaredField(parameterName).getAnnotation(Parameter.class);
+        return Float.parseFloat(parameter.defaultValue());
+    }
+}
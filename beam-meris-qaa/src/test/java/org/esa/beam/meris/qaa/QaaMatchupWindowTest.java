@@ -0,0 +1,64 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.meris.qaa.algorithm.QaaAlgorithm;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaConstants;
+import org.esa.beam.meris.qaa.algorithm.QaaResult;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QaaMatchupWindowTest {
+
+    private static final float[] SPECTRUM_A = {0.030262154f, 0.031086152f, 0.022717977f, 0.013177891f, 0.0072450927f, 0.0028870495f, 0.0024475828f};
+    private static final float[] SPECTRUM_B = {0.0020f, 0.0025f, 0.0041f, 0.0052f, 0.0070f, 0.0023f, 0.0019f};
+
+    @Test
+    public void testProcess_statistics() {
+        final QaaAlgorithm algorithm = new QaaAlgorithm();
+        final QaaResult resultA = algorithm.process(SPECTRUM_A, null);
+        final QaaResult resultB = algorithm.process(SPECTRUM_B, null);
+        // a clipped 2 x 2 window, the last pixel is not processed
+        final float[][] rrsByBand = toBandMajor(SPECTRUM_A, SPECTRUM_B, SPECTRUM_A, SPECTRUM_B);
+        final int[] validSamples = {1, 1, 1, 0};
+        final QaaMatchupWindow window = new QaaMatchupWindow(algorithm, 9);
+
+        window.process(rrsByBand, validSamples, 4, 1);
+
+        assertEquals(4, window.getNumPixels());
+        assertEquals(3, window.getNumProcessed());
+        assertEquals(resultB.getFlags(), window.getCenterFlags());
+        final int bandIndex = QaaBandLayout.MERIS.getBbSpmBandIndexes()[1];
+        final double a = resultA.getBB_SPM()[1];
+        final double b = resultB.getBB_SPM()[1];
+        final double mean = (2 * a + b) / 3;
+        final double sigma = Math.sqrt((2 * (a - mean) * (a - mean) + (b - mean) * (b - mean)) / 2);
+        assertEquals(b, window.getCenterValue(bandIndex), 0.0);
+        assertEquals(3, window.getCount(bandIndex));
+        assertEquals(mean, window.getMean(bandIndex), 1.0e-7);
+        assertEquals(sigma, window.getSigma(bandIndex), 1.0e-7);
+    }
+
+    @Test
+    public void testProcess_noValidPixel() {
+        final QaaMatchupWindow window = new QaaMatchupWindow(new QaaAlgorithm(), 1);
+
+        window.process(toBandMajor(SPECTRUM_A), new int[]{0}, 1, 0);
+
+        assertEquals(0, window.getNumProcessed());
+        assertEquals(QaaConstants.FLAG_MASK_INVALID, window.getCenterFlags());
+        assertEquals(0, window.getCount(0));
+        assertTrue(Double.isNaN(window.getMean(0)));
+        assertTrue(Double.isNaN(window.getSigma(0)));
+    }
+
+    private static float[][] toBandMajor(float[]... spectra) {
+        final float[][] rrsByBand = new float[7][spectra.length];
+        for (int p = 0; p < spectra.length; p++) {
+            for (int b = 0; b < 7; b++) {
+                rrsByBand[b][p] = spectra[p][b];
+            }
+        }
+        return rrsByBand;
+    }
+}
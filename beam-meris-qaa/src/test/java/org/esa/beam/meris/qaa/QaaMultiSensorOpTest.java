@@ -0,0 +1,66 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.framework.gpf.OperatorException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class QaaMultiSensorOpTest {
+
+    private static final double[] WAVELENGTHS = {412.0, 443.0, 488.0, 531.0, 547.0, 667.0};
+
+    @Test
+    public void testFindSourceBands() {
+        final Product product = new Product("modis", "L2", 2, 2);
+        addBand(product, "Rrs_547", 547.0f);
+        final Band b412 = addBand(product, "Rrs_412", 412.0f);
+        final Band b443 = addBand(product, "Rrs_443", 443.0f);
+        addBand(product, "Rrs_469", 469.0f);
+        final Band b488 = addBand(product, "Rrs_488", 488.0f);
+        final Band b531 = addBand(product, "Rrs_531", 531.0f);
+        final Band b551 = addBand(product, "Rrs_551", 548.5f);
+        addBand(product, "Rrs_645", 645.0f);
+        final Band b667 = addBand(product, "Rrs_667", 667.0f);
+        addBand(product, "chlor_a", 0.0f);
+
+        final Band[] bands = QaaMultiSensorOp.findSourceBands(product, WAVELENGTHS, 5.0f);
+
+        assertEquals(6, bands.length);
+        assertSame(b412, bands[0]);
+        assertSame(b443, bands[1]);
+        assertSame(b488, bands[2]);
+        assertSame(b531, bands[3]);
+        assertEquals("Rrs_547", bands[4].getName());
+        assertSame(b667, bands[5]);
+        assertSame(b551, QaaMultiSensorOp.findSourceBands(product, new double[]{549.0}, 5.0f)[0]);
+    }
+
+    @Test
+    public void testFindSourceBands_missingWavelength() {
+        final Product product = new Product("modis", "L2", 2, 2);
+        for (double wavelength : WAVELENGTHS) {
+            if (wavelength != 531.0) {
+                addBand(product, "Rrs_" + (int) wavelength, (float) wavelength);
+            }
+        }
+        addBand(product, "Rrs_537", 537.0f);
+
+        try {
+            QaaMultiSensorOp.findSourceBands(product, WAVELENGTHS, 5.0f);
+            fail("OperatorException expected");
+        } catch (OperatorException expected) {
+        }
+        assertEquals("Rrs_537", QaaMultiSensorOp.findSourceBands(product, WAVELENGTHS, 6.0f)[3].getName());
+    }
+
+    private static Band addBand(Product product, String name, float wavelength) {
+        final Band band = product.addBand(name, ProductData.TYPE_FLOAT32);
+        band.setSpectralWavelength(wavelength);
+        return band;
+    }
+}
@@ -0,0 +1,181 @@
+package org.esa.beam.meris.qaa;
+
+import com.bc.ceres.glevel.MultiLevelImage;
+import org.esa.beam.dataio.envisat.EnvisatConstants;
+import org.esa.beam.framework.datamodel.Band;
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.framework.gpf.OperatorException;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.esa.beam.meris.qaa.algorithm.QaaConfig;
+import org.esa.beam.meris.qaa.algorithm.QaaConstants;
+import org.esa.beam.meris.qaa.algorithm.QaaResultBuffer;
+import org.junit.Test;
+
+import java.awt.image.Raster;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class QaaOpTest {
+
+    @Test
+    public void testCreateResultBuffer() {
+        final float[][] iopSamples = new float[16][3];
+        final byte[] flagSamples = new byte[3];
+
+        final QaaResultBuffer resultBuffer = QaaOp.createResultBuffer(QaaBandLayout.MERIS, iopSamples, flagSamples);
+        assertEquals(3, resultBuffer.getCapacity());
+
+        float value = 1;
+        for (float[] a_total : resultBuffer.getA_Total()) {
+            a_total[1] = value++;
+        }
+        for (float[] bb_spm : resultBuffer.getBB_SPM()) {
+            bb_spm[1] = value++;
+        }
+        for (float[] a_pig : resultBuffer.getA_PIG()) {
+            a_pig[1] = value++;
+        }
+        for (float[] a_ys : resultBuffer.getA_YS()) {
+            a_ys[1] = value++;
+        }
+        resultBuffer.getFlags()[1] = 65;
+
+        for (int i = 0; i < iopSamples.length; i++) {
+            assertEquals(0, iopSamples[i][0], 1e-8);
+            assertEquals(i + 1, iopSamples[i][1], 1e-8);
+            assertEquals(0, iopSamples[i][2], 1e-8);
+        }
+        assertEquals(65, flagSamples[1]);
+        assertEquals(0, flagSamples[0]);
+        assertEquals(0, flagSamples[2]);
+    }
+
+    @Test
+    public void testCreateResultBuffer_missingBands() {
+        final float[][] iopSamples = new float[16][];
+        iopSamples[QaaBandLayout.MERIS.getAPigBandIndexes()[1]] = new float[3];
+
+        final QaaResultBuffer resultBuffer = QaaOp.createResultBuffer(QaaBandLayout.MERIS, iopSamples, new byte[3]);
+        resultBuffer.invalidate(0, 3);
+
+        assertTrue(Float.isNaN(iopSamples[QaaBandLayout.MERIS.getAPigBandIndexes()[1]][2]));
+    }
+
+    @Test
+    public void testSelectIopBands_all() {
+        for (String[] outputBands : new String[][]{null, new String[0]}) {
+            final boolean[] selection = QaaOp.selectIopBands(outputBands, QaaBandLayout.MERIS);
+            assertEquals(16, selection.length);
+            for (boolean selected : selection) {
+                assertTrue(selected);
+            }
+        }
+    }
+
+    @Test
+    public void testSelectIopBands_groupsAndBands() {
+        final boolean[] selection = QaaOp.selectIopBands(new String[]{"a_ys", " a_pig_443", "bb_spm_560"},
+                                                         QaaBandLayout.MERIS);
+        for (int i = 0; i < selection.length; i++) {
+            final boolean expected = i == QaaBandLayout.MERIS.getAYsBandIndexes()[0] || i == QaaBandLayout.MERIS.getAYsBandIndexes()[1] ||
+                                     i == QaaBandLayout.MERIS.getAYsBandIndexes()[2] || i == QaaBandLayout.MERIS.getAPigBandIndexes()[1] ||
+                                     i == QaaBandLayout.MERIS.getBbSpmBandIndexes()[4];
+            assertEquals("band " + i, expected, selection[i]);
+        }
+    }
+
+    @Test(expected = OperatorException.class)
+    public void testSelectIopBands_unknownName() {
+        QaaOp.selectIopBands(new String[]{"a_pig_444"}, QaaBandLayout.MERIS);
+    }
+
+    @Test
+    public void testIsAnySelected() {
+        final boolean[] selection = QaaOp.selectIopBands(new String[]{"bb_spm", "a_pig_443"}, QaaBandLayout.MERIS);
+
+        assertTrue(QaaOp.isAnySelected(selection, QaaBandLayout.MERIS.getATotalBandIndexes(), QaaBandLayout.MERIS.getAPigBandIndexes()));
+        assertFalse(QaaOp.isAnySelected(selection, QaaBandLayout.MERIS.getATotalBandIndexes(), QaaBandLayout.MERIS.getAYsBandIndexes()));
+    }
+
+    @Test
+    public void testCreateIntegerEncoding() {
+        final QaaConfig config = new QaaConfig();
+
+        assertNull(QaaOp.createIntegerEncoding(QaaOp.ENCODING_FLOAT32, config, QaaBandLayout.MERIS));
+        assertTrue(QaaOp.createIntegerEncoding(QaaOp.ENCODING_INT16, config, QaaBandLayout.MERIS).isSigned());
+        assertFalse(QaaOp.createIntegerEncoding(QaaOp.ENCODING_UINT16, config, QaaBandLayout.MERIS).isSigned());
+    }
+
+    @Test(expected = OperatorException.class)
+    public void testCreateIntegerEncoding_emptyRange() {
+        final QaaConfig config = new QaaConfig();
+        config.setATotalUpper(config.getATotalLower());
+        QaaOp.createIntegerEncoding(QaaOp.ENCODING_UINT16, config, QaaBandLayout.MERIS);
+    }
+
+    @Test
+    public void testContainsValidSample() {
+        assertFalse(QaaOp.containsValidSample(new int[]{0, 0, 0, 0}));
+        assertTrue(QaaOp.containsValidSample(new int[]{0, 0, 0, 255}));
+        assertFalse(QaaOp.containsValidSample(new int[0]));
+    }
+
+    @Test
+    public void testComputeTileStack_noValidPixel() {
+        final int width = 4;
+        final int height = 3;
+        final Product source = new Product("MER_RR__2P", "MER_RR__2P", width, height);
+        final CountingBand[] reflecBands = new CountingBand[7];
+        for (int i = 0; i < reflecBands.length; i++) {
+            reflecBands[i] = new CountingBand(EnvisatConstants.MERIS_L2_BAND_NAMES[i], width, height);
+            source.addBand(reflecBands[i]);
+        }
+        final Band water = source.addBand("water", ProductData.TYPE_UINT8);
+        water.setRasterData(ProductData.createInstance(ProductData.TYPE_UINT8, width * height));
+
+        final QaaOp op = new QaaOp();
+        op.setSourceProduct(source);
+        op.setParameter("validPixelExpression", "water");
+        final Product target = op.getTargetProduct();
+
+        for (String iopBandName : QaaBandLayout.MERIS.getIopBandNames()) {
+            final Raster iops = target.getBand(iopBandName).getSourceImage().getData();
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    assertTrue(iopBandName, Float.isNaN(iops.getSampleFloat(x, y, 0)));
+                }
+            }
+        }
+        final Raster flags = target.getBand(QaaOp.ANALYSIS_FLAG_BAND_NAME).getSourceImage().getData();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(QaaConstants.FLAG_MASK_INVALID, flags.getSample(x, y, 0));
+            }
+        }
+        for (CountingBand reflecBand : reflecBands) {
+            assertEquals(reflecBand.getName(), 0, reflecBand.sourceImageRequests);
+        }
+    }
+
+    /*
+     * Counts the requests of its image, which are made for every source tile of the band.
+     */
+    private static class CountingBand extends Band {
+
+        private int sourceImageRequests;
+
+        private CountingBand(String name, int width, int height) {
+            super(name, ProductData.TYPE_FLOAT32, width, height);
+        }
+
+        @Override
+        public synchronized MultiLevelImage getSourceImage() {
+            sourceImageRequests++;
+            return super.getSourceImage();
+        }
+    }
+}
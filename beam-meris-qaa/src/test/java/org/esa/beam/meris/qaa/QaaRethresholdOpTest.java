@@ -0,0 +1,47 @@
+package org.esa.beam.meris.qaa;
+
+import org.esa.beam.framework.datamodel.Product;
+import org.esa.beam.framework.datamodel.ProductData;
+import org.esa.beam.meris.qaa.algorithm.QaaBandLayout;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class QaaRethresholdOpTest {
+
+    @Test
+    public void testFindWavelengths() {
+        final Product product = new Product("qaa", "QAA_L2_UNBOUNDED", 2, 2);
+        for (String name : new String[]{"a_pig_443", "a_total_412", "a_total_560", "bb_spm_490", "bb_spm_510",
+                                        "a_ys_412", "analytical_flags", "a_total_443_strict", "latitude"}) {
+            product.addBand(name, ProductData.TYPE_FLOAT32);
+        }
+
+        assertArrayEquals(new int[]{412, 443, 490, 510, 560}, QaaRethresholdOp.findWavelengths(product));
+    }
+
+    @Test
+    public void testFindWavelengths_fewBands() {
+        final Product product = new Product("qaa", "QAA_L2_UNBOUNDED", 2, 2);
+        product.addBand("a_ys_443", ProductData.TYPE_FLOAT32);
+        product.addBand("a_ys_412", ProductData.TYPE_FLOAT32);
+
+        assertArrayEquals(new int[]{412, 443, 0, 0, 0}, QaaRethresholdOp.findWavelengths(product));
+    }
+
+    @Test
+    public void testFindBandLayout_moreBands() {
+        final Product product = new Product("qaa", "QAA_L2_UNBOUNDED", 2, 2);
+        for (int wavelength : new int[]{412, 443, 490, 510, 560, 620, 665}) {
+            product.addBand("a_total_" + wavelength, ProductData.TYPE_FLOAT32);
+        }
+        product.addBand("a_ys_443", ProductData.TYPE_FLOAT32);
+
+        final QaaBandLayout layout = QaaRethresholdOp.findBandLayout(product);
+        assertEquals(7, layout.getNumATotalBands());
+        assertEquals(3, layout.getNumAPigBands());
+        assertEquals("a_total_665", layout.getIopBandNames()[6]);
+        assertEquals("a_ys_443", layout.getIopBandNames()[layout.getAYsBandIndexes()[1]]);
+    }
+}
@@ -0,0 +1,143 @@
+package org.esa.beam.meris.qaa;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QaaTileCacheTest {
+
+    private static final Logger LOGGER = Logger.getLogger(QaaTileCacheTest.class.getName());
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("qaa-tile-cache", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+        assertTrue(directory.delete());
+    }
+
+    @Test
+    public void testCreateKey() {
+        final String key = QaaTileCache.createKey("product", "java.awt.Rectangle[x=0,y=0,width=64,height=64]");
+
+        assertEquals(64, key.length());
+        assertEquals(key, QaaTileCache.createKey("product", "java.awt.Rectangle[x=0,y=0,width=64,height=64]"));
+        assertNotEquals(key, QaaTileCache.createKey("product", "java.awt.Rectangle[x=64,y=0,width=64,height=64]"));
+        assertNotEquals(QaaTileCache.createKey("ab", "c"), QaaTileCache.createKey("a", "bc"));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        final QaaTileCache cache = new QaaTileCache(directory, 1024 * 1024, LOGGER);
+        final float[] floats = {0.1f, Float.NaN, -2.5f};
+        final short[] shorts = {-1, 0, 32767};
+        final byte[] flags = {1, 8, 2};
+
+        cache.write("k1", new Object[]{floats, shorts, flags});
+        final float[] floatsRead = new float[3];
+        final short[] shortsRead = new short[3];
+        final byte[] flagsRead = new byte[3];
+
+        assertTrue(cache.read("k1", new Object[]{floatsRead, shortsRead, flagsRead}));
+        assertArrayEquals(floats, floatsRead, 0.0f);
+        assertArrayEquals(shorts, shortsRead);
+        assertArrayEquals(flags, flagsRead);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void testRead_miss() throws IOException {
+        final QaaTileCache cache = new QaaTileCache(directory, 1024 * 1024, LOGGER);
+        cache.write("k1", new Object[]{new float[3], new byte[3]});
+
+        assertFalse(cache.read("k2", new Object[]{new float[3], new byte[3]}));
+        // other layout, e.g. a tile at the border of the product
+        assertFalse(cache.read("k1", new Object[]{new float[2], new byte[2]}));
+        assertFalse(cache.read("k1", new Object[]{new short[3], new byte[3]}));
+        assertFalse(cache.read("k1", new Object[]{new float[3]}));
+        assertEquals(4, cache.getMissCount());
+        // removed by the first failing read, so it can be written again
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getTotalBytes());
+        assertFalse(new File(directory, "k1.tile").exists());
+    }
+
+    @Test
+    public void testRead_truncatedEntry() throws IOException {
+        final QaaTileCache cache = new QaaTileCache(directory, 1024 * 1024, LOGGER);
+        cache.write("k1", new Object[]{new float[100]});
+        final RandomAccessFile file = new RandomAccessFile(new File(directory, "k1.tile"), "rw");
+        try {
+            file.setLength(file.length() / 2);
+        } finally {
+            file.close();
+        }
+
+        final QaaTileCache reopened = new QaaTileCache(directory, 1024 * 1024, LOGGER);
+        assertFalse(reopened.read("k1", new Object[]{new float[100]}));
+        assertEquals(0, reopened.getEntryCount());
+        assertFalse(new File(directory, "k1.tile").exists());
+
+        reopened.write("k1", new Object[]{new float[100]});
+        assertTrue(reopened.read("k1", new Object[]{new float[100]}));
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        final QaaTileCache probe = new QaaTileCache(directory, Long.MAX_VALUE, LOGGER);
+        probe.write("probe", new Object[]{new float[100]});
+        final long entrySize = probe.getTotalBytes();
+        assertTrue(new File(directory, "probe.tile").delete());
+
+        final QaaTileCache cache = new QaaTileCache(directory, 3 * entrySize, LOGGER);
+        cache.write("k1", new Object[]{new float[100]});
+        cache.write("k2", new Object[]{new float[100]});
+        cache.write("k3", new Object[]{new float[100]});
+        assertTrue(cache.read("k1", new Object[]{new float[100]}));
+        cache.write("k4", new Object[]{new float[100]});
+
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(3 * entrySize, cache.getTotalBytes());
+        assertFalse(cache.read("k2", new Object[]{new float[100]}));
+        assertTrue(cache.read("k1", new Object[]{new float[100]}));
+        assertTrue(cache.read("k4", new Object[]{new float[100]}));
+        assertFalse(new File(directory, "k2.tile").exists());
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        final QaaTileCache cache = new QaaTileCache(directory, 1024 * 1024, LOGGER);
+        cache.write("k1", new Object[]{new float[]{42.0f}});
+
+        final QaaTileCache reopened = new QaaTileCache(directory, 1024 * 1024, LOGGER);
+        final float[] samples = new float[1];
+
+        assertEquals(cache.getTotalBytes(), reopened.getTotalBytes());
+        assertTrue(reopened.read("k1", new Object[]{samples}));
+        assertEquals(42.0f, samples[0], 0.0f);
+    }
+}